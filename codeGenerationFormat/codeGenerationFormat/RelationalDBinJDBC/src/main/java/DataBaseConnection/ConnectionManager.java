@@ -8,7 +8,7 @@ public class ConnectionManager {
     
     public static Connection getConnection() throws SQLException {
         try {
-            Connection connection = DatabaseConfig.getDataSource().getConnection();
+            Connection connection = StatementCache.wrap(DatabaseConfig.getDataSource().getConnection());
             System.out.println("🔄 Connection obtained from pool");
             return connection;
         } catch (SQLException e) {
@@ -0,0 +1,33 @@
+package DataBaseConnection;
+
+import config.DatabaseConfig;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps how many requests run database work at once, sized to the connection pool less the
+ * connections background work takes outside the governor (see DatabaseConfig). Requests
+ * beyond that wait here on a virtual thread, which costs a few hundred bytes, instead of
+ * holding a container thread while they queue inside Hikari.
+ */
+public class DatabaseGovernor {
+
+    private static final Semaphore PERMITS = new Semaphore(DatabaseConfig.getGovernorPermits(), true);
+
+    // False when no permit became free within governor.queueTimeoutMillis
+    public static boolean acquire() throws InterruptedException {
+        return PERMITS.tryAcquire(DatabaseConfig.getGovernorQueueTimeoutMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public static void release() {
+        PERMITS.release();
+    }
+
+    public static int getAvailable() {
+        return PERMITS.availablePermits();
+    }
+
+    public static int getQueued() {
+        return PERMITS.getQueueLength();
+    }
+}
@@ -0,0 +1,109 @@
+package DataBaseConnection;
+
+import config.DatabaseConfig;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntConsumer;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+/**
+ * Receives the entity_cache NOTIFY events raised by the triggers in
+ * V3__entity_cache_notify.sql and hands them to the caches registered for the table.
+ * Payloads are "<table>:<id>", or "<table>:*" after a TRUNCATE.
+ *
+ * The listener holds one unpooled connection to the primary. Events sent while it is
+ * disconnected are lost, so every registered cache is cleared when the connection drops
+ * and again once LISTEN is re-established.
+ */
+public class EntityCacheListener {
+
+    public static final String CHANNEL = "entity_cache";
+
+    private static final int POLL_MILLIS = 500;
+    private static final long MAX_BACKOFF_MILLIS = 30000;
+
+    private static final Map<String, Handler> HANDLERS = new ConcurrentHashMap<>();
+    private static volatile boolean connected;
+
+    static {
+        if (DatabaseConfig.isEntityCacheListenEnabled()) {
+            Thread thread = new Thread(EntityCacheListener::run, "entity-cache-listener");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    public static void register(String table, IntConsumer onChange, Runnable onReset) {
+        HANDLERS.put(table, new Handler(onChange, onReset));
+    }
+
+    public static boolean isConnected() {
+        return connected;
+    }
+
+    private static void run() {
+        long backoff = 1000;
+        while (true) {
+            try (Connection connection = DatabaseConfig.openDedicatedConnection()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                connected = true;
+                resetAll();
+                backoff = 1000;
+                System.out.println(" Listening for entity cache invalidations");
+
+                PGConnection pg = connection.unwrap(PGConnection.class);
+                while (true) {
+                    PGNotification[] notifications = pg.getNotifications(POLL_MILLIS);
+                    if (notifications == null) continue;
+                    for (PGNotification notification : notifications) {
+                        dispatch(notification.getParameter());
+                    }
+                }
+            } catch (SQLException e) {
+                System.err.println("❌ Entity cache listener disconnected: " + e.getMessage());
+            }
+            if (connected) {
+                connected = false;
+                resetAll();
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                return;
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+        }
+    }
+
+    private static void dispatch(String payload) {
+        int separator = payload.indexOf(':');
+        if (separator < 0) return;
+        Handler handler = HANDLERS.get(payload.substring(0, separator));
+        if (handler == null) return;
+        String id = payload.substring(separator + 1);
+        if ("*".equals(id)) {
+            handler.onReset.run();
+            return;
+        }
+        try {
+            handler.onChange.accept(Integer.parseInt(id));
+        } catch (NumberFormatException e) {
+            System.err.println("Ignoring entity cache event with payload " + payload);
+        }
+    }
+
+    private static void resetAll() {
+        for (Handler handler : HANDLERS.values()) {
+            handler.onReset.run();
+        }
+    }
+
+    private record Handler(IntConsumer onChange, Runnable onReset) {
+    }
+}
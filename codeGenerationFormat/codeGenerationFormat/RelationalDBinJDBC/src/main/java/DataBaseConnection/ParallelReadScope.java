@@ -0,0 +1,155 @@
+package DataBaseConnection;
+
+import config.DatabaseConfig;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs independent read-only lookups concurrently on virtual threads, each with its own
+ * pooled connection. Forked tasks never outlive the scope: join() waits for all of them,
+ * cancels the rest as soon as one fails, and close() shuts the scope down.
+ *
+ * Extra connections are bounded globally and per scope, and come from ReplicaRouter like
+ * any other read. When no extra connection is available (no permit, or the pool has none
+ * free within hydration.parallel.connectionTimeoutMillis) the task is not queued behind
+ * the pool; it runs on the caller's thread with the caller's connection during join(), so
+ * hydration degrades to sequential instead of starving the pool.
+ */
+public class ParallelReadScope implements AutoCloseable {
+
+    private static final Semaphore EXTRA_CONNECTIONS =
+            new Semaphore(DatabaseConfig.getParallelHydrationMaxConnections());
+
+    // Returned by a forked task that found no free connection
+    private static final Object NO_CONNECTION = new Object();
+
+    private final Connection callerConnection;
+    private final int budget;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final List<Subtask<?>> subtasks = new ArrayList<>();
+    private int forked;
+
+    public ParallelReadScope(Connection callerConnection) {
+        this(callerConnection, DatabaseConfig.getParallelHydrationRequestBudget());
+    }
+
+    public ParallelReadScope(Connection callerConnection, int budget) {
+        this.callerConnection = callerConnection;
+        this.budget = budget;
+    }
+
+    public <T> Subtask<T> fork(TransactionManager.TransactionCallback<T> task) {
+        Subtask<T> subtask = new Subtask<>(task);
+        if (forked < budget && EXTRA_CONNECTIONS.tryAcquire()) {
+            forked++;
+            subtask.holdsPermit.set(true);
+            subtask.future = executor.submit(ReadYourWrites.propagate(() -> {
+                try {
+                    return runOnOwnConnection(task);
+                } finally {
+                    subtask.releasePermit();
+                }
+            }));
+        }
+        subtasks.add(subtask);
+        return subtask;
+    }
+
+    public void join() throws SQLException {
+        try {
+            // Deferred tasks run here while the forked ones are in flight
+            for (Subtask<?> subtask : subtasks) {
+                if (subtask.future == null) subtask.runOnCaller(callerConnection);
+            }
+            for (Subtask<?> subtask : subtasks) {
+                if (subtask.future != null) subtask.await(callerConnection);
+            }
+        } catch (SQLException | RuntimeException e) {
+            for (Subtask<?> subtask : subtasks) {
+                if (subtask.future != null) subtask.future.cancel(true);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        executor.close();
+        // close() waited for every task that started; the rest never ran and still hold a permit
+        for (Subtask<?> subtask : subtasks) {
+            subtask.releasePermit();
+        }
+    }
+
+    private static Object runOnOwnConnection(TransactionManager.TransactionCallback<?> task) throws SQLException {
+        Connection connection = ReplicaRouter.tryGetReadConnection(DatabaseConfig.getParallelHydrationConnectionTimeoutMillis());
+        if (connection == null) return NO_CONNECTION;
+        try {
+            connection.setReadOnly(true);
+            return task.execute(connection);
+        } finally {
+            try {
+                connection.setReadOnly(false);
+            } catch (SQLException e) {
+                System.err.println("Error resetting read-only connection: " + e.getMessage());
+            }
+            ConnectionManager.closeConnection(connection);
+        }
+    }
+
+    public static final class Subtask<T> {
+        private final TransactionManager.TransactionCallback<T> task;
+        private Future<Object> future;
+        private final AtomicBoolean holdsPermit = new AtomicBoolean();
+        private T result;
+        private boolean done;
+
+        private Subtask(TransactionManager.TransactionCallback<T> task) {
+            this.task = task;
+        }
+
+        private void runOnCaller(Connection connection) throws SQLException {
+            result = task.execute(connection);
+            done = true;
+        }
+
+        private void releasePermit() {
+            if (holdsPermit.compareAndSet(true, false)) EXTRA_CONNECTIONS.release();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void await(Connection callerConnection) throws SQLException {
+            try {
+                Object value = future.get();
+                if (value == NO_CONNECTION) {
+                    runOnCaller(callerConnection);
+                    return;
+                }
+                result = (T) value;
+                done = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for parallel read", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException sqlException) throw sqlException;
+                if (cause instanceof RuntimeException runtimeException) throw runtimeException;
+                throw new SQLException("Parallel read failed: " + cause.getMessage(), cause);
+            }
+        }
+
+        public T get() {
+            if (!done) throw new IllegalStateException("Subtask result read before join()");
+            return result;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package DataBaseConnection;
+
+import config.DatabaseConfig;
+import java.util.concurrent.Callable;
+import java.util.function.LongConsumer;
+
+/**
+ * Per-request read-your-writes state. A client that committed a write reads from the
+ * primary until its window expires, so it never sees a replica that has not caught up
+ * with its own change. The window travels with the client (see ReadYourWritesFilter);
+ * this class only holds it for the request being served on the current thread.
+ *
+ * It also records whether the request read from a replica, so the response is not
+ * cached: a lagging replica can still return rows that a committed write has replaced.
+ */
+public class ReadYourWrites {
+
+    private static final ThreadLocal<Session> CURRENT = new ThreadLocal<>();
+
+    public static void begin(long primaryUntil, LongConsumer onWrite) {
+        CURRENT.set(new Session(primaryUntil, onWrite));
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    // Carries the current request's window over to the thread that will run the task
+    public static Runnable propagate(Runnable task) {
+        Session session = CURRENT.get();
+        return () -> {
+            CURRENT.set(session);
+            try {
+                task.run();
+            } finally {
+                CURRENT.remove();
+            }
+        };
+    }
+
+    public static <T> Callable<T> propagate(Callable<T> task) {
+        Session session = CURRENT.get();
+        return () -> {
+            CURRENT.set(session);
+            try {
+                return task.call();
+            } finally {
+                CURRENT.remove();
+            }
+        };
+    }
+
+    public static boolean mustReadPrimary() {
+        Session session = CURRENT.get();
+        return session != null && System.currentTimeMillis() < session.primaryUntil;
+    }
+
+    // Called by ReplicaRouter whenever it hands out a replica connection
+    public static void recordReplicaRead() {
+        Session session = CURRENT.get();
+        if (session != null) session.replicaRead = true;
+    }
+
+    // Outside a request nothing is known, so any configured replica counts
+    public static boolean hasReadReplica() {
+        Session session = CURRENT.get();
+        return session != null ? session.replicaRead : !DatabaseConfig.getReplicaDataSources().isEmpty();
+    }
+
+    // Called after a write transaction commits
+    public static void recordWrite() {
+        Session session = CURRENT.get();
+        if (session == null || DatabaseConfig.getReplicaDataSources().isEmpty()) return;
+        session.primaryUntil = System.currentTimeMillis() + DatabaseConfig.getReadYourWritesMillis();
+        if (session.onWrite != null) session.onWrite.accept(session.primaryUntil);
+    }
+
+    private static final class Session {
+        private long primaryUntil;
+        // Set by forked subtasks too, hence volatile
+        private volatile boolean replicaRead;
+        private final LongConsumer onWrite;
+
+        private Session(long primaryUntil, LongConsumer onWrite) {
+            this.primaryUntil = primaryUntil;
+            this.onWrite = onWrite;
+        }
+    }
+}
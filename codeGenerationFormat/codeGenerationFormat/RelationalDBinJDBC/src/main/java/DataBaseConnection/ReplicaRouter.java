@@ -0,0 +1,187 @@
+package DataBaseConnection;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import config.DatabaseConfig;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Chooses the connection for read-only work: a replica when one is configured, caught up
+ * within db.replicas.maxLagMillis and the client has no pending read-your-writes window,
+ * otherwise the primary. Replicas are picked round-robin or by fewest active plus waiting
+ * connections. A background check measures lag every db.replicas.lagCheckMillis.
+ *
+ * A replica is caught up when it has replayed the primary's current WAL position; if not,
+ * its lag is the time since its last replayed transaction. A server that is not in
+ * recovery (e.g. a second local instance standing in for a replica) counts as caught up.
+ */
+public class ReplicaRouter {
+
+    private static final String PRIMARY_LSN_SQL = "SELECT pg_current_wal_lsn()::text";
+
+    private static final String REPLICA_LAG_SQL = "SELECT pg_is_in_recovery(), pg_last_wal_replay_lsn()::text, "
+            + "EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000";
+
+    // How often tryGetReadConnection re-checks the pool for an idle connection
+    private static final long IDLE_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final List<Replica> REPLICAS = new ArrayList<>();
+    private static final AtomicInteger NEXT = new AtomicInteger();
+
+    static {
+        List<HikariDataSource> dataSources = DatabaseConfig.getReplicaDataSources();
+        for (HikariDataSource dataSource : dataSources) {
+            REPLICAS.add(new Replica(dataSource));
+        }
+        if (!REPLICAS.isEmpty()) {
+            ScheduledExecutorService checker = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "replica-lag-check");
+                thread.setDaemon(true);
+                return thread;
+            });
+            checker.scheduleWithFixedDelay(ReplicaRouter::checkLag, 0,
+                    DatabaseConfig.getReplicaLagCheckMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public static Connection getReadConnection() throws SQLException {
+        if (REPLICAS.isEmpty() || ReadYourWrites.mustReadPrimary()) {
+            return ConnectionManager.getConnection();
+        }
+        Replica replica = DatabaseConfig.isReplicaRoundRobin() ? nextRoundRobin() : leastPending();
+        if (replica == null) {
+            return ConnectionManager.getConnection(); // every replica is lagging or down
+        }
+        try {
+            Connection connection = StatementCache.wrap(replica.dataSource.getConnection());
+            ReadYourWrites.recordReplicaRead();
+            System.out.println("🔄 Connection obtained from " + replica.dataSource.getPoolName());
+            return connection;
+        } catch (SQLException e) {
+            replica.healthy = false;
+            System.err.println("❌ Replica " + replica.dataSource.getPoolName() + " unavailable, reading from primary: " + e.getMessage());
+            return ConnectionManager.getConnection();
+        }
+    }
+
+    // Same choice as getReadConnection, but waits at most timeoutMillis for an idle connection
+    // and returns null instead of queueing inside Hikari. Uses the public MXBean idle count, so a
+    // thread that takes the idle connection first can still leave us waiting on connectionTimeout
+    public static Connection tryGetReadConnection(long timeoutMillis) throws SQLException {
+        HikariDataSource dataSource = (HikariDataSource) DatabaseConfig.getDataSource();
+        if (!REPLICAS.isEmpty() && !ReadYourWrites.mustReadPrimary()) {
+            Replica replica = DatabaseConfig.isReplicaRoundRobin() ? nextRoundRobin() : leastPending();
+            if (replica != null) dataSource = replica.dataSource;
+        }
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        if (pool == null) {
+            return null; // pool not started yet
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (pool.getIdleConnections() == 0) {
+            if (System.nanoTime() - deadline >= 0) return null;
+            LockSupport.parkNanos(IDLE_POLL_NANOS);
+        }
+        try {
+            Connection connection = StatementCache.wrap(dataSource.getConnection());
+            if (dataSource != DatabaseConfig.getDataSource()) ReadYourWrites.recordReplicaRead();
+            return connection;
+        } catch (SQLTransientConnectionException e) {
+            return null;
+        }
+    }
+
+    // Whether conn came from a replica pool; the caches only admit rows read on the primary
+    public static boolean isReplica(Connection conn) throws SQLException {
+        if (REPLICAS.isEmpty()) return false;
+        String url = conn.getMetaData().getURL();
+        for (Replica replica : REPLICAS) {
+            if (replica.dataSource.getJdbcUrl().equals(url)) return true;
+        }
+        return false;
+    }
+
+    private static Replica nextRoundRobin() {
+        int start = Math.floorMod(NEXT.getAndIncrement(), REPLICAS.size());
+        for (int i = 0; i < REPLICAS.size(); i++) {
+            Replica replica = REPLICAS.get((start + i) % REPLICAS.size());
+            if (replica.healthy) return replica;
+        }
+        return null;
+    }
+
+    private static Replica leastPending() {
+        Replica best = null;
+        int bestPending = Integer.MAX_VALUE;
+        for (Replica replica : REPLICAS) {
+            if (!replica.healthy) continue;
+            HikariPoolMXBean pool = replica.dataSource.getHikariPoolMXBean();
+            int pending = pool != null ? pool.getActiveConnections() + pool.getThreadsAwaitingConnection() : 0;
+            if (pending < bestPending) {
+                best = replica;
+                bestPending = pending;
+            }
+        }
+        return best;
+    }
+
+    private static void checkLag() {
+        long primaryLsn = -1;
+        try (Connection connection = DatabaseConfig.getDataSource().getConnection();
+             Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery(PRIMARY_LSN_SQL)) {
+            if (rs.next()) primaryLsn = parseLsn(rs.getString(1));
+        } catch (SQLException e) {
+            System.err.println("❌ Could not read primary WAL position: " + e.getMessage());
+        }
+
+        for (Replica replica : REPLICAS) {
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement st = connection.createStatement();
+                 ResultSet rs = st.executeQuery(REPLICA_LAG_SQL)) {
+                long lag = Long.MAX_VALUE;
+                if (rs.next()) {
+                    String replayLsn = rs.getString(2);
+                    double replayDelay = rs.getDouble(3);
+                    boolean hasReplayDelay = !rs.wasNull();
+                    if (!rs.getBoolean(1)) {
+                        lag = 0;
+                    } else if (primaryLsn >= 0 && replayLsn != null && parseLsn(replayLsn) >= primaryLsn) {
+                        lag = 0;
+                    } else if (hasReplayDelay) {
+                        lag = (long) replayDelay;
+                    }
+                }
+                replica.healthy = lag <= DatabaseConfig.getReplicaMaxLagMillis();
+            } catch (SQLException e) {
+                replica.healthy = false;
+            }
+        }
+    }
+
+    // "16/B374D848" -> 0x16B374D848
+    private static long parseLsn(String lsn) {
+        int slash = lsn.indexOf('/');
+        return (Long.parseLong(lsn.substring(0, slash), 16) << 32) | Long.parseLong(lsn.substring(slash + 1), 16);
+    }
+
+    private static final class Replica {
+        private final HikariDataSource dataSource;
+        private volatile boolean healthy;
+
+        private Replica(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package DataBaseConnection;
+
+import config.DatabaseConfig;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies and checks the scripts in src/main/resources/db/migration.
+ *
+ * With -Ddb.migrate=true the scripts not yet listed in schema_migrations are run at
+ * startup, in version order, on an unpooled autocommit connection. Each statement is sent
+ * on its own, because CREATE INDEX CONCURRENTLY (V1, V2) cannot run inside a transaction
+ * block. Without the flag the scripts are applied by hand, e.g.
+ * psql -f V1__open_rental_indexes.sql, and so on in order. Every script can be re-run.
+ *
+ * Either way, verify() then looks for the objects the application relies on. Features
+ * whose triggers are missing stay off: the entity cache (V3) and the availability read
+ * model (V4). Missing indexes (V1, V2) only cost speed and are just reported.
+ */
+public final class SchemaMigrations {
+
+    private static final String[] SCRIPTS = {
+            "V1__open_rental_indexes.sql",
+            "V2__store_rental_indexes.sql",
+            "V3__entity_cache_notify.sql",
+            "V4__film_store_availability.sql",
+    };
+
+    private static final String CREATE_HISTORY_SQL = "CREATE TABLE IF NOT EXISTS schema_migrations ("
+            + "version text PRIMARY KEY, applied_at timestamptz NOT NULL DEFAULT now())";
+
+    private static final String SELECT_APPLIED_SQL = "SELECT 1 FROM schema_migrations WHERE version = ?";
+
+    private static final String INSERT_APPLIED_SQL = "INSERT INTO schema_migrations (version) VALUES (?)";
+
+    private static final String VERIFY_SQL = "SELECT "
+            + "to_regclass('idx_rental_open_inventory') IS NOT NULL AND to_regclass('idx_rental_open_rental_date') IS NOT NULL, "
+            + "to_regclass('idx_inventory_store_inventory') IS NOT NULL AND to_regclass('idx_rental_inventory_rental_date') IS NOT NULL, "
+            + "(SELECT count(*) FROM pg_trigger WHERE tgname IN ('film_entity_cache_notify', 'film_entity_cache_truncate', "
+            + "'staff_entity_cache_notify', 'staff_entity_cache_truncate')) = 4, "
+            + "to_regclass('film_store_availability') IS NOT NULL AND (SELECT count(*) FROM pg_trigger WHERE tgname IN "
+            + "('inventory_film_store_availability', 'rental_film_store_availability', "
+            + "'inventory_film_store_availability_truncate', 'rental_film_store_availability_truncate')) = 4";
+
+    // Both false until verify() has seen the objects
+    private static volatile boolean entityCacheNotifyInstalled;
+    private static volatile boolean availabilityReadModelInstalled;
+
+    private SchemaMigrations() {
+    }
+
+    public static boolean isEntityCacheNotifyInstalled() {
+        return entityCacheNotifyInstalled;
+    }
+
+    public static boolean isAvailabilityReadModelInstalled() {
+        return availabilityReadModelInstalled;
+    }
+
+    public static void migrate() throws SQLException, IOException {
+        try (Connection connection = DatabaseConfig.openDedicatedConnection()) {
+            connection.setAutoCommit(true);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(CREATE_HISTORY_SQL);
+            }
+            for (String script : SCRIPTS) {
+                String version = script.substring(0, script.indexOf("__"));
+                if (isApplied(connection, version)) continue;
+                for (String sql : split(read(script))) {
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute(sql);
+                    }
+                }
+                try (PreparedStatement ps = connection.prepareStatement(INSERT_APPLIED_SQL)) {
+                    ps.setString(1, version);
+                    ps.executeUpdate();
+                }
+                System.out.println(" Migration applied: " + script);
+            }
+        }
+    }
+
+    public static void verify() throws SQLException {
+        try (Connection connection = DatabaseConfig.openDedicatedConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(VERIFY_SQL)) {
+            rs.next();
+            if (!rs.getBoolean(1)) System.err.println("⚠️ V1 open rental indexes missing: active/overdue queries will scan rental");
+            if (!rs.getBoolean(2)) System.err.println("⚠️ V2 store rental indexes missing: store rental queries will scan rental");
+            entityCacheNotifyInstalled = rs.getBoolean(3);
+            if (!entityCacheNotifyInstalled) System.err.println("⚠️ V3 entity cache triggers missing: entity cache disabled");
+            availabilityReadModelInstalled = rs.getBoolean(4);
+            if (!availabilityReadModelInstalled && DatabaseConfig.isAvailabilityReadModelEnabled()) {
+                System.err.println("⚠️ V4 film_store_availability missing: availability read model disabled");
+            }
+        }
+    }
+
+    private static boolean isApplied(Connection connection, String version) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(SELECT_APPLIED_SQL)) {
+            ps.setString(1, version);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private static String read(String script) throws IOException {
+        try (InputStream in = SchemaMigrations.class.getResourceAsStream("/db/migration/" + script)) {
+            if (in == null) throw new IOException("Migration script not on the classpath: " + script);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    // Splits on ';' outside comments, quoted strings and $$ function bodies
+    static List<String> split(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean inDollar = false;
+        boolean inQuote = false;
+        for (int i = 0; i < script.length(); i++) {
+            char ch = script.charAt(i);
+            if (!inDollar && !inQuote && ch == '-' && script.startsWith("--", i)) {
+                int end = script.indexOf('\n', i);
+                i = end < 0 ? script.length() : end;
+                current.append('\n');
+                continue;
+            }
+            if (!inQuote && script.startsWith("$$", i)) {
+                inDollar = !inDollar;
+                current.append("$$");
+                i++;
+                continue;
+            }
+            if (!inDollar && ch == '\'') inQuote = !inQuote;
+            if (!inDollar && !inQuote && ch == ';') {
+                if (!current.toString().isBlank()) statements.add(current.toString().trim());
+                current.setLength(0);
+                continue;
+            }
+            current.append(ch);
+        }
+        if (!current.toString().isBlank()) statements.add(current.toString().trim());
+        return statements;
+    }
+}
@@ -0,0 +1,193 @@
+package DataBaseConnection;
+
+import config.DatabaseConfig;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches PreparedStatements per borrowed connection, so DAOs can keep calling
+ * conn.prepareStatement(SQL) and closing the statement every time. The statement
+ * handed out is a proxy: close() only clears its parameters and returns it to the
+ * cache. The real statements are closed when the connection goes back to the pool.
+ *
+ * A statement that is still open when the same SQL is prepared again (a query issued
+ * while iterating the results of the same query) is not shared: the caller gets a
+ * plain, uncached statement instead.
+ */
+public class StatementCache {
+
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+
+    public static Connection wrap(Connection connection) {
+        if (!DatabaseConfig.isStatementCacheEnabled()) {
+            return connection;
+        }
+        return (Connection) Proxy.newProxyInstance(StatementCache.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, new ConnectionHandler(connection));
+    }
+
+    public static long getHits() {
+        return HITS.get();
+    }
+
+    public static long getMisses() {
+        return MISSES.get();
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static final class ConnectionHandler implements InvocationHandler {
+
+        private final Connection connection;
+        private final Map<String, CachedStatement> statements;
+
+        private ConnectionHandler(Connection connection) {
+            this.connection = connection;
+            int capacity = DatabaseConfig.getStatementCacheSize();
+            this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                    if (size() > capacity && !eldest.getValue().inUse) {
+                        eldest.getValue().closeQuietly();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "prepareStatement":
+                    if (args.length == 1 || (args.length == 2 && args[1] instanceof Integer)) {
+                        return prepare(method, args);
+                    }
+                    break;
+                case "close":
+                    closeStatements();
+                    break;
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(proxy)) return proxy;
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            return StatementCache.invoke(connection, method, args);
+        }
+
+        private PreparedStatement prepare(Method method, Object[] args) throws Throwable {
+            String key = args.length == 1 ? (String) args[0] : args[1] + ":" + args[0];
+            CachedStatement cached = statements.get(key);
+            if (cached != null && !cached.inUse) {
+                HITS.incrementAndGet();
+                cached.inUse = true;
+                return cached.proxy;
+            }
+            MISSES.incrementAndGet();
+            PreparedStatement statement = (PreparedStatement) StatementCache.invoke(connection, method, args);
+            if (cached != null) {
+                return statement; // same SQL still open further up the stack
+            }
+            cached = new CachedStatement(statement);
+            cached.inUse = true;
+            statements.put(key, cached);
+            return cached.proxy;
+        }
+
+        private void closeStatements() {
+            List<CachedStatement> open = new ArrayList<>(statements.values());
+            statements.clear();
+            for (CachedStatement cached : open) {
+                cached.closeQuietly();
+            }
+        }
+    }
+
+    private static final class CachedStatement implements InvocationHandler {
+
+        private final PreparedStatement statement;
+        private final PreparedStatement proxy;
+        private boolean inUse;
+
+        private CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(StatementCache.class.getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class }, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (inUse) {
+                        try {
+                            reset();
+                            inUse = false;
+                        } catch (SQLException e) {
+                            // Stays marked in use, so prepare() never hands it out again
+                            closeQuietly();
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return !inUse || statement.isClosed();
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(proxy)) return proxy;
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            return StatementCache.invoke(statement, method, args);
+        }
+
+        // Everything a caller can change on a statement, back to the driver defaults, so the
+        // next caller cannot inherit a pending batch, a row limit or a timeout
+        private void reset() throws SQLException {
+            ResultSet open = statement.getResultSet();
+            if (open != null) open.close();
+            statement.clearParameters();
+            statement.clearBatch();
+            statement.clearWarnings();
+            statement.setFetchSize(0);
+            statement.setFetchDirection(ResultSet.FETCH_FORWARD);
+            statement.setMaxRows(0);
+            statement.setMaxFieldSize(0);
+            statement.setQueryTimeout(0);
+        }
+
+        private void closeQuietly() {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                System.err.println("Error closing cached statement: " + e.getMessage());
+            }
+        }
+    }
+}
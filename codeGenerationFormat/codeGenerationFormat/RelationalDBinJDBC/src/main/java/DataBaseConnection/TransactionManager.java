@@ -1,22 +1,61 @@
 package DataBaseConnection;
 
+import config.DatabaseConfig;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * Runs callbacks in transactions. The connection of the running transaction is bound to
+ * the thread, so a service method called from inside another one joins it (REQUIRED)
+ * instead of taking a second pooled connection. REQUIRES_NEW always takes its own.
+ */
 public class TransactionManager {
     
+    public enum Propagation {
+        // Join the transaction running on this thread, or start one
+        REQUIRED,
+        // Always start a separate transaction on a separate connection
+        REQUIRES_NEW
+    }
+    
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+    
     public static <T> T executeInTransaction(TransactionCallback<T> callback) throws SQLException {
+        return executeInTransaction(Propagation.REQUIRED, callback);
+    }
+    
+    public static <T> T executeInTransaction(Propagation propagation, TransactionCallback<T> callback) throws SQLException {
+        Scope outer = CURRENT.get();
+        if (propagation == Propagation.REQUIRED && outer != null) {
+            if (outer.readOnly) {
+                throw new SQLException("Write transaction requested inside a read-only one; use REQUIRES_NEW");
+            }
+            return join(outer, callback);
+        }
+        
         Connection connection = null;
+        Scope scope = null;
         try {
             connection = ConnectionManager.getConnection();
             connection.setAutoCommit(false);
+            scope = new Scope(connection, false);
+            CURRENT.set(scope);
 
             // Execute the user code inside transaction
             T result = callback.execute(connection);
 
+            // A nested call failed and the exception was caught on the way up
+            if (scope.rollbackOnly) {
+                throw new SQLException("Transaction marked rollback-only by a nested call");
+            }
+
             // Commit transaction
             connection.commit();
             System.out.println(" Transaction committed successfully");
+            ReadYourWrites.recordWrite();
+            runAfterCommit(scope);
             return result;
         } catch (Exception e) {
             if (connection != null) {
@@ -39,6 +78,9 @@ public class TransactionManager {
             }
             throw new SQLException("Transaction failed: " + e.getMessage(), e);
         } finally {
+            if (scope != null) {
+                restore(outer);
+            }
             if (connection != null) {
                 try {
                     connection.setAutoCommit(true);
@@ -51,6 +93,120 @@ public class TransactionManager {
         }
     }
 
+    public static <T> T executeReadOnly(TransactionCallback<T> callback) throws SQLException {
+        return executeReadOnly(DatabaseConfig.getReadOnlyIsolation(), callback);
+    }
+    
+    // Reads at READ COMMITTED run in autocommit mode: each statement gets its own snapshot
+    // either way, so BEGIN/COMMIT would only add round trips. Stricter levels (and server-side
+    // cursors, which need autocommit off) run in a read-only transaction that is committed once.
+    // The pools use readOnlyMode=always, so the server rejects writes in autocommit mode as well.
+    // The pool restores read-only, autocommit and isolation when the connection is returned.
+    // A read issued inside a running transaction (read-only or not) joins it.
+    public static <T> T executeReadOnly(int isolationLevel, TransactionCallback<T> callback) throws SQLException {
+        Scope outer = CURRENT.get();
+        if (outer != null) {
+            return join(outer, callback);
+        }
+        
+        boolean inTransaction = isolationLevel > Connection.TRANSACTION_READ_COMMITTED;
+        Connection connection = null;
+        try {
+            connection = ReplicaRouter.getReadConnection();
+            connection.setReadOnly(true);
+            if (inTransaction) {
+                connection.setAutoCommit(false);
+                connection.setTransactionIsolation(isolationLevel);
+            }
+            CURRENT.set(new Scope(connection, true));
+
+            T result = callback.execute(connection);
+
+            if (inTransaction) {
+                connection.commit();
+            }
+            return result;
+        } catch (Exception e) {
+            if (inTransaction && connection != null) {
+                try {
+                    connection.rollback();
+                } catch (SQLException rollbackEx) {
+                    e.addSuppressed(rollbackEx);
+                }
+            }
+
+            System.err.println(" Read-only query failed: " + e.getClass().getName() + " - " + e.getMessage());
+            if (e instanceof SQLException) {
+                throw (SQLException) e;
+            }
+            throw new SQLException("Read-only query failed: " + e.getMessage(), e);
+        } finally {
+            if (connection != null) {
+                CURRENT.remove();
+            }
+            ConnectionManager.closeConnection(connection);
+        }
+    }
+    
+    public static boolean isTransactionActive() {
+        return CURRENT.get() != null;
+    }
+    
+    public static boolean isWriteTransactionActive() {
+        Scope scope = CURRENT.get();
+        return scope != null && !scope.readOnly;
+    }
+    
+    // Runs the action once the write transaction on this thread has committed (and never if
+    // it rolls back); without one the action runs right away
+    public static void afterCommit(Runnable action) {
+        Scope scope = CURRENT.get();
+        if (scope == null || scope.readOnly) {
+            action.run();
+        } else {
+            scope.afterCommit.add(action);
+        }
+    }
+    
+    private static void runAfterCommit(Scope scope) {
+        for (Runnable action : scope.afterCommit) {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                System.err.println(" After-commit action failed: " + e.getMessage());
+            }
+        }
+    }
+    
+    private static <T> T join(Scope scope, TransactionCallback<T> callback) throws SQLException {
+        try {
+            return callback.execute(scope.connection);
+        } catch (SQLException | RuntimeException e) {
+            scope.rollbackOnly = true;
+            throw e;
+        }
+    }
+    
+    private static void restore(Scope outer) {
+        if (outer != null) {
+            CURRENT.set(outer);
+        } else {
+            CURRENT.remove();
+        }
+    }
+    
+    private static final class Scope {
+        private final Connection connection;
+        private final boolean readOnly;
+        private boolean rollbackOnly;
+        private final List<Runnable> afterCommit = new ArrayList<>();
+        
+        private Scope(Connection connection, boolean readOnly) {
+            this.connection = connection;
+            this.readOnly = readOnly;
+        }
+    }
+
     @FunctionalInterface
     public interface TransactionCallback<T> {
         T execute(Connection connection) throws SQLException;
@@ -0,0 +1,439 @@
+package codegen;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedSourceVersion;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/**
+ * Annotation processor that writes one DAO per @GenerateDao model: explicit column
+ * lists, fixed-position row mapping, findByIds, streaming forEach finders and batch
+ * insert/update/delete. Every write bumps the table's TableVersions entry, like the
+ * hand-written DAOs, so cached reads of the table are dropped. The output lands in target/generated-sources/annotations and
+ * is compiled together with the rest of the module, so a new column only needs the
+ * annotation updated.
+ */
+@SupportedAnnotationTypes("codegen.GenerateDao")
+@SupportedSourceVersion(SourceVersion.RELEASE_21)
+public class DaoGenerator extends AbstractProcessor {
+
+    static final String PACKAGE = "dao.generated";
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(GenerateDao.class)) {
+            TypeElement model = (TypeElement) element;
+            try {
+                Table table = new Table(model, model.getAnnotation(GenerateDao.class));
+                try (Writer out = processingEnv.getFiler()
+                        .createSourceFile(PACKAGE + "." + table.daoName, model).openWriter()) {
+                    out.write(new Source(table).render());
+                }
+            } catch (IllegalArgumentException | IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage(), element);
+            }
+        }
+        return true;
+    }
+
+    static String camel(String column, boolean capitalize) {
+        StringBuilder name = new StringBuilder();
+        boolean upper = capitalize;
+        for (char ch : column.toCharArray()) {
+            if (ch == '_') {
+                upper = true;
+            } else {
+                name.append(upper ? Character.toUpperCase(ch) : ch);
+                upper = false;
+            }
+        }
+        return name.toString();
+    }
+
+    static final class Column {
+        final String name;
+        final String getter;
+        final String setter;
+        final String getterType;
+        final String setterType;
+        final boolean date;
+
+        Column(String name, String getter, String setter, String getterType, String setterType, boolean date) {
+            this.name = name;
+            this.getter = getter;
+            this.setter = setter;
+            this.getterType = getterType;
+            this.setterType = setterType;
+            this.date = date;
+        }
+
+        String read(int position) {
+            return switch (setterType) {
+                case "int" -> "rs.getInt(" + position + ")";
+                case "java.lang.Integer" -> "RowPlan.getInteger(rs, " + position + ")";
+                case "java.lang.String" -> "rs.getString(" + position + ")";
+                case "java.math.BigDecimal" -> "rs.getBigDecimal(" + position + ")";
+                case "boolean", "java.lang.Boolean" -> "rs.getBoolean(" + position + ")";
+                case "java.time.LocalDateTime" -> date
+                        ? "RowPlan.getDate(rs, " + position + ")"
+                        : "RowPlan.getDateTime(rs, " + position + ")";
+                default -> throw new IllegalArgumentException("Unsupported type " + setterType + " for column " + name);
+            };
+        }
+
+        String bind(String row, int position) {
+            String value = row + "." + getter + "()";
+            return switch (getterType) {
+                case "int" -> "ps.setInt(" + position + ", " + value + ")";
+                case "java.lang.Integer" -> "ps.setObject(" + position + ", " + value + ", Types.INTEGER)";
+                case "java.lang.String" -> "ps.setString(" + position + ", " + value + ")";
+                case "java.math.BigDecimal" -> "ps.setBigDecimal(" + position + ", " + value + ")";
+                case "boolean" -> "ps.setBoolean(" + position + ", " + value + ")";
+                case "java.lang.Boolean" -> "ps.setObject(" + position + ", " + value + ", Types.BOOLEAN)";
+                case "java.time.LocalDateTime" -> date
+                        ? "ps.setObject(" + position + ", " + value + " != null ? " + value + ".toLocalDate() : null, Types.DATE)"
+                        : "last_update".equals(name)
+                        ? "ps.setObject(" + position + ", " + value + " != null ? " + value + " : LocalDateTime.now(), Types.TIMESTAMP)"
+                        : "ps.setObject(" + position + ", " + value + ", Types.TIMESTAMP)";
+                default -> throw new IllegalArgumentException("Unsupported type " + getterType + " for column " + name);
+            };
+        }
+    }
+
+    static final class Table {
+        final String name;
+        final String modelName;
+        final String daoName;
+        final List<Column> columns = new ArrayList<>();
+        final List<Column> keys = new ArrayList<>();
+        final List<Column> values = new ArrayList<>();
+        final List<Column> finders = new ArrayList<>();
+        final boolean writes;
+
+        Table(TypeElement model, GenerateDao spec) {
+            this.name = spec.table();
+            this.writes = spec.writes();
+            this.modelName = model.getSimpleName().toString();
+            this.daoName = modelName + "GeneratedDao";
+            List<ExecutableElement> methods = ElementFilter.methodsIn(model.getEnclosedElements());
+            List<String> keyNames = Arrays.asList(spec.key());
+            List<String> dates = Arrays.asList(spec.dates());
+            for (String columnName : spec.columns()) {
+                String property = camel(columnName, true);
+                ExecutableElement getter = find(methods, "get" + property, 0);
+                if (getter == null) getter = find(methods, "is" + property, 0);
+                ExecutableElement setter = find(methods, "set" + property, 1);
+                if (getter == null || setter == null) {
+                    throw new IllegalArgumentException(modelName + " has no getter/setter pair for column " + columnName);
+                }
+                Column column = new Column(columnName, getter.getSimpleName().toString(), setter.getSimpleName().toString(),
+                        getter.getReturnType().toString(), setter.getParameters().get(0).asType().toString(),
+                        dates.contains(columnName));
+                columns.add(column);
+                (keyNames.contains(columnName) ? keys : values).add(column);
+            }
+            if (keys.size() != keyNames.size()) {
+                throw new IllegalArgumentException("Every key column of " + name + " must also be listed in columns");
+            }
+            for (String finder : spec.finders()) {
+                columns.stream().filter(c -> c.name.equals(finder)).findFirst().ifPresentOrElse(finders::add, () -> {
+                    throw new IllegalArgumentException("Finder column " + finder + " is not a column of " + name);
+                });
+            }
+        }
+
+        boolean serialKey() {
+            return keys.size() == 1;
+        }
+
+        private static ExecutableElement find(List<ExecutableElement> methods, String name, int parameters) {
+            for (ExecutableElement method : methods) {
+                if (method.getSimpleName().contentEquals(name) && method.getParameters().size() == parameters
+                        && method.getModifiers().contains(Modifier.PUBLIC)) {
+                    return method;
+                }
+            }
+            return null;
+        }
+    }
+
+    static final class Source {
+        private final Table t;
+        private final StringBuilder out = new StringBuilder();
+
+        Source(Table table) {
+            this.t = table;
+        }
+
+        String render() {
+            String keyList = names(t.keys, ", ");
+            String keyMatch = t.keys.stream().map(c -> c.name + " = ?").collect(Collectors.joining(" AND "));
+            String row = Character.toLowerCase(t.modelName.charAt(0)) + t.modelName.substring(1);
+
+            line("package " + PACKAGE + ";");
+            line("");
+            line("import dao.RowHandler;");
+            line("import dao.RowPlan;");
+            if (t.writes) {
+                line("import dao.TableVersions;");
+            }
+            line("import java.sql.*;");
+            line("import java.time.LocalDateTime;");
+            line("import java.util.ArrayList;");
+            line("import java.util.Collection;");
+            line("import java.util.List;");
+            line("import model." + t.modelName + ";");
+            line("");
+            line("/**");
+            line(" * Generated by codegen.DaoGenerator from @GenerateDao on model." + t.modelName + ".");
+            line(" * Do not edit: change the annotation and rebuild.");
+            line(" */");
+            line("@javax.annotation.processing.Generated(\"codegen.DaoGenerator\")");
+            line("public class " + t.daoName + " {");
+            line("");
+            line("    public static final String COLUMNS = \"" + names(t.columns, ", ") + "\";");
+            line("");
+            constant("SELECT_ALL_SQL", "\"SELECT \" + COLUMNS + \" FROM " + t.name + " ORDER BY " + keyList + "\"");
+            constant("SELECT_BY_KEY_SQL", "\"SELECT \" + COLUMNS + \" FROM " + t.name + " WHERE " + keyMatch + "\"");
+            if (t.serialKey()) {
+                String key = t.keys.get(0).name;
+                constant("SELECT_BY_IDS_SQL", "\"SELECT \" + COLUMNS + \" FROM " + t.name + " WHERE " + key + " = ANY(?) ORDER BY " + key + "\"");
+                if (t.writes) {
+                    constant("DELETE_BY_IDS_SQL", "\"DELETE FROM " + t.name + " WHERE " + key + " = ANY(?)\"");
+                }
+            }
+            List<Column> inserted = t.serialKey() ? t.values : t.columns;
+            if (t.writes) {
+                constant("DELETE_BY_KEY_SQL", "\"DELETE FROM " + t.name + " WHERE " + keyMatch + "\"");
+                constant("INSERT_SQL", "\"INSERT INTO " + t.name + " (" + names(inserted, ", ") + ") VALUES ("
+                        + inserted.stream().map(c -> "?").collect(Collectors.joining(", ")) + ")\"");
+            }
+            if (t.writes && !t.values.isEmpty()) {
+                constant("UPDATE_SQL", "\"UPDATE " + t.name + " SET " + t.values.stream().map(c -> c.name + " = ?")
+                        .collect(Collectors.joining(", ")) + " WHERE " + keyMatch + "\"");
+            }
+            for (Column finder : t.finders) {
+                constant("SELECT_BY_" + finder.name.toUpperCase() + "_SQL", "\"SELECT \" + COLUMNS + \" FROM " + t.name
+                        + " WHERE " + finder.name + " = ? ORDER BY " + keyList + "\"");
+                constant("SELECT_BY_" + finder.name.toUpperCase() + "S_SQL", "\"SELECT \" + COLUMNS + \" FROM " + t.name
+                        + " WHERE " + finder.name + " = ANY(?) ORDER BY " + keyList + "\"");
+            }
+
+            String keyParams = t.keys.stream().map(c -> "int " + camel(c.name, false)).collect(Collectors.joining(", "));
+            line("    public " + t.modelName + " findByKey(Connection conn, " + keyParams + ") throws SQLException {");
+            line("        try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_KEY_SQL)) {");
+            for (int i = 0; i < t.keys.size(); i++) {
+                line("            ps.setInt(" + (i + 1) + ", " + camel(t.keys.get(i).name, false) + ");");
+            }
+            line("            try (ResultSet rs = ps.executeQuery()) {");
+            line("                return rs.next() ? map(rs) : null;");
+            line("            }");
+            line("        }");
+            line("    }");
+            line("");
+
+            if (t.serialKey()) {
+                line("    public List<" + t.modelName + "> findByIds(Connection conn, Collection<Integer> ids) throws SQLException {");
+                line("        List<" + t.modelName + "> list = new ArrayList<>();");
+                line("        if (ids == null || ids.isEmpty()) return list;");
+                line("        try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_IDS_SQL)) {");
+                line("            ps.setArray(1, conn.createArrayOf(\"integer\", ids.toArray()));");
+                line("            try (ResultSet rs = ps.executeQuery()) {");
+                line("                while (rs.next()) list.add(map(rs));");
+                line("            }");
+                line("        }");
+                line("        return list;");
+                line("    }");
+                line("");
+            }
+
+            line("    public List<" + t.modelName + "> findAll(Connection conn) throws SQLException {");
+            line("        List<" + t.modelName + "> list = new ArrayList<>();");
+            line("        forEach(conn, 0, list::add);");
+            line("        return list;");
+            line("    }");
+            line("");
+            line("    // Needs autocommit off, otherwise pgjdbc ignores the fetch size and buffers everything");
+            line("    public void forEach(Connection conn, int fetchSize, RowHandler<" + t.modelName + "> handler) throws SQLException {");
+            line("        try (PreparedStatement ps = conn.prepareStatement(SELECT_ALL_SQL)) {");
+            line("            stream(ps, fetchSize, handler);");
+            line("        }");
+            line("    }");
+            line("");
+
+            for (Column finder : t.finders) {
+                String suffix = camel(finder.name, true);
+                String param = camel(finder.name, false);
+                String sql = "SELECT_BY_" + finder.name.toUpperCase() + "_SQL";
+                line("    public List<" + t.modelName + "> findBy" + suffix + "(Connection conn, int " + param + ") throws SQLException {");
+                line("        List<" + t.modelName + "> list = new ArrayList<>();");
+                line("        forEachBy" + suffix + "(conn, " + param + ", 0, list::add);");
+                line("        return list;");
+                line("    }");
+                line("");
+                line("    public void forEachBy" + suffix + "(Connection conn, int " + param + ", int fetchSize, RowHandler<" + t.modelName + "> handler) throws SQLException {");
+                line("        try (PreparedStatement ps = conn.prepareStatement(" + sql + ")) {");
+                line("            ps.setInt(1, " + param + ");");
+                line("            stream(ps, fetchSize, handler);");
+                line("        }");
+                line("    }");
+                line("");
+                line("    public List<" + t.modelName + "> findBy" + suffix + "s(Connection conn, Collection<Integer> " + param + "s) throws SQLException {");
+                line("        List<" + t.modelName + "> list = new ArrayList<>();");
+                line("        if (" + param + "s == null || " + param + "s.isEmpty()) return list;");
+                line("        try (PreparedStatement ps = conn.prepareStatement(" + sql.replace("_SQL", "S_SQL") + ")) {");
+                line("            ps.setArray(1, conn.createArrayOf(\"integer\", " + param + "s.toArray()));");
+                line("            stream(ps, 0, list::add);");
+                line("        }");
+                line("        return list;");
+                line("    }");
+                line("");
+            }
+
+            if (t.writes) {
+                renderWrites(row, keyParams);
+            }
+
+            line("    // Positions follow COLUMNS, so no metadata lookup is needed");
+            line("    public static " + t.modelName + " map(ResultSet rs) throws SQLException {");
+            line("        " + t.modelName + " " + row + " = new " + t.modelName + "();");
+            for (int i = 0; i < t.columns.size(); i++) {
+                Column column = t.columns.get(i);
+                line("        " + row + "." + column.setter + "(" + column.read(i + 1) + ");");
+            }
+            line("        return " + row + ";");
+            line("    }");
+            line("");
+            line("    private static void stream(PreparedStatement ps, int fetchSize, RowHandler<" + t.modelName + "> handler) throws SQLException {");
+            line("        ps.setFetchSize(fetchSize);");
+            line("        try (ResultSet rs = ps.executeQuery()) {");
+            line("            while (rs.next()) handler.handle(map(rs));");
+            line("        }");
+            line("    }");
+            if (t.writes) {
+                line("");
+                line("    private static int count(int[] counts) {");
+                line("        int total = 0;");
+                line("        for (int count : counts) {");
+                line("            total += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);");
+                line("        }");
+                line("        return total;");
+                line("    }");
+            }
+            line("}");
+            return out.toString();
+        }
+
+        private void renderWrites(String row, String keyParams) {
+            String listName = row + "List";
+            if (t.serialKey()) {
+                Column key = t.keys.get(0);
+                line("    public int[] insertBatch(Connection conn, List<" + t.modelName + "> " + listName + ") throws SQLException {");
+                line("        TableVersions.bump(\"" + t.name + "\");");
+                line("        int[] ids = new int[" + listName + ".size()];");
+                line("        if (" + listName + ".isEmpty()) return ids;");
+                line("        try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {");
+                line("            for (" + t.modelName + " " + row + " : " + listName + ") {");
+                bindAll(t.values, row, 1, "                ");
+                line("                ps.addBatch();");
+                line("            }");
+                line("            ps.executeBatch();");
+                line("            try (ResultSet rs = ps.getGeneratedKeys()) {");
+                line("                for (int i = 0; i < ids.length && rs.next(); i++) {");
+                line("                    ids[i] = rs.getInt(1);");
+                line("                    " + listName + ".get(i)." + key.setter + "(ids[i]);");
+                line("                }");
+                line("            }");
+                line("        }");
+                line("        return ids;");
+                line("    }");
+            } else {
+                line("    public int insertBatch(Connection conn, List<" + t.modelName + "> " + listName + ") throws SQLException {");
+                line("        TableVersions.bump(\"" + t.name + "\");");
+                line("        if (" + listName + ".isEmpty()) return 0;");
+                line("        try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL)) {");
+                line("            for (" + t.modelName + " " + row + " : " + listName + ") {");
+                bindAll(t.columns, row, 1, "                ");
+                line("                ps.addBatch();");
+                line("            }");
+                line("            return count(ps.executeBatch());");
+                line("        }");
+                line("    }");
+            }
+            line("");
+
+            if (!t.values.isEmpty()) {
+                line("    public int updateBatch(Connection conn, List<" + t.modelName + "> " + listName + ") throws SQLException {");
+                line("        TableVersions.bump(\"" + t.name + "\");");
+                line("        if (" + listName + ".isEmpty()) return 0;");
+                line("        try (PreparedStatement ps = conn.prepareStatement(UPDATE_SQL)) {");
+                line("            for (" + t.modelName + " " + row + " : " + listName + ") {");
+                int next = bindAll(t.values, row, 1, "                ");
+                bindAll(t.keys, row, next, "                ");
+                line("                ps.addBatch();");
+                line("            }");
+                line("            return count(ps.executeBatch());");
+                line("        }");
+                line("    }");
+                line("");
+            }
+
+            if (t.serialKey()) {
+                line("    public int deleteByIds(Connection conn, Collection<Integer> ids) throws SQLException {");
+                line("        TableVersions.bump(\"" + t.name + "\");");
+                line("        if (ids == null || ids.isEmpty()) return 0;");
+                line("        try (PreparedStatement ps = conn.prepareStatement(DELETE_BY_IDS_SQL)) {");
+                line("            ps.setArray(1, conn.createArrayOf(\"integer\", ids.toArray()));");
+                line("            return ps.executeUpdate();");
+                line("        }");
+                line("    }");
+                line("");
+            }
+
+            line("    public boolean deleteByKey(Connection conn, " + keyParams + ") throws SQLException {");
+            line("        TableVersions.bump(\"" + t.name + "\");");
+            line("        try (PreparedStatement ps = conn.prepareStatement(DELETE_BY_KEY_SQL)) {");
+            for (int i = 0; i < t.keys.size(); i++) {
+                line("            ps.setInt(" + (i + 1) + ", " + camel(t.keys.get(i).name, false) + ");");
+            }
+            line("            return ps.executeUpdate() > 0;");
+            line("        }");
+            line("    }");
+            line("");
+        }
+
+        private int bindAll(List<Column> columns, String row, int position, String indent) {
+            for (Column column : columns) {
+                line(indent + column.bind(row, position++) + ";");
+            }
+            return position;
+        }
+
+        private void constant(String name, String value) {
+            line("    private static final String " + name + " = " + value + ";");
+            line("");
+        }
+
+        private void line(String text) {
+            out.append(text).append('\n');
+        }
+
+        private static String names(List<Column> columns, String separator) {
+            return columns.stream().map(c -> c.name).collect(Collectors.joining(separator));
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package codegen;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a model class as the row type of a table. DaoGenerator emits
+ * dao.generated.<Model>GeneratedDao for it during compilation.
+ *
+ * Columns are listed explicitly, in select order, and map to bean properties by name
+ * (film_id -> getFilmId/setFilmId). Key columns must be listed in columns as well.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface GenerateDao {
+
+    String table();
+
+    // A single serial key gets findByIds/deleteByIds and generated ids on insert
+    String[] key();
+
+    String[] columns();
+
+    // Integer columns that get streaming forEachBy<Column> and findBy<Column>s finders
+    String[] finders() default {};
+
+    // DATE columns backed by LocalDateTime properties
+    String[] dates() default {};
+
+    // False when the hand-written DAO also updates caches or the availability index on
+    // write: the generated DAO is then read-only, so no caller can skip those hooks
+    boolean writes() default true;
+}
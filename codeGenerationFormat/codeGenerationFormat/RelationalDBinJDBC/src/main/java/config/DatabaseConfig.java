@@ -4,37 +4,220 @@ import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 
 import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 public class DatabaseConfig {
-    private static final String DATABASE_URL = "jdbc:postgresql://localhost:5432/postgres";
+    private static final String DATABASE_URL = System.getProperty("db.url", "jdbc:postgresql://localhost:5432/postgres");
     private static final String DATABASE_USERNAME = "postgres";
     private static final String DATABASE_PASSWORD = "root";
     private static final String DATABASE_DRIVER = "org.postgresql.Driver";
+    private static final int MAXIMUM_POOL_SIZE = 10;
+    
+    // Apply the db/migration scripts at startup (see SchemaMigrations)
+    private static final boolean MIGRATE = Boolean.getBoolean("db.migrate");
+    
+    // Parallel hydration (opt-in): extra read-only connections shared by all requests,
+    // and how many of them a single request may hold at once
+    private static final boolean PARALLEL_HYDRATION_ENABLED = Boolean.getBoolean("hydration.parallel");
+    private static final int PARALLEL_HYDRATION_MAX_CONNECTIONS = Integer.getInteger("hydration.parallel.maxConnections", 3);
+    private static final int PARALLEL_HYDRATION_REQUEST_BUDGET = Integer.getInteger("hydration.parallel.requestBudget", 2);
+    // How long a forked lookup waits for a pooled connection before handing the work back
+    // to the caller's connection
+    private static final long PARALLEL_HYDRATION_CONNECTION_TIMEOUT_MILLIS = Long.getLong("hydration.parallel.connectionTimeoutMillis", 50);
+    
+    // Rows per round trip for streaming endpoints (server-side cursor fetch size)
+    private static final int STREAM_FETCH_SIZE = Integer.getInteger("stream.fetchSize", 500);
+    
+    // Per-connection PreparedStatement cache (see StatementCache)
+    private static final boolean STATEMENT_CACHE_ENABLED = Boolean.parseBoolean(System.getProperty("statementCache.enabled", "true"));
+    private static final int STATEMENT_CACHE_SIZE = Integer.getInteger("statementCache.size", 64);
+    
+    // Isolation for TransactionManager.executeReadOnly: READ_COMMITTED, REPEATABLE_READ or SERIALIZABLE
+    private static final int READ_ONLY_ISOLATION = parseIsolation(System.getProperty("readOnly.isolation", "READ_COMMITTED"));
+    
+    // Read replicas: comma-separated JDBC URLs, same credentials as the primary. Read-only
+    // work is routed to them (least-pending or round-robin) while their lag is within bounds,
+    // except for clients that wrote within the read-your-writes window.
+    private static final List<String> REPLICA_URLS = parseList(System.getProperty("db.replicas", ""));
+    private static final int REPLICA_POOL_SIZE = Integer.getInteger("db.replicas.poolSize", MAXIMUM_POOL_SIZE);
+    private static final boolean REPLICA_ROUND_ROBIN = "round-robin".equals(System.getProperty("db.replicas.selection", "least-pending"));
+    private static final long REPLICA_MAX_LAG_MILLIS = Long.getLong("db.replicas.maxLagMillis", 5000);
+    private static final long REPLICA_LAG_CHECK_MILLIS = Long.getLong("db.replicas.lagCheckMillis", 1000);
+    private static final long READ_YOUR_WRITES_MILLIS = Long.getLong("db.readYourWrites.millis", 5000);
+    
+    // JSON responses at least this large are drained by a WriteListener after the request
+    // thread has finished; 0 turns non-blocking writes off
+    private static final int ASYNC_WRITE_THRESHOLD = Integer.getInteger("async.writeThreshold", 64 * 1024);
+    private static final int ASYNC_WRITE_CHUNK_SIZE = Integer.getInteger("async.writeChunkSize", 16 * 1024);
+    
+    // How long the language/category/country/city snapshots are trusted before a reload;
+    // writes through the DAOs swap them sooner, 0 reads through to the database every time
+    private static final long REFERENCE_CACHE_TTL_MILLIS = Long.getLong("referenceCache.ttlMillis", 300000);
+    
+    // Bounded film/staff caches in front of FilmDao/StaffDao.findById. Other nodes' writes
+    // arrive as NOTIFY events (see EntityCacheListener); the TTL is only a safety net.
+    private static final boolean ENTITY_CACHE_ENABLED = Boolean.parseBoolean(System.getProperty("entityCache.enabled", "true"));
+    private static final int ENTITY_CACHE_FILM_SIZE = Integer.getInteger("entityCache.filmSize", 5000);
+    private static final int ENTITY_CACHE_STAFF_SIZE = Integer.getInteger("entityCache.staffSize", 500);
+    private static final long ENTITY_CACHE_TTL_MILLIS = Long.getLong("entityCache.ttlMillis", 600000);
+    private static final boolean ENTITY_CACHE_LISTEN = Boolean.parseBoolean(System.getProperty("entityCache.listen", "true"));
+    
+    // Finder result cache (see QueryCache): memory budget and how long an entry may miss
+    // writes made by other nodes
+    private static final boolean QUERY_CACHE_ENABLED = Boolean.parseBoolean(System.getProperty("queryCache.enabled", "true"));
+    private static final long QUERY_CACHE_MAX_BYTES = Long.getLong("queryCache.maxBytes", 32L * 1024 * 1024);
+    private static final long QUERY_CACHE_TTL_MILLIS = Long.getLong("queryCache.ttlMillis", 30000);
+    
+    // Rendered responses of cacheable GETs (see ResponseCache)
+    private static final boolean RESPONSE_CACHE_ENABLED = Boolean.parseBoolean(System.getProperty("responseCache.enabled", "true"));
+    private static final long RESPONSE_CACHE_MAX_BYTES = Long.getLong("responseCache.maxBytes", 16L * 1024 * 1024);
+    private static final long RESPONSE_CACHE_TTL_MILLIS = Long.getLong("responseCache.ttlMillis", 30000);
+    
+    // Identical concurrent film reads share one load (see SingleFlight); a caller waits at
+    // most this long for the shared load before running its own
+    private static final boolean SINGLE_FLIGHT_ENABLED = Boolean.parseBoolean(System.getProperty("singleFlight.enabled", "true"));
+    private static final long SINGLE_FLIGHT_TIMEOUT_MILLIS = Long.getLong("singleFlight.timeoutMillis", 5000);
+    
+    // Rented-copy bitmap and per-(film, store) counts (see InventoryAvailabilityIndex); the
+    // periodic rebuild also brings in other nodes' rentals
+    private static final boolean AVAILABILITY_INDEX_ENABLED = Boolean.parseBoolean(System.getProperty("availabilityIndex.enabled", "true"));
+    private static final long AVAILABILITY_INDEX_RECONCILE_MILLIS = Long.getLong("availabilityIndex.reconcileMillis", 60000);
+    
+    // Film availability from the film_store_availability table (V4 migration) instead of the
+    // in-memory index, for deployments that keep no state in the app tier; ignored while the
+    // table and its triggers are missing
+    private static final boolean AVAILABILITY_READ_MODEL_ENABLED = Boolean.parseBoolean(System.getProperty("availabilityReadModel.enabled", "false"));
+    
+    // Primary connections taken outside the governor: parallel hydration forks, one
+    // reference snapshot reload, the availability index rebuild and the replica lag check
+    private static final int BACKGROUND_CONNECTIONS = (PARALLEL_HYDRATION_ENABLED ? PARALLEL_HYDRATION_MAX_CONNECTIONS : 0)
+            + 1 + (AVAILABILITY_INDEX_ENABLED ? 1 : 0) + (REPLICA_URLS.isEmpty() ? 0 : 1);
+    
+    // Requests allowed to run database work at once (see DatabaseGovernor) and how long
+    // the rest may wait for a slot before getting 503. The default leaves the background
+    // connections free, so requests can never take the whole pool.
+    private static final int GOVERNOR_PERMITS = Integer.getInteger("governor.permits", Math.max(1, MAXIMUM_POOL_SIZE - BACKGROUND_CONNECTIONS));
+    private static final long GOVERNOR_QUEUE_TIMEOUT_MILLIS = Long.getLong("governor.queueTimeoutMillis", 30000);
     
     private static HikariDataSource dataSource;
+    private static final List<HikariDataSource> replicaDataSources = new ArrayList<>();
     
     static {
+        if (GOVERNOR_PERMITS + BACKGROUND_CONNECTIONS > MAXIMUM_POOL_SIZE) {
+            throw new IllegalStateException("governor.permits (" + GOVERNOR_PERMITS + ") plus " + BACKGROUND_CONNECTIONS
+                    + " background connections exceed the pool size of " + MAXIMUM_POOL_SIZE);
+        }
+        dataSource = new HikariDataSource(poolConfig(DATABASE_URL, "primary", MAXIMUM_POOL_SIZE));
+        System.out.println(" Connection pool initialized");
+        
+        for (int i = 0; i < REPLICA_URLS.size(); i++) {
+            HikariConfig config = poolConfig(REPLICA_URLS.get(i), "replica-" + i, REPLICA_POOL_SIZE);
+            config.setReadOnly(true);
+            // A replica that is down at startup is skipped by the router instead of failing the app
+            config.setInitializationFailTimeout(-1);
+            replicaDataSources.add(new HikariDataSource(config));
+            System.out.println(" Replica pool initialized: " + REPLICA_URLS.get(i));
+        }
+    }
+    
+    private static HikariConfig poolConfig(String url, String poolName, int poolSize) {
         HikariConfig config = new HikariConfig();
-        config.setJdbcUrl(DATABASE_URL);
+        config.setPoolName(poolName);
+        config.setJdbcUrl(url);
         config.setUsername(DATABASE_USERNAME);
         config.setPassword(DATABASE_PASSWORD);
         config.setDriverClassName(DATABASE_DRIVER);
         
         // Pool configuration
-        config.setMaximumPoolSize(10);
+        config.setMaximumPoolSize(poolSize);
         config.setMinimumIdle(2);
         config.setConnectionTimeout(30000);
         config.setIdleTimeout(600000);
         config.setMaxLifetime(1800000);
         
-        dataSource = new HikariDataSource(config);
-        System.out.println(" Connection pool initialized");
+        // Let the driver collapse JDBC batches into multi-row INSERT statements
+        config.addDataSourceProperty("reWriteBatchedInserts", "true");
+        
+        // Server-side prepare from the first execution, binary transfer for results
+        config.addDataSourceProperty("prepareThreshold", "1");
+        config.addDataSourceProperty("binaryTransfer", "true");
+        config.addDataSourceProperty("preparedStatementCacheQueries", "512");
+        
+        // setReadOnly(true) also applies in autocommit mode (the driver sets the session
+        // read-only), so executeReadOnly at READ COMMITTED is enforced by the server too
+        config.addDataSourceProperty("readOnlyMode", "always");
+        return config;
     }
     
     public static DataSource getDataSource() {
         return dataSource;
     }
     
+    // Unpooled connection to the primary, for long-lived sessions such as LISTEN
+    public static Connection openDedicatedConnection() throws SQLException {
+        return DriverManager.getConnection(DATABASE_URL, DATABASE_USERNAME, DATABASE_PASSWORD);
+    }
+    
+    public static int getMaximumPoolSize() { return MAXIMUM_POOL_SIZE; }
+    public static boolean isMigrateEnabled() { return MIGRATE; }
+    public static boolean isParallelHydrationEnabled() { return PARALLEL_HYDRATION_ENABLED; }
+    public static int getParallelHydrationMaxConnections() { return PARALLEL_HYDRATION_MAX_CONNECTIONS; }
+    public static int getParallelHydrationRequestBudget() { return PARALLEL_HYDRATION_REQUEST_BUDGET; }
+    public static long getParallelHydrationConnectionTimeoutMillis() { return PARALLEL_HYDRATION_CONNECTION_TIMEOUT_MILLIS; }
+    public static int getStreamFetchSize() { return STREAM_FETCH_SIZE; }
+    public static boolean isStatementCacheEnabled() { return STATEMENT_CACHE_ENABLED; }
+    public static int getStatementCacheSize() { return STATEMENT_CACHE_SIZE; }
+    public static int getReadOnlyIsolation() { return READ_ONLY_ISOLATION; }
+    public static List<HikariDataSource> getReplicaDataSources() { return Collections.unmodifiableList(replicaDataSources); }
+    public static boolean isReplicaRoundRobin() { return REPLICA_ROUND_ROBIN; }
+    public static long getReplicaMaxLagMillis() { return REPLICA_MAX_LAG_MILLIS; }
+    public static long getReplicaLagCheckMillis() { return REPLICA_LAG_CHECK_MILLIS; }
+    public static long getReadYourWritesMillis() { return READ_YOUR_WRITES_MILLIS; }
+    public static int getBackgroundConnections() { return BACKGROUND_CONNECTIONS; }
+    public static int getGovernorPermits() { return GOVERNOR_PERMITS; }
+    public static long getGovernorQueueTimeoutMillis() { return GOVERNOR_QUEUE_TIMEOUT_MILLIS; }
+    public static int getAsyncWriteThreshold() { return ASYNC_WRITE_THRESHOLD; }
+    public static int getAsyncWriteChunkSize() { return ASYNC_WRITE_CHUNK_SIZE; }
+    public static long getReferenceCacheTtlMillis() { return REFERENCE_CACHE_TTL_MILLIS; }
+    public static boolean isEntityCacheEnabled() { return ENTITY_CACHE_ENABLED; }
+    public static int getEntityCacheFilmSize() { return ENTITY_CACHE_FILM_SIZE; }
+    public static int getEntityCacheStaffSize() { return ENTITY_CACHE_STAFF_SIZE; }
+    public static long getEntityCacheTtlMillis() { return ENTITY_CACHE_TTL_MILLIS; }
+    public static boolean isEntityCacheListenEnabled() { return ENTITY_CACHE_LISTEN; }
+    public static boolean isQueryCacheEnabled() { return QUERY_CACHE_ENABLED; }
+    public static long getQueryCacheMaxBytes() { return QUERY_CACHE_MAX_BYTES; }
+    public static long getQueryCacheTtlMillis() { return QUERY_CACHE_TTL_MILLIS; }
+    public static boolean isResponseCacheEnabled() { return RESPONSE_CACHE_ENABLED; }
+    public static long getResponseCacheMaxBytes() { return RESPONSE_CACHE_MAX_BYTES; }
+    public static long getResponseCacheTtlMillis() { return RESPONSE_CACHE_TTL_MILLIS; }
+    public static boolean isSingleFlightEnabled() { return SINGLE_FLIGHT_ENABLED; }
+    public static long getSingleFlightTimeoutMillis() { return SINGLE_FLIGHT_TIMEOUT_MILLIS; }
+    public static boolean isAvailabilityIndexEnabled() { return AVAILABILITY_INDEX_ENABLED; }
+    public static long getAvailabilityIndexReconcileMillis() { return AVAILABILITY_INDEX_RECONCILE_MILLIS; }
+    public static boolean isAvailabilityReadModelEnabled() { return AVAILABILITY_READ_MODEL_ENABLED; }
+    
+    private static List<String> parseList(String value) {
+        List<String> list = new ArrayList<>();
+        for (String item : value.split(",")) {
+            if (!item.isBlank()) list.add(item.trim());
+        }
+        return list;
+    }
+    
+    private static int parseIsolation(String name) {
+        switch (name.trim().toUpperCase()) {
+            case "READ_COMMITTED": return java.sql.Connection.TRANSACTION_READ_COMMITTED;
+            case "REPEATABLE_READ": return java.sql.Connection.TRANSACTION_REPEATABLE_READ;
+            case "SERIALIZABLE": return java.sql.Connection.TRANSACTION_SERIALIZABLE;
+            default: throw new IllegalArgumentException("Unknown readOnly.isolation: " + name);
+        }
+    }
+    
     // Keep existing methods for backward compatibility
     public static String getUrl() { return DATABASE_URL; }
     public static String getUsername() { return DATABASE_USERNAME; }
@@ -2,14 +2,15 @@ package controller;
 
 import service.CustomerServiceManagement;
 import model.*;
+import config.DatabaseConfig;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
-import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
@@ -18,7 +19,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 
-public class CustomerController extends HttpServlet {
+public class CustomerController extends VirtualThreadServlet {
     
     private final CustomerServiceManagement customerService;
     private final ObjectMapper objectMapper;
@@ -118,7 +119,7 @@ public class CustomerController extends HttpServlet {
             responseData.put("message", "Customer created successfully");
             
             response.setStatus(HttpServletResponse.SC_CREATED);
-            objectMapper.writeValue(response.getOutputStream(), responseData);
+            writeJson(request, response, objectMapper, responseData);
             
         } catch (SQLException | IllegalArgumentException e) {
             handleError(response, HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
@@ -138,6 +139,8 @@ public class CustomerController extends HttpServlet {
             String customerIdParam = request.getParameter("customerId");
             String storeIdParam = request.getParameter("storeId");
             String activeParam = request.getParameter("active");
+            String streamParam = request.getParameter("stream");
+            PageRequest pageRequest = PageRequest.from(request);
             
             Map<String, Object> responseData = new HashMap<>();
             responseData.put("success", true);
@@ -152,7 +155,14 @@ public class CustomerController extends HttpServlet {
             } else if (storeIdParam != null) {
                 //  GET customers by store with full relationships
                 int storeId = Integer.parseInt(storeIdParam);
-                List<Customer> customers = customerService.getCustomersByStore(storeId);
+                List<Customer> customers;
+                if (pageRequest != null) {
+                    Page<Customer> page = customerService.getCustomersByStorePage(storeId, pageRequest.getAfterId(), pageRequest.getLimit(),
+                            pageRequest.isDescending(), pageRequest.isWithEstimate());
+                    customers = pageRequest.addToEnvelope(responseData, request, page);
+                } else {
+                    customers = customerService.getCustomersByStore(storeId);
+                }
                 responseData.put("storeId", storeId);
                 responseData.put("totalCustomers", customers.size());
                 responseData.put("customers", customers);
@@ -161,22 +171,42 @@ public class CustomerController extends HttpServlet {
             } else if (activeParam != null) {
                 //  GET customers by active status with full relationships
                 boolean isActive = Boolean.parseBoolean(activeParam);
-                List<Customer> customers = customerService.getCustomersByActiveStatus(isActive);
+                List<Customer> customers;
+                if (pageRequest != null) {
+                    Page<Customer> page = customerService.getCustomersByActiveStatusPage(isActive, pageRequest.getAfterId(), pageRequest.getLimit(),
+                            pageRequest.isDescending(), pageRequest.isWithEstimate());
+                    customers = pageRequest.addToEnvelope(responseData, request, page);
+                } else {
+                    customers = customerService.getCustomersByActiveStatus(isActive);
+                }
                 responseData.put("activeFilter", isActive);
                 responseData.put("totalCustomers", customers.size());
                 responseData.put("customers", customers);
                 responseData.put("message", customers.size() + " " + (isActive ? "active" : "inactive") + " customers found");
                 
+            } else if ("true".equals(streamParam)) {
+                //  Export: rows go out while the cursor is still being read
+                streamAllCustomers(response);
+                return;
+                
             } else {
                 //  GET all customers with full relationships
-                List<Customer> customers = customerService.getAllCustomers();
+                List<Customer> customers;
+                if (pageRequest != null) {
+                    // Keyset page straight from the database
+                    Page<Customer> page = customerService.getCustomerPage(pageRequest.getAfterId(), pageRequest.getLimit(),
+                            pageRequest.isDescending(), pageRequest.isWithEstimate());
+                    customers = pageRequest.addToEnvelope(responseData, request, page);
+                } else {
+                    customers = customerService.getAllCustomers();
+                }
                 responseData.put("totalCustomers", customers.size());
                 responseData.put("customers", customers);
                 responseData.put("message", "All customers retrieved successfully");
             }
             
             //  SAFE SERIALIZATION - Jackson will now ignore circular references
-            objectMapper.writeValue(response.getOutputStream(), responseData);
+            writeJson(request, response, objectMapper, responseData);
             
         } catch (SQLException e) {
             handleError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Database error: " + e.getMessage());
@@ -211,7 +241,7 @@ public class CustomerController extends HttpServlet {
                 responseData.put("customerId", customer.getCustomerId());
                 responseData.put("message", "Customer updated successfully");
                 
-                objectMapper.writeValue(response.getOutputStream(), responseData);
+                writeJson(request, response, objectMapper, responseData);
                 
             } else {
                 handleError(response, HttpServletResponse.SC_BAD_REQUEST, "Customer ID is required");
@@ -244,7 +274,7 @@ public class CustomerController extends HttpServlet {
                 responseData.put("customerId", customerId);
                 responseData.put("message", "Customer deleted successfully");
                 
-                objectMapper.writeValue(response.getOutputStream(), responseData);
+                writeJson(request, response, objectMapper, responseData);
                 
             } else {
                 handleError(response, HttpServletResponse.SC_BAD_REQUEST, "Customer ID is required");
@@ -257,6 +287,24 @@ public class CustomerController extends HttpServlet {
         }
     }
     
+    private void streamAllCustomers(HttpServletResponse response) throws SQLException, IOException {
+        StreamingJsonWriter<Customer> writer = new StreamingJsonWriter<>(objectMapper, response, DatabaseConfig.getStreamFetchSize());
+        try {
+            JsonGenerator generator = writer.getGenerator();
+            generator.writeStartObject();
+            generator.writeBooleanField("success", true);
+            generator.writeArrayFieldStart("customers");
+            customerService.streamAllCustomers(writer);
+            generator.writeEndArray();
+            generator.writeNumberField("totalCustomers", writer.getCount());
+            generator.writeStringField("message", "All customers streamed successfully");
+            generator.writeEndObject();
+            writer.finish();
+        } catch (SQLException e) {
+            writer.abort(e);
+        }
+    }
+    
     private void handleError(HttpServletResponse response, int status, String message) throws IOException {
         response.setStatus(status);
         Map<String, Object> errorResponse = new HashMap<>();
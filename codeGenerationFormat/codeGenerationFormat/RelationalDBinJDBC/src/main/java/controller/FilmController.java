@@ -3,6 +3,7 @@ package controller;
 import service.FilmManagementService;
 import service.VideoRentalService;
 import model.*;
+import config.DatabaseConfig;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
@@ -10,7 +11,6 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
-import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
@@ -19,7 +19,7 @@ import java.util.Map;
 import java.util.HashMap;
 import java.util.List;
 
-public class FilmController extends HttpServlet {
+public class FilmController extends VirtualThreadServlet {
     
     private final FilmManagementService filmService;
     private final ObjectMapper objectMapper;
@@ -61,6 +61,24 @@ public class FilmController extends HttpServlet {
         @JsonIgnore abstract List<Rental> getRentalList(); // Ignore rental list if it exists
     }
     
+    // Tables behind the film catalog responses, for ResponseCache
+    private static final String[] FILM_TABLES = { "film", "language", "film_actor", "actor", "film_category", "category", "inventory" };
+    private static final String[] FILM_INVENTORY_TABLES = { "film", "inventory", "store", "rental" };
+    private static final String[] UNCACHED_PARAMS = { "customerId", "activeRentals", "rentalId", "storeId", "overdue", "stream" };
+    
+    // Film listings and per-film availability are cached; rental lookups and exports are not
+    @Override
+    protected String[] responseCacheTables(HttpServletRequest request) {
+        String pathInfo = request.getPathInfo();
+        if (pathInfo != null && pathInfo.contains("/inventory")) {
+            return FILM_INVENTORY_TABLES;
+        }
+        for (String param : UNCACHED_PARAMS) {
+            if (request.getParameter(param) != null) return null;
+        }
+        return FILM_TABLES;
+    }
+    
     @Override
     protected void doPost(HttpServletRequest request, HttpServletResponse response) 
             throws IOException {
@@ -95,7 +113,7 @@ public class FilmController extends HttpServlet {
             responseData.put("message", "Film created successfully");
             
             response.setStatus(HttpServletResponse.SC_CREATED);
-            objectMapper.writeValue(response.getOutputStream(), responseData);
+            writeJson(request, response, objectMapper, responseData);
             
         } catch (SQLException | IllegalArgumentException e) {
             handleError(response, HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
@@ -131,7 +149,7 @@ public class FilmController extends HttpServlet {
             Map<String, Object> result = filmService.handleInventoryCreation(filmId, storeId, quantity);
             
             response.setStatus(HttpServletResponse.SC_CREATED);
-            objectMapper.writeValue(response.getOutputStream(), result);
+            writeJson(request, response, objectMapper, result);
             
         } catch (NumberFormatException e) {
             handleError(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid film ID or store ID");
@@ -173,7 +191,7 @@ public class FilmController extends HttpServlet {
             Map<String, Object> result = filmService.handleInventoryCreation(filmId, storeId, quantity);
             
             response.setStatus(HttpServletResponse.SC_CREATED);
-            objectMapper.writeValue(response.getOutputStream(), result);
+            writeJson(request, response, objectMapper, result);
             
         } catch (NumberFormatException e) {
             handleError(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid film ID");
@@ -204,59 +222,121 @@ public class FilmController extends HttpServlet {
             String actorIdParam = request.getParameter("actorId");
             String categoryIdParam = request.getParameter("categoryId");
 
+            String streamParam = request.getParameter("stream");
+            PageRequest pageRequest = PageRequest.from(request);
+
             //  Check for inventory in URL path
             String pathInfo = request.getPathInfo();
 
             if (pathInfo != null && pathInfo.contains("/inventory")) {
-                handleInventoryQuery(pathInfo, response);
+                handleInventoryQuery(pathInfo, request, response, pageRequest);
 
             } else if (customerIdParam != null) {
                 int customerId = Integer.parseInt(customerIdParam);
-                List<Rental> rentals = rentalService.getCustomerRentals(customerId);
-                objectMapper.writeValue(response.getOutputStream(), rentals);
+                List<Rental> rentals;
+                if (pageRequest != null) {
+                    Page<Rental> page = rentalService.getCustomerRentalsPage(customerId, pageRequest.getAfterId(), pageRequest.getLimit(),
+                            pageRequest.isDescending(), pageRequest.isWithEstimate());
+                    rentals = pageRequest.addHeaders(response, request, page);
+                } else {
+                    rentals = rentalService.getCustomerRentals(customerId);
+                }
+                writeJson(request, response, objectMapper, rentals);
 
             } else if ("true".equals(activeRentals)) {
-                List<Rental> rentals = rentalService.getAllActiveRentals();
-                objectMapper.writeValue(response.getOutputStream(), rentals);
+                List<Rental> rentals;
+                if (pageRequest != null) {
+                    Page<Rental> page = rentalService.getActiveRentalsPage(pageRequest.getAfterId(), pageRequest.getLimit(),
+                            pageRequest.isDescending(), pageRequest.isWithEstimate());
+                    rentals = pageRequest.addHeaders(response, request, page);
+                } else {
+                    rentals = rentalService.getAllActiveRentals();
+                }
+                writeJson(request, response, objectMapper, rentals);
 
             } else if (rentalIdParam != null) {
                 int rentalId = Integer.parseInt(rentalIdParam);
                 Rental rental = rentalService.getRentalById(rentalId);
-                objectMapper.writeValue(response.getOutputStream(), rental);
+                writeJson(request, response, objectMapper, rental);
 
             } else if (storeIdParam != null) {
                 int storeId = Integer.parseInt(storeIdParam);
-                List<Rental> rentals = rentalService.getRentalsByStore(storeId);
-                objectMapper.writeValue(response.getOutputStream(), rentals);
+                List<Rental> rentals;
+                if (pageRequest != null) {
+                    Page<Rental> page = rentalService.getRentalsByStorePage(storeId, null, null, pageRequest.getAfterId(), pageRequest.getLimit(),
+                            pageRequest.isDescending(), pageRequest.isWithEstimate());
+                    rentals = pageRequest.addHeaders(response, request, page);
+                } else {
+                    rentals = rentalService.getRentalsByStore(storeId);
+                }
+                writeJson(request, response, objectMapper, rentals);
 
             } else if ("true".equals(overdueParam)) {
-                List<Rental> rentals = rentalService.getOverdueRentals();
-                objectMapper.writeValue(response.getOutputStream(), rentals);
+                List<Rental> rentals;
+                if (pageRequest != null) {
+                    Page<Rental> page = rentalService.getOverdueRentalsPage(pageRequest.getAfterId(), pageRequest.getLimit(),
+                            pageRequest.isDescending(), pageRequest.isWithEstimate());
+                    rentals = pageRequest.addHeaders(response, request, page);
+                } else {
+                    rentals = rentalService.getOverdueRentals();
+                }
+                writeJson(request, response, objectMapper, rentals);
 
             } else {
                 if (filmIdParam != null) {
                     int filmId = Integer.parseInt(filmIdParam);
                     Film film = filmService.getFilmById(filmId);
-                    objectMapper.writeValue(response.getOutputStream(), film);
+                    writeJson(request, response, objectMapper, film);
 
                 } else if (languageIdParam != null) {
                     int languageId = Integer.parseInt(languageIdParam);
-                    List<Film> films = filmService.getFilmsByLanguage(languageId);
-                    objectMapper.writeValue(response.getOutputStream(), films);
+                    List<Film> films;
+                    if (pageRequest != null) {
+                        Page<Film> page = filmService.getFilmsByLanguagePage(languageId, pageRequest.getAfterId(), pageRequest.getLimit(),
+                                pageRequest.isDescending(), pageRequest.isWithEstimate());
+                        films = pageRequest.addHeaders(response, request, page);
+                    } else {
+                        films = filmService.getFilmsByLanguage(languageId);
+                    }
+                    writeJson(request, response, objectMapper, films);
 
                 } else if (actorIdParam != null) {
                     int actorId = Integer.parseInt(actorIdParam);
-                    List<Film> films = filmService.getFilmsByActor(actorId);
-                    objectMapper.writeValue(response.getOutputStream(), films);
+                    List<Film> films;
+                    if (pageRequest != null) {
+                        Page<Film> page = filmService.getFilmsByActorPage(actorId, pageRequest.getAfterId(), pageRequest.getLimit(),
+                                pageRequest.isDescending(), pageRequest.isWithEstimate());
+                        films = pageRequest.addHeaders(response, request, page);
+                    } else {
+                        films = filmService.getFilmsByActor(actorId);
+                    }
+                    writeJson(request, response, objectMapper, films);
 
                 } else if (categoryIdParam != null) {
                     int categoryId = Integer.parseInt(categoryIdParam);
-                    List<Film> films = filmService.getFilmsByCategory(categoryId);
-                    objectMapper.writeValue(response.getOutputStream(), films);
+                    List<Film> films;
+                    if (pageRequest != null) {
+                        Page<Film> page = filmService.getFilmsByCategoryPage(categoryId, pageRequest.getAfterId(), pageRequest.getLimit(),
+                                pageRequest.isDescending(), pageRequest.isWithEstimate());
+                        films = pageRequest.addHeaders(response, request, page);
+                    } else {
+                        films = filmService.getFilmsByCategory(categoryId);
+                    }
+                    writeJson(request, response, objectMapper, films);
+
+                } else if ("true".equals(streamParam)) {
+                    // Export: films go out while the cursor is still being read
+                    streamAllFilms(response);
+
+                } else if (pageRequest != null) {
+                    // Keyset page straight from the database
+                    Page<Film> page = filmService.getFilmPage(pageRequest.getAfterId(), pageRequest.getLimit(),
+                            pageRequest.isDescending(), pageRequest.isWithEstimate());
+                    writeJson(request, response, objectMapper, pageRequest.addHeaders(response, request, page));
 
                 } else {
                     List<Film> films = filmService.getAllFilms();
-                    objectMapper.writeValue(response.getOutputStream(), films);
+                    writeJson(request, response, objectMapper, films);
                 }
             }
 
@@ -273,7 +353,8 @@ public class FilmController extends HttpServlet {
 
 
     //  Handle inventory queries - returns List instead of Map
-    private void handleInventoryQuery(String pathInfo, HttpServletResponse response) throws SQLException, IOException {
+    private void handleInventoryQuery(String pathInfo, HttpServletRequest request, HttpServletResponse response,
+            PageRequest pageRequest) throws SQLException, IOException {
         String[] pathParts = pathInfo.split("/");
         
         if (pathParts.length >= 3) {
@@ -281,13 +362,29 @@ public class FilmController extends HttpServlet {
             
             if (pathParts.length == 3) {
                 // GET /films/1/inventory - get all inventory for this film as List
-                List<Map<String, Object>> inventoryList = filmService.handleFilmInventoryQuery(filmId);
-                objectMapper.writeValue(response.getOutputStream(), inventoryList);
+                List<Map<String, Object>> inventoryList;
+                if (pageRequest != null) {
+                    // One row per store, keyset on store_id
+                    Page<Map<String, Object>> page = filmService.getFilmInventoryPage(filmId, pageRequest.getAfterId(),
+                            pageRequest.getLimit(), pageRequest.isDescending(), pageRequest.isWithEstimate());
+                    inventoryList = pageRequest.addHeaders(response, request, page);
+                } else {
+                    inventoryList = filmService.handleFilmInventoryQuery(filmId);
+                }
+                writeJson(request, response, objectMapper, inventoryList);
             } else if (pathParts.length >= 4) {
                 // GET /films/1/inventory/3 - get inventory for this film at specific store as List
                 int storeId = Integer.parseInt(pathParts[3]);
-                List<Map<String, Object>> inventoryList = filmService.handleFilmStoreInventoryQuery(filmId, storeId);
-                objectMapper.writeValue(response.getOutputStream(), inventoryList);
+                List<Map<String, Object>> inventoryList;
+                if (pageRequest != null) {
+                    // One row per copy, keyset on inventory_id
+                    Page<Map<String, Object>> page = filmService.getFilmStoreInventoryPage(filmId, storeId, pageRequest.getAfterId(),
+                            pageRequest.getLimit(), pageRequest.isDescending(), pageRequest.isWithEstimate());
+                    inventoryList = pageRequest.addHeaders(response, request, page);
+                } else {
+                    inventoryList = filmService.handleFilmStoreInventoryQuery(filmId, storeId);
+                }
+                writeJson(request, response, objectMapper, inventoryList);
             }
         } else {
             throw new IllegalArgumentException("Invalid inventory query URL");
@@ -317,7 +414,7 @@ public class FilmController extends HttpServlet {
                 responseData.put("filmId", film.getFilmId());
                 responseData.put("message", "Film updated successfully");
                 
-                objectMapper.writeValue(response.getOutputStream(), responseData);
+                writeJson(request, response, objectMapper, responseData);
                 
             } else {
                 handleError(response, HttpServletResponse.SC_BAD_REQUEST, "Film ID is required");
@@ -352,7 +449,7 @@ public class FilmController extends HttpServlet {
                 responseData.put("filmId", filmId);
                 responseData.put("message", "Film deleted successfully");
                 
-                objectMapper.writeValue(response.getOutputStream(), responseData);
+                writeJson(request, response, objectMapper, responseData);
                 
             } else {
                 handleError(response, HttpServletResponse.SC_BAD_REQUEST, "Film ID is required");
@@ -365,6 +462,18 @@ public class FilmController extends HttpServlet {
         }
     }
     
+    private void streamAllFilms(HttpServletResponse response) throws SQLException, IOException {
+        StreamingJsonWriter<Film> writer = new StreamingJsonWriter<>(objectMapper, response, DatabaseConfig.getStreamFetchSize());
+        try {
+            writer.getGenerator().writeStartArray();
+            filmService.streamAllFilms(writer);
+            writer.getGenerator().writeEndArray();
+            writer.finish();
+        } catch (SQLException e) {
+            writer.abort(e);
+        }
+    }
+
     private void handleError(HttpServletResponse response, int status, String message) throws IOException {
         response.setStatus(status);
         Map<String, Object> errorResponse = new HashMap<>();
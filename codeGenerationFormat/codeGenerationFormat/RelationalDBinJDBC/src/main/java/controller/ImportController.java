@@ -0,0 +1,101 @@
+package controller;
+
+import service.BulkImportService;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bulk ingest of nightly feeds: POST /imports/films, /imports/inventory, /imports/payments
+ * with a CSV (text/csv, header line required) or NDJSON (application/x-ndjson) body.
+ * The body is streamed into COPY and never held in memory.
+ */
+public class ImportController extends VirtualThreadServlet {
+    
+    private final BulkImportService importService;
+    private final ObjectMapper objectMapper;
+    
+    public ImportController() {
+        this.importService = new BulkImportService();
+        this.objectMapper = new ObjectMapper();
+    }
+    
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) 
+            throws IOException {
+        
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        
+        try {
+            String pathInfo = request.getPathInfo();
+            String target = pathInfo != null && pathInfo.length() > 1 ? pathInfo.substring(1) : null;
+            
+            if (request.getCharacterEncoding() == null) {
+                request.setCharacterEncoding("UTF-8");
+            }
+            Map<String, Object> responseData = importService.handleImport(target, resolveFormat(request), request.getReader());
+            writeJson(request, response, objectMapper, responseData);
+            
+        } catch (IllegalArgumentException e) {
+            handleError(response, HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+        } catch (SQLException e) {
+            handleError(response, statusFor(e), e.getMessage());
+        } catch (Exception e) {
+            handleError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Import failed: " + e.getMessage());
+        }
+    }
+    
+    // The feed's fault only for data errors (SQLState class 22, 23) or a bad request the DAO
+    // rejected (wrapped by the transaction); the pool or the server being unavailable is 503
+    private int statusFor(SQLException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IllegalArgumentException) {
+                return HttpServletResponse.SC_BAD_REQUEST;
+            }
+            if (cause instanceof SQLTransientConnectionException) {
+                return HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+            }
+            if (cause instanceof SQLException sql && sql.getSQLState() != null) {
+                String state = sql.getSQLState();
+                if (state.startsWith("22") || state.startsWith("23")) return HttpServletResponse.SC_BAD_REQUEST;
+                if (state.startsWith("08") || state.startsWith("53") || state.startsWith("57P")) return HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+                return HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+            }
+        }
+        return HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+    }
+    
+    // ?format= wins over the Content-Type header
+    private String resolveFormat(HttpServletRequest request) {
+        String format = request.getParameter("format");
+        if (format != null) {
+            return format;
+        }
+        String contentType = request.getContentType();
+        if (contentType != null && (contentType.startsWith("application/x-ndjson") || contentType.startsWith("application/jsonl"))) {
+            return "ndjson";
+        }
+        return "csv";
+    }
+    
+    private void handleError(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("success", false);
+        errorResponse.put("error", message);
+        
+        try {
+            objectMapper.writeValue(response.getOutputStream(), errorResponse);
+        } catch (Exception e) {
+            response.getWriter().write("{\"success\":false,\"error\":\"" + message + "\"}");
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package controller;
+
+import config.DatabaseConfig;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import java.io.IOException;
+
+/**
+ * Drains an already serialized response body through a WriteListener. The container calls
+ * onWritePossible whenever the socket can take more, so a slow client holds neither a
+ * thread, a governor permit nor a pooled connection while its bytes go out.
+ */
+class NonBlockingResponseWriter implements WriteListener {
+
+    private final AsyncContext async;
+    private final ServletOutputStream out;
+    private final byte[] body;
+    private final int chunkSize;
+    private int offset;
+
+    private NonBlockingResponseWriter(AsyncContext async, ServletOutputStream out, byte[] body) {
+        this.async = async;
+        this.out = out;
+        this.body = body;
+        this.chunkSize = Math.max(1, DatabaseConfig.getAsyncWriteChunkSize());
+    }
+
+    static void start(AsyncContext async, byte[] body) throws IOException {
+        ServletOutputStream out = async.getResponse().getOutputStream();
+        out.setWriteListener(new NonBlockingResponseWriter(async, out, body));
+    }
+
+    @Override
+    public void onWritePossible() throws IOException {
+        // isReady() false means the container calls back once the client has caught up
+        while (out.isReady()) {
+            if (offset == body.length) {
+                async.complete();
+                return;
+            }
+            int length = Math.min(chunkSize, body.length - offset);
+            out.write(body, offset, length);
+            offset += length;
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        System.err.println("❌ Response write failed after " + offset + " of " + body.length + " bytes: " + t.getMessage());
+        async.complete();
+    }
+}
@@ -0,0 +1,152 @@
+package controller;
+
+import model.Page;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * Keyset pagination parameters shared by the list endpoints:
+ * ?after=<last id seen>&limit=<page size>&sort=asc|desc&total=estimate
+ */
+public class PageRequest {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 500;
+
+    private final int afterId;
+    private final int limit;
+    private final boolean descending;
+    private final boolean withEstimate;
+
+    private PageRequest(int afterId, int limit, boolean descending, boolean withEstimate) {
+        this.afterId = afterId;
+        this.limit = limit;
+        this.descending = descending;
+        this.withEstimate = withEstimate;
+    }
+
+    // Returns null when none of after/limit/sort is present, so existing clients keep getting the full list
+    public static PageRequest from(HttpServletRequest request) {
+        String after = request.getParameter("after");
+        String limit = request.getParameter("limit");
+        String sort = request.getParameter("sort");
+        if (after == null && limit == null && sort == null) {
+            return null;
+        }
+
+        int afterId = after != null ? Integer.parseInt(after) : 0;
+        int pageSize = limit != null ? Integer.parseInt(limit) : DEFAULT_LIMIT;
+        if (pageSize < 1 || pageSize > MAX_LIMIT) {
+            throw new NumberFormatException("limit must be between 1 and " + MAX_LIMIT);
+        }
+        boolean descending = false;
+        if (sort != null) {
+            if ("desc".equalsIgnoreCase(sort)) {
+                descending = true;
+            } else if (!"asc".equalsIgnoreCase(sort)) {
+                throw new NumberFormatException("sort must be asc or desc");
+            }
+        }
+        return new PageRequest(afterId, pageSize, descending, "estimate".equals(request.getParameter("total")));
+    }
+
+    // First page with default settings, for filters that need a bounded result
+    public static PageRequest firstPage() {
+        return new PageRequest(0, DEFAULT_LIMIT, false, false);
+    }
+
+    // Range parameters accept a date (2005-05-24) or a date-time (2005-05-24T22:53:30)
+    public static LocalDateTime parseDateParam(String value) {
+        if (value == null) {
+            return null;
+        }
+        return value.length() == 10 ? LocalDate.parse(value).atStartOfDay() : LocalDateTime.parse(value);
+    }
+
+    public int getAfterId() {
+        return afterId;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    public boolean isWithEstimate() {
+        return withEstimate;
+    }
+
+    // Only for lists that are small by nature (a store's staff, the stores in a city); anything
+    // that grows with the data is paged in SQL by its DAO, with a planner estimate for the total
+    public <T> Page<T> slice(List<T> list, ToIntFunction<T> keyOf) {
+        Comparator<T> order = Comparator.comparingInt(keyOf);
+        List<T> rows = new ArrayList<>();
+        for (T item : list.stream().sorted(descending ? order.reversed() : order).toList()) {
+            int key = keyOf.applyAsInt(item);
+            boolean afterCursor = descending ? (afterId <= 0 || key < afterId) : key > afterId;
+            if (afterCursor) {
+                rows.add(item);
+                if (rows.size() > limit) break;
+            }
+        }
+        Page<T> page = Page.of(rows, limit, keyOf);
+        if (withEstimate) page.setEstimatedTotal((long) list.size());
+        return page;
+    }
+
+    // Envelope responses: cursor and next link go next to the items
+    public <T> List<T> addToEnvelope(Map<String, Object> responseData, HttpServletRequest request, Page<T> page) {
+        responseData.put("limit", limit);
+        responseData.put("sort", descending ? "desc" : "asc");
+        if (page.hasNext()) {
+            responseData.put("nextCursor", page.getNextCursor());
+            responseData.put("next", nextLink(request, page.getNextCursor()));
+        }
+        if (page.getEstimatedTotal() != null) {
+            responseData.put("estimatedTotal", page.getEstimatedTotal());
+        }
+        return page.getItems();
+    }
+
+    // Bare array responses: cursor and next link go into headers
+    public <T> List<T> addHeaders(HttpServletResponse response, HttpServletRequest request, Page<T> page) {
+        if (page.hasNext()) {
+            response.setHeader("Link", "<" + nextLink(request, page.getNextCursor()) + ">; rel=\"next\"");
+            response.setHeader("X-Next-Cursor", String.valueOf(page.getNextCursor()));
+        }
+        if (page.getEstimatedTotal() != null) {
+            response.setHeader("X-Estimated-Total", String.valueOf(page.getEstimatedTotal()));
+        }
+        return page.getItems();
+    }
+
+    private String nextLink(HttpServletRequest request, int cursor) {
+        StringBuilder link = new StringBuilder(request.getRequestURL());
+        char separator = '?';
+        for (Map.Entry<String, String[]> parameter : request.getParameterMap().entrySet()) {
+            if ("after".equals(parameter.getKey())) continue;
+            for (String value : parameter.getValue()) {
+                link.append(separator).append(encode(parameter.getKey())).append('=').append(encode(value));
+                separator = '&';
+            }
+        }
+        return link.append(separator).append("after=").append(cursor).toString();
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -2,23 +2,26 @@ package controller;
 
 import service.VideoRentalService;
 import model.*;
+import config.DatabaseConfig;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
-import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.List;
 
-public class RentalController extends HttpServlet {
+public class RentalController extends VirtualThreadServlet {
     
     private final VideoRentalService rentalService;
     private final ObjectMapper objectMapper;
@@ -106,7 +109,7 @@ public class RentalController extends HttpServlet {
             responseData.put("message", "Rental created successfully");
             
             response.setStatus(HttpServletResponse.SC_CREATED);
-            objectMapper.writeValue(response.getOutputStream(), responseData);
+            writeJson(request, response, objectMapper, responseData);
             
         } catch (SQLException | IllegalArgumentException e) {
             handleError(response, HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
@@ -129,6 +132,8 @@ public class RentalController extends HttpServlet {
             String storeIdParam = request.getParameter("storeId");
             String overdueParam = request.getParameter("overdue");
             String apiInfo = request.getParameter("info");
+            String streamParam = request.getParameter("stream");
+            PageRequest pageRequest = PageRequest.from(request);
             
             Map<String, Object> responseData = new HashMap<>();
             responseData.put("success", true);
@@ -136,7 +141,14 @@ public class RentalController extends HttpServlet {
             if (customerIdParam != null) {
                 // GET customer rental history with full relationships
                 int customerId = Integer.parseInt(customerIdParam);
-                List<Rental> rentals = rentalService.getCustomerRentals(customerId);
+                List<Rental> rentals;
+                if (pageRequest != null) {
+                    Page<Rental> page = rentalService.getCustomerRentalsPage(customerId, pageRequest.getAfterId(), pageRequest.getLimit(),
+                            pageRequest.isDescending(), pageRequest.isWithEstimate());
+                    rentals = pageRequest.addToEnvelope(responseData, request, page);
+                } else {
+                    rentals = rentalService.getCustomerRentals(customerId);
+                }
                 responseData.put("customerId", customerId);
                 responseData.put("totalRentals", rentals.size());
                 responseData.put("rentals", rentals);
@@ -144,7 +156,14 @@ public class RentalController extends HttpServlet {
                 
             } else if ("true".equals(activeRentals)) {
                 // GET active rentals with full relationships
-                List<Rental> rentals = rentalService.getAllActiveRentals();
+                List<Rental> rentals;
+                if (pageRequest != null) {
+                    Page<Rental> page = rentalService.getActiveRentalsPage(pageRequest.getAfterId(), pageRequest.getLimit(),
+                            pageRequest.isDescending(), pageRequest.isWithEstimate());
+                    rentals = pageRequest.addToEnvelope(responseData, request, page);
+                } else {
+                    rentals = rentalService.getAllActiveRentals();
+                }
                 responseData.put("totalActiveRentals", rentals.size());
                 responseData.put("rentals", rentals);
                 responseData.put("message", rentals.size() + " active rentals found");
@@ -159,7 +178,18 @@ public class RentalController extends HttpServlet {
             } else if (storeIdParam != null) {
                 // GET rentals by store with full relationships
                 int storeId = Integer.parseInt(storeIdParam);
-                List<Rental> rentals = rentalService.getRentalsByStore(storeId);
+                LocalDateTime from = PageRequest.parseDateParam(request.getParameter("from"));
+                LocalDateTime to = PageRequest.parseDateParam(request.getParameter("to"));
+                List<Rental> rentals;
+                if (pageRequest != null || from != null || to != null) {
+                    // Paged and date-bounded in SQL
+                    PageRequest storePage = pageRequest != null ? pageRequest : PageRequest.firstPage();
+                    Page<Rental> page = rentalService.getRentalsByStorePage(storeId, from, to,
+                            storePage.getAfterId(), storePage.getLimit(), storePage.isDescending(), storePage.isWithEstimate());
+                    rentals = storePage.addToEnvelope(responseData, request, page);
+                } else {
+                    rentals = rentalService.getRentalsByStore(storeId);
+                }
                 responseData.put("storeId", storeId);
                 responseData.put("totalRentals", rentals.size());
                 responseData.put("rentals", rentals);
@@ -167,7 +197,14 @@ public class RentalController extends HttpServlet {
                 
             } else if ("true".equals(overdueParam)) {
                 // GET overdue rentals with full relationships
-                List<Rental> rentals = rentalService.getOverdueRentals();
+                List<Rental> rentals;
+                if (pageRequest != null) {
+                    Page<Rental> page = rentalService.getOverdueRentalsPage(pageRequest.getAfterId(), pageRequest.getLimit(),
+                            pageRequest.isDescending(), pageRequest.isWithEstimate());
+                    rentals = pageRequest.addToEnvelope(responseData, request, page);
+                } else {
+                    rentals = rentalService.getOverdueRentals();
+                }
                 responseData.put("totalOverdueRentals", rentals.size());
                 responseData.put("rentals", rentals);
                 responseData.put("message", rentals.size() + " overdue rentals found");
@@ -175,24 +212,39 @@ public class RentalController extends HttpServlet {
             } else if ("true".equals(apiInfo)) {
                 // ONLY show API info when explicitly requested
                 Map<String, Object> result = rentalService.handleApiInformationQuery();
-                objectMapper.writeValue(response.getOutputStream(), result);
+                writeJson(request, response, objectMapper, result);
+                return;
+                
+            } else if ("true".equals(streamParam)) {
+                // Export: rows go out while the cursor is still being read
+                streamAllRentals(response);
                 return;
                 
             } else {
                 // DEFAULT: Get all rentals with full relationships (like CustomerController)
-                List<Rental> rentals = rentalService.getAllRentals();
+                List<Rental> rentals;
+                if (pageRequest != null) {
+                    // Keyset page straight from the database
+                    Page<Rental> page = rentalService.getRentalPage(pageRequest.getAfterId(), pageRequest.getLimit(),
+                            pageRequest.isDescending(), pageRequest.isWithEstimate());
+                    rentals = pageRequest.addToEnvelope(responseData, request, page);
+                } else {
+                    rentals = rentalService.getAllRentals();
+                }
                 responseData.put("totalRentals", rentals.size());
                 responseData.put("rentals", rentals);
                 responseData.put("message", "All rentals retrieved successfully");
             }
             
             //  SAFE SERIALIZATION - Jackson will now ignore circular references
-            objectMapper.writeValue(response.getOutputStream(), responseData);
+            writeJson(request, response, objectMapper, responseData);
             
         } catch (SQLException e) {
             handleError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Database error: " + e.getMessage());
         } catch (NumberFormatException e) {
             handleError(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid ID format");
+        } catch (DateTimeParseException e) {
+            handleError(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid date, expected yyyy-MM-dd or yyyy-MM-ddTHH:mm:ss");
         } catch (IllegalArgumentException e) {
             handleError(response, HttpServletResponse.SC_NOT_FOUND, e.getMessage());
         } catch (Exception e) {
@@ -224,7 +276,7 @@ public class RentalController extends HttpServlet {
                 responseData.put("rentalId", rental.getRentalId());
                 responseData.put("message", "Film returned successfully");
                 
-                objectMapper.writeValue(response.getOutputStream(), responseData);
+                writeJson(request, response, objectMapper, responseData);
                 
             } else {
                 handleError(response, HttpServletResponse.SC_BAD_REQUEST, 
@@ -260,7 +312,7 @@ public class RentalController extends HttpServlet {
                 responseData.put("rentalId", rentalId);
                 responseData.put("message", "Rental deleted successfully");
                 
-                objectMapper.writeValue(response.getOutputStream(), responseData);
+                writeJson(request, response, objectMapper, responseData);
                 
             } else {
                 handleError(response, HttpServletResponse.SC_BAD_REQUEST, "Rental ID is required");
@@ -273,6 +325,24 @@ public class RentalController extends HttpServlet {
         }
     }
     
+    private void streamAllRentals(HttpServletResponse response) throws SQLException, IOException {
+        StreamingJsonWriter<Rental> writer = new StreamingJsonWriter<>(objectMapper, response, DatabaseConfig.getStreamFetchSize());
+        try {
+            JsonGenerator generator = writer.getGenerator();
+            generator.writeStartObject();
+            generator.writeBooleanField("success", true);
+            generator.writeArrayFieldStart("rentals");
+            rentalService.streamAllRentals(writer);
+            generator.writeEndArray();
+            generator.writeNumberField("totalRentals", writer.getCount());
+            generator.writeStringField("message", "All rentals streamed successfully");
+            generator.writeEndObject();
+            writer.finish();
+        } catch (SQLException e) {
+            writer.abort(e);
+        }
+    }
+    
     private void handleError(HttpServletResponse response, int status, String message) throws IOException {
         response.setStatus(status);
         Map<String, Object> errorResponse = new HashMap<>();
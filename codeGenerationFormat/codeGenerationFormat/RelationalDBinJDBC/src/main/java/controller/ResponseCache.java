@@ -0,0 +1,214 @@
+package controller;
+
+import config.DatabaseConfig;
+import dao.TableVersions;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Rendered JSON of cacheable GETs, keyed by path and query string. Each entry keeps the
+ * identity bytes, a gzip copy and a weak ETag, plus the TableVersions of the tables the
+ * response was built from. While those versions stand, a request is answered from memory
+ * (or with 304 for a matching If-None-Match) before any thread, permit or connection is
+ * taken. Entries live within responseCache.maxBytes, least recently used first.
+ *
+ * The ETag hashes the body rather than the versions, which are per node, so every node
+ * hands out the same tag for the same content. Writes made on other nodes are picked up
+ * once an entry reaches responseCache.ttlMillis. Responses that read from a replica are
+ * never stored (see ReadYourWrites.hasReadReplica).
+ */
+final class ResponseCache {
+
+    // Paging headers (PageRequest.addHeaders) that belong to the cached body
+    private static final String[] CAPTURED_HEADERS = { "Link", "X-Next-Cursor", "X-Estimated-Total" };
+
+    private static final Map<String, Entry> ENTRIES = new LinkedHashMap<>(64, 0.75f, true);
+    private static final ReentrantLock LOCK = new ReentrantLock();
+    private static long totalBytes;
+
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong NOT_MODIFIED = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+
+    private ResponseCache() {
+    }
+
+    static String key(HttpServletRequest request) {
+        String query = request.getQueryString();
+        return query != null ? request.getRequestURI() + "?" + query : request.getRequestURI();
+    }
+
+    static Entry lookup(String key) {
+        LOCK.lock();
+        try {
+            Entry entry = ENTRIES.get(key);
+            if (entry != null && !entry.isCurrent()) {
+                remove(key);
+                entry = null;
+            }
+            if (entry == null) MISSES.incrementAndGet();
+            return entry;
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    // Builds the entry for a freshly rendered body and keeps it if it fits the budget
+    static Entry store(Pending pending, byte[] body, HttpServletResponse response) throws IOException {
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (String name : CAPTURED_HEADERS) {
+            String value = response.getHeader(name);
+            if (value != null) headers.put(name, value);
+        }
+        byte[] gzip = gzip(body);
+        Entry entry = new Entry(body, gzip.length < body.length ? gzip : null, etag(body), headers,
+                pending.tables, pending.versions);
+
+        long budget = DatabaseConfig.getResponseCacheMaxBytes();
+        // One oversized body should not flush everything else
+        if (entry.bytes() > budget / 16) return entry;
+        LOCK.lock();
+        try {
+            remove(pending.key);
+            ENTRIES.put(pending.key, entry);
+            totalBytes += entry.bytes();
+            Iterator<Map.Entry<String, Entry>> eldest = ENTRIES.entrySet().iterator();
+            while (totalBytes > budget && eldest.hasNext()) {
+                totalBytes -= eldest.next().getValue().bytes();
+                eldest.remove();
+            }
+        } finally {
+            LOCK.unlock();
+        }
+        return entry;
+    }
+
+    // Sets status and headers for the entry; returns the bytes to send, or null for a 304
+    static byte[] prepare(HttpServletRequest request, HttpServletResponse response, Entry entry) {
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("ETag", entry.etag);
+        response.setHeader("Vary", "Accept-Encoding");
+        // Clients may keep the body but must revalidate, which is what the ETag is for
+        response.setHeader("Cache-Control", "no-cache");
+        for (Map.Entry<String, String> header : entry.headers.entrySet()) {
+            response.setHeader(header.getKey(), header.getValue());
+        }
+        if (matches(request.getHeader("If-None-Match"), entry.etag)) {
+            NOT_MODIFIED.incrementAndGet();
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return null;
+        }
+        HITS.incrementAndGet();
+        if (entry.gzip != null && acceptsGzip(request.getHeader("Accept-Encoding"))) {
+            response.setHeader("Content-Encoding", "gzip");
+            response.setContentLength(entry.gzip.length);
+            return entry.gzip;
+        }
+        response.setContentLength(entry.body.length);
+        return entry.body;
+    }
+
+    static long getHits() { return HITS.get(); }
+    static long getNotModified() { return NOT_MODIFIED.get(); }
+    static long getMisses() { return MISSES.get(); }
+
+    static long getBytes() {
+        LOCK.lock();
+        try {
+            return totalBytes;
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    private static void remove(String key) {
+        Entry removed = ENTRIES.remove(key);
+        if (removed != null) totalBytes -= removed.bytes();
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        String opaque = etag.substring(2);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) return true;
+            if (tag.startsWith("W/")) tag = tag.substring(2);
+            if (tag.equals(opaque)) return true;
+        }
+        return false;
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length < 2 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        return out.toByteArray();
+    }
+
+    private static String etag(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return "W/\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Versions are read before the controller runs, so a write during rendering makes the entry stale
+    record Pending(String key, String[] tables, long[] versions) {
+    }
+
+    static final class Entry {
+        private final byte[] body;
+        private final byte[] gzip;
+        private final String etag;
+        private final Map<String, String> headers;
+        private final String[] tables;
+        private final long[] versions;
+        private final long storedAt = System.currentTimeMillis();
+
+        private Entry(byte[] body, byte[] gzip, String etag, Map<String, String> headers, String[] tables, long[] versions) {
+            this.body = body;
+            this.gzip = gzip;
+            this.etag = etag;
+            this.headers = headers;
+            this.tables = tables;
+            this.versions = versions;
+        }
+
+        private boolean isCurrent() {
+            return Arrays.equals(versions, TableVersions.get(tables))
+                    && System.currentTimeMillis() - storedAt < DatabaseConfig.getResponseCacheTtlMillis();
+        }
+
+        private long bytes() {
+            return body.length + (gzip != null ? gzip.length : 0) + 256;
+        }
+    }
+}
@@ -1,9 +1,19 @@
 package controller;
 
+import DataBaseConnection.StatementCache;
+import dao.EntityCache;
+import dao.FilmDao;
+import dao.InventoryAvailabilityIndex;
+import dao.QueryCache;
+import dao.ReferenceDataCache;
+import dao.StaffDao;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.StringJoiner;
+import service.FilmManagementService;
+import service.SingleFlight;
 
 public class RootStatusController extends HttpServlet {
     
@@ -23,11 +33,72 @@ public class RootStatusController extends HttpServlet {
                     "customers": "/customers/*",
                     "films": "/films/*",
                     "stores": "/stores/*",
-                    "rentals": "/rentals/*"
+                    "rentals": "/rentals/*",
+                    "imports": "/imports/*"
+                },
+                "statementCache": {
+                    "hits": %d,
+                    "misses": %d
+                },
+                "referenceCacheLoads": {
+                    "language": %d,
+                    "category": %d,
+                    "country": %d,
+                    "city": %d
+                },
+                "referenceCacheFailures": %d,
+                "entityCache": {
+                    "film": %s,
+                    "staff": %s
+                },
+                "queryCache": {
+                    "bytes": %d,
+                    "hits": %d,
+                    "misses": %d,
+                    "stale": %d,
+                    "evictions": %d
+                },
+                "responseCache": {
+                    "bytes": %d,
+                    "hits": %d,
+                    "notModified": %d,
+                    "misses": %d
+                },
+                "singleFlight": %s,
+                "availabilityIndex": {
+                    "ready": %b,
+                    "rebuilds": %d,
+                    "corrections": %d,
+                    "replayed": %d
                 }
             }
-            """.formatted(java.time.Instant.now());
+            """.formatted(java.time.Instant.now(), StatementCache.getHits(), StatementCache.getMisses(),
+                    ReferenceDataCache.LANGUAGES.getLoads(), ReferenceDataCache.CATEGORIES.getLoads(),
+                    ReferenceDataCache.COUNTRIES.getLoads(), ReferenceDataCache.CITIES.getLoads(),
+                    ReferenceDataCache.LANGUAGES.getFailures() + ReferenceDataCache.CATEGORIES.getFailures()
+                            + ReferenceDataCache.COUNTRIES.getFailures() + ReferenceDataCache.CITIES.getFailures(),
+                    cacheStats(FilmDao.getCache()), cacheStats(StaffDao.getCache()),
+                    QueryCache.getBytes(), QueryCache.getHits(), QueryCache.getMisses(),
+                    QueryCache.getStale(), QueryCache.getEvictions(),
+                    ResponseCache.getBytes(), ResponseCache.getHits(), ResponseCache.getNotModified(), ResponseCache.getMisses(),
+                    flightStats(),
+                    InventoryAvailabilityIndex.isReady(), InventoryAvailabilityIndex.getRebuilds(),
+                    InventoryAvailabilityIndex.getCorrections(), InventoryAvailabilityIndex.getReplayed());
         
         response.getWriter().write(jsonResponse);
     }
+    
+    private static String cacheStats(EntityCache<?> cache) {
+        return "{\"size\": %d, \"hits\": %d, \"misses\": %d, \"evictions\": %d, \"rejections\": %d}".formatted(
+                cache.size(), cache.getHits(), cache.getMisses(), cache.getEvictions(), cache.getRejections());
+    }
+
+    private static String flightStats() {
+        StringJoiner flights = new StringJoiner(", ", "{", "}");
+        for (SingleFlight<?, ?> flight : FilmManagementService.getFlights()) {
+            flights.add("\"%s\": {\"inFlight\": %d, \"leaders\": %d, \"collapsed\": %d, \"timeouts\": %d}".formatted(
+                    flight.getName(), flight.getInFlight(), flight.getLeaders(), flight.getCollapsed(), flight.getTimeouts()));
+        }
+        return flights.toString();
+    }
 }
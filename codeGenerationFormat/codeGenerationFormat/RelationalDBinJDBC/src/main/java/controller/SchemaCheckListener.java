@@ -0,0 +1,31 @@
+package controller;
+
+import DataBaseConnection.SchemaMigrations;
+import config.DatabaseConfig;
+
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+
+/**
+ * Applies pending migrations when db.migrate is set, then checks which schema objects are
+ * present before the first request is served (see SchemaMigrations).
+ */
+public class SchemaCheckListener implements ServletContextListener {
+
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+        if (DatabaseConfig.isMigrateEnabled()) {
+            try {
+                SchemaMigrations.migrate();
+            } catch (Exception e) {
+                System.err.println("❌ Migration failed: " + e.getMessage());
+            }
+        }
+        try {
+            SchemaMigrations.verify();
+        } catch (Exception e) {
+            // The dependent features stay off; the rest of the app works without them
+            System.err.println("❌ Schema check failed: " + e.getMessage());
+        }
+    }
+}
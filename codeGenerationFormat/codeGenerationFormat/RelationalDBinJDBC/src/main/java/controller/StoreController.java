@@ -14,16 +14,17 @@ import controller.CustomerController.CountryMixin;
 import controller.CustomerController.RentalMixin;
 import controller.CustomerController.StaffMixin;
 import controller.RentalController.FilmMixin;
-import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.List;
 
-public class StoreController extends HttpServlet {
+public class StoreController extends VirtualThreadServlet {
 
     private final StoreManagementService storeService;
     private final ObjectMapper objectMapper;
@@ -50,6 +51,21 @@ public class StoreController extends HttpServlet {
         this.objectMapper.configure(SerializationFeature.WRITE_SELF_REFERENCES_AS_NULL, true);
     }
 
+    // Tables behind the serialized store (lists are ignored by StoreMixin), for ResponseCache
+    private static final String[] STORE_TABLES = { "store", "staff", "address", "city", "country" };
+    private static final String[] AVAILABILITY_TABLES = { "store", "inventory", "rental" };
+    private static final String[] UNCACHED_PARAMS = { "inventory", "customers", "staff", "rentals" };
+
+    // Store listings, single stores and availability counts are cached; the per-store sub-lists are not
+    @Override
+    protected String[] responseCacheTables(HttpServletRequest request) {
+        if (request.getParameter("availability") != null) return AVAILABILITY_TABLES;
+        for (String param : UNCACHED_PARAMS) {
+            if (request.getParameter(param) != null) return null;
+        }
+        return STORE_TABLES;
+    }
+
     abstract class StoreMixin {
         @JsonIgnore abstract List<Customer> getCustomerList();
         @JsonIgnore abstract List<Inventory> getInventoryList();
@@ -78,7 +94,7 @@ public class StoreController extends HttpServlet {
             responseData.put("message", "Store created successfully");
 
             response.setStatus(HttpServletResponse.SC_CREATED);
-            objectMapper.writeValue(response.getOutputStream(), responseData);
+            writeJson(request, response, objectMapper, responseData);
         } catch (SQLException | IllegalArgumentException e) {
             handleError(response, HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
         } catch (Exception e) {
@@ -97,44 +113,95 @@ public class StoreController extends HttpServlet {
             String customers = request.getParameter("customers");
             String staff = request.getParameter("staff");
             String rentals = request.getParameter("rentals");
+            String availability = request.getParameter("availability");
             String city = request.getParameter("city");
+            PageRequest pageRequest = PageRequest.from(request);
 
             if (storeIdParam != null) {
                 int storeId = Integer.parseInt(storeIdParam);
 
-                if ("true".equals(inventory)) {
-                    List<Map<String, Object>> inventories = storeService.getStoreInventory(storeId);
-                    objectMapper.writeValue(response.getOutputStream(), inventories);
+                if ("true".equals(availability)) {
+                    // Store dashboard: copies on the shelf per film, one indexed lookup
+                    List<FilmStoreAvailability> availabilityList;
+                    if (pageRequest != null) {
+                        Page<FilmStoreAvailability> page = storeService.getStoreAvailabilityPage(storeId, pageRequest.getAfterId(),
+                                pageRequest.getLimit(), pageRequest.isDescending(), pageRequest.isWithEstimate());
+                        availabilityList = pageRequest.addHeaders(response, request, page);
+                    } else {
+                        availabilityList = storeService.getStoreAvailability(storeId);
+                    }
+                    writeJson(request, response, objectMapper, availabilityList);
+
+                } else if ("true".equals(inventory)) {
+                    List<Map<String, Object>> inventories;
+                    if (pageRequest != null) {
+                        Page<Map<String, Object>> page = storeService.getStoreInventoryPage(storeId, pageRequest.getAfterId(),
+                                pageRequest.getLimit(), pageRequest.isDescending(), pageRequest.isWithEstimate());
+                        inventories = pageRequest.addHeaders(response, request, page);
+                    } else {
+                        inventories = storeService.getStoreInventory(storeId);
+                    }
+                    writeJson(request, response, objectMapper, inventories);
 
                 } else if ("true".equals(customers)) {
-                    List<Customer> customerList = storeService.getStoreCustomers(storeId);
-                    objectMapper.writeValue(response.getOutputStream(), customerList);
+                    List<Customer> customerList;
+                    if (pageRequest != null) {
+                        Page<Customer> page = storeService.getStoreCustomersPage(storeId, pageRequest.getAfterId(),
+                                pageRequest.getLimit(), pageRequest.isDescending(), pageRequest.isWithEstimate());
+                        customerList = pageRequest.addHeaders(response, request, page);
+                    } else {
+                        customerList = storeService.getStoreCustomers(storeId);
+                    }
+                    writeJson(request, response, objectMapper, customerList);
 
                 } else if ("true".equals(staff)) {
                     List<Staff> staffList = storeService.getStoreStaff(storeId);
-                    objectMapper.writeValue(response.getOutputStream(), staffList);
+                    // A store's staff is a handful of rows
+                    if (pageRequest != null) staffList = pageRequest.addHeaders(response, request, pageRequest.slice(staffList, Staff::getStaffId));
+                    writeJson(request, response, objectMapper, staffList);
 
                 } else if ("true".equals(rentals)) {
-                    List<Rental> rentalList = storeService.getStoreRentals(storeId);
-                    objectMapper.writeValue(response.getOutputStream(), rentalList);
+                    LocalDateTime from = PageRequest.parseDateParam(request.getParameter("from"));
+                    LocalDateTime to = PageRequest.parseDateParam(request.getParameter("to"));
+                    List<Rental> rentalList;
+                    if (pageRequest != null || from != null || to != null) {
+                        // Paged and date-bounded in SQL
+                        PageRequest storePage = pageRequest != null ? pageRequest : PageRequest.firstPage();
+                        Page<Rental> page = storeService.getStoreRentalPage(storeId, from, to,
+                                storePage.getAfterId(), storePage.getLimit(), storePage.isDescending(), storePage.isWithEstimate());
+                        rentalList = storePage.addHeaders(response, request, page);
+                    } else {
+                        rentalList = storeService.getStoreRentals(storeId);
+                    }
+                    writeJson(request, response, objectMapper, rentalList);
 
                 } else {
                     Store store = storeService.getStoreById(storeId);
-                    objectMapper.writeValue(response.getOutputStream(), store);
+                    writeJson(request, response, objectMapper, store);
                 }
 
             } else if (city != null) {
                 List<Store> stores = storeService.getStoresByCity(city);
-                objectMapper.writeValue(response.getOutputStream(), stores);
+                // A city has a handful of stores
+                if (pageRequest != null) stores = pageRequest.addHeaders(response, request, pageRequest.slice(stores, Store::getStoreId));
+                writeJson(request, response, objectMapper, stores);
+
+            } else if (pageRequest != null) {
+                // Keyset page straight from the database
+                Page<Store> page = storeService.getStorePage(pageRequest.getAfterId(), pageRequest.getLimit(),
+                        pageRequest.isDescending(), pageRequest.isWithEstimate());
+                writeJson(request, response, objectMapper, pageRequest.addHeaders(response, request, page));
 
             } else {
                 List<Store> stores = storeService.getAllStores();
-                objectMapper.writeValue(response.getOutputStream(), stores);
+                writeJson(request, response, objectMapper, stores);
             }
         } catch (SQLException e) {
             handleError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Database error: " + e.getMessage());
         } catch (NumberFormatException e) {
             handleError(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid store ID");
+        } catch (DateTimeParseException e) {
+            handleError(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid date, expected yyyy-MM-dd or yyyy-MM-ddTHH:mm:ss");
         } catch (IllegalArgumentException e) {
             handleError(response, HttpServletResponse.SC_NOT_FOUND, e.getMessage());
         } catch (Exception e) {
@@ -158,7 +225,7 @@ public class StoreController extends HttpServlet {
                 responseData.put("success", true);
                 responseData.put("storeId", updatedStore.getStoreId());
                 responseData.put("message", "Store updated successfully");
-                objectMapper.writeValue(response.getOutputStream(), responseData);
+                writeJson(request, response, objectMapper, responseData);
 
             } else {
                 handleError(response, HttpServletResponse.SC_BAD_REQUEST, "Store ID is required");
@@ -184,7 +251,7 @@ public class StoreController extends HttpServlet {
                 responseData.put("success", true);
                 responseData.put("storeId", storeId);
                 responseData.put("message", "Store deleted successfully");
-                objectMapper.writeValue(response.getOutputStream(), responseData);
+                writeJson(request, response, objectMapper, responseData);
 
             } else {
                 handleError(response, HttpServletResponse.SC_BAD_REQUEST, "Store ID is required");
@@ -0,0 +1,64 @@
+package controller;
+
+import dao.RowHandler;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * Writes rows to the response as they come off a database cursor, using the
+ * controller's ObjectMapper so the same mix-ins apply. Output is flushed every
+ * flushEvery rows, so the first bytes leave before the last row is read.
+ */
+public class StreamingJsonWriter<T> implements RowHandler<T> {
+
+    private final HttpServletResponse response;
+    private final JsonGenerator generator;
+    private final int flushEvery;
+    private int count;
+
+    public StreamingJsonWriter(ObjectMapper objectMapper, HttpServletResponse response, int flushEvery) throws IOException {
+        this.response = response;
+        this.generator = objectMapper.getFactory().createGenerator(response.getOutputStream());
+        // A stream cut short must stay invalid JSON instead of being closed off as if complete
+        this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+        this.flushEvery = flushEvery;
+    }
+
+    public JsonGenerator getGenerator() {
+        return generator;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public void handle(T row) throws SQLException {
+        try {
+            generator.writeObject(row);
+            if (++count % flushEvery == 0) {
+                generator.flush();
+            }
+        } catch (IOException e) {
+            throw new SQLException("Client stopped reading the stream: " + e.getMessage(), e);
+        }
+    }
+
+    public void finish() throws IOException {
+        generator.close();
+    }
+
+    // Rethrows while the caller can still send a normal error response, otherwise only logs
+    public void abort(SQLException e) throws SQLException {
+        if (!response.isCommitted()) {
+            response.resetBuffer();
+            throw e;
+        }
+        System.err.println("❌ Stream aborted after " + count + " rows: " + e.getMessage());
+    }
+}
@@ -0,0 +1,146 @@
+package controller;
+
+import DataBaseConnection.DatabaseGovernor;
+import DataBaseConnection.ReadYourWrites;
+import config.DatabaseConfig;
+import dao.TableVersions;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Base class for the database-backed controllers. Each request is taken off the container
+ * thread with startAsync and handled on its own virtual thread, behind DatabaseGovernor.
+ * doGet/doPost/doPut/doDelete are written as usual and may block freely.
+ *
+ * Responses written with writeJson are serialized once the database work is done; large
+ * ones are then handed to NonBlockingResponseWriter and drain without holding the thread.
+ * GETs for which responseCacheTables returns tables go through ResponseCache and are
+ * answered on the container thread while those tables are unchanged.
+ */
+public abstract class VirtualThreadServlet extends HttpServlet {
+
+    private static final ExecutorService EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+    
+    // Set once the body belongs to a WriteListener, which completes the AsyncContext itself
+    private static final String WRITE_PENDING = VirtualThreadServlet.class.getName() + ".writePending";
+    
+    // ResponseCache.Pending for a cacheable GET that missed; writeJson stores the rendered body
+    private static final String CACHE_PENDING = VirtualThreadServlet.class.getName() + ".cachePending";
+    
+    // Tables a cacheable GET is built from, or null when the request must not be cached
+    protected String[] responseCacheTables(HttpServletRequest request) {
+        return null;
+    }
+
+    @Override
+    protected void service(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        String[] tables = "GET".equals(request.getMethod()) && DatabaseConfig.isResponseCacheEnabled()
+                ? responseCacheTables(request) : null;
+        if (tables != null) {
+            String key = ResponseCache.key(request);
+            // A client inside its read-your-writes window may not see another node's cached copy
+            ResponseCache.Entry cached = ReadYourWrites.mustReadPrimary() ? null : ResponseCache.lookup(key);
+            if (cached != null) {
+                sendCached(request, response, cached);
+                return;
+            }
+            request.setAttribute(CACHE_PENDING, new ResponseCache.Pending(key, tables, TableVersions.get(tables)));
+        }
+        if (!request.isAsyncSupported()) {
+            serviceGoverned(request, response);
+            return;
+        }
+        AsyncContext async = request.startAsync();
+        // Waiting is bounded by the governor; streaming responses may legitimately run long
+        async.setTimeout(0);
+        EXECUTOR.execute(ReadYourWrites.propagate(() -> {
+            try {
+                serviceGoverned(request, response);
+            } catch (Exception e) {
+                System.err.println("❌ Request failed on virtual thread: " + e.getMessage());
+                if (!response.isCommitted()) {
+                    try {
+                        response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                    } catch (IOException ignored) {
+                        // client is gone
+                    }
+                }
+            } finally {
+                if (request.getAttribute(WRITE_PENDING) == null) {
+                    async.complete();
+                }
+            }
+        }));
+    }
+
+    private void serviceGoverned(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        boolean acquired;
+        try {
+            acquired = DatabaseGovernor.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader("Retry-After", "1");
+            response.setContentType("application/json");
+            response.getWriter().write("{\"success\":false,\"error\":\"Server busy, retry shortly\",\"timestamp\":\""
+                    + java.time.Instant.now() + "\"}");
+            return;
+        }
+        try {
+            super.service(request, response);
+        } finally {
+            DatabaseGovernor.release();
+        }
+    }
+    
+    protected void writeJson(HttpServletRequest request, HttpServletResponse response,
+            ObjectMapper objectMapper, Object value) throws IOException {
+        byte[] body = objectMapper.writeValueAsBytes(value);
+        ResponseCache.Pending pending = (ResponseCache.Pending) request.getAttribute(CACHE_PENDING);
+        // A body built from replica reads may predate a committed write, so it is sent but not kept
+        if (pending != null && response.getStatus() == HttpServletResponse.SC_OK && !ReadYourWrites.hasReadReplica()) {
+            ResponseCache.Entry entry = ResponseCache.store(pending, body, response);
+            body = ResponseCache.prepare(request, response, entry);
+            if (body == null) return;
+        }
+        writeBody(request, response, body);
+    }
+    
+    // Cache hit on the container thread: small bodies are written inline, large ones drain
+    // through a WriteListener
+    private void sendCached(HttpServletRequest request, HttpServletResponse response, ResponseCache.Entry entry) throws IOException {
+        byte[] body = ResponseCache.prepare(request, response, entry);
+        if (body == null) return;
+        int threshold = DatabaseConfig.getAsyncWriteThreshold();
+        if (threshold > 0 && body.length >= threshold && request.isAsyncSupported()) {
+            AsyncContext async = request.startAsync();
+            async.setTimeout(0);
+            NonBlockingResponseWriter.start(async, body);
+            return;
+        }
+        response.getOutputStream().write(body);
+    }
+    
+    private void writeBody(HttpServletRequest request, HttpServletResponse response, byte[] body) throws IOException {
+        int threshold = DatabaseConfig.getAsyncWriteThreshold();
+        if (threshold <= 0 || body.length < threshold || !request.isAsyncStarted()) {
+            response.getOutputStream().write(body);
+            return;
+        }
+        response.setContentLength(body.length);
+        request.setAttribute(WRITE_PENDING, Boolean.TRUE);
+        NonBlockingResponseWriter.start(request.getAsyncContext(), body);
+    }
+}
@@ -2,6 +2,7 @@ package dao;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import model.*;
@@ -13,17 +14,22 @@ public class ActorDao {
 
     private static final String SELECT_BY_ID_SQL = "SELECT * FROM actor WHERE actor_id = ?";
 
+    private static final String SELECT_BY_IDS_SQL = "SELECT * FROM actor WHERE actor_id = ANY(?)";
+
     private static final String SELECT_ALL_SQL = "SELECT * FROM actor ORDER BY actor_id";
 
+    private static final String SELECT_PAGE_SQL = "SELECT * FROM actor WHERE actor_id > ? ORDER BY actor_id LIMIT ?";
+
+    private static final String SELECT_PAGE_DESC_SQL = "SELECT * FROM actor WHERE actor_id < ? ORDER BY actor_id DESC LIMIT ?";
+
     private static final String UPDATE_SQL = "UPDATE actor SET first_name = ?, last_name = ?, last_update = ? WHERE actor_id = ?";
 
     private static final String DELETE_SQL = "DELETE FROM actor WHERE actor_id = ?";
 
     public int insert(Connection conn, Actor actor) throws SQLException {
+        TableVersions.bump("actor");
         try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
-            ps.setString(1, actor.getFirstName());
-            ps.setString(2, actor.getLastName());
-            ps.setTimestamp(3, Timestamp.valueOf(actor.getLastUpdate() != null ? actor.getLastUpdate() : java.time.LocalDateTime.now()));
+            bindInsert(ps, actor);
             ps.executeUpdate();
             try (ResultSet rs = ps.getGeneratedKeys()) {
                 if (rs.next()) {
@@ -36,27 +42,93 @@ public class ActorDao {
         return -1;
     }
 
+    // With reWriteBatchedInserts the driver sends the whole batch as multi-row INSERTs
+    public int[] insertBatch(Connection conn, List<Actor> actorList) throws SQLException {
+        TableVersions.bump("actor");
+        int[] ids = new int[actorList.size()];
+        if (actorList.isEmpty()) return ids;
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            for (Actor actor : actorList) {
+                bindInsert(ps, actor);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                for (int i = 0; i < ids.length && rs.next(); i++) {
+                    ids[i] = rs.getInt(1);
+                    actorList.get(i).setActorId(ids[i]);
+                }
+            }
+        }
+        return ids;
+    }
+
+    private void bindInsert(PreparedStatement ps, Actor actor) throws SQLException {
+        ps.setString(1, actor.getFirstName());
+        ps.setString(2, actor.getLastName());
+        ps.setTimestamp(3, Timestamp.valueOf(actor.getLastUpdate() != null ? actor.getLastUpdate() : java.time.LocalDateTime.now()));
+    }
+
     public Actor findById(Connection conn, int id) throws SQLException {
+        return BY_ID.first(conn, connection -> loadById(connection, id), id);
+    }
+
+    private List<Actor> loadById(Connection conn, int id) throws SQLException {
+        List<Actor> list = new ArrayList<>();
         try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_ID_SQL)) {
             ps.setInt(1, id);
             try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? extract(rs) : null;
+                int[] c = PLAN.columns(SELECT_BY_ID_SQL, rs);
+                if (rs.next()) list.add(extract(rs, c));
+            }
+        }
+        return list;
+    }
+
+    public List<Actor> findByIds(Connection conn, Collection<Integer> ids) throws SQLException {
+        List<Actor> list = new ArrayList<>();
+        if (ids == null || ids.isEmpty()) return list;
+        try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_IDS_SQL)) {
+            ps.setArray(1, conn.createArrayOf("integer", ids.toArray()));
+            try (ResultSet rs = ps.executeQuery()) {
+                int[] c = PLAN.columns(SELECT_BY_IDS_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
             }
         }
+        return list;
     }
 
     public List<Actor> findAll(Connection conn) throws SQLException {
         List<Actor> list = new ArrayList<>();
         try (PreparedStatement ps = conn.prepareStatement(SELECT_ALL_SQL);
             ResultSet rs = ps.executeQuery()) {
+            int[] c = PLAN.columns(SELECT_ALL_SQL, rs);
             while (rs.next()) {
-                list.add(extract(rs));
+                list.add(extract(rs, c));
+            }
+        }
+        return list;
+    }
+
+    public List<Actor> findPage(Connection conn, int afterId, int limit) throws SQLException {
+        return findPage(conn, afterId, limit, false);
+    }
+
+    public List<Actor> findPage(Connection conn, int afterId, int limit, boolean descending) throws SQLException {
+        List<Actor> list = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(descending ? SELECT_PAGE_DESC_SQL : SELECT_PAGE_SQL)) {
+            ps.setInt(1, descending && afterId <= 0 ? Integer.MAX_VALUE : afterId);
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                int[] c = PLAN.columns(descending ? SELECT_PAGE_DESC_SQL : SELECT_PAGE_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
             }
         }
         return list;
     }
 
     public boolean update(Connection conn, Actor actor) throws SQLException {
+        TableVersions.bump("actor");
         try (PreparedStatement ps = conn.prepareStatement(UPDATE_SQL)) {
             ps.setString(1, actor.getFirstName());
             ps.setString(2, actor.getLastName());
@@ -67,21 +139,33 @@ public class ActorDao {
     }
 
     public boolean deleteById(Connection conn, int id) throws SQLException {
+        TableVersions.bump("actor");
         try (PreparedStatement ps = conn.prepareStatement(DELETE_SQL)) {
             ps.setInt(1, id);
             return ps.executeUpdate() > 0;
         }
     }
 
-    private Actor extract(ResultSet rs) throws SQLException {
+    private static final RowPlan PLAN = new RowPlan("actor_id", "first_name", "last_name", "last_update");
+
+    // Cast members are looked up one by one while a film is hydrated (see QueryCache)
+    private static final QueryCache.Query<Actor> BY_ID = QueryCache.query(SELECT_BY_ID_SQL, 150, ActorDao::copy, "actor");
+
+    private Actor extract(ResultSet rs, int[] c) throws SQLException {
+        Actor actor = new Actor();
+        actor.setActorId(rs.getInt(c[0]));
+        actor.setFirstName(rs.getString(c[1]));
+        actor.setLastName(rs.getString(c[2]));
+        actor.setLastUpdate(RowPlan.getDateTime(rs, c[3]));
+        return actor;
+    }
+
+    private static Actor copy(Actor source) {
         Actor actor = new Actor();
-        Integer actor_id = rs.getObject("actor_id", Integer.class);
-        actor.setActorId(actor_id);
-        actor.setFirstName(rs.getString("first_name"));
-        actor.setLastName(rs.getString("last_name"));
-        Timestamp last_update = rs.getTimestamp("last_update");
-        if (last_update != null)
-            actor.setLastUpdate(last_update.toLocalDateTime());
+        actor.setActorId(source.getActorId());
+        actor.setFirstName(source.getFirstName());
+        actor.setLastName(source.getLastName());
+        actor.setLastUpdate(source.getLastUpdate());
         return actor;
     }
 }
@@ -13,6 +13,10 @@ public class AddressDao {
 
     private static final String SELECT_ALL_SQL = "SELECT * FROM address ORDER BY address_id";
 
+    private static final String SELECT_PAGE_SQL = "SELECT * FROM address WHERE address_id > ? ORDER BY address_id LIMIT ?";
+
+    private static final String SELECT_PAGE_DESC_SQL = "SELECT * FROM address WHERE address_id < ? ORDER BY address_id DESC LIMIT ?";
+
     private static final String SELECT_BY_CITY_ID_SQL = "SELECT * FROM address WHERE city_id = ?";
 
     private static final String UPDATE_SQL = "UPDATE address SET address = ?, address2 = ?, district = ?, city_id = ?, postal_code = ?, phone = ?, last_update = ? WHERE address_id = ?";
@@ -20,18 +24,9 @@ public class AddressDao {
     private static final String DELETE_SQL = "DELETE FROM address WHERE address_id = ?";
 
     public int insert(Connection conn, Address address) throws SQLException {
+        TableVersions.bump("address");
         try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
-            ps.setString(1, address.getAddress());
-            ps.setString(2, address.getAddress2());
-            ps.setString(3, address.getDistrict());
-            if (address.getCity() != null && address.getCity().getCityId() > 0) {
-                ps.setInt(4, address.getCity().getCityId());
-            } else {
-                ps.setNull(4, Types.INTEGER);
-            }
-            ps.setString(5, address.getPostalCode());
-            ps.setString(6, address.getPhone());
-            ps.setTimestamp(7, Timestamp.valueOf(address.getLastUpdate() != null ? address.getLastUpdate() : java.time.LocalDateTime.now()));
+            bindInsert(ps, address);
             ps.executeUpdate();
             try (ResultSet rs = ps.getGeneratedKeys()) {
                 if (rs.next()) {
@@ -44,11 +39,47 @@ public class AddressDao {
         return -1;
     }
 
+    // With reWriteBatchedInserts the driver sends the whole batch as multi-row INSERTs
+    public int[] insertBatch(Connection conn, List<Address> addressList) throws SQLException {
+        TableVersions.bump("address");
+        int[] ids = new int[addressList.size()];
+        if (addressList.isEmpty()) return ids;
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            for (Address address : addressList) {
+                bindInsert(ps, address);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                for (int i = 0; i < ids.length && rs.next(); i++) {
+                    ids[i] = rs.getInt(1);
+                    addressList.get(i).setAddressId(ids[i]);
+                }
+            }
+        }
+        return ids;
+    }
+
+    private void bindInsert(PreparedStatement ps, Address address) throws SQLException {
+        ps.setString(1, address.getAddress());
+        ps.setString(2, address.getAddress2());
+        ps.setString(3, address.getDistrict());
+        if (address.getCity() != null && address.getCity().getCityId() > 0) {
+            ps.setInt(4, address.getCity().getCityId());
+        } else {
+            ps.setNull(4, Types.INTEGER);
+        }
+        ps.setString(5, address.getPostalCode());
+        ps.setString(6, address.getPhone());
+        ps.setTimestamp(7, Timestamp.valueOf(address.getLastUpdate() != null ? address.getLastUpdate() : java.time.LocalDateTime.now()));
+    }
+
     public Address findById(Connection conn, int id) throws SQLException {
         try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_ID_SQL)) {
             ps.setInt(1, id);
             try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? extract(rs) : null;
+                int[] c = PLAN.columns(SELECT_BY_ID_SQL, rs);
+                return rs.next() ? extract(rs, c) : null;
             }
         }
     }
@@ -57,14 +88,33 @@ public class AddressDao {
         List<Address> list = new ArrayList<>();
         try (PreparedStatement ps = conn.prepareStatement(SELECT_ALL_SQL);
             ResultSet rs = ps.executeQuery()) {
+            int[] c = PLAN.columns(SELECT_ALL_SQL, rs);
             while (rs.next()) {
-                list.add(extract(rs));
+                list.add(extract(rs, c));
+            }
+        }
+        return list;
+    }
+
+    public List<Address> findPage(Connection conn, int afterId, int limit) throws SQLException {
+        return findPage(conn, afterId, limit, false);
+    }
+
+    public List<Address> findPage(Connection conn, int afterId, int limit, boolean descending) throws SQLException {
+        List<Address> list = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(descending ? SELECT_PAGE_DESC_SQL : SELECT_PAGE_SQL)) {
+            ps.setInt(1, descending && afterId <= 0 ? Integer.MAX_VALUE : afterId);
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                int[] c = PLAN.columns(descending ? SELECT_PAGE_DESC_SQL : SELECT_PAGE_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
             }
         }
         return list;
     }
 
     public boolean update(Connection conn, Address address) throws SQLException {
+        TableVersions.bump("address");
         try (PreparedStatement ps = conn.prepareStatement(UPDATE_SQL)) {
             ps.setString(1, address.getAddress());
             ps.setString(2, address.getAddress2());
@@ -83,6 +133,7 @@ public class AddressDao {
     }
 
     public boolean deleteById(Connection conn, int id) throws SQLException {
+        TableVersions.bump("address");
         try (PreparedStatement ps = conn.prepareStatement(DELETE_SQL)) {
             ps.setInt(1, id);
             return ps.executeUpdate() > 0;
@@ -94,31 +145,35 @@ public class AddressDao {
         try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_CITY_ID_SQL)) {
             ps.setInt(1, cityID);
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) list.add(extract(rs));
+                int[] c = PLAN.columns(SELECT_BY_CITY_ID_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
             }
         }
         return list;
     }
 
-    private Address extract(ResultSet rs) throws SQLException {
+    private static final RowPlan PLAN = new RowPlan("address_id", "address", "address2", "district", "city_id", "postal_code", "phone", "last_update");
+
+    int[] columns(String sql, ResultSet rs) throws SQLException {
+        return PLAN.columns(sql, rs);
+    }
+
+    Address extract(ResultSet rs, int[] c) throws SQLException {
         Address address = new Address();
-        Integer address_id = rs.getObject("address_id", Integer.class);
-        address.setAddressId(address_id);
-        address.setAddress(rs.getString("address"));
-        address.setAddress2(rs.getString("address2"));
-        address.setDistrict(rs.getString("district"));
-        Integer city_id = rs.getObject("city_id", Integer.class);
+        address.setAddressId(rs.getInt(c[0]));
+        address.setAddress(rs.getString(c[1]));
+        address.setAddress2(rs.getString(c[2]));
+        address.setDistrict(rs.getString(c[3]));
+        Integer city_id = RowPlan.getInteger(rs, c[4]);
         address.setCityId(city_id);
         if (city_id != null && city_id > 0) {
             City city = new City();
             city.setCityId(city_id);
             address.setCity(city);
         }
-        address.setPostalCode(rs.getString("postal_code"));
-        address.setPhone(rs.getString("phone"));
-        Timestamp last_update = rs.getTimestamp("last_update");
-        if (last_update != null)
-            address.setLastUpdate(last_update.toLocalDateTime());
+        address.setPostalCode(rs.getString(c[5]));
+        address.setPhone(rs.getString(c[6]));
+        address.setLastUpdate(RowPlan.getDateTime(rs, c[7]));
         return address;
     }
 }
@@ -0,0 +1,429 @@
+package dao;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.copy.PGCopyOutputStream;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import model.ImportResult;
+
+/**
+ * Bulk ingest through COPY FROM STDIN. The request body is streamed into a temporary
+ * staging table (all text columns), checked with one set-based pass and merged into
+ * the target table with INSERT ... ON CONFLICT. Staging tables are dropped on commit.
+ */
+public class BulkImportDao {
+
+    public enum Target {
+        FILM("film", "film_id", true,
+                List.of("film_id", "title", "description", "release_year", "language_id", "original_language_id",
+                        "rental_duration", "rental_rate", "length", "replacement_cost", "rating", "special_features", "last_update"),
+                Map.of("language_id", "language.language_id", "original_language_id", "language.language_id")),
+        INVENTORY("inventory", "inventory_id", true,
+                List.of("inventory_id", "film_id", "store_id", "last_update"),
+                Map.of("film_id", "film.film_id", "store_id", "store.store_id")),
+        // Historical payments never change: a payment_id that already exists is skipped
+        PAYMENT("payment", "payment_id", false,
+                List.of("payment_id", "customer_id", "staff_id", "rental_id", "amount", "payment_date", "last_update"),
+                Map.of("customer_id", "customer.customer_id", "staff_id", "staff.staff_id", "rental_id", "rental.rental_id"));
+
+        private final String table;
+        private final String keyColumn;
+        private final boolean updateOnConflict;
+        private final List<String> columns;
+        private final Map<String, String> foreignKeys;
+
+        Target(String table, String keyColumn, boolean updateOnConflict, List<String> columns, Map<String, String> foreignKeys) {
+            this.table = table;
+            this.keyColumn = keyColumn;
+            this.updateOnConflict = updateOnConflict;
+            this.columns = columns;
+            this.foreignKeys = foreignKeys;
+        }
+
+        public String getTable() {
+            return table;
+        }
+    }
+
+    private static final String STAGING_TABLE = "import_staging";
+
+    private static final String RAW_TABLE = "import_raw";
+
+    private static final int REJECT_SAMPLE_SIZE = 20;
+
+    private static final String SELECT_COLUMN_TYPES_SQL = "SELECT a.attname, format_type(a.atttypid, a.atttypmod), a.attnotnull, pg_get_expr(d.adbin, d.adrelid) "
+            + "FROM pg_attribute a LEFT JOIN pg_attrdef d ON d.adrelid = a.attrelid AND d.adnum = a.attnum "
+            + "WHERE a.attrelid = to_regclass(?) AND a.attnum > 0 AND NOT a.attisdropped";
+
+    // CSV: the header line names the columns, in any order and any subset of the target's columns.
+    // Records are split here and re-sent to COPY, so a structurally broken one (unterminated quote,
+    // wrong field count) is staged with its reason, like an NDJSON line that does not parse
+    public ImportResult importCsv(Connection conn, Target target, Reader body) throws SQLException, IOException {
+        CsvReader csv = new CsvReader(new BufferedReader(body));
+        CsvRecord header = csv.next();
+        if (header == null || header.error != null || header.isBlank()) {
+            throw new IllegalArgumentException("CSV body must start with a header line");
+        }
+        List<String> columns = new ArrayList<>();
+        for (String name : header.fields) {
+            columns.add(name == null ? "" : name.trim().toLowerCase(Locale.ROOT));
+        }
+        Map<String, ColumnType> types = prepareStaging(conn, target, columns);
+
+        long received = 0;
+        String copy = "COPY " + STAGING_TABLE + " (parse_error, " + String.join(", ", columns) + ") FROM STDIN WITH (FORMAT csv)";
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                new PGCopyOutputStream(conn.unwrap(PGConnection.class), copy), StandardCharsets.UTF_8))) {
+            for (CsvRecord record = csv.next(); record != null; record = csv.next()) {
+                if (record.isBlank()) continue;
+                String error = record.error;
+                if (error == null && record.fields.size() != columns.size()) {
+                    error = "expected " + columns.size() + " fields, found " + record.fields.size();
+                }
+                writeCsvField(out, error);
+                for (int i = 0; i < columns.size(); i++) {
+                    out.write(',');
+                    writeCsvField(out, error == null ? record.fields.get(i) : null);
+                }
+                out.write('\n');
+                received++;
+            }
+        }
+        return merge(conn, target, columns, types, received);
+    }
+
+    // Unquoted empty is NULL to COPY; everything else goes out quoted
+    private static void writeCsvField(Writer out, String value) throws IOException {
+        if (value == null) return;
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    // NDJSON: one JSON object per line; keys outside the target's columns are ignored
+    public ImportResult importNdjson(Connection conn, Target target, Reader body) throws SQLException, IOException {
+        List<String> columns = target.columns;
+        Map<String, ColumnType> types = prepareStaging(conn, target, columns);
+        try (Statement st = conn.createStatement()) {
+            st.execute("CREATE TEMP TABLE " + RAW_TABLE + " (line_no bigint GENERATED ALWAYS AS IDENTITY, doc text) ON COMMIT DROP");
+        }
+
+        // CSV mode with control characters as quote and delimiter copies each line verbatim,
+        // backslashes in the JSON included
+        CopyManager copyManager = conn.unwrap(PGConnection.class).getCopyAPI();
+        copyManager.copyIn("COPY " + RAW_TABLE + " (doc) FROM STDIN WITH (FORMAT csv, DELIMITER E'\\x1f', QUOTE E'\\x1e')", body);
+
+        // A line that does not parse is staged with its reason instead of failing the whole cast
+        String parsed;
+        if (conn.getMetaData().getDatabaseMajorVersion() >= 16) {
+            parsed = "CASE WHEN pg_input_is_valid(doc, 'jsonb') THEN doc::jsonb END";
+        } else {
+            try (Statement st = conn.createStatement()) {
+                st.execute("CREATE OR REPLACE FUNCTION pg_temp.import_try_jsonb(doc text) RETURNS jsonb AS $$ "
+                        + "BEGIN RETURN doc::jsonb; EXCEPTION WHEN others THEN RETURN NULL; END; $$ LANGUAGE plpgsql IMMUTABLE");
+            }
+            parsed = "pg_temp.import_try_jsonb(doc)";
+        }
+        StringBuilder extract = new StringBuilder("INSERT INTO " + STAGING_TABLE + " (line_no, parse_error, " + String.join(", ", columns) + ") OVERRIDING SYSTEM VALUE SELECT line_no, "
+                + "CASE WHEN d IS NULL THEN 'invalid json' WHEN jsonb_typeof(d) <> 'object' THEN 'not a json object' END");
+        for (String column : columns) {
+            extract.append(", d ->> '").append(column).append("'");
+        }
+        extract.append(" FROM (SELECT line_no, " + parsed + " AS d FROM " + RAW_TABLE + " WHERE doc IS NOT NULL AND btrim(doc) <> '') r");
+        long received;
+        try (Statement st = conn.createStatement()) {
+            received = st.executeUpdate(extract.toString());
+        }
+        return merge(conn, target, columns, types, received);
+    }
+
+    private Map<String, ColumnType> prepareStaging(Connection conn, Target target, List<String> columns) throws SQLException {
+        for (String column : columns) {
+            if (!target.columns.contains(column)) {
+                throw new IllegalArgumentException("Unknown column for " + target.table + ": " + column);
+            }
+        }
+        Map<String, ColumnType> types = loadColumnTypes(conn, target.table);
+        for (Map.Entry<String, ColumnType> entry : types.entrySet()) {
+            ColumnType type = entry.getValue();
+            if (type.notNull && !type.hasDefault && target.columns.contains(entry.getKey()) && !columns.contains(entry.getKey())) {
+                throw new IllegalArgumentException("Missing required column for " + target.table + ": " + entry.getKey());
+            }
+        }
+
+        // parse_error holds the reason a CSV record or NDJSON line could not be split into columns
+        StringBuilder ddl = new StringBuilder("CREATE TEMP TABLE " + STAGING_TABLE + " (line_no bigint GENERATED ALWAYS AS IDENTITY, parse_error text");
+        for (String column : columns) {
+            ddl.append(", ").append(column).append(" text");
+        }
+        ddl.append(") ON COMMIT DROP");
+        try (Statement st = conn.createStatement()) {
+            st.execute(ddl.toString());
+        }
+        return types;
+    }
+
+    private ImportResult merge(Connection conn, Target target, List<String> columns, Map<String, ColumnType> types, long received) throws SQLException {
+        boolean canProbeInput = conn.getMetaData().getDatabaseMajorVersion() >= 16;
+        ImportResult result = new ImportResult();
+        result.setTarget(target.table);
+        TableVersions.bump(target.table);
+        if (target == Target.INVENTORY) InventoryAvailabilityIndex.invalidate();
+        result.setReceived(received);
+
+        try (Statement st = conn.createStatement()) {
+            // One pass over the staging rows decides every reject; CASE stops at the first reason
+            StringBuilder check = new StringBuilder("CREATE TEMP TABLE import_checked ON COMMIT DROP AS SELECT s.*, CASE WHEN s.parse_error IS NOT NULL THEN s.parse_error");
+            for (String column : columns) {
+                ColumnType type = types.get(column);
+                if (type == null) continue;
+                if (type.notNull && !type.hasDefault) {
+                    check.append(" WHEN NULLIF(s.").append(column).append(", '') IS NULL THEN 'missing ").append(column).append("'");
+                }
+                String invalid = invalidValueCondition("s." + column, type.sqlType, canProbeInput);
+                if (invalid != null) {
+                    check.append(" WHEN NULLIF(s.").append(column).append(", '') IS NOT NULL AND ").append(invalid)
+                         .append(" THEN 'invalid ").append(column).append("'");
+                }
+            }
+            for (String column : columns) {
+                String reference = target.foreignKeys.get(column);
+                if (reference == null) continue;
+                String[] parts = reference.split("\\.");
+                check.append(" WHEN NULLIF(s.").append(column).append(", '') IS NOT NULL AND NOT EXISTS (SELECT 1 FROM ")
+                     .append(parts[0]).append(" ref WHERE ref.").append(parts[1]).append(" = s.").append(column).append("::integer)")
+                     .append(" THEN 'unknown ").append(column).append("'");
+            }
+            check.append(" END AS reject_reason FROM " + STAGING_TABLE + " s");
+            st.execute(check.toString());
+
+            try (ResultSet rs = st.executeQuery("SELECT count(*) FROM import_checked WHERE reject_reason IS NOT NULL")) {
+                rs.next();
+                result.setRejected(rs.getLong(1));
+            }
+            List<Map<String, Object>> samples = new ArrayList<>();
+            try (ResultSet rs = st.executeQuery("SELECT line_no, reject_reason FROM import_checked WHERE reject_reason IS NOT NULL ORDER BY line_no LIMIT " + REJECT_SAMPLE_SIZE)) {
+                while (rs.next()) {
+                    Map<String, Object> sample = new LinkedHashMap<>();
+                    sample.put("row", rs.getLong(1));
+                    sample.put("reason", rs.getString(2));
+                    samples.add(sample);
+                }
+            }
+            result.setRejectedRows(samples);
+
+            List<String> valueColumns = new ArrayList<>(columns);
+            valueColumns.remove(target.keyColumn);
+            String castValues = castList(valueColumns, types);
+
+            // Rows that carry their own key: upsert, last row wins when a key repeats in the feed
+            long keyed = 0;
+            long inserted = 0;
+            long updated = 0;
+            long unkeyedInserted = 0;
+            if (columns.contains(target.keyColumn)) {
+                List<String> keyedColumns = new ArrayList<>();
+                keyedColumns.add(target.keyColumn);
+                keyedColumns.addAll(valueColumns);
+                String conflict;
+                if (target.updateOnConflict && !valueColumns.isEmpty()) {
+                    List<String> assignments = new ArrayList<>();
+                    for (String column : valueColumns) assignments.add(column + " = EXCLUDED." + column);
+                    conflict = "DO UPDATE SET " + String.join(", ", assignments);
+                } else {
+                    conflict = "DO NOTHING";
+                }
+                String upsert = "WITH merged AS (INSERT INTO " + target.table + " (" + String.join(", ", keyedColumns) + ") "
+                        + "SELECT " + castList(keyedColumns, types) + " FROM ("
+                        + "SELECT DISTINCT ON (" + target.keyColumn + ") * FROM import_checked "
+                        + "WHERE reject_reason IS NULL AND NULLIF(" + target.keyColumn + ", '') IS NOT NULL "
+                        + "ORDER BY " + target.keyColumn + ", line_no DESC) c "
+                        + "ON CONFLICT (" + target.keyColumn + ") " + conflict + " RETURNING (xmax = 0) AS inserted) "
+                        + "SELECT count(*) FILTER (WHERE inserted), count(*) FILTER (WHERE NOT inserted) FROM merged";
+                try (ResultSet rs = st.executeQuery(upsert)) {
+                    rs.next();
+                    inserted = rs.getLong(1);
+                    updated = rs.getLong(2);
+                }
+                try (ResultSet rs = st.executeQuery("SELECT count(*) FROM import_checked WHERE reject_reason IS NULL AND NULLIF(" + target.keyColumn + ", '') IS NOT NULL")) {
+                    rs.next();
+                    keyed = rs.getLong(1);
+                }
+                // Explicit ids may run ahead of the sequence
+                st.executeQuery("SELECT setval(seq, GREATEST((SELECT max(" + target.keyColumn + ") FROM " + target.table + "), 1)) "
+                        + "FROM pg_get_serial_sequence('" + target.table + "', '" + target.keyColumn + "') AS seq WHERE seq IS NOT NULL").close();
+            }
+
+            // Rows without a key: plain insert, the sequence assigns ids
+            if (!valueColumns.isEmpty()) {
+                String keyFilter = columns.contains(target.keyColumn) ? " AND NULLIF(" + target.keyColumn + ", '') IS NULL" : "";
+                String insert = "INSERT INTO " + target.table + " (" + String.join(", ", valueColumns) + ") "
+                        + "SELECT " + castValues + " FROM import_checked c WHERE reject_reason IS NULL" + keyFilter + " ORDER BY line_no";
+                unkeyedInserted = st.executeUpdate(insert);
+            }
+
+            // Skipped: keyed rows superseded later in the same feed, or left alone by DO NOTHING
+            result.setInserted(inserted + unkeyedInserted);
+            result.setUpdated(updated);
+            result.setSkipped(keyed - inserted - updated);
+        }
+        return result;
+    }
+
+    private static String castList(List<String> columns, Map<String, ColumnType> types) {
+        List<String> casts = new ArrayList<>();
+        for (String column : columns) {
+            ColumnType type = types.get(column);
+            String cast = "NULLIF(c." + column + ", '')::" + type.sqlType;
+            // An empty value in a NOT NULL column with a default (last_update) takes the default
+            casts.add(type.notNull && type.hasDefault ? "COALESCE(" + cast + ", " + type.defaultExpression + ")" : cast);
+        }
+        return String.join(", ", casts);
+    }
+
+    // Returns a condition that is true for values that would not cast, or null if it cannot be checked up front
+    private static String invalidValueCondition(String expression, String sqlType, boolean canProbeInput) {
+        if (canProbeInput) {
+            return "NOT pg_input_is_valid(" + expression + ", '" + sqlType.replace("'", "''") + "')";
+        }
+        if (sqlType.equals("integer") || sqlType.equals("smallint") || sqlType.equals("bigint")) {
+            return expression + " !~ '^\\s*-?\\d+\\s*$'";
+        }
+        if (sqlType.startsWith("numeric") || sqlType.equals("real") || sqlType.equals("double precision")) {
+            return expression + " !~ '^\\s*-?\\d+(\\.\\d+)?\\s*$'";
+        }
+        if (sqlType.startsWith("timestamp") || sqlType.equals("date")) {
+            return expression + " !~ '^\\s*\\d{4}-\\d{2}-\\d{2}'";
+        }
+        return null;
+    }
+
+    private Map<String, ColumnType> loadColumnTypes(Connection conn, String table) throws SQLException {
+        Map<String, ColumnType> types = new LinkedHashMap<>();
+        try (PreparedStatement ps = conn.prepareStatement(SELECT_COLUMN_TYPES_SQL)) {
+            ps.setString(1, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    types.put(rs.getString(1), new ColumnType(rs.getString(2), rs.getBoolean(3), rs.getString(4)));
+                }
+            }
+        }
+        if (types.isEmpty()) {
+            throw new SQLException("Import target table not found: " + table);
+        }
+        return types;
+    }
+
+    private static final class CsvRecord {
+        private final List<String> fields;
+        private final String error;
+
+        private CsvRecord(List<String> fields, String error) {
+            this.fields = fields;
+            this.error = error;
+        }
+
+        private boolean isBlank() {
+            return error == null && fields.size() == 1 && fields.get(0) == null;
+        }
+    }
+
+    // Splits records the way COPY's csv format does: a quote opens or closes quoting anywhere
+    // in a field, "" inside quotes is a literal quote, quoted fields may span lines
+    private static final class CsvReader {
+        // An unterminated quote would otherwise buffer the rest of the body
+        private static final int MAX_FIELD_CHARS = 1 << 20;
+
+        private final Reader in;
+        private int pushedBack = -2;
+
+        private CsvReader(Reader in) {
+            this.in = in;
+        }
+
+        // Null at the end of the body
+        private CsvRecord next() throws IOException {
+            int c = read();
+            if (c == -1) return null;
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean inQuotes = false;
+            boolean truncated = false;
+            while (true) {
+                if (c == -1) {
+                    fields.add(value(field, quoted));
+                    return new CsvRecord(fields, inQuotes ? "unterminated quoted field" : truncated ? "field too long" : null);
+                }
+                if (inQuotes) {
+                    if (c == '"') {
+                        int n = read();
+                        if (n != '"') {
+                            inQuotes = false;
+                            c = n;
+                            continue;
+                        }
+                    }
+                    if (field.length() < MAX_FIELD_CHARS) field.append((char) c); else truncated = true;
+                } else if (c == '"') {
+                    inQuotes = true;
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(value(field, quoted));
+                    field.setLength(0);
+                    quoted = false;
+                } else if (c == '\n' || c == '\r') {
+                    if (c == '\r') {
+                        int n = read();
+                        if (n != '\n') pushedBack = n;
+                    }
+                    fields.add(value(field, quoted));
+                    return new CsvRecord(fields, truncated ? "field too long" : null);
+                } else {
+                    if (field.length() < MAX_FIELD_CHARS) field.append((char) c); else truncated = true;
+                }
+                c = read();
+            }
+        }
+
+        private int read() throws IOException {
+            if (pushedBack != -2) {
+                int c = pushedBack;
+                pushedBack = -2;
+                return c;
+            }
+            return in.read();
+        }
+
+        private static String value(StringBuilder field, boolean quoted) {
+            return field.length() == 0 && !quoted ? null : field.toString();
+        }
+    }
+
+    private static final class ColumnType {
+        private final String sqlType;
+        private final boolean notNull;
+        private final boolean hasDefault;
+        private final String defaultExpression;
+
+        private ColumnType(String sqlType, boolean notNull, String defaultExpression) {
+            this.sqlType = sqlType;
+            this.notNull = notNull;
+            this.hasDefault = defaultExpression != null;
+            this.defaultExpression = defaultExpression;
+        }
+    }
+}
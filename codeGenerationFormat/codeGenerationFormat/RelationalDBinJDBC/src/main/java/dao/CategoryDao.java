@@ -2,6 +2,7 @@ package dao;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import model.*;
 
@@ -11,16 +12,23 @@ public class CategoryDao {
 
     private static final String SELECT_BY_ID_SQL = "SELECT * FROM category WHERE category_id = ?";
 
+    private static final String SELECT_BY_IDS_SQL = "SELECT * FROM category WHERE category_id = ANY(?)";
+
     private static final String SELECT_ALL_SQL = "SELECT * FROM category ORDER BY category_id";
 
+    private static final String SELECT_PAGE_SQL = "SELECT * FROM category WHERE category_id > ? ORDER BY category_id LIMIT ?";
+
+    private static final String SELECT_PAGE_DESC_SQL = "SELECT * FROM category WHERE category_id < ? ORDER BY category_id DESC LIMIT ?";
+
     private static final String UPDATE_SQL = "UPDATE category SET name = ?, last_update = ? WHERE category_id = ?";
 
     private static final String DELETE_SQL = "DELETE FROM category WHERE category_id = ?";
 
     public int insert(Connection conn, Category category) throws SQLException {
+        TableVersions.bump("category");
+        ReferenceDataCache.CATEGORIES.invalidate();
         try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
-            ps.setString(1, category.getName());
-            ps.setTimestamp(2, Timestamp.valueOf(category.getLastUpdate() != null ? category.getLastUpdate() : java.time.LocalDateTime.now()));
+            bindInsert(ps, category);
             ps.executeUpdate();
             try (ResultSet rs = ps.getGeneratedKeys()) {
                 if (rs.next()) {
@@ -33,27 +41,88 @@ public class CategoryDao {
         return -1;
     }
 
+    // With reWriteBatchedInserts the driver sends the whole batch as multi-row INSERTs
+    public int[] insertBatch(Connection conn, List<Category> categoryList) throws SQLException {
+        TableVersions.bump("category");
+        ReferenceDataCache.CATEGORIES.invalidate();
+        int[] ids = new int[categoryList.size()];
+        if (categoryList.isEmpty()) return ids;
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            for (Category category : categoryList) {
+                bindInsert(ps, category);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                for (int i = 0; i < ids.length && rs.next(); i++) {
+                    ids[i] = rs.getInt(1);
+                    categoryList.get(i).setCategoryId(ids[i]);
+                }
+            }
+        }
+        return ids;
+    }
+
+    private void bindInsert(PreparedStatement ps, Category category) throws SQLException {
+        ps.setString(1, category.getName());
+        ps.setTimestamp(2, Timestamp.valueOf(category.getLastUpdate() != null ? category.getLastUpdate() : java.time.LocalDateTime.now()));
+    }
+
     public Category findById(Connection conn, int id) throws SQLException {
         try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_ID_SQL)) {
             ps.setInt(1, id);
             try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? extract(rs) : null;
+                int[] c = PLAN.columns(SELECT_BY_ID_SQL, rs);
+                return rs.next() ? extract(rs, c) : null;
+            }
+        }
+    }
+
+    public List<Category> findByIds(Connection conn, Collection<Integer> ids) throws SQLException {
+        List<Category> list = new ArrayList<>();
+        if (ids == null || ids.isEmpty()) return list;
+        try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_IDS_SQL)) {
+            ps.setArray(1, conn.createArrayOf("integer", ids.toArray()));
+            try (ResultSet rs = ps.executeQuery()) {
+                int[] c = PLAN.columns(SELECT_BY_IDS_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
             }
         }
+        return list;
     }
 
     public List<Category> findAll(Connection conn) throws SQLException {
         List<Category> list = new ArrayList<>();
         try (PreparedStatement ps = conn.prepareStatement(SELECT_ALL_SQL);
             ResultSet rs = ps.executeQuery()) {
+            int[] c = PLAN.columns(SELECT_ALL_SQL, rs);
             while (rs.next()) {
-                list.add(extract(rs));
+                list.add(extract(rs, c));
+            }
+        }
+        return list;
+    }
+
+    public List<Category> findPage(Connection conn, int afterId, int limit) throws SQLException {
+        return findPage(conn, afterId, limit, false);
+    }
+
+    public List<Category> findPage(Connection conn, int afterId, int limit, boolean descending) throws SQLException {
+        List<Category> list = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(descending ? SELECT_PAGE_DESC_SQL : SELECT_PAGE_SQL)) {
+            ps.setInt(1, descending && afterId <= 0 ? Integer.MAX_VALUE : afterId);
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                int[] c = PLAN.columns(descending ? SELECT_PAGE_DESC_SQL : SELECT_PAGE_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
             }
         }
         return list;
     }
 
     public boolean update(Connection conn, Category category) throws SQLException {
+        TableVersions.bump("category");
+        ReferenceDataCache.CATEGORIES.invalidate();
         try (PreparedStatement ps = conn.prepareStatement(UPDATE_SQL)) {
             ps.setString(1, category.getName());
             ps.setTimestamp(2, Timestamp.valueOf(category.getLastUpdate() != null ? category.getLastUpdate() : java.time.LocalDateTime.now()));
@@ -63,20 +132,21 @@ public class CategoryDao {
     }
 
     public boolean deleteById(Connection conn, int id) throws SQLException {
+        TableVersions.bump("category");
+        ReferenceDataCache.CATEGORIES.invalidate();
         try (PreparedStatement ps = conn.prepareStatement(DELETE_SQL)) {
             ps.setInt(1, id);
             return ps.executeUpdate() > 0;
         }
     }
 
-    private Category extract(ResultSet rs) throws SQLException {
+    private static final RowPlan PLAN = new RowPlan("category_id", "name", "last_update");
+
+    private Category extract(ResultSet rs, int[] c) throws SQLException {
         Category category = new Category();
-        Integer category_id = rs.getObject("category_id", Integer.class);
-        category.setCategoryId(category_id);
-        category.setName(rs.getString("name"));
-        Timestamp last_update = rs.getTimestamp("last_update");
-        if (last_update != null)
-            category.setLastUpdate(last_update.toLocalDateTime());
+        category.setCategoryId(rs.getInt(c[0]));
+        category.setName(rs.getString(c[1]));
+        category.setLastUpdate(RowPlan.getDateTime(rs, c[2]));
         return category;
     }
 }
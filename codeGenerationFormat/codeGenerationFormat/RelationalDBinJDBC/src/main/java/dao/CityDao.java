@@ -13,6 +13,10 @@ public class CityDao {
 
     private static final String SELECT_ALL_SQL = "SELECT * FROM city ORDER BY city_id";
 
+    private static final String SELECT_PAGE_SQL = "SELECT * FROM city WHERE city_id > ? ORDER BY city_id LIMIT ?";
+
+    private static final String SELECT_PAGE_DESC_SQL = "SELECT * FROM city WHERE city_id < ? ORDER BY city_id DESC LIMIT ?";
+
     private static final String SELECT_BY_COUNTRY_ID_SQL = "SELECT * FROM city WHERE country_id = ?";
 
     private static final String UPDATE_SQL = "UPDATE city SET city = ?, country_id = ?, last_update = ? WHERE city_id = ?";
@@ -20,14 +24,10 @@ public class CityDao {
     private static final String DELETE_SQL = "DELETE FROM city WHERE city_id = ?";
 
     public int insert(Connection conn, City city) throws SQLException {
+        TableVersions.bump("city");
+        ReferenceDataCache.CITIES.invalidate();
         try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
-            ps.setString(1, city.getCity());
-            if (city.getCountry() != null && city.getCountry().getCountryId() > 0) {
-                ps.setInt(2, city.getCountry().getCountryId());
-            } else {
-                ps.setNull(2, Types.INTEGER);
-            }
-            ps.setTimestamp(3, Timestamp.valueOf(city.getLastUpdate() != null ? city.getLastUpdate() : java.time.LocalDateTime.now()));
+            bindInsert(ps, city);
             ps.executeUpdate();
             try (ResultSet rs = ps.getGeneratedKeys()) {
                 if (rs.next()) {
@@ -40,11 +40,44 @@ public class CityDao {
         return -1;
     }
 
+    // With reWriteBatchedInserts the driver sends the whole batch as multi-row INSERTs
+    public int[] insertBatch(Connection conn, List<City> cityList) throws SQLException {
+        TableVersions.bump("city");
+        ReferenceDataCache.CITIES.invalidate();
+        int[] ids = new int[cityList.size()];
+        if (cityList.isEmpty()) return ids;
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            for (City city : cityList) {
+                bindInsert(ps, city);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                for (int i = 0; i < ids.length && rs.next(); i++) {
+                    ids[i] = rs.getInt(1);
+                    cityList.get(i).setCityId(ids[i]);
+                }
+            }
+        }
+        return ids;
+    }
+
+    private void bindInsert(PreparedStatement ps, City city) throws SQLException {
+        ps.setString(1, city.getCity());
+        if (city.getCountry() != null && city.getCountry().getCountryId() > 0) {
+            ps.setInt(2, city.getCountry().getCountryId());
+        } else {
+            ps.setNull(2, Types.INTEGER);
+        }
+        ps.setTimestamp(3, Timestamp.valueOf(city.getLastUpdate() != null ? city.getLastUpdate() : java.time.LocalDateTime.now()));
+    }
+
     public City findById(Connection conn, int id) throws SQLException {
         try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_ID_SQL)) {
             ps.setInt(1, id);
             try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? extract(rs) : null;
+                int[] c = PLAN.columns(SELECT_BY_ID_SQL, rs);
+                return rs.next() ? extract(rs, c) : null;
             }
         }
     }
@@ -53,14 +86,34 @@ public class CityDao {
         List<City> list = new ArrayList<>();
         try (PreparedStatement ps = conn.prepareStatement(SELECT_ALL_SQL);
             ResultSet rs = ps.executeQuery()) {
+            int[] c = PLAN.columns(SELECT_ALL_SQL, rs);
             while (rs.next()) {
-                list.add(extract(rs));
+                list.add(extract(rs, c));
+            }
+        }
+        return list;
+    }
+
+    public List<City> findPage(Connection conn, int afterId, int limit) throws SQLException {
+        return findPage(conn, afterId, limit, false);
+    }
+
+    public List<City> findPage(Connection conn, int afterId, int limit, boolean descending) throws SQLException {
+        List<City> list = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(descending ? SELECT_PAGE_DESC_SQL : SELECT_PAGE_SQL)) {
+            ps.setInt(1, descending && afterId <= 0 ? Integer.MAX_VALUE : afterId);
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                int[] c = PLAN.columns(descending ? SELECT_PAGE_DESC_SQL : SELECT_PAGE_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
             }
         }
         return list;
     }
 
     public boolean update(Connection conn, City city) throws SQLException {
+        TableVersions.bump("city");
+        ReferenceDataCache.CITIES.invalidate();
         try (PreparedStatement ps = conn.prepareStatement(UPDATE_SQL)) {
             ps.setString(1, city.getCity());
             if (city.getCountry() != null && city.getCountry().getCountryId() > 0) {
@@ -75,6 +128,8 @@ public class CityDao {
     }
 
     public boolean deleteById(Connection conn, int id) throws SQLException {
+        TableVersions.bump("city");
+        ReferenceDataCache.CITIES.invalidate();
         try (PreparedStatement ps = conn.prepareStatement(DELETE_SQL)) {
             ps.setInt(1, id);
             return ps.executeUpdate() > 0;
@@ -86,27 +141,31 @@ public class CityDao {
         try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_COUNTRY_ID_SQL)) {
             ps.setInt(1, countryID);
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) list.add(extract(rs));
+                int[] c = PLAN.columns(SELECT_BY_COUNTRY_ID_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
             }
         }
         return list;
     }
 
-    private City extract(ResultSet rs) throws SQLException {
+    private static final RowPlan PLAN = new RowPlan("city_id", "city", "country_id", "last_update");
+
+    int[] columns(String sql, ResultSet rs) throws SQLException {
+        return PLAN.columns(sql, rs);
+    }
+
+    City extract(ResultSet rs, int[] c) throws SQLException {
         City city = new City();
-        Integer city_id = rs.getObject("city_id", Integer.class);
-        city.setCityId(city_id);
-        city.setCity(rs.getString("city"));
-        Integer country_id = rs.getObject("country_id", Integer.class);
+        city.setCityId(rs.getInt(c[0]));
+        city.setCity(rs.getString(c[1]));
+        Integer country_id = RowPlan.getInteger(rs, c[2]);
         city.setCountryId(country_id);
         if (country_id != null && country_id > 0) {
             Country country = new Country();
             country.setCountryId(country_id);
             city.setCountry(country);
         }
-        Timestamp last_update = rs.getTimestamp("last_update");
-        if (last_update != null)
-            city.setLastUpdate(last_update.toLocalDateTime());
+        city.setLastUpdate(RowPlan.getDateTime(rs, c[3]));
         return city;
     }
 }
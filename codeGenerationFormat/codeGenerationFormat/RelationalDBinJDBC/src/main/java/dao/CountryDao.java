@@ -13,14 +13,19 @@ public class CountryDao {
 
     private static final String SELECT_ALL_SQL = "SELECT * FROM country ORDER BY country_id";
 
+    private static final String SELECT_PAGE_SQL = "SELECT * FROM country WHERE country_id > ? ORDER BY country_id LIMIT ?";
+
+    private static final String SELECT_PAGE_DESC_SQL = "SELECT * FROM country WHERE country_id < ? ORDER BY country_id DESC LIMIT ?";
+
     private static final String UPDATE_SQL = "UPDATE country SET country = ?, last_update = ? WHERE country_id = ?";
 
     private static final String DELETE_SQL = "DELETE FROM country WHERE country_id = ?";
 
     public int insert(Connection conn, Country country) throws SQLException {
+        TableVersions.bump("country");
+        ReferenceDataCache.COUNTRIES.invalidate();
         try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
-            ps.setString(1, country.getCountry());
-            ps.setTimestamp(2, Timestamp.valueOf(country.getLastUpdate() != null ? country.getLastUpdate() : java.time.LocalDateTime.now()));
+            bindInsert(ps, country);
             ps.executeUpdate();
             try (ResultSet rs = ps.getGeneratedKeys()) {
                 if (rs.next()) {
@@ -33,11 +38,39 @@ public class CountryDao {
         return -1;
     }
 
+    // With reWriteBatchedInserts the driver sends the whole batch as multi-row INSERTs
+    public int[] insertBatch(Connection conn, List<Country> countryList) throws SQLException {
+        TableVersions.bump("country");
+        ReferenceDataCache.COUNTRIES.invalidate();
+        int[] ids = new int[countryList.size()];
+        if (countryList.isEmpty()) return ids;
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            for (Country country : countryList) {
+                bindInsert(ps, country);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                for (int i = 0; i < ids.length && rs.next(); i++) {
+                    ids[i] = rs.getInt(1);
+                    countryList.get(i).setCountryId(ids[i]);
+                }
+            }
+        }
+        return ids;
+    }
+
+    private void bindInsert(PreparedStatement ps, Country country) throws SQLException {
+        ps.setString(1, country.getCountry());
+        ps.setTimestamp(2, Timestamp.valueOf(country.getLastUpdate() != null ? country.getLastUpdate() : java.time.LocalDateTime.now()));
+    }
+
     public Country findById(Connection conn, int id) throws SQLException {
         try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_ID_SQL)) {
             ps.setInt(1, id);
             try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? extract(rs) : null;
+                int[] c = PLAN.columns(SELECT_BY_ID_SQL, rs);
+                return rs.next() ? extract(rs, c) : null;
             }
         }
     }
@@ -46,14 +79,34 @@ public class CountryDao {
         List<Country> list = new ArrayList<>();
         try (PreparedStatement ps = conn.prepareStatement(SELECT_ALL_SQL);
             ResultSet rs = ps.executeQuery()) {
+            int[] c = PLAN.columns(SELECT_ALL_SQL, rs);
             while (rs.next()) {
-                list.add(extract(rs));
+                list.add(extract(rs, c));
+            }
+        }
+        return list;
+    }
+
+    public List<Country> findPage(Connection conn, int afterId, int limit) throws SQLException {
+        return findPage(conn, afterId, limit, false);
+    }
+
+    public List<Country> findPage(Connection conn, int afterId, int limit, boolean descending) throws SQLException {
+        List<Country> list = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(descending ? SELECT_PAGE_DESC_SQL : SELECT_PAGE_SQL)) {
+            ps.setInt(1, descending && afterId <= 0 ? Integer.MAX_VALUE : afterId);
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                int[] c = PLAN.columns(descending ? SELECT_PAGE_DESC_SQL : SELECT_PAGE_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
             }
         }
         return list;
     }
 
     public boolean update(Connection conn, Country country) throws SQLException {
+        TableVersions.bump("country");
+        ReferenceDataCache.COUNTRIES.invalidate();
         try (PreparedStatement ps = conn.prepareStatement(UPDATE_SQL)) {
             ps.setString(1, country.getCountry());
             ps.setTimestamp(2, Timestamp.valueOf(country.getLastUpdate() != null ? country.getLastUpdate() : java.time.LocalDateTime.now()));
@@ -63,20 +116,25 @@ public class CountryDao {
     }
 
     public boolean deleteById(Connection conn, int id) throws SQLException {
+        TableVersions.bump("country");
+        ReferenceDataCache.COUNTRIES.invalidate();
         try (PreparedStatement ps = conn.prepareStatement(DELETE_SQL)) {
             ps.setInt(1, id);
             return ps.executeUpdate() > 0;
         }
     }
 
-    private Country extract(ResultSet rs) throws SQLException {
+    private static final RowPlan PLAN = new RowPlan("country_id", "country", "last_update");
+
+    int[] columns(String sql, ResultSet rs) throws SQLException {
+        return PLAN.columns(sql, rs);
+    }
+
+    Country extract(ResultSet rs, int[] c) throws SQLException {
         Country country = new Country();
-        Integer country_id = rs.getObject("country_id", Integer.class);
-        country.setCountryId(country_id);
-        country.setCountry(rs.getString("country"));
-        Timestamp last_update = rs.getTimestamp("last_update");
-        if (last_update != null)
-            country.setLastUpdate(last_update.toLocalDateTime());
+        country.setCountryId(rs.getInt(c[0]));
+        country.setCountry(rs.getString(c[1]));
+        country.setLastUpdate(RowPlan.getDateTime(rs, c[2]));
         return country;
     }
 }
@@ -2,6 +2,7 @@ package dao;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import model.*;
 
@@ -11,34 +12,30 @@ public class CustomerDao {
 
     private static final String SELECT_BY_ID_SQL = "SELECT * FROM customer WHERE customer_id = ?";
 
+    private static final String SELECT_BY_IDS_SQL = "SELECT * FROM customer WHERE customer_id = ANY(?)";
+
     private static final String SELECT_ALL_SQL = "SELECT * FROM customer ORDER BY customer_id";
 
+    private static final String SELECT_PAGE_SQL = "SELECT * FROM customer WHERE customer_id > ? ORDER BY customer_id LIMIT ?";
+
+    private static final String SELECT_PAGE_DESC_SQL = "SELECT * FROM customer WHERE customer_id < ? ORDER BY customer_id DESC LIMIT ?";
+
     private static final String SELECT_BY_ADDRESS_ID_SQL = "SELECT * FROM customer WHERE address_id = ?";
 
     private static final String SELECT_BY_STORE_ID_SQL = "SELECT * FROM customer WHERE store_id = ?";
 
+    private static final String SELECT_PAGE_BY_STORE_ID_SQL = "SELECT * FROM customer WHERE store_id = ? AND customer_id > ? ORDER BY customer_id LIMIT ?";
+
+    private static final String SELECT_PAGE_BY_STORE_ID_DESC_SQL = "SELECT * FROM customer WHERE store_id = ? AND customer_id < ? ORDER BY customer_id DESC LIMIT ?";
+
     private static final String UPDATE_SQL = "UPDATE customer SET store_id = ?, first_name = ?, last_name = ?, email = ?, address_id = ?, active = ?, create_date = ?, last_update = ? WHERE customer_id = ?";
 
     private static final String DELETE_SQL = "DELETE FROM customer WHERE customer_id = ?";
 
     public int insert(Connection conn, Customer customer) throws SQLException {
+        TableVersions.bump("customer");
         try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
-            if (customer.getStore() != null && customer.getStore().getStoreId() > 0) {
-                ps.setInt(1, customer.getStore().getStoreId());
-            } else {
-                ps.setNull(1, Types.INTEGER);
-            }
-            ps.setString(2, customer.getFirstName());
-            ps.setString(3, customer.getLastName());
-            ps.setString(4, customer.getEmail());
-            if (customer.getAddress() != null && customer.getAddress().getAddressId() > 0) {
-                ps.setInt(5, customer.getAddress().getAddressId());
-            } else {
-                ps.setNull(5, Types.INTEGER);
-            }
-            ps.setBoolean(6, customer.isActive());
-            ps.setTimestamp(7, Timestamp.valueOf(customer.getCreateDate() != null ? customer.getCreateDate() : java.time.LocalDateTime.now()));
-            ps.setTimestamp(8, Timestamp.valueOf(customer.getLastUpdate() != null ? customer.getLastUpdate() : java.time.LocalDateTime.now()));
+            bindInsert(ps, customer);
             ps.executeUpdate();
             try (ResultSet rs = ps.getGeneratedKeys()) {
                 if (rs.next()) {
@@ -51,27 +48,100 @@ public class CustomerDao {
         return -1;
     }
 
+    // With reWriteBatchedInserts the driver sends the whole batch as multi-row INSERTs
+    public int[] insertBatch(Connection conn, List<Customer> customerList) throws SQLException {
+        TableVersions.bump("customer");
+        int[] ids = new int[customerList.size()];
+        if (customerList.isEmpty()) return ids;
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            for (Customer customer : customerList) {
+                bindInsert(ps, customer);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                for (int i = 0; i < ids.length && rs.next(); i++) {
+                    ids[i] = rs.getInt(1);
+                    customerList.get(i).setCustomerId(ids[i]);
+                }
+            }
+        }
+        return ids;
+    }
+
+    private void bindInsert(PreparedStatement ps, Customer customer) throws SQLException {
+        if (customer.getStore() != null && customer.getStore().getStoreId() > 0) {
+            ps.setInt(1, customer.getStore().getStoreId());
+        } else {
+            ps.setNull(1, Types.INTEGER);
+        }
+        ps.setString(2, customer.getFirstName());
+        ps.setString(3, customer.getLastName());
+        ps.setString(4, customer.getEmail());
+        if (customer.getAddress() != null && customer.getAddress().getAddressId() > 0) {
+            ps.setInt(5, customer.getAddress().getAddressId());
+        } else {
+            ps.setNull(5, Types.INTEGER);
+        }
+        ps.setBoolean(6, customer.isActive());
+        ps.setTimestamp(7, Timestamp.valueOf(customer.getCreateDate() != null ? customer.getCreateDate() : java.time.LocalDateTime.now()));
+        ps.setTimestamp(8, Timestamp.valueOf(customer.getLastUpdate() != null ? customer.getLastUpdate() : java.time.LocalDateTime.now()));
+    }
+
     public Customer findById(Connection conn, int id) throws SQLException {
         try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_ID_SQL)) {
             ps.setInt(1, id);
             try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? extract(rs) : null;
+                int[] c = PLAN.columns(SELECT_BY_ID_SQL, rs);
+                return rs.next() ? extract(rs, c) : null;
             }
         }
     }
 
+    public List<Customer> findByIds(Connection conn, Collection<Integer> ids) throws SQLException {
+        List<Customer> list = new ArrayList<>();
+        if (ids == null || ids.isEmpty()) return list;
+        try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_IDS_SQL)) {
+            ps.setArray(1, conn.createArrayOf("integer", ids.toArray()));
+            try (ResultSet rs = ps.executeQuery()) {
+                int[] c = PLAN.columns(SELECT_BY_IDS_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
+            }
+        }
+        return list;
+    }
+
     public List<Customer> findAll(Connection conn) throws SQLException {
         List<Customer> list = new ArrayList<>();
         try (PreparedStatement ps = conn.prepareStatement(SELECT_ALL_SQL);
             ResultSet rs = ps.executeQuery()) {
+            int[] c = PLAN.columns(SELECT_ALL_SQL, rs);
             while (rs.next()) {
-                list.add(extract(rs));
+                list.add(extract(rs, c));
+            }
+        }
+        return list;
+    }
+
+    public List<Customer> findPage(Connection conn, int afterId, int limit) throws SQLException {
+        return findPage(conn, afterId, limit, false);
+    }
+
+    public List<Customer> findPage(Connection conn, int afterId, int limit, boolean descending) throws SQLException {
+        List<Customer> list = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(descending ? SELECT_PAGE_DESC_SQL : SELECT_PAGE_SQL)) {
+            ps.setInt(1, descending && afterId <= 0 ? Integer.MAX_VALUE : afterId);
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                int[] c = PLAN.columns(descending ? SELECT_PAGE_DESC_SQL : SELECT_PAGE_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
             }
         }
         return list;
     }
 
     public boolean update(Connection conn, Customer customer) throws SQLException {
+        TableVersions.bump("customer");
         try (PreparedStatement ps = conn.prepareStatement(UPDATE_SQL)) {
             if (customer.getStore() != null && customer.getStore().getStoreId() > 0) {
                 ps.setInt(1, customer.getStore().getStoreId());
@@ -95,6 +165,7 @@ public class CustomerDao {
     }
 
     public boolean deleteById(Connection conn, int id) throws SQLException {
+        TableVersions.bump("customer");
         try (PreparedStatement ps = conn.prepareStatement(DELETE_SQL)) {
             ps.setInt(1, id);
             return ps.executeUpdate() > 0;
@@ -106,7 +177,8 @@ public class CustomerDao {
         try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_ADDRESS_ID_SQL)) {
             ps.setInt(1, addressID);
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) list.add(extract(rs));
+                int[] c = PLAN.columns(SELECT_BY_ADDRESS_ID_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
             }
         }
         return list;
@@ -117,40 +189,57 @@ public class CustomerDao {
         try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_STORE_ID_SQL)) {
             ps.setInt(1, storeID);
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) list.add(extract(rs));
+                int[] c = PLAN.columns(SELECT_BY_STORE_ID_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
             }
         }
         return list;
     }
 
-    private Customer extract(ResultSet rs) throws SQLException {
+    public List<Customer> findByStoreId(Connection conn, int storeID, int afterId, int limit, boolean descending) throws SQLException {
+        String sql = descending ? SELECT_PAGE_BY_STORE_ID_DESC_SQL : SELECT_PAGE_BY_STORE_ID_SQL;
+        List<Customer> list = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, storeID);
+            ps.setInt(2, descending && afterId <= 0 ? Integer.MAX_VALUE : afterId);
+            ps.setInt(3, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                int[] c = PLAN.columns(sql, rs);
+                while (rs.next()) list.add(extract(rs, c));
+            }
+        }
+        return list;
+    }
+
+    private static final RowPlan PLAN = new RowPlan("customer_id", "store_id", "first_name", "last_name", "email", "address_id", "active", "create_date", "last_update");
+
+    int[] columns(String sql, ResultSet rs) throws SQLException {
+        return PLAN.columns(sql, rs);
+    }
+
+    Customer extract(ResultSet rs, int[] c) throws SQLException {
         Customer customer = new Customer();
-        Integer customer_id = rs.getObject("customer_id", Integer.class);
-        customer.setCustomerId(customer_id);
-        Integer store_id = rs.getObject("store_id", Integer.class);
+        customer.setCustomerId(rs.getInt(c[0]));
+        Integer store_id = RowPlan.getInteger(rs, c[1]);
         customer.setStoreId(store_id);
         if (store_id != null && store_id > 0) {
             Store store = new Store();
             store.setStoreId(store_id);
             customer.setStore(store);
         }
-        customer.setFirstName(rs.getString("first_name"));
-        customer.setLastName(rs.getString("last_name"));
-        customer.setEmail(rs.getString("email"));
-        Integer address_id = rs.getObject("address_id", Integer.class);
+        customer.setFirstName(rs.getString(c[2]));
+        customer.setLastName(rs.getString(c[3]));
+        customer.setEmail(rs.getString(c[4]));
+        Integer address_id = RowPlan.getInteger(rs, c[5]);
         customer.setAddressId(address_id);
         if (address_id != null && address_id > 0) {
             Address address = new Address();
             address.setAddressId(address_id);
             customer.setAddress(address);
         }
-        customer.setActive(rs.getBoolean("active"));
-        Timestamp create_date = rs.getTimestamp("create_date");
-        if (create_date != null)
-            customer.setCreateDate(create_date.toLocalDateTime());
-        Timestamp last_update = rs.getTimestamp("last_update");
-        if (last_update != null)
-            customer.setLastUpdate(last_update.toLocalDateTime());
+        customer.setActive(rs.getBoolean(c[6]));
+        customer.setCreateDate(RowPlan.getDate(rs, c[7]));
+        customer.setLastUpdate(RowPlan.getDateTime(rs, c[8]));
         return customer;
     }
 }
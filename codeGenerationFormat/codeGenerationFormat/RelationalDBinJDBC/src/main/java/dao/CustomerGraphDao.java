@@ -0,0 +1,331 @@
+package dao;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.List;
+import model.*;
+
+/**
+ * Reads the customer aggregate (address, city, country, store, rentals and payments)
+ * with a single SQL statement. The to-one relationships are joined, the rental and
+ * payment collections are folded into JSON arrays with json_agg.
+ */
+public class CustomerGraphDao {
+
+    private static final String SELECT_GRAPH_SQL = "SELECT c.customer_id, c.store_id, c.first_name, c.last_name, c.email, c.address_id, c.active, c.create_date, c.last_update, "
+            + "a.address, a.address2, a.district, a.city_id, a.postal_code, a.phone, a.last_update AS address_last_update, "
+            + "ci.city, ci.country_id, ci.last_update AS city_last_update, "
+            + "co.country, co.last_update AS country_last_update, "
+            + "s.manager_staff_id, s.address_id AS store_address_id, s.last_update AS store_last_update, "
+            + "COALESCE(rl.rentals, '[]'::json) AS rentals, "
+            + "COALESCE(pl.payments, '[]'::json) AS payments "
+            + "FROM customer c "
+            + "LEFT JOIN address a ON a.address_id = c.address_id "
+            + "LEFT JOIN city ci ON ci.city_id = a.city_id "
+            + "LEFT JOIN country co ON co.country_id = ci.country_id "
+            + "LEFT JOIN store s ON s.store_id = c.store_id "
+            + "LEFT JOIN LATERAL (SELECT json_agg(r ORDER BY r.rental_id) AS rentals FROM rental r WHERE r.customer_id = c.customer_id) rl ON true "
+            + "LEFT JOIN LATERAL (SELECT json_agg(p ORDER BY p.payment_id) AS payments FROM payment p WHERE p.customer_id = c.customer_id) pl ON true ";
+
+    private static final String SELECT_BY_ID_SQL = SELECT_GRAPH_SQL + "WHERE c.customer_id = ?";
+
+    private static final String SELECT_ALL_SQL = SELECT_GRAPH_SQL + "ORDER BY c.customer_id";
+
+    private static final String SELECT_PAGE_SQL = SELECT_GRAPH_SQL + "WHERE c.customer_id > ? ORDER BY c.customer_id LIMIT ?";
+
+    private static final String SELECT_PAGE_DESC_SQL = SELECT_GRAPH_SQL + "WHERE c.customer_id < ? ORDER BY c.customer_id DESC LIMIT ?";
+
+    private static final String SELECT_BY_STORE_ID_SQL = SELECT_GRAPH_SQL + "WHERE c.store_id = ? ORDER BY c.customer_id";
+
+    private static final String SELECT_BY_ACTIVE_SQL = SELECT_GRAPH_SQL + "WHERE c.active = ? ORDER BY c.customer_id";
+
+    private static final String SELECT_PAGE_BY_STORE_ID_SQL = SELECT_GRAPH_SQL + "WHERE c.store_id = ? AND c.customer_id > ? ORDER BY c.customer_id LIMIT ?";
+
+    private static final String SELECT_PAGE_BY_STORE_ID_DESC_SQL = SELECT_GRAPH_SQL + "WHERE c.store_id = ? AND c.customer_id < ? ORDER BY c.customer_id DESC LIMIT ?";
+
+    private static final String SELECT_PAGE_BY_ACTIVE_SQL = SELECT_GRAPH_SQL + "WHERE c.active = ? AND c.customer_id > ? ORDER BY c.customer_id LIMIT ?";
+
+    private static final String SELECT_PAGE_BY_ACTIVE_DESC_SQL = SELECT_GRAPH_SQL + "WHERE c.active = ? AND c.customer_id < ? ORDER BY c.customer_id DESC LIMIT ?";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public Customer findById(Connection conn, int id) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_ID_SQL)) {
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                int[] c = PLAN.columns(SELECT_BY_ID_SQL, rs);
+                return rs.next() ? extract(rs, c) : null;
+            }
+        }
+    }
+
+    public List<Customer> findAll(Connection conn) throws SQLException {
+        List<Customer> list = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(SELECT_ALL_SQL);
+            ResultSet rs = ps.executeQuery()) {
+            int[] c = PLAN.columns(SELECT_ALL_SQL, rs);
+            while (rs.next()) {
+                list.add(extract(rs, c));
+            }
+        }
+        return list;
+    }
+
+    // Needs autocommit off, otherwise pgjdbc ignores the fetch size and buffers everything
+    public void streamAll(Connection conn, int fetchSize, RowHandler<Customer> handler) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(SELECT_ALL_SQL)) {
+            ps.setFetchSize(fetchSize);
+            try (ResultSet rs = ps.executeQuery()) {
+                int[] c = PLAN.columns(SELECT_ALL_SQL, rs);
+                while (rs.next()) handler.handle(extract(rs, c));
+            }
+        }
+    }
+
+    public List<Customer> findPage(Connection conn, int afterId, int limit, boolean descending) throws SQLException {
+        List<Customer> list = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(descending ? SELECT_PAGE_DESC_SQL : SELECT_PAGE_SQL)) {
+            ps.setInt(1, descending && afterId <= 0 ? Integer.MAX_VALUE : afterId);
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                int[] c = PLAN.columns(descending ? SELECT_PAGE_DESC_SQL : SELECT_PAGE_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
+            }
+        }
+        return list;
+    }
+
+    public List<Customer> findByStoreId(Connection conn, int storeID) throws SQLException {
+        List<Customer> list = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_STORE_ID_SQL)) {
+            ps.setInt(1, storeID);
+            try (ResultSet rs = ps.executeQuery()) {
+                int[] c = PLAN.columns(SELECT_BY_STORE_ID_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
+            }
+        }
+        return list;
+    }
+
+    public List<Customer> findByActive(Connection conn, boolean active) throws SQLException {
+        List<Customer> list = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_ACTIVE_SQL)) {
+            ps.setBoolean(1, active);
+            try (ResultSet rs = ps.executeQuery()) {
+                int[] c = PLAN.columns(SELECT_BY_ACTIVE_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
+            }
+        }
+        return list;
+    }
+
+    public List<Customer> findByStoreId(Connection conn, int storeID, int afterId, int limit, boolean descending) throws SQLException {
+        return keysetPage(conn, descending ? SELECT_PAGE_BY_STORE_ID_DESC_SQL : SELECT_PAGE_BY_STORE_ID_SQL, storeID, afterId, limit, descending);
+    }
+
+    public List<Customer> findByActive(Connection conn, boolean active, int afterId, int limit, boolean descending) throws SQLException {
+        return keysetPage(conn, descending ? SELECT_PAGE_BY_ACTIVE_DESC_SQL : SELECT_PAGE_BY_ACTIVE_SQL, active, afterId, limit, descending);
+    }
+
+    // Binds the filter value, then the keyset cursor and the page size
+    private List<Customer> keysetPage(Connection conn, String sql, Object filter, int afterId, int limit, boolean descending) throws SQLException {
+        List<Customer> list = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setObject(1, filter);
+            ps.setInt(2, descending && afterId <= 0 ? Integer.MAX_VALUE : afterId);
+            ps.setInt(3, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                int[] c = PLAN.columns(sql, rs);
+                while (rs.next()) list.add(extract(rs, c));
+            }
+        }
+        return list;
+    }
+
+    private static final RowPlan PLAN = new RowPlan("customer_id", "first_name", "last_name", "email", "active",
+            "create_date", "last_update", "address_id", "store_id", "rentals", "payments",
+            "address", "address2", "district", "postal_code", "phone", "address_last_update",
+            "city_id", "city", "city_last_update", "country_id", "country", "country_last_update",
+            "manager_staff_id", "store_address_id", "store_last_update");
+
+    private Customer extract(ResultSet rs, int[] c) throws SQLException {
+        Customer customer = new Customer();
+        customer.setCustomerId(rs.getInt(c[0]));
+        customer.setFirstName(rs.getString(c[1]));
+        customer.setLastName(rs.getString(c[2]));
+        customer.setEmail(rs.getString(c[3]));
+        customer.setActive(rs.getBoolean(c[4]));
+        customer.setCreateDate(RowPlan.getDate(rs, c[5]));
+        customer.setLastUpdate(RowPlan.getDateTime(rs, c[6]));
+
+        Integer address_id = RowPlan.getInteger(rs, c[7]);
+        customer.setAddressId(address_id);
+        if (address_id != null && address_id > 0) {
+            customer.setAddress(extractAddress(rs, c, address_id));
+        }
+
+        Integer store_id = RowPlan.getInteger(rs, c[8]);
+        customer.setStoreId(store_id);
+        if (store_id != null && store_id > 0) {
+            customer.setStore(extractStore(rs, c, store_id));
+        }
+
+        customer.setRentalList(extractRentals(rs.getString(c[9])));
+        customer.setPaymentList(extractPayments(rs.getString(c[10])));
+        return customer;
+    }
+
+    private Address extractAddress(ResultSet rs, int[] c, int addressId) throws SQLException {
+        Address address = new Address();
+        address.setAddressId(addressId);
+        address.setAddress(rs.getString(c[11]));
+        address.setAddress2(rs.getString(c[12]));
+        address.setDistrict(rs.getString(c[13]));
+        address.setPostalCode(rs.getString(c[14]));
+        address.setPhone(rs.getString(c[15]));
+        address.setLastUpdate(RowPlan.getDateTime(rs, c[16]));
+
+        Integer city_id = RowPlan.getInteger(rs, c[17]);
+        address.setCityId(city_id);
+        if (city_id != null && city_id > 0) {
+            City city = new City();
+            city.setCityId(city_id);
+            city.setCity(rs.getString(c[18]));
+            city.setLastUpdate(RowPlan.getDateTime(rs, c[19]));
+
+            Integer country_id = RowPlan.getInteger(rs, c[20]);
+            city.setCountryId(country_id);
+            if (country_id != null && country_id > 0) {
+                Country country = new Country();
+                country.setCountryId(country_id);
+                country.setCountry(rs.getString(c[21]));
+                country.setLastUpdate(RowPlan.getDateTime(rs, c[22]));
+                city.setCountry(country);
+            }
+            address.setCity(city);
+        }
+        return address;
+    }
+
+    private Store extractStore(ResultSet rs, int[] c, int storeId) throws SQLException {
+        Store store = new Store();
+        store.setStoreId(storeId);
+        Integer manager_staff_id = RowPlan.getInteger(rs, c[23]);
+        store.setManagerStaffId(manager_staff_id);
+        if (manager_staff_id != null && manager_staff_id > 0) {
+            Staff managerStaff = new Staff();
+            managerStaff.setStaffId(manager_staff_id);
+            store.setManagerStaff(managerStaff);
+        }
+        Integer store_address_id = RowPlan.getInteger(rs, c[24]);
+        store.setAddressId(store_address_id);
+        if (store_address_id != null && store_address_id > 0) {
+            Address address = new Address();
+            address.setAddressId(store_address_id);
+            store.setAddress(address);
+        }
+        store.setLastUpdate(RowPlan.getDateTime(rs, c[25]));
+        return store;
+    }
+
+    private List<Rental> extractRentals(String json) throws SQLException {
+        List<Rental> list = new ArrayList<>();
+        for (JsonNode node : readArray(json)) {
+            Rental rental = new Rental();
+            rental.setRentalId(node.path("rental_id").asInt());
+            rental.setRentalDate(toLocalDateTime(node.get("rental_date")));
+            rental.setReturnDate(toLocalDateTime(node.get("return_date")));
+            rental.setLastUpdate(toLocalDateTime(node.get("last_update")));
+            Integer inventory_id = toInteger(node.get("inventory_id"));
+            rental.setInventoryId(inventory_id);
+            if (inventory_id != null && inventory_id > 0) {
+                Inventory inventory = new Inventory();
+                inventory.setInventoryId(inventory_id);
+                rental.setInventory(inventory);
+            }
+            Integer customer_id = toInteger(node.get("customer_id"));
+            rental.setCustomerId(customer_id);
+            if (customer_id != null && customer_id > 0) {
+                Customer customer = new Customer();
+                customer.setCustomerId(customer_id);
+                rental.setCustomer(customer);
+            }
+            Integer staff_id = toInteger(node.get("staff_id"));
+            rental.setStaffId(staff_id);
+            if (staff_id != null && staff_id > 0) {
+                Staff staff = new Staff();
+                staff.setStaffId(staff_id);
+                rental.setStaff(staff);
+            }
+            list.add(rental);
+        }
+        return list;
+    }
+
+    private List<Payment> extractPayments(String json) throws SQLException {
+        List<Payment> list = new ArrayList<>();
+        for (JsonNode node : readArray(json)) {
+            Payment payment = new Payment();
+            payment.setPaymentId(node.path("payment_id").asInt());
+            JsonNode amount = node.get("amount");
+            if (amount != null && !amount.isNull())
+                payment.setAmount(amount.decimalValue());
+            payment.setPaymentDate(toLocalDateTime(node.get("payment_date")));
+            payment.setLastUpdate(toLocalDateTime(node.get("last_update")));
+            Integer customer_id = toInteger(node.get("customer_id"));
+            payment.setCustomerId(customer_id);
+            if (customer_id != null && customer_id > 0) {
+                Customer customer = new Customer();
+                customer.setCustomerId(customer_id);
+                payment.setCustomer(customer);
+            }
+            Integer staff_id = toInteger(node.get("staff_id"));
+            payment.setStaffId(staff_id);
+            if (staff_id != null && staff_id > 0) {
+                Staff staff = new Staff();
+                staff.setStaffId(staff_id);
+                payment.setStaff(staff);
+            }
+            Integer rental_id = toInteger(node.get("rental_id"));
+            payment.setRentalId(rental_id);
+            if (rental_id != null && rental_id > 0) {
+                Rental rental = new Rental();
+                rental.setRentalId(rental_id);
+                payment.setRental(rental);
+            }
+            list.add(payment);
+        }
+        return list;
+    }
+
+    private JsonNode readArray(String json) throws SQLException {
+        try {
+            return MAPPER.readTree(json != null ? json : "[]");
+        } catch (JsonProcessingException e) {
+            throw new SQLException("Invalid JSON aggregate in customer graph: " + e.getMessage(), e);
+        }
+    }
+
+    private static Integer toInteger(JsonNode node) {
+        return node == null || node.isNull() ? null : node.asInt();
+    }
+
+    // json_agg renders timestamps as ISO-8601, with an offset for timestamptz columns
+    private static LocalDateTime toLocalDateTime(JsonNode node) {
+        if (node == null || node.isNull()) return null;
+        TemporalAccessor parsed = DateTimeFormatter.ISO_DATE_TIME.parseBest(node.asText(), OffsetDateTime::from, LocalDateTime::from);
+        if (parsed instanceof OffsetDateTime offsetDateTime) {
+            return offsetDateTime.atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+        }
+        return (LocalDateTime) parsed;
+    }
+}
@@ -0,0 +1,212 @@
+package dao;
+
+import DataBaseConnection.EntityCacheListener;
+import DataBaseConnection.ReplicaRouter;
+import DataBaseConnection.SchemaMigrations;
+import DataBaseConnection.TransactionManager;
+import config.DatabaseConfig;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * Bounded cache of single rows by primary key, in front of a DAO's findById.
+ *
+ * Entries are kept in LRU order, but a miss only displaces the LRU entry when its key has
+ * been asked for more often than the victim's (TinyLFU admission over a small count-min
+ * sketch), so a scan of one-off ids cannot flush the hot set. Callers always get a copy;
+ * the cached row itself is never handed out.
+ *
+ * Invalidation: the owning DAO drops an entry on its own writes, and the triggers of
+ * V3__entity_cache_notify.sql tell every node through EntityCacheListener. Reads made
+ * inside a write transaction bypass the cache, so uncommitted rows are never cached, and
+ * rows read on a replica are returned but not admitted: a lagging replica could otherwise
+ * put back a row that an eviction has just removed. Without the V3 triggers other nodes'
+ * writes would go unseen, so the cache is bypassed until SchemaMigrations has found them.
+ */
+public final class EntityCache<T> {
+
+    @FunctionalInterface
+    public interface Loader<T> {
+        T load(Connection conn, int id) throws SQLException;
+    }
+
+    private final String table;
+    private final int capacity;
+    private final UnaryOperator<T> copy;
+    private final Map<Integer, Entry<T>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+    // Not synchronized: a virtual thread blocked here must not pin its carrier
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Bumped by every invalidation; a row loaded across a bump is not admitted
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+
+    public EntityCache(String table, int capacity, UnaryOperator<T> copy) {
+        this.table = table;
+        this.capacity = Math.max(1, capacity);
+        this.copy = copy;
+        this.sketch = new FrequencySketch(this.capacity);
+        EntityCacheListener.register(table, this::evict, this::clear);
+    }
+
+    public T get(Connection conn, int id, Loader<T> loader) throws SQLException {
+        if (!DatabaseConfig.isEntityCacheEnabled() || !SchemaMigrations.isEntityCacheNotifyInstalled()
+                || TransactionManager.isWriteTransactionActive()) {
+            return loader.load(conn, id);
+        }
+        lock.lock();
+        try {
+            sketch.increment(id);
+            Entry<T> entry = entries.get(id);
+            if (entry != null && !entry.isExpired()) {
+                hits.incrementAndGet();
+                return copy.apply(entry.row);
+            }
+            if (entry != null) entries.remove(id);
+        } finally {
+            lock.unlock();
+        }
+
+        misses.incrementAndGet();
+        long loadedGeneration = generation.get();
+        T row = loader.load(conn, id);
+        if (row != null && !ReplicaRouter.isReplica(conn)) {
+            admit(id, row, loadedGeneration);
+        }
+        return row;
+    }
+
+    // Local write: drop the entry now and again after commit, so a concurrent reader
+    // cannot re-cache the pre-commit row
+    public void invalidate(int id) {
+        evict(id);
+        TransactionManager.afterCommit(() -> evict(id));
+    }
+
+    public void evict(int id) {
+        generation.incrementAndGet();
+        lock.lock();
+        try {
+            entries.remove(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+        lock.lock();
+        try {
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void admit(int id, T row, long loadedGeneration) {
+        lock.lock();
+        try {
+            if (generation.get() != loadedGeneration) return;
+            if (entries.size() >= capacity && !entries.containsKey(id)) {
+                Iterator<Map.Entry<Integer, Entry<T>>> eldest = entries.entrySet().iterator();
+                Map.Entry<Integer, Entry<T>> victim = eldest.next();
+                if (!victim.getValue().isExpired() && sketch.frequency(id) <= sketch.frequency(victim.getKey())) {
+                    rejections.incrementAndGet();
+                    return;
+                }
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+            // The caller keeps the loaded object, the cache keeps its own copy
+            entries.put(id, new Entry<>(copy.apply(row)));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public String getTable() { return table; }
+    public long getHits() { return hits.get(); }
+    public long getMisses() { return misses.get(); }
+    public long getEvictions() { return evictions.get(); }
+    public long getRejections() { return rejections.get(); }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class Entry<T> {
+        private final T row;
+        private final long loadedAt = System.currentTimeMillis();
+
+        private Entry(T row) {
+            this.row = row;
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() - loadedAt >= DatabaseConfig.getEntityCacheTtlMillis();
+        }
+    }
+
+    // Four-row count-min sketch of 4-bit counters. All counters are halved once the
+    // sample is full, so old popularity fades. Only used under the cache lock.
+    private static final class FrequencySketch {
+        private static final int DEPTH = 4;
+        private static final int MAX_COUNT = 15;
+        private static final int[] SEEDS = { 0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F };
+
+        private final byte[] counters;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        private FrequencySketch(int capacity) {
+            int width = Integer.highestOneBit(Math.max(16, capacity * 2 - 1)) << 1;
+            this.counters = new byte[DEPTH * width];
+            this.mask = width - 1;
+            this.sampleSize = 10 * capacity;
+        }
+
+        private void increment(int key) {
+            for (int row = 0; row < DEPTH; row++) {
+                int index = index(key, row);
+                if (counters[index] < MAX_COUNT) counters[index]++;
+            }
+            if (++additions >= sampleSize) {
+                for (int i = 0; i < counters.length; i++) {
+                    counters[i] >>= 1;
+                }
+                additions /= 2;
+            }
+        }
+
+        private int frequency(int key) {
+            int min = MAX_COUNT;
+            for (int row = 0; row < DEPTH; row++) {
+                min = Math.min(min, counters[index(key, row)]);
+            }
+            return min;
+        }
+
+        private int index(int key, int row) {
+            int h = key * SEEDS[row];
+            h ^= h >>> 16;
+            return row * (mask + 1) + (h & mask);
+        }
+    }
+}
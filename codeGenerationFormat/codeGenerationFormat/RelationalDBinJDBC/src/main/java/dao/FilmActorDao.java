@@ -13,6 +13,10 @@ public class FilmActorDao {
 
     private static final String SELECT_ALL_SQL = "SELECT * FROM film_actor ORDER BY actor_id";
 
+    private static final String SELECT_PAGE_SQL = "SELECT * FROM film_actor WHERE (actor_id, film_id) > (?, ?) ORDER BY actor_id, film_id LIMIT ?";
+
+    private static final String SELECT_PAGE_DESC_SQL = "SELECT * FROM film_actor WHERE (actor_id, film_id) < (?, ?) ORDER BY actor_id DESC, film_id DESC LIMIT ?";
+
     private static final String SELECT_BY_ACTOR_ID_SQL = "SELECT * FROM film_actor WHERE actor_id = ?";
 
     private static final String SELECT_BY_FILM_ID_SQL = "SELECT * FROM film_actor WHERE film_id = ?";
@@ -22,28 +26,51 @@ public class FilmActorDao {
     private static final String DELETE_SQL = "DELETE FROM film_actor WHERE actor_id = ?";
 
     public int insert(Connection conn, FilmActor filmactor) throws SQLException {
+        TableVersions.bump("film_actor");
         try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL)) {
-            if (filmactor.getActor() != null && filmactor.getActor().getActorId() > 0) {
-                ps.setInt(1, filmactor.getActor().getActorId());
-            } else {
-                ps.setNull(1, Types.INTEGER);
-            }
-            if (filmactor.getFilm() != null && filmactor.getFilm().getFilmId() > 0) {
-                ps.setInt(2, filmactor.getFilm().getFilmId());
-            } else {
-                ps.setNull(2, Types.INTEGER);
-            }
-            ps.setTimestamp(3, Timestamp.valueOf(filmactor.getLastUpdate() != null ? filmactor.getLastUpdate() : java.time.LocalDateTime.now()));
+            bindInsert(ps, filmactor);
             ps.executeUpdate();
         }
         return filmactor.getActor().getActorId();
     }
 
+    // With reWriteBatchedInserts the driver sends the whole batch as multi-row INSERTs
+    public int insertBatch(Connection conn, List<FilmActor> filmActorList) throws SQLException {
+        TableVersions.bump("film_actor");
+        if (filmActorList.isEmpty()) return 0;
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL)) {
+            for (FilmActor filmactor : filmActorList) {
+                bindInsert(ps, filmactor);
+                ps.addBatch();
+            }
+            int inserted = 0;
+            for (int count : ps.executeBatch()) {
+                inserted += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
+            }
+            return inserted;
+        }
+    }
+
+    private void bindInsert(PreparedStatement ps, FilmActor filmactor) throws SQLException {
+        if (filmactor.getActor() != null && filmactor.getActor().getActorId() > 0) {
+            ps.setInt(1, filmactor.getActor().getActorId());
+        } else {
+            ps.setNull(1, Types.INTEGER);
+        }
+        if (filmactor.getFilm() != null && filmactor.getFilm().getFilmId() > 0) {
+            ps.setInt(2, filmactor.getFilm().getFilmId());
+        } else {
+            ps.setNull(2, Types.INTEGER);
+        }
+        ps.setTimestamp(3, Timestamp.valueOf(filmactor.getLastUpdate() != null ? filmactor.getLastUpdate() : java.time.LocalDateTime.now()));
+    }
+
     public FilmActor findById(Connection conn, int id) throws SQLException {
         try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_ID_SQL)) {
             ps.setInt(1, id);
             try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? extract(rs) : null;
+                int[] c = PLAN.columns(SELECT_BY_ID_SQL, rs);
+                return rs.next() ? extract(rs, c) : null;
             }
         }
     }
@@ -52,14 +79,35 @@ public class FilmActorDao {
         List<FilmActor> list = new ArrayList<>();
         try (PreparedStatement ps = conn.prepareStatement(SELECT_ALL_SQL);
             ResultSet rs = ps.executeQuery()) {
+            int[] c = PLAN.columns(SELECT_ALL_SQL, rs);
             while (rs.next()) {
-                list.add(extract(rs));
+                list.add(extract(rs, c));
+            }
+        }
+        return list;
+    }
+
+    public List<FilmActor> findPage(Connection conn, int afterId, int limit) throws SQLException {
+        return findPage(conn, afterId, Integer.MAX_VALUE, limit, false);
+    }
+
+    public List<FilmActor> findPage(Connection conn, int afterId, int afterFilmId, int limit, boolean descending) throws SQLException {
+        List<FilmActor> list = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(descending ? SELECT_PAGE_DESC_SQL : SELECT_PAGE_SQL)) {
+            boolean fromEnd = descending && afterId <= 0;
+            ps.setInt(1, fromEnd ? Integer.MAX_VALUE : afterId);
+            ps.setInt(2, fromEnd ? Integer.MAX_VALUE : afterFilmId);
+            ps.setInt(3, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                int[] c = PLAN.columns(descending ? SELECT_PAGE_DESC_SQL : SELECT_PAGE_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
             }
         }
         return list;
     }
 
     public boolean update(Connection conn, FilmActor filmactor) throws SQLException {
+        TableVersions.bump("film_actor");
         try (PreparedStatement ps = conn.prepareStatement(UPDATE_SQL)) {
             if (filmactor.getFilm() != null && filmactor.getFilm().getFilmId() > 0) {
                 ps.setInt(1, filmactor.getFilm().getFilmId());
@@ -73,6 +121,7 @@ public class FilmActorDao {
     }
 
     public boolean deleteById(Connection conn, int id) throws SQLException {
+        TableVersions.bump("film_actor");
         try (PreparedStatement ps = conn.prepareStatement(DELETE_SQL)) {
             ps.setInt(1, id);
             return ps.executeUpdate() > 0;
@@ -80,46 +129,74 @@ public class FilmActorDao {
     }
 
     public List<FilmActor> findByActorId(Connection conn, int actorID) throws SQLException {
+        return BY_ACTOR_ID.list(conn, connection -> loadByActorId(connection, actorID), actorID);
+    }
+
+    private List<FilmActor> loadByActorId(Connection conn, int actorID) throws SQLException {
         List<FilmActor> list = new ArrayList<>();
         try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_ACTOR_ID_SQL)) {
             ps.setInt(1, actorID);
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) list.add(extract(rs));
+                int[] c = PLAN.columns(SELECT_BY_ACTOR_ID_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
             }
         }
         return list;
     }
 
     public List<FilmActor> findByFilmId(Connection conn, int filmID) throws SQLException {
+        return BY_FILM_ID.list(conn, connection -> loadByFilmId(connection, filmID), filmID);
+    }
+
+    private List<FilmActor> loadByFilmId(Connection conn, int filmID) throws SQLException {
         List<FilmActor> list = new ArrayList<>();
         try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_FILM_ID_SQL)) {
             ps.setInt(1, filmID);
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) list.add(extract(rs));
+                int[] c = PLAN.columns(SELECT_BY_FILM_ID_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
             }
         }
         return list;
     }
 
-    private FilmActor extract(ResultSet rs) throws SQLException {
+    private static final RowPlan PLAN = new RowPlan("actor_id", "film_id", "last_update");
+
+    // Films of an actor and cast of a film, shared across users (see QueryCache)
+    private static final QueryCache.Query<FilmActor> BY_ACTOR_ID = QueryCache.query(SELECT_BY_ACTOR_ID_SQL, 200, FilmActorDao::copy, "film_actor");
+    private static final QueryCache.Query<FilmActor> BY_FILM_ID = QueryCache.query(SELECT_BY_FILM_ID_SQL, 200, FilmActorDao::copy, "film_actor");
+
+    private FilmActor extract(ResultSet rs, int[] c) throws SQLException {
         FilmActor filmactor = new FilmActor();
-        Integer actor_id = rs.getObject("actor_id", Integer.class);
+        Integer actor_id = RowPlan.getInteger(rs, c[0]);
         filmactor.setActorId(actor_id);
         if (actor_id != null && actor_id > 0) {
             Actor actor = new Actor();
             actor.setActorId(actor_id);
             filmactor.setActor(actor);
         }
-        Integer film_id = rs.getObject("film_id", Integer.class);
+        Integer film_id = RowPlan.getInteger(rs, c[1]);
         filmactor.setFilmId(film_id);
         if (film_id != null && film_id > 0) {
             Film film = new Film();
             film.setFilmId(film_id);
             filmactor.setFilm(film);
         }
-        Timestamp last_update = rs.getTimestamp("last_update");
-        if (last_update != null)
-            filmactor.setLastUpdate(last_update.toLocalDateTime());
+        filmactor.setLastUpdate(RowPlan.getDateTime(rs, c[2]));
+        return filmactor;
+    }
+
+    private static FilmActor copy(FilmActor source) {
+        FilmActor filmactor = new FilmActor();
+        filmactor.setActorId(source.getActorId());
+        if (source.getActor() != null) {
+            Actor actor = new Actor();
+            actor.setActorId(source.getActor().getActorId());
+            filmactor.setActor(actor);
+        }
+        filmactor.setFilmId(source.getFilmId());
+        if (source.getFilm() != null) filmactor.setFilm(new Film(source.getFilm().getFilmId()));
+        filmactor.setLastUpdate(source.getLastUpdate());
         return filmactor;
     }
 }
@@ -13,6 +13,10 @@ public class FilmCategoryDao {
 
     private static final String SELECT_ALL_SQL = "SELECT * FROM film_category ORDER BY film_id";
 
+    private static final String SELECT_PAGE_SQL = "SELECT * FROM film_category WHERE (film_id, category_id) > (?, ?) ORDER BY film_id, category_id LIMIT ?";
+
+    private static final String SELECT_PAGE_DESC_SQL = "SELECT * FROM film_category WHERE (film_id, category_id) < (?, ?) ORDER BY film_id DESC, category_id DESC LIMIT ?";
+
     private static final String SELECT_BY_CATEGORY_ID_SQL = "SELECT * FROM film_category WHERE category_id = ?";
 
     private static final String SELECT_BY_FILM_ID_SQL = "SELECT * FROM film_category WHERE film_id = ?";
@@ -22,28 +26,51 @@ public class FilmCategoryDao {
     private static final String DELETE_SQL = "DELETE FROM film_category WHERE film_id = ?";
 
     public int insert(Connection conn, FilmCategory filmcategory) throws SQLException {
+        TableVersions.bump("film_category");
         try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL)) {
-            if (filmcategory.getFilm() != null && filmcategory.getFilm().getFilmId() > 0) {
-                ps.setInt(1, filmcategory.getFilm().getFilmId());
-            } else {
-                ps.setNull(1, Types.INTEGER);
-            }
-            if (filmcategory.getCategory() != null && filmcategory.getCategory().getCategoryId() > 0) {
-                ps.setInt(2, filmcategory.getCategory().getCategoryId());
-            } else {
-                ps.setNull(2, Types.INTEGER);
-            }
-            ps.setTimestamp(3, Timestamp.valueOf(filmcategory.getLastUpdate() != null ? filmcategory.getLastUpdate() : java.time.LocalDateTime.now()));
+            bindInsert(ps, filmcategory);
             ps.executeUpdate();
         }
         return filmcategory.getFilm().getFilmId();
     }
 
+    // With reWriteBatchedInserts the driver sends the whole batch as multi-row INSERTs
+    public int insertBatch(Connection conn, List<FilmCategory> filmCategoryList) throws SQLException {
+        TableVersions.bump("film_category");
+        if (filmCategoryList.isEmpty()) return 0;
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL)) {
+            for (FilmCategory filmcategory : filmCategoryList) {
+                bindInsert(ps, filmcategory);
+                ps.addBatch();
+            }
+            int inserted = 0;
+            for (int count : ps.executeBatch()) {
+                inserted += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
+            }
+            return inserted;
+        }
+    }
+
+    private void bindInsert(PreparedStatement ps, FilmCategory filmcategory) throws SQLException {
+        if (filmcategory.getFilm() != null && filmcategory.getFilm().getFilmId() > 0) {
+            ps.setInt(1, filmcategory.getFilm().getFilmId());
+        } else {
+            ps.setNull(1, Types.INTEGER);
+        }
+        if (filmcategory.getCategory() != null && filmcategory.getCategory().getCategoryId() > 0) {
+            ps.setInt(2, filmcategory.getCategory().getCategoryId());
+        } else {
+            ps.setNull(2, Types.INTEGER);
+        }
+        ps.setTimestamp(3, Timestamp.valueOf(filmcategory.getLastUpdate() != null ? filmcategory.getLastUpdate() : java.time.LocalDateTime.now()));
+    }
+
     public FilmCategory findById(Connection conn, int id) throws SQLException {
         try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_ID_SQL)) {
             ps.setInt(1, id);
             try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? extract(rs) : null;
+                int[] c = PLAN.columns(SELECT_BY_ID_SQL, rs);
+                return rs.next() ? extract(rs, c) : null;
             }
         }
     }
@@ -52,14 +79,35 @@ public class FilmCategoryDao {
         List<FilmCategory> list = new ArrayList<>();
         try (PreparedStatement ps = conn.prepareStatement(SELECT_ALL_SQL);
             ResultSet rs = ps.executeQuery()) {
+            int[] c = PLAN.columns(SELECT_ALL_SQL, rs);
             while (rs.next()) {
-                list.add(extract(rs));
+                list.add(extract(rs, c));
+            }
+        }
+        return list;
+    }
+
+    public List<FilmCategory> findPage(Connection conn, int afterId, int limit) throws SQLException {
+        return findPage(conn, afterId, Integer.MAX_VALUE, limit, false);
+    }
+
+    public List<FilmCategory> findPage(Connection conn, int afterId, int afterCategoryId, int limit, boolean descending) throws SQLException {
+        List<FilmCategory> list = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(descending ? SELECT_PAGE_DESC_SQL : SELECT_PAGE_SQL)) {
+            boolean fromEnd = descending && afterId <= 0;
+            ps.setInt(1, fromEnd ? Integer.MAX_VALUE : afterId);
+            ps.setInt(2, fromEnd ? Integer.MAX_VALUE : afterCategoryId);
+            ps.setInt(3, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                int[] c = PLAN.columns(descending ? SELECT_PAGE_DESC_SQL : SELECT_PAGE_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
             }
         }
         return list;
     }
 
     public boolean update(Connection conn, FilmCategory filmcategory) throws SQLException {
+        TableVersions.bump("film_category");
         try (PreparedStatement ps = conn.prepareStatement(UPDATE_SQL)) {
             if (filmcategory.getCategory() != null && filmcategory.getCategory().getCategoryId() > 0) {
                 ps.setInt(1, filmcategory.getCategory().getCategoryId());
@@ -73,6 +121,7 @@ public class FilmCategoryDao {
     }
 
     public boolean deleteById(Connection conn, int id) throws SQLException {
+        TableVersions.bump("film_category");
         try (PreparedStatement ps = conn.prepareStatement(DELETE_SQL)) {
             ps.setInt(1, id);
             return ps.executeUpdate() > 0;
@@ -80,46 +129,74 @@ public class FilmCategoryDao {
     }
 
     public List<FilmCategory> findByCategoryId(Connection conn, int categoryID) throws SQLException {
+        return BY_CATEGORY_ID.list(conn, connection -> loadByCategoryId(connection, categoryID), categoryID);
+    }
+
+    private List<FilmCategory> loadByCategoryId(Connection conn, int categoryID) throws SQLException {
         List<FilmCategory> list = new ArrayList<>();
         try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_CATEGORY_ID_SQL)) {
             ps.setInt(1, categoryID);
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) list.add(extract(rs));
+                int[] c = PLAN.columns(SELECT_BY_CATEGORY_ID_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
             }
         }
         return list;
     }
 
     public List<FilmCategory> findByFilmId(Connection conn, int filmID) throws SQLException {
+        return BY_FILM_ID.list(conn, connection -> loadByFilmId(connection, filmID), filmID);
+    }
+
+    private List<FilmCategory> loadByFilmId(Connection conn, int filmID) throws SQLException {
         List<FilmCategory> list = new ArrayList<>();
         try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_FILM_ID_SQL)) {
             ps.setInt(1, filmID);
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) list.add(extract(rs));
+                int[] c = PLAN.columns(SELECT_BY_FILM_ID_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
             }
         }
         return list;
     }
 
-    private FilmCategory extract(ResultSet rs) throws SQLException {
+    private static final RowPlan PLAN = new RowPlan("film_id", "category_id", "last_update");
+
+    // Catalog browsing reads, shared across users (see QueryCache)
+    private static final QueryCache.Query<FilmCategory> BY_CATEGORY_ID = QueryCache.query(SELECT_BY_CATEGORY_ID_SQL, 200, FilmCategoryDao::copy, "film_category");
+    private static final QueryCache.Query<FilmCategory> BY_FILM_ID = QueryCache.query(SELECT_BY_FILM_ID_SQL, 200, FilmCategoryDao::copy, "film_category");
+
+    private FilmCategory extract(ResultSet rs, int[] c) throws SQLException {
         FilmCategory filmcategory = new FilmCategory();
-        Integer film_id = rs.getObject("film_id", Integer.class);
+        Integer film_id = RowPlan.getInteger(rs, c[0]);
         filmcategory.setFilmId(film_id);
         if (film_id != null && film_id > 0) {
             Film film = new Film();
             film.setFilmId(film_id);
             filmcategory.setFilm(film);
         }
-        Integer category_id = rs.getObject("category_id", Integer.class);
+        Integer category_id = RowPlan.getInteger(rs, c[1]);
         filmcategory.setCategoryId(category_id);
         if (category_id != null && category_id > 0) {
             Category category = new Category();
             category.setCategoryId(category_id);
             filmcategory.setCategory(category);
         }
-        Timestamp last_update = rs.getTimestamp("last_update");
-        if (last_update != null)
-            filmcategory.setLastUpdate(last_update.toLocalDateTime());
+        filmcategory.setLastUpdate(RowPlan.getDateTime(rs, c[2]));
+        return filmcategory;
+    }
+
+    private static FilmCategory copy(FilmCategory source) {
+        FilmCategory filmcategory = new FilmCategory();
+        filmcategory.setFilmId(source.getFilmId());
+        if (source.getFilm() != null) filmcategory.setFilm(new Film(source.getFilm().getFilmId()));
+        filmcategory.setCategoryId(source.getCategoryId());
+        if (source.getCategory() != null) {
+            Category category = new Category();
+            category.setCategoryId(source.getCategory().getCategoryId());
+            filmcategory.setCategory(category);
+        }
+        filmcategory.setLastUpdate(source.getLastUpdate());
         return filmcategory;
     }
 }
@@ -1,8 +1,10 @@
 package dao;
 
+import config.DatabaseConfig;
 import java.math.BigDecimal;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import model.*;
 
@@ -12,10 +14,33 @@ public class FilmDao {
 
     private static final String SELECT_BY_ID_SQL = "SELECT * FROM film WHERE film_id = ?";
 
+    private static final String SELECT_BY_IDS_SQL = "SELECT * FROM film WHERE film_id = ANY(?)";
+
     private static final String SELECT_ALL_SQL = "SELECT * FROM film ORDER BY film_id";
 
+    private static final String SELECT_PAGE_SQL = "SELECT * FROM film WHERE film_id > ? ORDER BY film_id LIMIT ?";
+
+    private static final String SELECT_PAGE_DESC_SQL = "SELECT * FROM film WHERE film_id < ? ORDER BY film_id DESC LIMIT ?";
+
     private static final String SELECT_BY_LANGUAGE_ID_SQL = "SELECT * FROM film WHERE language_id = ?";
 
+    // Keyset pages of the filtered lists: filter value, then cursor, then page size
+    private static final String SELECT_PAGE_BY_LANGUAGE_ID_SQL = "SELECT * FROM film WHERE language_id = ? AND film_id > ? ORDER BY film_id LIMIT ?";
+
+    private static final String SELECT_PAGE_BY_LANGUAGE_ID_DESC_SQL = "SELECT * FROM film WHERE language_id = ? AND film_id < ? ORDER BY film_id DESC LIMIT ?";
+
+    private static final String SELECT_PAGE_BY_ACTOR_ID_SQL = "SELECT f.* FROM film f JOIN film_actor fa ON fa.film_id = f.film_id "
+            + "WHERE fa.actor_id = ? AND f.film_id > ? ORDER BY f.film_id LIMIT ?";
+
+    private static final String SELECT_PAGE_BY_ACTOR_ID_DESC_SQL = "SELECT f.* FROM film f JOIN film_actor fa ON fa.film_id = f.film_id "
+            + "WHERE fa.actor_id = ? AND f.film_id < ? ORDER BY f.film_id DESC LIMIT ?";
+
+    private static final String SELECT_PAGE_BY_CATEGORY_ID_SQL = "SELECT f.* FROM film f JOIN film_category fc ON fc.film_id = f.film_id "
+            + "WHERE fc.category_id = ? AND f.film_id > ? ORDER BY f.film_id LIMIT ?";
+
+    private static final String SELECT_PAGE_BY_CATEGORY_ID_DESC_SQL = "SELECT f.* FROM film f JOIN film_category fc ON fc.film_id = f.film_id "
+            + "WHERE fc.category_id = ? AND f.film_id < ? ORDER BY f.film_id DESC LIMIT ?";
+
     private static final String SELECT_BY_ORIGINAL_LANGUAGE_ID_SQL = "SELECT * FROM film WHERE original_language_id = ?";
 
     private static final String UPDATE_SQL = "UPDATE film SET title = ?, description = ?, release_year = ?, language_id = ?, original_language_id = ?, rental_duration = ?, rental_rate = ?, length = ?, replacement_cost = ?, rating = ?, special_features = ?, last_update = ? WHERE film_id = ?";
@@ -23,37 +48,9 @@ public class FilmDao {
     private static final String DELETE_SQL = "DELETE FROM film WHERE film_id = ?";
 
     public int insert(Connection conn, Film film) throws SQLException {
+        TableVersions.bump("film");
         try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
-            ps.setString(1, film.getTitle());
-            ps.setString(2, film.getDescription());
-            ps.setInt(3, film.getReleaseYear());
-            if (film.getLanguage() != null && film.getLanguage().getLanguageId() > 0) {
-                ps.setInt(4, film.getLanguage().getLanguageId());
-            } else {
-                ps.setNull(4, Types.INTEGER);
-            }
-            if (film.getOriginalLanguage() != null && film.getOriginalLanguage().getLanguageId() > 0) {
-                ps.setInt(5, film.getOriginalLanguage().getLanguageId());
-            } else {
-                ps.setNull(5, Types.INTEGER);
-            }
-            ps.setInt(6, film.getRentalDuration());
-            BigDecimal val7 = film.getRentalRate();
-            if (val7 != null) {
-                ps.setBigDecimal(7, val7);
-            } else {
-                ps.setNull(7, Types.FLOAT);
-            }
-            ps.setInt(8, film.getLength());
-            BigDecimal val9 = film.getReplacementCost();
-            if (val9 != null) {
-                ps.setBigDecimal(9, val9);
-            } else {
-                ps.setNull(9, Types.FLOAT);
-            }
-            ps.setString(10, film.getRating());
-            ps.setString(11, film.getSpecialFeatures());
-            ps.setTimestamp(12, Timestamp.valueOf(film.getLastUpdate() != null ? film.getLastUpdate() : java.time.LocalDateTime.now()));
+            bindInsert(ps, film);
             ps.executeUpdate();
             try (ResultSet rs = ps.getGeneratedKeys()) {
                 if (rs.next()) {
@@ -66,27 +63,137 @@ public class FilmDao {
         return -1;
     }
 
+    // With reWriteBatchedInserts the driver sends the whole batch as multi-row INSERTs
+    public int[] insertBatch(Connection conn, List<Film> filmList) throws SQLException {
+        TableVersions.bump("film");
+        int[] ids = new int[filmList.size()];
+        if (filmList.isEmpty()) return ids;
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            for (Film film : filmList) {
+                bindInsert(ps, film);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                for (int i = 0; i < ids.length && rs.next(); i++) {
+                    ids[i] = rs.getInt(1);
+                    filmList.get(i).setFilmId(ids[i]);
+                }
+            }
+        }
+        return ids;
+    }
+
+    private void bindInsert(PreparedStatement ps, Film film) throws SQLException {
+        ps.setString(1, film.getTitle());
+        ps.setString(2, film.getDescription());
+        ps.setInt(3, film.getReleaseYear());
+        if (film.getLanguage() != null && film.getLanguage().getLanguageId() > 0) {
+            ps.setInt(4, film.getLanguage().getLanguageId());
+        } else {
+            ps.setNull(4, Types.INTEGER);
+        }
+        if (film.getOriginalLanguage() != null && film.getOriginalLanguage().getLanguageId() > 0) {
+            ps.setInt(5, film.getOriginalLanguage().getLanguageId());
+        } else {
+            ps.setNull(5, Types.INTEGER);
+        }
+        ps.setInt(6, film.getRentalDuration());
+        BigDecimal val7 = film.getRentalRate();
+        if (val7 != null) {
+            ps.setBigDecimal(7, val7);
+        } else {
+            ps.setNull(7, Types.FLOAT);
+        }
+        ps.setInt(8, film.getLength());
+        BigDecimal val9 = film.getReplacementCost();
+        if (val9 != null) {
+            ps.setBigDecimal(9, val9);
+        } else {
+            ps.setNull(9, Types.FLOAT);
+        }
+        ps.setString(10, film.getRating());
+        ps.setString(11, film.getSpecialFeatures());
+        ps.setTimestamp(12, Timestamp.valueOf(film.getLastUpdate() != null ? film.getLastUpdate() : java.time.LocalDateTime.now()));
+    }
+
+    // Bounded, cluster-invalidated (see EntityCache); list hydration calls this per row
+    private static final EntityCache<Film> CACHE = new EntityCache<>("film", DatabaseConfig.getEntityCacheFilmSize(), FilmDao::copy);
+
+    public static EntityCache<Film> getCache() {
+        return CACHE;
+    }
+
     public Film findById(Connection conn, int id) throws SQLException {
+        return CACHE.get(conn, id, this::load);
+    }
+
+    private Film load(Connection conn, int id) throws SQLException {
         try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_ID_SQL)) {
             ps.setInt(1, id);
             try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? extract(rs) : null;
+                int[] c = PLAN.columns(SELECT_BY_ID_SQL, rs);
+                return rs.next() ? extract(rs, c) : null;
+            }
+        }
+    }
+
+    public List<Film> findByIds(Connection conn, Collection<Integer> ids) throws SQLException {
+        List<Film> list = new ArrayList<>();
+        if (ids == null || ids.isEmpty()) return list;
+        try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_IDS_SQL)) {
+            ps.setArray(1, conn.createArrayOf("integer", ids.toArray()));
+            try (ResultSet rs = ps.executeQuery()) {
+                int[] c = PLAN.columns(SELECT_BY_IDS_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
             }
         }
+        return list;
     }
 
     public List<Film> findAll(Connection conn) throws SQLException {
         List<Film> list = new ArrayList<>();
         try (PreparedStatement ps = conn.prepareStatement(SELECT_ALL_SQL);
             ResultSet rs = ps.executeQuery()) {
+            int[] c = PLAN.columns(SELECT_ALL_SQL, rs);
             while (rs.next()) {
-                list.add(extract(rs));
+                list.add(extract(rs, c));
+            }
+        }
+        return list;
+    }
+
+    // Needs autocommit off, otherwise pgjdbc ignores the fetch size and buffers everything
+    public void streamAll(Connection conn, int fetchSize, RowHandler<Film> handler) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(SELECT_ALL_SQL)) {
+            ps.setFetchSize(fetchSize);
+            try (ResultSet rs = ps.executeQuery()) {
+                int[] c = PLAN.columns(SELECT_ALL_SQL, rs);
+                while (rs.next()) handler.handle(extract(rs, c));
+            }
+        }
+    }
+
+    public List<Film> findPage(Connection conn, int afterId, int limit) throws SQLException {
+        return findPage(conn, afterId, limit, false);
+    }
+
+    public List<Film> findPage(Connection conn, int afterId, int limit, boolean descending) throws SQLException {
+        List<Film> list = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(descending ? SELECT_PAGE_DESC_SQL : SELECT_PAGE_SQL)) {
+            ps.setInt(1, descending && afterId <= 0 ? Integer.MAX_VALUE : afterId);
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                int[] c = PLAN.columns(descending ? SELECT_PAGE_DESC_SQL : SELECT_PAGE_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
             }
         }
         return list;
     }
 
     public boolean update(Connection conn, Film film) throws SQLException {
+        TableVersions.bump("film");
+        CACHE.invalidate(film.getFilmId());
         try (PreparedStatement ps = conn.prepareStatement(UPDATE_SQL)) {
             ps.setString(1, film.getTitle());
             ps.setString(2, film.getDescription());
@@ -124,6 +231,8 @@ public class FilmDao {
     }
 
     public boolean deleteById(Connection conn, int id) throws SQLException {
+        TableVersions.bump("film");
+        CACHE.invalidate(id);
         try (PreparedStatement ps = conn.prepareStatement(DELETE_SQL)) {
             ps.setInt(1, id);
             return ps.executeUpdate() > 0;
@@ -131,11 +240,43 @@ public class FilmDao {
     }
 
     public List<Film> findByLanguageId(Connection conn, int languageID) throws SQLException {
+        return BY_LANGUAGE_ID.list(conn, connection -> loadByLanguageId(connection, languageID), languageID);
+    }
+
+    private List<Film> loadByLanguageId(Connection conn, int languageID) throws SQLException {
         List<Film> list = new ArrayList<>();
         try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_LANGUAGE_ID_SQL)) {
             ps.setInt(1, languageID);
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) list.add(extract(rs));
+                int[] c = PLAN.columns(SELECT_BY_LANGUAGE_ID_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
+            }
+        }
+        return list;
+    }
+
+    public List<Film> findByLanguageId(Connection conn, int languageID, int afterId, int limit, boolean descending) throws SQLException {
+        return keysetPage(conn, descending ? SELECT_PAGE_BY_LANGUAGE_ID_DESC_SQL : SELECT_PAGE_BY_LANGUAGE_ID_SQL, languageID, afterId, limit, descending);
+    }
+
+    public List<Film> findByActorId(Connection conn, int actorID, int afterId, int limit, boolean descending) throws SQLException {
+        return keysetPage(conn, descending ? SELECT_PAGE_BY_ACTOR_ID_DESC_SQL : SELECT_PAGE_BY_ACTOR_ID_SQL, actorID, afterId, limit, descending);
+    }
+
+    public List<Film> findByCategoryId(Connection conn, int categoryID, int afterId, int limit, boolean descending) throws SQLException {
+        return keysetPage(conn, descending ? SELECT_PAGE_BY_CATEGORY_ID_DESC_SQL : SELECT_PAGE_BY_CATEGORY_ID_SQL, categoryID, afterId, limit, descending);
+    }
+
+    // Binds the filter value, then the keyset cursor and the page size
+    private List<Film> keysetPage(Connection conn, String sql, int filter, int afterId, int limit, boolean descending) throws SQLException {
+        List<Film> list = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, filter);
+            ps.setInt(2, descending && afterId <= 0 ? Integer.MAX_VALUE : afterId);
+            ps.setInt(3, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                int[] c = PLAN.columns(sql, rs);
+                while (rs.next()) list.add(extract(rs, c));
             }
         }
         return list;
@@ -146,44 +287,74 @@ public class FilmDao {
         try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_ORIGINAL_LANGUAGE_ID_SQL)) {
             ps.setInt(1, originalLanguageID);
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) list.add(extract(rs));
+                int[] c = PLAN.columns(SELECT_BY_ORIGINAL_LANGUAGE_ID_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
             }
         }
         return list;
     }
 
-    private Film extract(ResultSet rs) throws SQLException {
+    private static final RowPlan PLAN = new RowPlan("film_id", "title", "description", "release_year", "language_id", "original_language_id", "rental_duration", "rental_rate", "length", "replacement_cost", "rating", "special_features", "last_update");
+
+    // Catalog browsing by language, shared across users (see QueryCache)
+    private static final QueryCache.Query<Film> BY_LANGUAGE_ID = QueryCache.query(SELECT_BY_LANGUAGE_ID_SQL, 700, FilmDao::copy, "film");
+
+    private Film extract(ResultSet rs, int[] c) throws SQLException {
         Film film = new Film();
-        Integer film_id = rs.getObject("film_id", Integer.class);
-        film.setFilmId(film_id);
-        film.setTitle(rs.getString("title"));
-        film.setDescription(rs.getString("description"));
-        film.setReleaseYear(rs.getInt("release_year"));
-        Integer language_id = rs.getObject("language_id", Integer.class);
+        film.setFilmId(rs.getInt(c[0]));
+        film.setTitle(rs.getString(c[1]));
+        film.setDescription(rs.getString(c[2]));
+        film.setReleaseYear(rs.getInt(c[3]));
+        Integer language_id = RowPlan.getInteger(rs, c[4]);
         film.setLanguageId(language_id);
         if (language_id != null && language_id > 0) {
             Language language = new Language();
             language.setLanguageId(language_id);
             film.setLanguage(language);
         }
-        Integer original_language_id = rs.getObject("original_language_id", Integer.class);
+        Integer original_language_id = RowPlan.getInteger(rs, c[5]);
         film.setOriginalLanguageId(original_language_id);
         if (original_language_id != null && original_language_id > 0) {
             Language originalLanguage = new Language();
             originalLanguage.setLanguageId(original_language_id);
             film.setOriginalLanguage(originalLanguage);
         }
-        film.setRentalDuration(rs.getInt("rental_duration"));
-        BigDecimal rental_rate = rs.getObject("rental_rate", BigDecimal.class);
-        film.setRentalRate(rental_rate);
-        film.setLength(rs.getInt("length"));
-        BigDecimal replacement_cost = rs.getObject("replacement_cost", BigDecimal.class);
-        film.setReplacementCost(replacement_cost);
-        film.setRating(rs.getString("rating"));
-        film.setSpecialFeatures(rs.getString("special_features"));
-        Timestamp last_update = rs.getTimestamp("last_update");
-        if (last_update != null)
-            film.setLastUpdate(last_update.toLocalDateTime());
+        film.setRentalDuration(rs.getInt(c[6]));
+        film.setRentalRate(rs.getBigDecimal(c[7]));
+        film.setLength(rs.getInt(c[8]));
+        film.setReplacementCost(rs.getBigDecimal(c[9]));
+        film.setRating(rs.getString(c[10]));
+        film.setSpecialFeatures(rs.getString(c[11]));
+        film.setLastUpdate(RowPlan.getDateTime(rs, c[12]));
+        return film;
+    }
+
+    // Same shape as extract(): scalar columns plus id-only language placeholders
+    private static Film copy(Film source) {
+        Film film = new Film();
+        film.setFilmId(source.getFilmId());
+        film.setTitle(source.getTitle());
+        film.setDescription(source.getDescription());
+        film.setReleaseYear(source.getReleaseYear());
+        film.setLanguageId(source.getLanguageId());
+        if (source.getLanguage() != null) {
+            Language language = new Language();
+            language.setLanguageId(source.getLanguage().getLanguageId());
+            film.setLanguage(language);
+        }
+        film.setOriginalLanguageId(source.getOriginalLanguageId());
+        if (source.getOriginalLanguage() != null) {
+            Language originalLanguage = new Language();
+            originalLanguage.setLanguageId(source.getOriginalLanguage().getLanguageId());
+            film.setOriginalLanguage(originalLanguage);
+        }
+        film.setRentalDuration(source.getRentalDuration());
+        film.setRentalRate(source.getRentalRate());
+        film.setLength(source.getLength());
+        film.setReplacementCost(source.getReplacementCost());
+        film.setRating(source.getRating());
+        film.setSpecialFeatures(source.getSpecialFeatures());
+        film.setLastUpdate(source.getLastUpdate());
         return film;
     }
 }
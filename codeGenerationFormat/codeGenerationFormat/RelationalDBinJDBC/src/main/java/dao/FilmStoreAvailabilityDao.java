@@ -0,0 +1,84 @@
+package dao;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import model.FilmStoreAvailability;
+
+/**
+ * Finders over film_store_availability, the per-(film, store) copy counts that the triggers
+ * of V4__film_store_availability.sql keep in step with inventory and rental. Each finder is
+ * one indexed lookup. Rows whose last copy was removed keep total = 0 and are skipped.
+ */
+public class FilmStoreAvailabilityDao {
+
+    private static final String SELECT_BY_FILM_ID_SQL = "SELECT film_id, store_id, total, available FROM film_store_availability "
+            + "WHERE film_id = ? AND total > 0 ORDER BY store_id";
+
+    // (film_id, store_id) is the primary key, so store_id is a unique cursor within one film
+    private static final String SELECT_PAGE_BY_FILM_ID_SQL = "SELECT film_id, store_id, total, available FROM film_store_availability "
+            + "WHERE film_id = ? AND total > 0 AND store_id > ? ORDER BY store_id LIMIT ?";
+
+    private static final String SELECT_PAGE_BY_FILM_ID_DESC_SQL = "SELECT film_id, store_id, total, available FROM film_store_availability "
+            + "WHERE film_id = ? AND total > 0 AND store_id < ? ORDER BY store_id DESC LIMIT ?";
+
+    private static final String SELECT_BY_STORE_ID_SQL = "SELECT film_id, store_id, total, available FROM film_store_availability "
+            + "WHERE store_id = ? AND total > 0 ORDER BY film_id";
+
+    private static final String SELECT_PAGE_BY_STORE_ID_SQL = "SELECT film_id, store_id, total, available FROM film_store_availability "
+            + "WHERE store_id = ? AND total > 0 AND film_id > ? ORDER BY film_id LIMIT ?";
+
+    private static final String SELECT_PAGE_BY_STORE_ID_DESC_SQL = "SELECT film_id, store_id, total, available FROM film_store_availability "
+            + "WHERE store_id = ? AND total > 0 AND film_id < ? ORDER BY film_id DESC LIMIT ?";
+
+    private static final String SELECT_BY_FILM_AND_STORE_SQL = "SELECT film_id, store_id, total, available FROM film_store_availability "
+            + "WHERE film_id = ? AND store_id = ?";
+
+    public List<FilmStoreAvailability> findByFilmId(Connection conn, int filmID) throws SQLException {
+        return list(conn, SELECT_BY_FILM_ID_SQL, filmID);
+    }
+
+    public List<FilmStoreAvailability> findPageByFilmId(Connection conn, int filmID, int afterStoreId, int limit,
+            boolean descending) throws SQLException {
+        return list(conn, descending ? SELECT_PAGE_BY_FILM_ID_DESC_SQL : SELECT_PAGE_BY_FILM_ID_SQL, filmID,
+                descending && afterStoreId <= 0 ? Integer.MAX_VALUE : afterStoreId, limit);
+    }
+
+    public List<FilmStoreAvailability> findByStoreId(Connection conn, int storeID) throws SQLException {
+        return list(conn, SELECT_BY_STORE_ID_SQL, storeID);
+    }
+
+    public List<FilmStoreAvailability> findPageByStoreId(Connection conn, int storeID, int afterFilmId, int limit,
+            boolean descending) throws SQLException {
+        return list(conn, descending ? SELECT_PAGE_BY_STORE_ID_DESC_SQL : SELECT_PAGE_BY_STORE_ID_SQL, storeID,
+                descending && afterFilmId <= 0 ? Integer.MAX_VALUE : afterFilmId, limit);
+    }
+
+    // Null when the store has never held a copy of the film
+    public FilmStoreAvailability findByFilmAndStore(Connection conn, int filmID, int storeID) throws SQLException {
+        List<FilmStoreAvailability> rows = list(conn, SELECT_BY_FILM_AND_STORE_SQL, filmID, storeID);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private List<FilmStoreAvailability> list(Connection conn, String sql, int... params) throws SQLException {
+        List<FilmStoreAvailability> list = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                ps.setInt(i + 1, params[i]);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) list.add(extract(rs));
+            }
+        }
+        return list;
+    }
+
+    private FilmStoreAvailability extract(ResultSet rs) throws SQLException {
+        FilmStoreAvailability availability = new FilmStoreAvailability();
+        availability.setFilmId(rs.getInt("film_id"));
+        availability.setStoreId(rs.getInt("store_id"));
+        availability.setTotal(rs.getInt("total"));
+        availability.setAvailable(rs.getInt("available"));
+        return availability;
+    }
+}
@@ -0,0 +1,307 @@
+package dao;
+
+import DataBaseConnection.ConnectionManager;
+import DataBaseConnection.TransactionManager;
+import config.DatabaseConfig;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * In-memory view of which inventory copies are out on rental: a bitmap of rented inventory
+ * ids and, per (film, store), the total and available copy counts packed into one long, so
+ * a reader always sees a matching pair. Reads take no lock.
+ *
+ * The index is built from one query by a background thread and rebuilt every
+ * availabilityIndex.reconcileMillis, which also picks up writes made on other nodes. The
+ * Inventory and Rental DAOs apply their own writes once the transaction commits; all
+ * changes are applied under one lock and are idempotent. Changes applied while a rebuild
+ * runs are also logged and replayed onto the fresh build before it is published, so a
+ * write the rebuild query did not see is not lost, and one it did see is not counted twice.
+ *
+ * Until the first build (or after invalidate) isReady() is false and callers go to the
+ * database.
+ */
+public final class InventoryAvailabilityIndex {
+
+    private static final String LOAD_SQL = "SELECT i.inventory_id, i.film_id, i.store_id, "
+            + "EXISTS (SELECT 1 FROM rental r WHERE r.inventory_id = i.inventory_id AND r.return_date IS NULL) AS rented "
+            + "FROM inventory i";
+
+    private static final long RETRY_MILLIS = 5000;
+
+    private static volatile State state = new State(64);
+    private static volatile boolean ready;
+    // Not synchronized: a virtual thread blocked here must not pin its carrier
+    private static final ReentrantLock LOCK = new ReentrantLock();
+    // Changes applied since the running rebuild started, null when none is running; guarded by LOCK
+    private static List<Consumer<State>> replay;
+
+    private static final AtomicLong REBUILDS = new AtomicLong();
+    private static final AtomicLong CORRECTIONS = new AtomicLong();
+    private static final AtomicLong REPLAYED = new AtomicLong();
+
+    private static final Thread RECONCILER;
+
+    static {
+        if (DatabaseConfig.isAvailabilityIndexEnabled()) {
+            RECONCILER = new Thread(InventoryAvailabilityIndex::run, "inventory-availability");
+            RECONCILER.setDaemon(true);
+            RECONCILER.start();
+        } else {
+            RECONCILER = null;
+        }
+    }
+
+    private InventoryAvailabilityIndex() {
+    }
+
+    public record Availability(int total, int available) {
+        public int rented() {
+            return total - available;
+        }
+    }
+
+    public static boolean isReady() {
+        return ready;
+    }
+
+    public static boolean isRented(int inventoryId) {
+        return state.isRented(inventoryId);
+    }
+
+    // Null while the index is not ready
+    public static Availability availability(int filmId, int storeId) {
+        if (!ready) return null;
+        Map<Integer, AtomicLong> stores = state.films.get(filmId);
+        AtomicLong counts = stores != null ? stores.get(storeId) : null;
+        return counts != null ? unpack(counts.get()) : new Availability(0, 0);
+    }
+
+    // Stores holding at least one copy of the film; null while the index is not ready
+    public static Map<Integer, Availability> byStore(int filmId) {
+        if (!ready) return null;
+        Map<Integer, AtomicLong> stores = state.films.get(filmId);
+        if (stores == null) return Collections.emptyMap();
+        Map<Integer, Availability> result = new HashMap<>();
+        for (Map.Entry<Integer, AtomicLong> store : stores.entrySet()) {
+            Availability availability = unpack(store.getValue().get());
+            if (availability.total() > 0) result.put(store.getKey(), availability);
+        }
+        return result;
+    }
+
+    // Films the store holds at least one copy of, by film id; null while the index is not ready
+    public static NavigableMap<Integer, Availability> byFilm(int storeId) {
+        if (!ready) return null;
+        NavigableMap<Integer, Availability> result = new TreeMap<>();
+        for (Map.Entry<Integer, Map<Integer, AtomicLong>> film : state.films.entrySet()) {
+            AtomicLong counts = film.getValue().get(storeId);
+            Availability availability = counts != null ? unpack(counts.get()) : null;
+            if (availability != null && availability.total() > 0) result.put(film.getKey(), availability);
+        }
+        return result;
+    }
+
+    // Inventory row inserted or moved to another film/store
+    public static void placed(int inventoryId, int filmId, int storeId) {
+        TransactionManager.afterCommit(() -> apply(s -> s.place(inventoryId, location(filmId, storeId))));
+    }
+
+    public static void removed(int inventoryId) {
+        TransactionManager.afterCommit(() -> apply(s -> s.remove(inventoryId)));
+    }
+
+    // A rental with no return date was written (true) or one was returned or deleted (false)
+    public static void rented(int inventoryId, boolean rented) {
+        TransactionManager.afterCommit(() -> apply(s -> s.setRented(inventoryId, rented)));
+    }
+
+    // Bulk changes: serve from the database until the next rebuild, which starts now
+    public static void invalidate() {
+        TransactionManager.afterCommit(() -> {
+            ready = false;
+            if (RECONCILER != null) LockSupport.unpark(RECONCILER);
+        });
+    }
+
+    public static long getRebuilds() { return REBUILDS.get(); }
+    public static long getCorrections() { return CORRECTIONS.get(); }
+    public static long getReplayed() { return REPLAYED.get(); }
+
+    private static void apply(Consumer<State> change) {
+        LOCK.lock();
+        try {
+            change.accept(state);
+            if (replay != null) replay.add(change);
+            // TableVersions moved on at commit, before this ran: anything cached from the
+            // index in between must not outlive the change
+            TableVersions.counter("rental").incrementAndGet();
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    private static void run() {
+        while (true) {
+            long delay = DatabaseConfig.getAvailabilityIndexReconcileMillis();
+            try {
+                rebuild();
+            } catch (SQLException e) {
+                System.err.println("❌ Inventory availability rebuild failed: " + e.getMessage());
+                delay = Math.min(delay, RETRY_MILLIS);
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(delay));
+            if (Thread.interrupted()) return;
+        }
+    }
+
+    private static void rebuild() throws SQLException {
+        State fresh;
+        // Start logging before the query: a change committed after its snapshot is replayed below
+        LOCK.lock();
+        try {
+            fresh = new State(state.rented.length() * 64);
+            replay = new ArrayList<>();
+        } finally {
+            LOCK.unlock();
+        }
+        Connection conn = null;
+        try {
+            conn = ConnectionManager.getConnection();
+            try (PreparedStatement ps = conn.prepareStatement(LOAD_SQL);
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int inventoryId = rs.getInt("inventory_id");
+                    fresh.place(inventoryId, location(rs.getInt("film_id"), rs.getInt("store_id")));
+                    if (rs.getBoolean("rented")) fresh.setRented(inventoryId, true);
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            LOCK.lock();
+            try {
+                replay = null;
+            } finally {
+                LOCK.unlock();
+            }
+            throw e;
+        } finally {
+            ConnectionManager.closeConnection(conn);
+        }
+
+        LOCK.lock();
+        try {
+            for (Consumer<State> change : replay) {
+                change.accept(fresh);
+            }
+            REPLAYED.addAndGet(replay.size());
+            replay = null;
+            long differences = ready ? state.differences(fresh) : 0;
+            if (differences > 0) {
+                CORRECTIONS.addAndGet(differences);
+                TableVersions.counter("rental").incrementAndGet();
+            }
+            state = fresh;
+            ready = true;
+            REBUILDS.incrementAndGet();
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    private static long location(int filmId, int storeId) {
+        return (long) filmId << 32 | (storeId & 0xFFFFFFFFL);
+    }
+
+    private static Availability unpack(long counts) {
+        return new Availability((int) (counts >>> 32), (int) counts);
+    }
+
+    // Mutated only under LOCK (or before it is published); read without it
+    private static final class State {
+        private volatile AtomicLongArray rented;
+        private final Map<Integer, Long> locations = new ConcurrentHashMap<>();
+        private final Map<Integer, Map<Integer, AtomicLong>> films = new ConcurrentHashMap<>();
+
+        private State(int capacity) {
+            this.rented = new AtomicLongArray(Math.max(1, (capacity + 63) >>> 6));
+        }
+
+        private boolean isRented(int inventoryId) {
+            AtomicLongArray bits = rented;
+            int word = inventoryId >>> 6;
+            return word < bits.length() && (bits.get(word) & (1L << inventoryId)) != 0;
+        }
+
+        private void place(int inventoryId, long location) {
+            Long previous = locations.put(inventoryId, location);
+            if (previous != null && previous == location) return;
+            int available = isRented(inventoryId) ? 0 : 1;
+            if (previous != null) adjust(previous, -1, -available);
+            adjust(location, 1, available);
+        }
+
+        private void remove(int inventoryId) {
+            Long previous = locations.remove(inventoryId);
+            if (previous != null) adjust(previous, -1, isRented(inventoryId) ? 0 : -1);
+            setBit(inventoryId, false);
+        }
+
+        private void setRented(int inventoryId, boolean value) {
+            if (isRented(inventoryId) == value) return;
+            setBit(inventoryId, value);
+            Long location = locations.get(inventoryId);
+            if (location != null) adjust(location, 0, value ? -1 : 1);
+        }
+
+        private void setBit(int inventoryId, boolean value) {
+            int word = inventoryId >>> 6;
+            if (word >= rented.length()) {
+                if (!value) return;
+                AtomicLongArray grown = new AtomicLongArray(Math.max(word + 1, rented.length() * 2));
+                for (int i = 0; i < rented.length(); i++) {
+                    grown.set(i, rented.get(i));
+                }
+                rented = grown;
+            }
+            long mask = 1L << inventoryId;
+            long bits = rented.get(word);
+            rented.set(word, value ? bits | mask : bits & ~mask);
+        }
+
+        private void adjust(long location, int total, int available) {
+            AtomicLong counts = films.computeIfAbsent((int) (location >>> 32), f -> new ConcurrentHashMap<>())
+                    .computeIfAbsent((int) location, s -> new AtomicLong());
+            Availability current = unpack(counts.get());
+            counts.set((long) (current.total() + total) << 32 | ((current.available() + available) & 0xFFFFFFFFL));
+        }
+
+        // (film, store) counters that disagree with a fresh build, for the reconcile metric
+        private long differences(State fresh) {
+            long differences = 0;
+            for (Map.Entry<Integer, Map<Integer, AtomicLong>> film : fresh.films.entrySet()) {
+                Map<Integer, AtomicLong> stores = films.getOrDefault(film.getKey(), Collections.emptyMap());
+                for (Map.Entry<Integer, AtomicLong> store : film.getValue().entrySet()) {
+                    AtomicLong counts = stores.get(store.getKey());
+                    if (counts == null || counts.get() != store.getValue().get()) differences++;
+                }
+            }
+            return differences;
+        }
+    }
+}
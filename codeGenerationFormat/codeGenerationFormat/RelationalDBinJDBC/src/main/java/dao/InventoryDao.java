@@ -2,6 +2,7 @@ package dao;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import model.*;
 
@@ -9,36 +10,73 @@ public class InventoryDao {
 
     private static final String INSERT_SQL = "INSERT INTO inventory (film_id, store_id, last_update) VALUES (?, ?, ?)";
 
+    private static final String INSERT_BATCH_SQL = "INSERT INTO inventory (film_id, store_id, last_update) "
+            + "SELECT u.film_id, u.store_id, u.last_update "
+            + "FROM unnest(?::integer[], ?::integer[], ?::timestamp[]) WITH ORDINALITY AS u(film_id, store_id, last_update, n) "
+            + "ORDER BY u.n RETURNING inventory_id";
+
     private static final String SELECT_BY_ID_SQL = "SELECT * FROM inventory WHERE inventory_id = ?";
 
+    private static final String SELECT_BY_IDS_SQL = "SELECT * FROM inventory WHERE inventory_id = ANY(?)";
+
     private static final String SELECT_ALL_SQL = "SELECT * FROM inventory ORDER BY inventory_id";
 
+    private static final String SELECT_PAGE_SQL = "SELECT * FROM inventory WHERE inventory_id > ? ORDER BY inventory_id LIMIT ?";
+
+    private static final String SELECT_PAGE_DESC_SQL = "SELECT * FROM inventory WHERE inventory_id < ? ORDER BY inventory_id DESC LIMIT ?";
+
     private static final String SELECT_BY_FILM_ID_SQL = "SELECT * FROM inventory WHERE film_id = ?";
 
     private static final String SELECT_BY_STORE_ID_SQL = "SELECT * FROM inventory WHERE store_id = ?";
 
+    private static final String SELECT_PAGE_BY_STORE_ID_SQL = "SELECT * FROM inventory WHERE store_id = ? AND inventory_id > ? ORDER BY inventory_id LIMIT ?";
+
+    private static final String SELECT_PAGE_BY_STORE_ID_DESC_SQL = "SELECT * FROM inventory WHERE store_id = ? AND inventory_id < ? ORDER BY inventory_id DESC LIMIT ?";
+
+    // Keyset on inventory_id, unique per copy
+    private static final String SELECT_BY_FILM_AND_STORE_SQL = "SELECT * FROM inventory WHERE film_id = ? AND store_id = ? "
+            + "AND inventory_id > ? ORDER BY inventory_id LIMIT ?";
+
+    private static final String SELECT_BY_FILM_AND_STORE_DESC_SQL = "SELECT * FROM inventory WHERE film_id = ? AND store_id = ? "
+            + "AND inventory_id < ? ORDER BY inventory_id DESC LIMIT ?";
+
+    // Same counts as film_store_availability, computed from inventory and rental
+    private static final String COUNT_AVAILABILITY_BY_STORE_ID_SQL = "SELECT i.film_id, count(*) AS total, "
+            + "count(*) FILTER (WHERE NOT EXISTS (SELECT 1 FROM rental r WHERE r.inventory_id = i.inventory_id AND r.return_date IS NULL)) AS available "
+            + "FROM inventory i WHERE i.store_id = ? AND i.film_id IS NOT NULL GROUP BY i.film_id ORDER BY i.film_id";
+
+    // One row per film after GROUP BY, so film_id is a unique keyset cursor here
+    private static final String COUNT_AVAILABILITY_PAGE_BY_STORE_ID_SQL = "SELECT i.film_id, count(*) AS total, "
+            + "count(*) FILTER (WHERE NOT EXISTS (SELECT 1 FROM rental r WHERE r.inventory_id = i.inventory_id AND r.return_date IS NULL)) AS available "
+            + "FROM inventory i WHERE i.store_id = ? AND i.film_id > ? GROUP BY i.film_id ORDER BY i.film_id LIMIT ?";
+
+    private static final String COUNT_AVAILABILITY_PAGE_BY_STORE_ID_DESC_SQL = "SELECT i.film_id, count(*) AS total, "
+            + "count(*) FILTER (WHERE NOT EXISTS (SELECT 1 FROM rental r WHERE r.inventory_id = i.inventory_id AND r.return_date IS NULL)) AS available "
+            + "FROM inventory i WHERE i.store_id = ? AND i.film_id < ? GROUP BY i.film_id ORDER BY i.film_id DESC LIMIT ?";
+
+    // One row per store after GROUP BY, so store_id is a unique keyset cursor here
+    private static final String COUNT_AVAILABILITY_BY_FILM_ID_SQL = "SELECT i.store_id, count(*) AS total, "
+            + "count(*) FILTER (WHERE NOT EXISTS (SELECT 1 FROM rental r WHERE r.inventory_id = i.inventory_id AND r.return_date IS NULL)) AS available "
+            + "FROM inventory i WHERE i.film_id = ? AND i.store_id > ? GROUP BY i.store_id ORDER BY i.store_id LIMIT ?";
+
+    private static final String COUNT_AVAILABILITY_BY_FILM_ID_DESC_SQL = "SELECT i.store_id, count(*) AS total, "
+            + "count(*) FILTER (WHERE NOT EXISTS (SELECT 1 FROM rental r WHERE r.inventory_id = i.inventory_id AND r.return_date IS NULL)) AS available "
+            + "FROM inventory i WHERE i.film_id = ? AND i.store_id < ? GROUP BY i.store_id ORDER BY i.store_id DESC LIMIT ?";
+
     private static final String UPDATE_SQL = "UPDATE inventory SET film_id = ?, store_id = ?, last_update = ? WHERE inventory_id = ?";
 
     private static final String DELETE_SQL = "DELETE FROM inventory WHERE inventory_id = ?";
 
     public int insert(Connection conn, Inventory inventory) throws SQLException {
+        TableVersions.bump("inventory");
         try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
-            if (inventory.getFilm() != null && inventory.getFilm().getFilmId() > 0) {
-                ps.setInt(1, inventory.getFilm().getFilmId());
-            } else {
-                ps.setNull(1, Types.INTEGER);
-            }
-            if (inventory.getStore() != null && inventory.getStore().getStoreId() > 0) {
-                ps.setInt(2, inventory.getStore().getStoreId());
-            } else {
-                ps.setNull(2, Types.INTEGER);
-            }
-            ps.setTimestamp(3, Timestamp.valueOf(inventory.getLastUpdate() != null ? inventory.getLastUpdate() : java.time.LocalDateTime.now()));
+            bindInsert(ps, inventory);
             ps.executeUpdate();
             try (ResultSet rs = ps.getGeneratedKeys()) {
                 if (rs.next()) {
                     int id = rs.getInt(1);
                     inventory.setInventoryId(id);
+                    placed(inventory);
                     return id;
                 }
             }
@@ -46,27 +84,107 @@ public class InventoryDao {
         return -1;
     }
 
+    // One statement and one round trip for any number of rows: the columns travel as arrays
+    public int[] insertBatch(Connection conn, List<Inventory> inventoryList) throws SQLException {
+        TableVersions.bump("inventory");
+        int[] ids = new int[inventoryList.size()];
+        if (inventoryList.isEmpty()) return ids;
+        Integer[] filmIds = new Integer[ids.length];
+        Integer[] storeIds = new Integer[ids.length];
+        Timestamp[] lastUpdates = new Timestamp[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            Inventory inventory = inventoryList.get(i);
+            filmIds[i] = inventory.getFilm() != null && inventory.getFilm().getFilmId() > 0 ? inventory.getFilm().getFilmId() : null;
+            storeIds[i] = inventory.getStore() != null && inventory.getStore().getStoreId() > 0 ? inventory.getStore().getStoreId() : null;
+            lastUpdates[i] = Timestamp.valueOf(inventory.getLastUpdate() != null ? inventory.getLastUpdate() : java.time.LocalDateTime.now());
+        }
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_BATCH_SQL)) {
+            ps.setArray(1, conn.createArrayOf("integer", filmIds));
+            ps.setArray(2, conn.createArrayOf("integer", storeIds));
+            ps.setArray(3, conn.createArrayOf("timestamp", lastUpdates));
+            try (ResultSet rs = ps.executeQuery()) {
+                // ids come from the sequence in input order, so sorted ids line up with the input rows
+                List<Integer> generated = new ArrayList<>();
+                while (rs.next()) generated.add(rs.getInt(1));
+                generated.sort(null);
+                for (int i = 0; i < ids.length && i < generated.size(); i++) {
+                    ids[i] = generated.get(i);
+                    inventoryList.get(i).setInventoryId(ids[i]);
+                    placed(inventoryList.get(i));
+                }
+            }
+        }
+        return ids;
+    }
+
+    private void bindInsert(PreparedStatement ps, Inventory inventory) throws SQLException {
+        if (inventory.getFilm() != null && inventory.getFilm().getFilmId() > 0) {
+            ps.setInt(1, inventory.getFilm().getFilmId());
+        } else {
+            ps.setNull(1, Types.INTEGER);
+        }
+        if (inventory.getStore() != null && inventory.getStore().getStoreId() > 0) {
+            ps.setInt(2, inventory.getStore().getStoreId());
+        } else {
+            ps.setNull(2, Types.INTEGER);
+        }
+        ps.setTimestamp(3, Timestamp.valueOf(inventory.getLastUpdate() != null ? inventory.getLastUpdate() : java.time.LocalDateTime.now()));
+    }
+
     public Inventory findById(Connection conn, int id) throws SQLException {
         try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_ID_SQL)) {
             ps.setInt(1, id);
             try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? extract(rs) : null;
+                int[] c = PLAN.columns(SELECT_BY_ID_SQL, rs);
+                return rs.next() ? extract(rs, c) : null;
             }
         }
     }
 
+    public List<Inventory> findByIds(Connection conn, Collection<Integer> ids) throws SQLException {
+        List<Inventory> list = new ArrayList<>();
+        if (ids == null || ids.isEmpty()) return list;
+        try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_IDS_SQL)) {
+            ps.setArray(1, conn.createArrayOf("integer", ids.toArray()));
+            try (ResultSet rs = ps.executeQuery()) {
+                int[] c = PLAN.columns(SELECT_BY_IDS_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
+            }
+        }
+        return list;
+    }
+
     public List<Inventory> findAll(Connection conn) throws SQLException {
         List<Inventory> list = new ArrayList<>();
         try (PreparedStatement ps = conn.prepareStatement(SELECT_ALL_SQL);
             ResultSet rs = ps.executeQuery()) {
+            int[] c = PLAN.columns(SELECT_ALL_SQL, rs);
             while (rs.next()) {
-                list.add(extract(rs));
+                list.add(extract(rs, c));
+            }
+        }
+        return list;
+    }
+
+    public List<Inventory> findPage(Connection conn, int afterId, int limit) throws SQLException {
+        return findPage(conn, afterId, limit, false);
+    }
+
+    public List<Inventory> findPage(Connection conn, int afterId, int limit, boolean descending) throws SQLException {
+        List<Inventory> list = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(descending ? SELECT_PAGE_DESC_SQL : SELECT_PAGE_SQL)) {
+            ps.setInt(1, descending && afterId <= 0 ? Integer.MAX_VALUE : afterId);
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                int[] c = PLAN.columns(descending ? SELECT_PAGE_DESC_SQL : SELECT_PAGE_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
             }
         }
         return list;
     }
 
     public boolean update(Connection conn, Inventory inventory) throws SQLException {
+        TableVersions.bump("inventory");
         try (PreparedStatement ps = conn.prepareStatement(UPDATE_SQL)) {
             if (inventory.getFilm() != null && inventory.getFilm().getFilmId() > 0) {
                 ps.setInt(1, inventory.getFilm().getFilmId());
@@ -80,23 +198,39 @@ public class InventoryDao {
             }
             ps.setTimestamp(3, Timestamp.valueOf(inventory.getLastUpdate() != null ? inventory.getLastUpdate() : java.time.LocalDateTime.now()));
             ps.setInt(4, inventory.getInventoryId());
-            return ps.executeUpdate() > 0;
+            boolean updated = ps.executeUpdate() > 0;
+            if (updated) placed(inventory);
+            return updated;
+        }
+    }
+
+    private static void placed(Inventory inventory) {
+        if (inventory.getFilm() != null && inventory.getStore() != null) {
+            InventoryAvailabilityIndex.placed(inventory.getInventoryId(), inventory.getFilm().getFilmId(), inventory.getStore().getStoreId());
         }
     }
 
     public boolean deleteById(Connection conn, int id) throws SQLException {
+        TableVersions.bump("inventory");
         try (PreparedStatement ps = conn.prepareStatement(DELETE_SQL)) {
             ps.setInt(1, id);
-            return ps.executeUpdate() > 0;
+            boolean deleted = ps.executeUpdate() > 0;
+            if (deleted) InventoryAvailabilityIndex.removed(id);
+            return deleted;
         }
     }
 
     public List<Inventory> findByFilmId(Connection conn, int filmID) throws SQLException {
+        return BY_FILM_ID.list(conn, connection -> loadByFilmId(connection, filmID), filmID);
+    }
+
+    private List<Inventory> loadByFilmId(Connection conn, int filmID) throws SQLException {
         List<Inventory> list = new ArrayList<>();
         try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_FILM_ID_SQL)) {
             ps.setInt(1, filmID);
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) list.add(extract(rs));
+                int[] c = PLAN.columns(SELECT_BY_FILM_ID_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
             }
         }
         return list;
@@ -107,33 +241,149 @@ public class InventoryDao {
         try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_STORE_ID_SQL)) {
             ps.setInt(1, storeID);
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) list.add(extract(rs));
+                int[] c = PLAN.columns(SELECT_BY_STORE_ID_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
+            }
+        }
+        return list;
+    }
+
+    public List<Inventory> findByStoreId(Connection conn, int storeID, int afterId, int limit, boolean descending) throws SQLException {
+        String sql = descending ? SELECT_PAGE_BY_STORE_ID_DESC_SQL : SELECT_PAGE_BY_STORE_ID_SQL;
+        List<Inventory> list = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, storeID);
+            ps.setInt(2, descending && afterId <= 0 ? Integer.MAX_VALUE : afterId);
+            ps.setInt(3, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                int[] c = PLAN.columns(sql, rs);
+                while (rs.next()) list.add(extract(rs, c));
             }
         }
         return list;
     }
 
-    private Inventory extract(ResultSet rs) throws SQLException {
+    public List<Inventory> findByFilmAndStoreId(Connection conn, int filmID, int storeID, int afterId, int limit,
+            boolean descending) throws SQLException {
+        String sql = descending ? SELECT_BY_FILM_AND_STORE_DESC_SQL : SELECT_BY_FILM_AND_STORE_SQL;
+        List<Inventory> list = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, filmID);
+            ps.setInt(2, storeID);
+            ps.setInt(3, descending && afterId <= 0 ? Integer.MAX_VALUE : afterId);
+            ps.setInt(4, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                int[] c = PLAN.columns(sql, rs);
+                while (rs.next()) list.add(extract(rs, c));
+            }
+        }
+        return list;
+    }
+
+    // Per-store counts for one film, a keyset page of stores at a time
+    public List<FilmStoreAvailability> countAvailabilityByFilmId(Connection conn, int filmID, int afterStoreId, int limit,
+            boolean descending) throws SQLException {
+        List<FilmStoreAvailability> list = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(descending ? COUNT_AVAILABILITY_BY_FILM_ID_DESC_SQL : COUNT_AVAILABILITY_BY_FILM_ID_SQL)) {
+            ps.setInt(1, filmID);
+            ps.setInt(2, descending && afterStoreId <= 0 ? Integer.MAX_VALUE : afterStoreId);
+            ps.setInt(3, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    FilmStoreAvailability availability = new FilmStoreAvailability();
+                    availability.setFilmId(filmID);
+                    availability.setStoreId(rs.getInt(1));
+                    availability.setTotal(rs.getInt(2));
+                    availability.setAvailable(rs.getInt(3));
+                    list.add(availability);
+                }
+            }
+        }
+        return list;
+    }
+
+    // Per-film counts for one store, a keyset page of films at a time
+    public List<FilmStoreAvailability> countAvailabilityByStoreId(Connection conn, int storeID, int afterFilmId, int limit,
+            boolean descending) throws SQLException {
+        List<FilmStoreAvailability> list = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(descending ? COUNT_AVAILABILITY_PAGE_BY_STORE_ID_DESC_SQL : COUNT_AVAILABILITY_PAGE_BY_STORE_ID_SQL)) {
+            ps.setInt(1, storeID);
+            ps.setInt(2, descending && afterFilmId <= 0 ? Integer.MAX_VALUE : afterFilmId);
+            ps.setInt(3, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    FilmStoreAvailability availability = new FilmStoreAvailability();
+                    availability.setFilmId(rs.getInt(1));
+                    availability.setStoreId(storeID);
+                    availability.setTotal(rs.getInt(2));
+                    availability.setAvailable(rs.getInt(3));
+                    list.add(availability);
+                }
+            }
+        }
+        return list;
+    }
+
+    public List<FilmStoreAvailability> countAvailabilityByStoreId(Connection conn, int storeID) throws SQLException {
+        List<FilmStoreAvailability> list = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(COUNT_AVAILABILITY_BY_STORE_ID_SQL)) {
+            ps.setInt(1, storeID);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    FilmStoreAvailability availability = new FilmStoreAvailability();
+                    availability.setFilmId(rs.getInt(1));
+                    availability.setStoreId(storeID);
+                    availability.setTotal(rs.getInt(2));
+                    availability.setAvailable(rs.getInt(3));
+                    list.add(availability);
+                }
+            }
+        }
+        return list;
+    }
+
+    private static final RowPlan PLAN = new RowPlan("inventory_id", "film_id", "store_id", "last_update");
+
+    // Copies of a film, read on every film page (see QueryCache)
+    private static final QueryCache.Query<Inventory> BY_FILM_ID = QueryCache.query(SELECT_BY_FILM_ID_SQL, 200, InventoryDao::copy, "inventory");
+
+    int[] columns(String sql, ResultSet rs) throws SQLException {
+        return PLAN.columns(sql, rs);
+    }
+
+    Inventory extract(ResultSet rs, int[] c) throws SQLException {
         Inventory inventory = new Inventory();
-        Integer inventory_id = rs.getObject("inventory_id", Integer.class);
-        inventory.setInventoryId(inventory_id);
-        Integer film_id = rs.getObject("film_id", Integer.class);
+        inventory.setInventoryId(rs.getInt(c[0]));
+        Integer film_id = RowPlan.getInteger(rs, c[1]);
         inventory.setFilmId(film_id);
         if (film_id != null && film_id > 0) {
             Film film = new Film();
             film.setFilmId(film_id);
             inventory.setFilm(film);
         }
-        Integer store_id = rs.getObject("store_id", Integer.class);
+        Integer store_id = RowPlan.getInteger(rs, c[2]);
         inventory.setStoreId(store_id);
         if (store_id != null && store_id > 0) {
             Store store = new Store();
             store.setStoreId(store_id);
             inventory.setStore(store);
         }
-        Timestamp last_update = rs.getTimestamp("last_update");
-        if (last_update != null)
-            inventory.setLastUpdate(last_update.toLocalDateTime());
+        inventory.setLastUpdate(RowPlan.getDateTime(rs, c[3]));
+        return inventory;
+    }
+
+    private static Inventory copy(Inventory source) {
+        Inventory inventory = new Inventory();
+        inventory.setInventoryId(source.getInventoryId());
+        inventory.setFilmId(source.getFilmId());
+        if (source.getFilm() != null) inventory.setFilm(new Film(source.getFilm().getFilmId()));
+        inventory.setStoreId(source.getStoreId());
+        if (source.getStore() != null) {
+            Store store = new Store();
+            store.setStoreId(source.getStore().getStoreId());
+            inventory.setStore(store);
+        }
+        inventory.setLastUpdate(source.getLastUpdate());
         return inventory;
     }
 }
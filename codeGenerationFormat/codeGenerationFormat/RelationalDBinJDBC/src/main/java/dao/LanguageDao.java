@@ -2,6 +2,7 @@ package dao;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import model.*;
 
@@ -11,16 +12,23 @@ public class LanguageDao {
 
     private static final String SELECT_BY_ID_SQL = "SELECT * FROM language WHERE language_id = ?";
 
+    private static final String SELECT_BY_IDS_SQL = "SELECT * FROM language WHERE language_id = ANY(?)";
+
     private static final String SELECT_ALL_SQL = "SELECT * FROM language ORDER BY language_id";
 
+    private static final String SELECT_PAGE_SQL = "SELECT * FROM language WHERE language_id > ? ORDER BY language_id LIMIT ?";
+
+    private static final String SELECT_PAGE_DESC_SQL = "SELECT * FROM language WHERE language_id < ? ORDER BY language_id DESC LIMIT ?";
+
     private static final String UPDATE_SQL = "UPDATE language SET name = ?, last_update = ? WHERE language_id = ?";
 
     private static final String DELETE_SQL = "DELETE FROM language WHERE language_id = ?";
 
     public int insert(Connection conn, Language language) throws SQLException {
+        TableVersions.bump("language");
+        ReferenceDataCache.LANGUAGES.invalidate();
         try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
-            ps.setString(1, language.getName());
-            ps.setTimestamp(2, Timestamp.valueOf(language.getLastUpdate() != null ? language.getLastUpdate() : java.time.LocalDateTime.now()));
+            bindInsert(ps, language);
             ps.executeUpdate();
             try (ResultSet rs = ps.getGeneratedKeys()) {
                 if (rs.next()) {
@@ -33,27 +41,88 @@ public class LanguageDao {
         return -1;
     }
 
+    // With reWriteBatchedInserts the driver sends the whole batch as multi-row INSERTs
+    public int[] insertBatch(Connection conn, List<Language> languageList) throws SQLException {
+        TableVersions.bump("language");
+        ReferenceDataCache.LANGUAGES.invalidate();
+        int[] ids = new int[languageList.size()];
+        if (languageList.isEmpty()) return ids;
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            for (Language language : languageList) {
+                bindInsert(ps, language);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                for (int i = 0; i < ids.length && rs.next(); i++) {
+                    ids[i] = rs.getInt(1);
+                    languageList.get(i).setLanguageId(ids[i]);
+                }
+            }
+        }
+        return ids;
+    }
+
+    private void bindInsert(PreparedStatement ps, Language language) throws SQLException {
+        ps.setString(1, language.getName());
+        ps.setTimestamp(2, Timestamp.valueOf(language.getLastUpdate() != null ? language.getLastUpdate() : java.time.LocalDateTime.now()));
+    }
+
     public Language findById(Connection conn, int id) throws SQLException {
         try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_ID_SQL)) {
             ps.setInt(1, id);
             try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? extract(rs) : null;
+                int[] c = PLAN.columns(SELECT_BY_ID_SQL, rs);
+                return rs.next() ? extract(rs, c) : null;
+            }
+        }
+    }
+
+    public List<Language> findByIds(Connection conn, Collection<Integer> ids) throws SQLException {
+        List<Language> list = new ArrayList<>();
+        if (ids == null || ids.isEmpty()) return list;
+        try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_IDS_SQL)) {
+            ps.setArray(1, conn.createArrayOf("integer", ids.toArray()));
+            try (ResultSet rs = ps.executeQuery()) {
+                int[] c = PLAN.columns(SELECT_BY_IDS_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
             }
         }
+        return list;
     }
 
     public List<Language> findAll(Connection conn) throws SQLException {
         List<Language> list = new ArrayList<>();
         try (PreparedStatement ps = conn.prepareStatement(SELECT_ALL_SQL);
             ResultSet rs = ps.executeQuery()) {
+            int[] c = PLAN.columns(SELECT_ALL_SQL, rs);
             while (rs.next()) {
-                list.add(extract(rs));
+                list.add(extract(rs, c));
+            }
+        }
+        return list;
+    }
+
+    public List<Language> findPage(Connection conn, int afterId, int limit) throws SQLException {
+        return findPage(conn, afterId, limit, false);
+    }
+
+    public List<Language> findPage(Connection conn, int afterId, int limit, boolean descending) throws SQLException {
+        List<Language> list = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(descending ? SELECT_PAGE_DESC_SQL : SELECT_PAGE_SQL)) {
+            ps.setInt(1, descending && afterId <= 0 ? Integer.MAX_VALUE : afterId);
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                int[] c = PLAN.columns(descending ? SELECT_PAGE_DESC_SQL : SELECT_PAGE_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
             }
         }
         return list;
     }
 
     public boolean update(Connection conn, Language language) throws SQLException {
+        TableVersions.bump("language");
+        ReferenceDataCache.LANGUAGES.invalidate();
         try (PreparedStatement ps = conn.prepareStatement(UPDATE_SQL)) {
             ps.setString(1, language.getName());
             ps.setTimestamp(2, Timestamp.valueOf(language.getLastUpdate() != null ? language.getLastUpdate() : java.time.LocalDateTime.now()));
@@ -63,20 +132,21 @@ public class LanguageDao {
     }
 
     public boolean deleteById(Connection conn, int id) throws SQLException {
+        TableVersions.bump("language");
+        ReferenceDataCache.LANGUAGES.invalidate();
         try (PreparedStatement ps = conn.prepareStatement(DELETE_SQL)) {
             ps.setInt(1, id);
             return ps.executeUpdate() > 0;
         }
     }
 
-    private Language extract(ResultSet rs) throws SQLException {
+    private static final RowPlan PLAN = new RowPlan("language_id", "name", "last_update");
+
+    private Language extract(ResultSet rs, int[] c) throws SQLException {
         Language language = new Language();
-        Integer language_id = rs.getObject("language_id", Integer.class);
-        language.setLanguageId(language_id);
-        language.setName(rs.getString("name"));
-        Timestamp last_update = rs.getTimestamp("last_update");
-        if (last_update != null)
-            language.setLastUpdate(last_update.toLocalDateTime());
+        language.setLanguageId(rs.getInt(c[0]));
+        language.setName(rs.getString(c[1]));
+        language.setLastUpdate(RowPlan.getDateTime(rs, c[2]));
         return language;
     }
 }
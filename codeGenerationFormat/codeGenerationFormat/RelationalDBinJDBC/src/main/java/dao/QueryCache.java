@@ -0,0 +1,199 @@
+package dao;
+
+import DataBaseConnection.ReplicaRouter;
+import DataBaseConnection.TransactionManager;
+import config.DatabaseConfig;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * Second-level cache of mapped finder results, keyed by SQL text and bound parameters.
+ *
+ * Every cached query declares the tables it reads. An entry stores the TableVersions it
+ * was read at, and a lookup that finds a version moved on treats the entry as a miss.
+ * Results are held within queryCache.maxBytes (estimated from the row count) and evicted
+ * least recently used first.
+ *
+ * Reads inside a write transaction bypass the cache, and results read on a replica are
+ * not stored. Writes made by other nodes are only seen once an entry reaches
+ * queryCache.ttlMillis. Callers always get copies.
+ */
+public final class QueryCache {
+
+    private static final Map<Key, Entry> ENTRIES = new LinkedHashMap<>(256, 0.75f, true);
+    // Not synchronized: a virtual thread blocked here must not pin its carrier
+    private static final ReentrantLock LOCK = new ReentrantLock();
+    private static long totalBytes;
+
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+    private static final AtomicLong STALE = new AtomicLong();
+    private static final AtomicLong EVICTIONS = new AtomicLong();
+
+    // Fixed bookkeeping per entry (key, entry, list) on top of the rows
+    private static final int ENTRY_OVERHEAD_BYTES = 200;
+
+    private QueryCache() {
+    }
+
+    @FunctionalInterface
+    public interface Loader<T> {
+        List<T> load(Connection conn) throws SQLException;
+    }
+
+    // rowBytes is a rough per-row footprint, used only for the memory budget
+    public static <T> Query<T> query(String sql, int rowBytes, UnaryOperator<T> copy, String... tables) {
+        return new Query<>(sql, rowBytes, copy, tables);
+    }
+
+    public static long getHits() { return HITS.get(); }
+    public static long getMisses() { return MISSES.get(); }
+    public static long getStale() { return STALE.get(); }
+    public static long getEvictions() { return EVICTIONS.get(); }
+
+    public static long getBytes() {
+        LOCK.lock();
+        try {
+            return totalBytes;
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    public static final class Query<T> {
+
+        private final String sql;
+        private final int rowBytes;
+        private final UnaryOperator<T> copy;
+        private final AtomicLong[] versions;
+
+        private Query(String sql, int rowBytes, UnaryOperator<T> copy, String[] tables) {
+            this.sql = sql;
+            this.rowBytes = rowBytes;
+            this.copy = copy;
+            this.versions = new AtomicLong[tables.length];
+            for (int i = 0; i < tables.length; i++) {
+                versions[i] = TableVersions.counter(tables[i]);
+            }
+        }
+
+        public List<T> list(Connection conn, Loader<T> loader, Object... params) throws SQLException {
+            if (!DatabaseConfig.isQueryCacheEnabled() || TransactionManager.isWriteTransactionActive()) {
+                return loader.load(conn);
+            }
+            Key key = new Key(sql, Arrays.asList(params));
+            List<?> cached = lookup(key);
+            if (cached != null) {
+                HITS.incrementAndGet();
+                return copyOf(cached);
+            }
+
+            MISSES.incrementAndGet();
+            // Versions are read before the query: a write committed meanwhile makes the entry stale
+            long[] readAt = currentVersions();
+            List<T> rows = loader.load(conn);
+            // A lagging replica may still return rows from before the versions were read
+            if (ReplicaRouter.isReplica(conn)) return rows;
+            store(key, new Entry(copyOf(rows), readAt, this, ENTRY_OVERHEAD_BYTES + (long) rows.size() * rowBytes));
+            return rows;
+        }
+
+        public T first(Connection conn, Loader<T> loader, Object... params) throws SQLException {
+            List<T> rows = list(conn, loader, params);
+            return rows.isEmpty() ? null : rows.get(0);
+        }
+
+        private long[] currentVersions() {
+            long[] current = new long[versions.length];
+            for (int i = 0; i < versions.length; i++) {
+                current[i] = versions[i].get();
+            }
+            return current;
+        }
+
+        private boolean isCurrent(long[] readAt) {
+            for (int i = 0; i < versions.length; i++) {
+                if (versions[i].get() != readAt[i]) return false;
+            }
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        private List<T> copyOf(List<?> rows) {
+            List<T> copies = new ArrayList<>(rows.size());
+            for (Object row : rows) {
+                copies.add(copy.apply((T) row));
+            }
+            return copies;
+        }
+    }
+
+    private static List<?> lookup(Key key) {
+        LOCK.lock();
+        try {
+            Entry entry = ENTRIES.get(key);
+            if (entry == null) return null;
+            if (entry.query.isCurrent(entry.versions)
+                    && System.currentTimeMillis() - entry.loadedAt < DatabaseConfig.getQueryCacheTtlMillis()) {
+                return entry.rows;
+            }
+            STALE.incrementAndGet();
+            remove(key);
+            return null;
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    private static void store(Key key, Entry entry) {
+        long budget = DatabaseConfig.getQueryCacheMaxBytes();
+        // One oversized result should not flush everything else
+        if (entry.bytes > budget / 16) return;
+        LOCK.lock();
+        try {
+            remove(key);
+            ENTRIES.put(key, entry);
+            totalBytes += entry.bytes;
+            Iterator<Map.Entry<Key, Entry>> eldest = ENTRIES.entrySet().iterator();
+            while (totalBytes > budget && eldest.hasNext()) {
+                totalBytes -= eldest.next().getValue().bytes;
+                eldest.remove();
+                EVICTIONS.incrementAndGet();
+            }
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    private static void remove(Key key) {
+        Entry removed = ENTRIES.remove(key);
+        if (removed != null) totalBytes -= removed.bytes;
+    }
+
+    private record Key(String sql, List<Object> params) {
+    }
+
+    private static final class Entry {
+        private final List<?> rows;
+        private final long[] versions;
+        private final Query<?> query;
+        private final long bytes;
+        private final long loadedAt = System.currentTimeMillis();
+
+        private Entry(List<?> rows, long[] versions, Query<?> query, long bytes) {
+            this.rows = rows;
+            this.versions = versions;
+            this.query = query;
+            this.bytes = bytes;
+        }
+    }
+}
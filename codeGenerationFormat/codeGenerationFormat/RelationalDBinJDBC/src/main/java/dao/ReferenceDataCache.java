@@ -0,0 +1,222 @@
+package dao;
+
+import DataBaseConnection.ConnectionManager;
+import DataBaseConnection.TransactionManager;
+import config.DatabaseConfig;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import model.*;
+
+/**
+ * In-process snapshots of the small lookup tables (language, category, country, city).
+ * Each table is loaded whole into an immutable snapshot with an id and a name index, and
+ * readers only dereference a volatile field. A snapshot is replaced, never modified: the
+ * DAOs invalidate it after a committed write, and it also expires after
+ * referenceCache.ttlMillis so changes made outside the application are picked up.
+ *
+ * Snapshots are (re)loaded by a background virtual thread on its own primary connection,
+ * so they only ever hold committed rows and a request never waits for a second pooled
+ * connection while holding its own. An expired snapshot keeps being served until the
+ * reload replaces it; with no usable snapshot (first use, or just after a write) callers
+ * read on their own connection. The cached objects are shared between requests and must
+ * be treated as read-only.
+ */
+public final class ReferenceDataCache {
+
+    public static final Table<Language> LANGUAGES = new Table<>("language",
+            conn -> new LanguageDao().findAll(conn), Language::getLanguageId, Language::getName,
+            (conn, id) -> new LanguageDao().findById(conn, id));
+
+    public static final Table<Category> CATEGORIES = new Table<>("category",
+            conn -> new CategoryDao().findAll(conn), Category::getCategoryId, Category::getName,
+            (conn, id) -> new CategoryDao().findById(conn, id));
+
+    public static final Table<Country> COUNTRIES = new Table<>("country",
+            conn -> new CountryDao().findAll(conn), Country::getCountryId, Country::getCountry,
+            (conn, id) -> new CountryDao().findById(conn, id));
+
+    // Cities carry their full country, read in the same load
+    public static final Table<City> CITIES = new Table<>("city",
+            ReferenceDataCache::loadCities, City::getCityId, City::getCity,
+            (conn, id) -> new CityDao().findById(conn, id));
+
+    // Reloads of all tables share one pooled connection at a time (see
+    // DatabaseConfig.getBackgroundConnections); a lock rather than synchronized so a virtual
+    // thread waiting on the query does not pin its carrier
+    private static final ReentrantLock LOAD_LOCK = new ReentrantLock();
+
+    private ReferenceDataCache() {
+    }
+
+    private static List<City> loadCities(Connection conn) throws SQLException {
+        Map<Integer, Country> countries = new HashMap<>();
+        for (Country country : new CountryDao().findAll(conn)) countries.put(country.getCountryId(), country);
+        List<City> cities = new CityDao().findAll(conn);
+        for (City city : cities) {
+            Country country = city.getCountryId() != null ? countries.get(city.getCountryId()) : null;
+            if (country != null) city.setCountry(country);
+        }
+        return cities;
+    }
+
+    @FunctionalInterface
+    interface Loader<T> {
+        List<T> load(Connection conn) throws SQLException;
+    }
+
+    @FunctionalInterface
+    interface RowLoader<T> {
+        T load(Connection conn, int id) throws SQLException;
+    }
+
+    public static final class Table<T> {
+
+        private final String name;
+        private final Loader<T> loader;
+        private final Function<T, Integer> idOf;
+        private final Function<T, String> nameOf;
+        private final RowLoader<T> rowLoader;
+
+        // Bumped by every invalidation; a snapshot is current only for the generation it was read in
+        private final AtomicLong generation = new AtomicLong();
+        private final AtomicLong loads = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        // Only one reload per table at a time
+        private final AtomicBoolean reloading = new AtomicBoolean();
+        private volatile Snapshot<T> snapshot;
+
+        private Table(String name, Loader<T> loader, Function<T, Integer> idOf, Function<T, String> nameOf,
+                RowLoader<T> rowLoader) {
+            this.name = name;
+            this.loader = loader;
+            this.idOf = idOf;
+            this.nameOf = nameOf;
+            this.rowLoader = rowLoader;
+        }
+
+        public List<T> all(Connection conn) throws SQLException {
+            Snapshot<T> current = current();
+            return current != null ? current.rows : loader.load(conn);
+        }
+
+        // Case-insensitive; the lowest id wins when names repeat (city names do)
+        public T byName(Connection conn, String name) throws SQLException {
+            if (name == null) return null;
+            Snapshot<T> current = current();
+            if (current != null) return current.byName.get(name.toLowerCase(Locale.ROOT));
+            T found = null;
+            for (T row : loader.load(conn)) {
+                if (name.equalsIgnoreCase(nameOf.apply(row))
+                        && (found == null || idOf.apply(row) < idOf.apply(found))) {
+                    found = row;
+                }
+            }
+            return found;
+        }
+
+        // A row missing from the snapshot (committed since, or written by the caller's own
+        // transaction) is read on the caller's connection instead
+        public T get(Connection conn, int id) throws SQLException {
+            Snapshot<T> current = current();
+            T row = current != null ? current.byId.get(id) : null;
+            return row != null ? row : rowLoader.load(conn, id);
+        }
+
+        // Called by the DAOs on every write; takes effect once the surrounding transaction commits
+        public void invalidate() {
+            TransactionManager.afterCommit(() -> {
+                generation.incrementAndGet();
+                reloadInBackground();
+            });
+            if (this == COUNTRIES) CITIES.invalidate();
+        }
+
+        public long getLoads() {
+            return loads.get();
+        }
+
+        public long getFailures() {
+            return failures.get();
+        }
+
+        // Null when there is no snapshot for the current generation; an expired one is still
+        // returned while the reload runs
+        private Snapshot<T> current() {
+            Snapshot<T> current = snapshot;
+            if (current == null || current.generation != generation.get()) {
+                reloadInBackground();
+                return null;
+            }
+            if (System.currentTimeMillis() - current.loadedAt >= DatabaseConfig.getReferenceCacheTtlMillis()) {
+                reloadInBackground();
+            }
+            return current;
+        }
+
+        private void reloadInBackground() {
+            if (!reloading.compareAndSet(false, true)) return;
+            Thread.ofVirtual().name("reference-" + name).start(() -> {
+                try {
+                    snapshot = load();
+                } catch (SQLException | RuntimeException e) {
+                    failures.incrementAndGet();
+                    System.err.println("❌ Reference data load failed: " + name + " - " + e.getMessage());
+                } finally {
+                    reloading.set(false);
+                }
+            });
+        }
+
+        private Snapshot<T> load() throws SQLException {
+            // Read the generation first: an invalidation during the load leaves the result stale
+            LOAD_LOCK.lock();
+            long loadedGeneration = generation.get();
+            long loadedAt = System.currentTimeMillis();
+            Connection conn = null;
+            try {
+                conn = ConnectionManager.getConnection();
+                List<T> rows = loader.load(conn);
+                loads.incrementAndGet();
+                System.out.println(" Reference data loaded: " + name + " (" + rows.size() + " rows)");
+                return new Snapshot<>(rows, idOf, nameOf, loadedGeneration, loadedAt);
+            } finally {
+                ConnectionManager.closeConnection(conn);
+                LOAD_LOCK.unlock();
+            }
+        }
+    }
+
+    private static final class Snapshot<T> {
+
+        private final List<T> rows;
+        private final Map<Integer, T> byId;
+        private final Map<String, T> byName;
+        private final long generation;
+        private final long loadedAt;
+
+        private Snapshot(List<T> rows, Function<T, Integer> idOf, Function<T, String> nameOf,
+                long generation, long loadedAt) {
+            Map<Integer, T> byId = new HashMap<>();
+            Map<String, T> byName = new HashMap<>();
+            for (T row : rows) {
+                byId.put(idOf.apply(row), row);
+                String name = nameOf.apply(row);
+                if (name != null) byName.putIfAbsent(name.toLowerCase(Locale.ROOT), row);
+            }
+            this.rows = Collections.unmodifiableList(rows);
+            this.byId = Collections.unmodifiableMap(byId);
+            this.byName = Collections.unmodifiableMap(byName);
+            this.generation = generation;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package dao;
 
+import config.DatabaseConfig;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -13,41 +14,76 @@ public class RentalDao {
 
     private static final String SELECT_ALL_SQL = "SELECT * FROM rental ORDER BY rental_id";
 
+    private static final String SELECT_PAGE_SQL = "SELECT * FROM rental WHERE rental_id > ? ORDER BY rental_id LIMIT ?";
+
+    private static final String SELECT_PAGE_DESC_SQL = "SELECT * FROM rental WHERE rental_id < ? ORDER BY rental_id DESC LIMIT ?";
+
     private static final String SELECT_BY_CUSTOMER_ID_SQL = "SELECT * FROM rental WHERE customer_id = ?";
 
     private static final String SELECT_BY_INVENTORY_ID_SQL = "SELECT * FROM rental WHERE inventory_id = ?";
 
+    private static final String SELECT_ACTIVE_BY_INVENTORY_ID_SQL = "SELECT * FROM rental WHERE inventory_id = ? AND return_date IS NULL";
+
+    private static final String SELECT_ACTIVE_SQL = "SELECT * FROM rental WHERE return_date IS NULL ORDER BY rental_id";
+
+    private static final String SELECT_OVERDUE_FROM_SQL = "SELECT r.* FROM rental r "
+            + "JOIN inventory i ON i.inventory_id = r.inventory_id "
+            + "JOIN film f ON f.film_id = i.film_id "
+            + "WHERE r.return_date IS NULL AND r.rental_date + f.rental_duration * INTERVAL '1 day' < now() ";
+
+    private static final String SELECT_OVERDUE_SQL = SELECT_OVERDUE_FROM_SQL + "ORDER BY r.rental_id";
+
+    // Keyset pages of the filtered lists: filter value (if any), then cursor, then page size
+    private static final String SELECT_PAGE_BY_CUSTOMER_ID_SQL = "SELECT * FROM rental WHERE customer_id = ? AND rental_id > ? ORDER BY rental_id LIMIT ?";
+
+    private static final String SELECT_PAGE_BY_CUSTOMER_ID_DESC_SQL = "SELECT * FROM rental WHERE customer_id = ? AND rental_id < ? ORDER BY rental_id DESC LIMIT ?";
+
+    private static final String SELECT_ACTIVE_PAGE_SQL = "SELECT * FROM rental WHERE return_date IS NULL AND rental_id > ? ORDER BY rental_id LIMIT ?";
+
+    private static final String SELECT_ACTIVE_PAGE_DESC_SQL = "SELECT * FROM rental WHERE return_date IS NULL AND rental_id < ? ORDER BY rental_id DESC LIMIT ?";
+
+    private static final String SELECT_OVERDUE_PAGE_SQL = SELECT_OVERDUE_FROM_SQL + "AND r.rental_id > ? ORDER BY r.rental_id LIMIT ?";
+
+    private static final String SELECT_OVERDUE_PAGE_DESC_SQL = SELECT_OVERDUE_FROM_SQL + "AND r.rental_id < ? ORDER BY r.rental_id DESC LIMIT ?";
+
+    // Open-ended bounds bind as NULL; LIMIT NULL means no limit
+    private static final String SELECT_BY_STORE_ID_SQL = "SELECT r.* FROM rental r "
+            + "JOIN inventory i ON i.inventory_id = r.inventory_id "
+            + "WHERE i.store_id = ? "
+            + "AND r.rental_date >= COALESCE(?::timestamp, '-infinity'::timestamp) "
+            + "AND r.rental_date < COALESCE(?::timestamp, 'infinity'::timestamp) "
+            + "AND r.rental_id > ? "
+            + "ORDER BY r.rental_id LIMIT ?";
+
+    private static final String SELECT_BY_STORE_ID_DESC_SQL = "SELECT r.* FROM rental r "
+            + "JOIN inventory i ON i.inventory_id = r.inventory_id "
+            + "WHERE i.store_id = ? "
+            + "AND r.rental_date >= COALESCE(?::timestamp, '-infinity'::timestamp) "
+            + "AND r.rental_date < COALESCE(?::timestamp, 'infinity'::timestamp) "
+            + "AND r.rental_id < ? "
+            + "ORDER BY r.rental_id DESC LIMIT ?";
+
     private static final String SELECT_BY_STAFF_ID_SQL = "SELECT * FROM rental WHERE staff_id = ?";
 
-    private static final String UPDATE_SQL = "UPDATE rental SET rental_date = ?, inventory_id = ?, customer_id = ?, return_date = ?, staff_id = ?, last_update = ? WHERE rental_id = ?";
+    // Returns the inventory_id the rental had before the update (the locked subquery reads the old row)
+    private static final String UPDATE_SQL = "UPDATE rental r SET rental_date = ?, inventory_id = ?, customer_id = ?, return_date = ?, staff_id = ?, last_update = ? "
+            + "FROM (SELECT rental_id, inventory_id FROM rental WHERE rental_id = ? FOR UPDATE) old "
+            + "WHERE r.rental_id = old.rental_id RETURNING old.inventory_id";
 
-    private static final String DELETE_SQL = "DELETE FROM rental WHERE rental_id = ?";
+    private static final String HAS_OPEN_RENTAL_SQL = "SELECT EXISTS (SELECT 1 FROM rental WHERE inventory_id = ? AND return_date IS NULL)";
+
+    private static final String DELETE_SQL = "DELETE FROM rental WHERE rental_id = ? RETURNING inventory_id";
 
     public int insert(Connection conn, Rental rental) throws SQLException {
+        TableVersions.bump("rental");
         try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
-            ps.setTimestamp(1, Timestamp.valueOf(rental.getRentalDate() != null ? rental.getRentalDate() : java.time.LocalDateTime.now()));
-            if (rental.getInventory() != null && rental.getInventory().getInventoryId() > 0) {
-                ps.setInt(2, rental.getInventory().getInventoryId());
-            } else {
-                ps.setNull(2, Types.INTEGER);
-            }
-            if (rental.getCustomer() != null && rental.getCustomer().getCustomerId() > 0) {
-                ps.setInt(3, rental.getCustomer().getCustomerId());
-            } else {
-                ps.setNull(3, Types.INTEGER);
-            }
-            ps.setTimestamp(4, Timestamp.valueOf(rental.getReturnDate() != null ? rental.getReturnDate() : java.time.LocalDateTime.now()));
-            if (rental.getStaff() != null && rental.getStaff().getStaffId() > 0) {
-                ps.setInt(5, rental.getStaff().getStaffId());
-            } else {
-                ps.setNull(5, Types.INTEGER);
-            }
-            ps.setTimestamp(6, Timestamp.valueOf(rental.getLastUpdate() != null ? rental.getLastUpdate() : java.time.LocalDateTime.now()));
+            bindInsert(ps, rental);
             ps.executeUpdate();
             try (ResultSet rs = ps.getGeneratedKeys()) {
                 if (rs.next()) {
                     int id = rs.getInt(1);
                     rental.setRentalId(id);
+                    rented(rental);
                     return id;
                 }
             }
@@ -55,11 +91,55 @@ public class RentalDao {
         return -1;
     }
 
+    // With reWriteBatchedInserts the driver sends the whole batch as multi-row INSERTs
+    public int[] insertBatch(Connection conn, List<Rental> rentalList) throws SQLException {
+        TableVersions.bump("rental");
+        int[] ids = new int[rentalList.size()];
+        if (rentalList.isEmpty()) return ids;
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            for (Rental rental : rentalList) {
+                bindInsert(ps, rental);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                for (int i = 0; i < ids.length && rs.next(); i++) {
+                    ids[i] = rs.getInt(1);
+                    rentalList.get(i).setRentalId(ids[i]);
+                    rented(rentalList.get(i));
+                }
+            }
+        }
+        return ids;
+    }
+
+    private void bindInsert(PreparedStatement ps, Rental rental) throws SQLException {
+        ps.setTimestamp(1, Timestamp.valueOf(rental.getRentalDate() != null ? rental.getRentalDate() : java.time.LocalDateTime.now()));
+        if (rental.getInventory() != null && rental.getInventory().getInventoryId() > 0) {
+            ps.setInt(2, rental.getInventory().getInventoryId());
+        } else {
+            ps.setNull(2, Types.INTEGER);
+        }
+        if (rental.getCustomer() != null && rental.getCustomer().getCustomerId() > 0) {
+            ps.setInt(3, rental.getCustomer().getCustomerId());
+        } else {
+            ps.setNull(3, Types.INTEGER);
+        }
+        bindReturnDate(ps, 4, rental);
+        if (rental.getStaff() != null && rental.getStaff().getStaffId() > 0) {
+            ps.setInt(5, rental.getStaff().getStaffId());
+        } else {
+            ps.setNull(5, Types.INTEGER);
+        }
+        ps.setTimestamp(6, Timestamp.valueOf(rental.getLastUpdate() != null ? rental.getLastUpdate() : java.time.LocalDateTime.now()));
+    }
+
     public Rental findById(Connection conn, int id) throws SQLException {
         try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_ID_SQL)) {
             ps.setInt(1, id);
             try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? extract(rs) : null;
+                int[] c = PLAN.columns(SELECT_BY_ID_SQL, rs);
+                return rs.next() ? extract(rs, c) : null;
             }
         }
     }
@@ -68,14 +148,44 @@ public class RentalDao {
         List<Rental> list = new ArrayList<>();
         try (PreparedStatement ps = conn.prepareStatement(SELECT_ALL_SQL);
             ResultSet rs = ps.executeQuery()) {
+            int[] c = PLAN.columns(SELECT_ALL_SQL, rs);
             while (rs.next()) {
-                list.add(extract(rs));
+                list.add(extract(rs, c));
+            }
+        }
+        return list;
+    }
+
+    // Needs autocommit off, otherwise pgjdbc ignores the fetch size and buffers everything
+    public void streamAll(Connection conn, int fetchSize, RowHandler<Rental> handler) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(SELECT_ALL_SQL)) {
+            ps.setFetchSize(fetchSize);
+            try (ResultSet rs = ps.executeQuery()) {
+                int[] c = PLAN.columns(SELECT_ALL_SQL, rs);
+                while (rs.next()) handler.handle(extract(rs, c));
+            }
+        }
+    }
+
+    public List<Rental> findPage(Connection conn, int afterId, int limit) throws SQLException {
+        return findPage(conn, afterId, limit, false);
+    }
+
+    public List<Rental> findPage(Connection conn, int afterId, int limit, boolean descending) throws SQLException {
+        List<Rental> list = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(descending ? SELECT_PAGE_DESC_SQL : SELECT_PAGE_SQL)) {
+            ps.setInt(1, descending && afterId <= 0 ? Integer.MAX_VALUE : afterId);
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                int[] c = PLAN.columns(descending ? SELECT_PAGE_DESC_SQL : SELECT_PAGE_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
             }
         }
         return list;
     }
 
     public boolean update(Connection conn, Rental rental) throws SQLException {
+        TableVersions.bump("rental");
         try (PreparedStatement ps = conn.prepareStatement(UPDATE_SQL)) {
             ps.setTimestamp(1, Timestamp.valueOf(rental.getRentalDate() != null ? rental.getRentalDate() : java.time.LocalDateTime.now()));
             if (rental.getInventory() != null && rental.getInventory().getInventoryId() > 0) {
@@ -88,7 +198,7 @@ public class RentalDao {
             } else {
                 ps.setNull(3, Types.INTEGER);
             }
-            ps.setTimestamp(4, Timestamp.valueOf(rental.getReturnDate() != null ? rental.getReturnDate() : java.time.LocalDateTime.now()));
+            bindReturnDate(ps, 4, rental);
             if (rental.getStaff() != null && rental.getStaff().getStaffId() > 0) {
                 ps.setInt(5, rental.getStaff().getStaffId());
             } else {
@@ -96,14 +206,64 @@ public class RentalDao {
             }
             ps.setTimestamp(6, Timestamp.valueOf(rental.getLastUpdate() != null ? rental.getLastUpdate() : java.time.LocalDateTime.now()));
             ps.setInt(7, rental.getRentalId());
-            return ps.executeUpdate() > 0;
+            int previousInventoryId;
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return false;
+                previousInventoryId = rs.getInt(1);
+            }
+            int inventoryId = rental.getInventory() != null ? rental.getInventory().getInventoryId() : 0;
+            if (previousInventoryId > 0 && previousInventoryId != inventoryId) {
+                released(conn, previousInventoryId);
+            }
+            if (inventoryId > 0) {
+                if (rental.getReturnDate() == null) {
+                    InventoryAvailabilityIndex.rented(inventoryId, true);
+                } else {
+                    released(conn, inventoryId);
+                }
+            }
+            return true;
+        }
+    }
+
+    // A rental without a return date is still out: keep the column NULL, since every
+    // "active rental" query (and InventoryAvailabilityIndex) relies on it
+    private static void bindReturnDate(PreparedStatement ps, int index, Rental rental) throws SQLException {
+        if (rental.getReturnDate() != null) {
+            ps.setTimestamp(index, Timestamp.valueOf(rental.getReturnDate()));
+        } else {
+            ps.setNull(index, Types.TIMESTAMP);
+        }
+    }
+
+    // Inserting a rental that is already returned leaves the copy as it was
+    private static void rented(Rental rental) {
+        if (rental.getInventory() != null && rental.getInventory().getInventoryId() > 0 && rental.getReturnDate() == null) {
+            InventoryAvailabilityIndex.rented(rental.getInventory().getInventoryId(), true);
+        }
+    }
+
+    // A copy that lost an open rental may still be out on another one, so ask the database
+    private static void released(Connection conn, int inventoryId) throws SQLException {
+        if (!DatabaseConfig.isAvailabilityIndexEnabled()) return;
+        try (PreparedStatement ps = conn.prepareStatement(HAS_OPEN_RENTAL_SQL)) {
+            ps.setInt(1, inventoryId);
+            try (ResultSet rs = ps.executeQuery()) {
+                InventoryAvailabilityIndex.rented(inventoryId, rs.next() && rs.getBoolean(1));
+            }
         }
     }
 
     public boolean deleteById(Connection conn, int id) throws SQLException {
+        TableVersions.bump("rental");
         try (PreparedStatement ps = conn.prepareStatement(DELETE_SQL)) {
             ps.setInt(1, id);
-            return ps.executeUpdate() > 0;
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return false;
+                int inventoryId = rs.getInt(1);
+                if (inventoryId > 0) released(conn, inventoryId);
+                return true;
+            }
         }
     }
 
@@ -112,18 +272,114 @@ public class RentalDao {
         try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_CUSTOMER_ID_SQL)) {
             ps.setInt(1, customerID);
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) list.add(extract(rs));
+                int[] c = PLAN.columns(SELECT_BY_CUSTOMER_ID_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
             }
         }
         return list;
     }
 
+    public List<Rental> findByCustomerId(Connection conn, int customerID, int afterId, int limit, boolean descending) throws SQLException {
+        return keysetPage(conn, descending ? SELECT_PAGE_BY_CUSTOMER_ID_DESC_SQL : SELECT_PAGE_BY_CUSTOMER_ID_SQL,
+                customerID, afterId, limit, descending);
+    }
+
     public List<Rental> findByInventoryId(Connection conn, int inventoryID) throws SQLException {
         List<Rental> list = new ArrayList<>();
         try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_INVENTORY_ID_SQL)) {
             ps.setInt(1, inventoryID);
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) list.add(extract(rs));
+                int[] c = PLAN.columns(SELECT_BY_INVENTORY_ID_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
+            }
+        }
+        return list;
+    }
+
+    public List<Rental> findActiveByInventoryId(Connection conn, int inventoryID) throws SQLException {
+        List<Rental> list = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(SELECT_ACTIVE_BY_INVENTORY_ID_SQL)) {
+            ps.setInt(1, inventoryID);
+            try (ResultSet rs = ps.executeQuery()) {
+                int[] c = PLAN.columns(SELECT_ACTIVE_BY_INVENTORY_ID_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
+            }
+        }
+        return list;
+    }
+
+    public List<Rental> findActive(Connection conn) throws SQLException {
+        List<Rental> list = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(SELECT_ACTIVE_SQL);
+            ResultSet rs = ps.executeQuery()) {
+            int[] c = PLAN.columns(SELECT_ACTIVE_SQL, rs);
+            while (rs.next()) list.add(extract(rs, c));
+        }
+        return list;
+    }
+
+    public List<Rental> findActive(Connection conn, int afterId, int limit, boolean descending) throws SQLException {
+        return keysetPage(conn, descending ? SELECT_ACTIVE_PAGE_DESC_SQL : SELECT_ACTIVE_PAGE_SQL, null, afterId, limit, descending);
+    }
+
+    public List<Rental> findOverdue(Connection conn) throws SQLException {
+        List<Rental> list = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(SELECT_OVERDUE_SQL);
+            ResultSet rs = ps.executeQuery()) {
+            int[] c = PLAN.columns(SELECT_OVERDUE_SQL, rs);
+            while (rs.next()) list.add(extract(rs, c));
+        }
+        return list;
+    }
+
+    public List<Rental> findOverdue(Connection conn, int afterId, int limit, boolean descending) throws SQLException {
+        return keysetPage(conn, descending ? SELECT_OVERDUE_PAGE_DESC_SQL : SELECT_OVERDUE_PAGE_SQL, null, afterId, limit, descending);
+    }
+
+    private List<Rental> keysetPage(Connection conn, String sql, Integer filter, int afterId, int limit, boolean descending) throws SQLException {
+        List<Rental> list = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            int index = 1;
+            if (filter != null) ps.setInt(index++, filter);
+            ps.setInt(index++, descending && afterId <= 0 ? Integer.MAX_VALUE : afterId);
+            ps.setInt(index, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                int[] c = PLAN.columns(sql, rs);
+                while (rs.next()) list.add(extract(rs, c));
+            }
+        }
+        return list;
+    }
+
+    public List<Rental> findByStoreId(Connection conn, int storeID) throws SQLException {
+        return findByStoreId(conn, storeID, null, null, 0, 0, false);
+    }
+
+    // from is inclusive, to is exclusive, either may be null; limit <= 0 returns every match
+    public List<Rental> findByStoreId(Connection conn, int storeID, java.time.LocalDateTime from, java.time.LocalDateTime to,
+            int afterId, int limit, boolean descending) throws SQLException {
+        List<Rental> list = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(descending ? SELECT_BY_STORE_ID_DESC_SQL : SELECT_BY_STORE_ID_SQL)) {
+            ps.setInt(1, storeID);
+            if (from != null) {
+                ps.setTimestamp(2, Timestamp.valueOf(from));
+            } else {
+                ps.setNull(2, Types.TIMESTAMP);
+            }
+            if (to != null) {
+                ps.setTimestamp(3, Timestamp.valueOf(to));
+            } else {
+                ps.setNull(3, Types.TIMESTAMP);
+            }
+            ps.setInt(4, descending && afterId <= 0 ? Integer.MAX_VALUE : afterId);
+            if (limit > 0) {
+                ps.setInt(5, limit);
+            } else {
+                ps.setNull(5, Types.INTEGER);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                int[] c = PLAN.columns(descending ? SELECT_BY_STORE_ID_DESC_SQL : SELECT_BY_STORE_ID_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
             }
         }
         return list;
@@ -134,46 +390,42 @@ public class RentalDao {
         try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_STAFF_ID_SQL)) {
             ps.setInt(1, staffID);
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) list.add(extract(rs));
+                int[] c = PLAN.columns(SELECT_BY_STAFF_ID_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
             }
         }
         return list;
     }
 
-    private Rental extract(ResultSet rs) throws SQLException {
+    private static final RowPlan PLAN = new RowPlan("rental_id", "rental_date", "inventory_id", "customer_id", "return_date", "staff_id", "last_update");
+
+    private Rental extract(ResultSet rs, int[] c) throws SQLException {
         Rental rental = new Rental();
-        Integer rental_id = rs.getObject("rental_id", Integer.class);
-        rental.setRentalId(rental_id);
-        Timestamp rental_date = rs.getTimestamp("rental_date");
-        if (rental_date != null)
-            rental.setRentalDate(rental_date.toLocalDateTime());
-        Integer inventory_id = rs.getObject("inventory_id", Integer.class);
+        rental.setRentalId(rs.getInt(c[0]));
+        rental.setRentalDate(RowPlan.getDateTime(rs, c[1]));
+        Integer inventory_id = RowPlan.getInteger(rs, c[2]);
         rental.setInventoryId(inventory_id);
         if (inventory_id != null && inventory_id > 0) {
             Inventory inventory = new Inventory();
             inventory.setInventoryId(inventory_id);
             rental.setInventory(inventory);
         }
-        Integer customer_id = rs.getObject("customer_id", Integer.class);
+        Integer customer_id = RowPlan.getInteger(rs, c[3]);
         rental.setCustomerId(customer_id);
         if (customer_id != null && customer_id > 0) {
             Customer customer = new Customer();
             customer.setCustomerId(customer_id);
             rental.setCustomer(customer);
         }
-        Timestamp return_date = rs.getTimestamp("return_date");
-        if (return_date != null)
-            rental.setReturnDate(return_date.toLocalDateTime());
-        Integer staff_id = rs.getObject("staff_id", Integer.class);
+        rental.setReturnDate(RowPlan.getDateTime(rs, c[4]));
+        Integer staff_id = RowPlan.getInteger(rs, c[5]);
         rental.setStaffId(staff_id);
         if (staff_id != null && staff_id > 0) {
             Staff staff = new Staff();
             staff.setStaffId(staff_id);
             rental.setStaff(staff);
         }
-        Timestamp last_update = rs.getTimestamp("last_update");
-        if (last_update != null)
-            rental.setLastUpdate(last_update.toLocalDateTime());
+        rental.setLastUpdate(RowPlan.getDateTime(rs, c[6]));
         return rental;
     }
 }
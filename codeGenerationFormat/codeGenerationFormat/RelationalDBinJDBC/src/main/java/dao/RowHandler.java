@@ -0,0 +1,12 @@
+package dao;
+
+import java.sql.SQLException;
+
+/**
+ * Receives rows one at a time from the streaming finders, so callers never
+ * need the whole result in memory.
+ */
+@FunctionalInterface
+public interface RowHandler<T> {
+    void handle(T row) throws SQLException;
+}
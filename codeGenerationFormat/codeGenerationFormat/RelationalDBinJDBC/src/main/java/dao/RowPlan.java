@@ -0,0 +1,68 @@
+package dao;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Column positions for a DAO's extract(): the labels are resolved against the
+ * ResultSetMetaData the first time a SQL string is executed, and every later row of
+ * that SQL is read by index. Plans are cached per SQL string, so queries with a
+ * different select list (joins, projections) get their own plan.
+ */
+public final class RowPlan {
+
+    // Generated SQL (IN lists and the like) should not grow the cache without bound
+    private static final int MAX_PLANS = 256;
+
+    private final String[] labels;
+    private final Map<String, int[]> plans = new ConcurrentHashMap<>();
+
+    public RowPlan(String... labels) {
+        this.labels = labels;
+    }
+
+    // Column index for each label, in the order the labels were declared
+    public int[] columns(String sql, ResultSet rs) throws SQLException {
+        int[] columns = plans.get(sql);
+        if (columns == null) {
+            columns = resolve(rs.getMetaData());
+            if (plans.size() < MAX_PLANS) plans.putIfAbsent(sql, columns);
+        }
+        return columns;
+    }
+
+    private int[] resolve(ResultSetMetaData metaData) throws SQLException {
+        int[] columns = new int[labels.length];
+        int count = metaData.getColumnCount();
+        for (int i = 0; i < labels.length; i++) {
+            // First match wins, the same rule as ResultSet.findColumn
+            for (int column = 1; column <= count && columns[i] == 0; column++) {
+                if (labels[i].equalsIgnoreCase(metaData.getColumnLabel(column))) columns[i] = column;
+            }
+            if (columns[i] == 0) {
+                throw new SQLException("Column " + labels[i] + " not found in result set");
+            }
+        }
+        return columns;
+    }
+
+    public static Integer getInteger(ResultSet rs, int column) throws SQLException {
+        int value = rs.getInt(column);
+        return value == 0 && rs.wasNull() ? null : value;
+    }
+
+    public static LocalDateTime getDateTime(ResultSet rs, int column) throws SQLException {
+        return rs.getObject(column, LocalDateTime.class);
+    }
+
+    // For DATE columns mapped to LocalDateTime fields
+    public static LocalDateTime getDate(ResultSet rs, int column) throws SQLException {
+        LocalDate date = rs.getObject(column, LocalDate.class);
+        return date != null ? date.atStartOfDay() : null;
+    }
+}
@@ -1,7 +1,9 @@
 package dao;
 
+import config.DatabaseConfig;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import model.*;
 
@@ -11,8 +13,14 @@ public class StaffDao {
 
     private static final String SELECT_BY_ID_SQL = "SELECT * FROM staff WHERE staff_id = ?";
 
+    private static final String SELECT_BY_IDS_SQL = "SELECT * FROM staff WHERE staff_id = ANY(?)";
+
     private static final String SELECT_ALL_SQL = "SELECT * FROM staff ORDER BY staff_id";
 
+    private static final String SELECT_PAGE_SQL = "SELECT * FROM staff WHERE staff_id > ? ORDER BY staff_id LIMIT ?";
+
+    private static final String SELECT_PAGE_DESC_SQL = "SELECT * FROM staff WHERE staff_id < ? ORDER BY staff_id DESC LIMIT ?";
+
     private static final String SELECT_BY_ADDRESS_ID_SQL = "SELECT * FROM staff WHERE address_id = ?";
 
     private static final String SELECT_BY_STORE_ID_SQL = "SELECT * FROM staff WHERE store_id = ?";
@@ -22,25 +30,9 @@ public class StaffDao {
     private static final String DELETE_SQL = "DELETE FROM staff WHERE staff_id = ?";
 
     public int insert(Connection conn, Staff staff) throws SQLException {
+        TableVersions.bump("staff");
         try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
-            ps.setString(1, staff.getFirstName());
-            ps.setString(2, staff.getLastName());
-            if (staff.getAddress() != null && staff.getAddress().getAddressId() > 0) {
-                ps.setInt(3, staff.getAddress().getAddressId());
-            } else {
-                ps.setNull(3, Types.INTEGER);
-            }
-            ps.setString(4, staff.getEmail());
-            if (staff.getStore() != null && staff.getStore().getStoreId() > 0) {
-                ps.setInt(5, staff.getStore().getStoreId());
-            } else {
-                ps.setNull(5, Types.INTEGER);
-            }
-            ps.setBoolean(6, staff.getActive());
-            ps.setString(7, staff.getUsername());
-            ps.setString(8, staff.getPassword());
-            ps.setTimestamp(9, Timestamp.valueOf(staff.getLastUpdate() != null ? staff.getLastUpdate() : java.time.LocalDateTime.now()));
-            ps.setString(10, staff.getPicture());
+            bindInsert(ps, staff);
             ps.executeUpdate();
             try (ResultSet rs = ps.getGeneratedKeys()) {
                 if (rs.next()) {
@@ -53,27 +45,114 @@ public class StaffDao {
         return -1;
     }
 
+    // With reWriteBatchedInserts the driver sends the whole batch as multi-row INSERTs
+    public int[] insertBatch(Connection conn, List<Staff> staffList) throws SQLException {
+        TableVersions.bump("staff");
+        int[] ids = new int[staffList.size()];
+        if (staffList.isEmpty()) return ids;
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            for (Staff staff : staffList) {
+                bindInsert(ps, staff);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                for (int i = 0; i < ids.length && rs.next(); i++) {
+                    ids[i] = rs.getInt(1);
+                    staffList.get(i).setStaffId(ids[i]);
+                }
+            }
+        }
+        return ids;
+    }
+
+    private void bindInsert(PreparedStatement ps, Staff staff) throws SQLException {
+        ps.setString(1, staff.getFirstName());
+        ps.setString(2, staff.getLastName());
+        if (staff.getAddress() != null && staff.getAddress().getAddressId() > 0) {
+            ps.setInt(3, staff.getAddress().getAddressId());
+        } else {
+            ps.setNull(3, Types.INTEGER);
+        }
+        ps.setString(4, staff.getEmail());
+        if (staff.getStore() != null && staff.getStore().getStoreId() > 0) {
+            ps.setInt(5, staff.getStore().getStoreId());
+        } else {
+            ps.setNull(5, Types.INTEGER);
+        }
+        ps.setBoolean(6, staff.getActive());
+        ps.setString(7, staff.getUsername());
+        ps.setString(8, staff.getPassword());
+        ps.setTimestamp(9, Timestamp.valueOf(staff.getLastUpdate() != null ? staff.getLastUpdate() : java.time.LocalDateTime.now()));
+        ps.setString(10, staff.getPicture());
+    }
+
+    // Bounded, cluster-invalidated (see EntityCache); list hydration calls this per row
+    private static final EntityCache<Staff> CACHE = new EntityCache<>("staff", DatabaseConfig.getEntityCacheStaffSize(), StaffDao::copy);
+
+    public static EntityCache<Staff> getCache() {
+        return CACHE;
+    }
+
     public Staff findById(Connection conn, int id) throws SQLException {
+        return CACHE.get(conn, id, this::load);
+    }
+
+    private Staff load(Connection conn, int id) throws SQLException {
         try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_ID_SQL)) {
             ps.setInt(1, id);
             try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? extract(rs) : null;
+                int[] c = PLAN.columns(SELECT_BY_ID_SQL, rs);
+                return rs.next() ? extract(rs, c) : null;
             }
         }
     }
 
+    public List<Staff> findByIds(Connection conn, Collection<Integer> ids) throws SQLException {
+        List<Staff> list = new ArrayList<>();
+        if (ids == null || ids.isEmpty()) return list;
+        try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_IDS_SQL)) {
+            ps.setArray(1, conn.createArrayOf("integer", ids.toArray()));
+            try (ResultSet rs = ps.executeQuery()) {
+                int[] c = PLAN.columns(SELECT_BY_IDS_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
+            }
+        }
+        return list;
+    }
+
     public List<Staff> findAll(Connection conn) throws SQLException {
         List<Staff> list = new ArrayList<>();
         try (PreparedStatement ps = conn.prepareStatement(SELECT_ALL_SQL);
             ResultSet rs = ps.executeQuery()) {
+            int[] c = PLAN.columns(SELECT_ALL_SQL, rs);
             while (rs.next()) {
-                list.add(extract(rs));
+                list.add(extract(rs, c));
+            }
+        }
+        return list;
+    }
+
+    public List<Staff> findPage(Connection conn, int afterId, int limit) throws SQLException {
+        return findPage(conn, afterId, limit, false);
+    }
+
+    public List<Staff> findPage(Connection conn, int afterId, int limit, boolean descending) throws SQLException {
+        List<Staff> list = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(descending ? SELECT_PAGE_DESC_SQL : SELECT_PAGE_SQL)) {
+            ps.setInt(1, descending && afterId <= 0 ? Integer.MAX_VALUE : afterId);
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                int[] c = PLAN.columns(descending ? SELECT_PAGE_DESC_SQL : SELECT_PAGE_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
             }
         }
         return list;
     }
 
     public boolean update(Connection conn, Staff staff) throws SQLException {
+        TableVersions.bump("staff");
+        CACHE.invalidate(staff.getStaffId());
         try (PreparedStatement ps = conn.prepareStatement(UPDATE_SQL)) {
             ps.setString(1, staff.getFirstName());
             ps.setString(2, staff.getLastName());
@@ -99,6 +178,8 @@ public class StaffDao {
     }
 
     public boolean deleteById(Connection conn, int id) throws SQLException {
+        TableVersions.bump("staff");
+        CACHE.invalidate(id);
         try (PreparedStatement ps = conn.prepareStatement(DELETE_SQL)) {
             ps.setInt(1, id);
             return ps.executeUpdate() > 0;
@@ -110,7 +191,8 @@ public class StaffDao {
         try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_ADDRESS_ID_SQL)) {
             ps.setInt(1, addressID);
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) list.add(extract(rs));
+                int[] c = PLAN.columns(SELECT_BY_ADDRESS_ID_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
             }
         }
         return list;
@@ -121,40 +203,71 @@ public class StaffDao {
         try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_STORE_ID_SQL)) {
             ps.setInt(1, storeID);
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) list.add(extract(rs));
+                int[] c = PLAN.columns(SELECT_BY_STORE_ID_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
             }
         }
         return list;
     }
 
-    private Staff extract(ResultSet rs) throws SQLException {
+    private static final RowPlan PLAN = new RowPlan("staff_id", "first_name", "last_name", "address_id", "email", "store_id", "active", "username", "password", "last_update", "picture");
+
+    int[] columns(String sql, ResultSet rs) throws SQLException {
+        return PLAN.columns(sql, rs);
+    }
+
+    Staff extract(ResultSet rs, int[] c) throws SQLException {
         Staff staff = new Staff();
-        Integer staff_id = rs.getObject("staff_id", Integer.class);
-        staff.setStaffId(staff_id);
-        staff.setFirstName(rs.getString("first_name"));
-        staff.setLastName(rs.getString("last_name"));
-        Integer address_id = rs.getObject("address_id", Integer.class);
+        staff.setStaffId(rs.getInt(c[0]));
+        staff.setFirstName(rs.getString(c[1]));
+        staff.setLastName(rs.getString(c[2]));
+        Integer address_id = RowPlan.getInteger(rs, c[3]);
         staff.setAddressId(address_id);
         if (address_id != null && address_id > 0) {
             Address address = new Address();
             address.setAddressId(address_id);
             staff.setAddress(address);
         }
-        staff.setEmail(rs.getString("email"));
-        Integer store_id = rs.getObject("store_id", Integer.class);
+        staff.setEmail(rs.getString(c[4]));
+        Integer store_id = RowPlan.getInteger(rs, c[5]);
         staff.setStoreId(store_id);
         if (store_id != null && store_id > 0) {
             Store store = new Store();
             store.setStoreId(store_id);
             staff.setStore(store);
         }
-        staff.setActive(rs.getBoolean("active"));
-        staff.setUsername(rs.getString("username"));
-        staff.setPassword(rs.getString("password"));
-        Timestamp last_update = rs.getTimestamp("last_update");
-        if (last_update != null)
-            staff.setLastUpdate(last_update.toLocalDateTime());
-        staff.setPicture(rs.getString("picture"));
+        staff.setActive(rs.getBoolean(c[6]));
+        staff.setUsername(rs.getString(c[7]));
+        staff.setPassword(rs.getString(c[8]));
+        staff.setLastUpdate(RowPlan.getDateTime(rs, c[9]));
+        staff.setPicture(rs.getString(c[10]));
+        return staff;
+    }
+
+    // Same shape as extract(): scalar columns plus id-only address/store placeholders
+    private static Staff copy(Staff source) {
+        Staff staff = new Staff();
+        staff.setStaffId(source.getStaffId());
+        staff.setFirstName(source.getFirstName());
+        staff.setLastName(source.getLastName());
+        staff.setAddressId(source.getAddressId());
+        if (source.getAddress() != null) {
+            Address address = new Address();
+            address.setAddressId(source.getAddress().getAddressId());
+            staff.setAddress(address);
+        }
+        staff.setEmail(source.getEmail());
+        staff.setStoreId(source.getStoreId());
+        if (source.getStore() != null) {
+            Store store = new Store();
+            store.setStoreId(source.getStore().getStoreId());
+            staff.setStore(store);
+        }
+        staff.setActive(Boolean.TRUE.equals(source.getActive()));
+        staff.setUsername(source.getUsername());
+        staff.setPassword(source.getPassword());
+        staff.setLastUpdate(source.getLastUpdate());
+        staff.setPicture(source.getPicture());
         return staff;
     }
 }
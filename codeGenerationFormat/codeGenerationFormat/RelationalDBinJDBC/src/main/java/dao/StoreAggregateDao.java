@@ -0,0 +1,171 @@
+package dao;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import model.*;
+
+/**
+ * Loads complete store aggregates (manager, address, city, country, staff, customers
+ * and inventory) for a set of stores in one network round trip. All statements are
+ * sent as a single multi-statement query and the result sets are consumed in order.
+ */
+public class StoreAggregateDao {
+
+    private static final String STORE_FILTER_BY_IDS = "s.store_id = ANY(?)";
+
+    private static final String STORE_FILTER_ALL = "TRUE";
+
+    private static final String SELECT_BY_IDS_SQL = buildAggregateSql(STORE_FILTER_BY_IDS);
+
+    private static final String SELECT_ALL_SQL = buildAggregateSql(STORE_FILTER_ALL);
+
+    private static final int STATEMENT_COUNT = 8;
+
+    private final StoreDao storeDao = new StoreDao();
+    private final StaffDao staffDao = new StaffDao();
+    private final AddressDao addressDao = new AddressDao();
+    private final CityDao cityDao = new CityDao();
+    private final CountryDao countryDao = new CountryDao();
+    private final CustomerDao customerDao = new CustomerDao();
+    private final InventoryDao inventoryDao = new InventoryDao();
+
+    private static String buildAggregateSql(String storeFilter) {
+        return String.join(";\n",
+            "SELECT s.* FROM store s WHERE " + storeFilter + " ORDER BY s.store_id",
+            "SELECT DISTINCT st.* FROM staff st JOIN store s ON s.manager_staff_id = st.staff_id WHERE " + storeFilter,
+            "SELECT DISTINCT a.* FROM address a JOIN store s ON s.address_id = a.address_id WHERE " + storeFilter,
+            "SELECT DISTINCT ci.* FROM city ci JOIN address a ON a.city_id = ci.city_id JOIN store s ON s.address_id = a.address_id WHERE " + storeFilter,
+            "SELECT DISTINCT co.* FROM country co JOIN city ci ON ci.country_id = co.country_id JOIN address a ON a.city_id = ci.city_id JOIN store s ON s.address_id = a.address_id WHERE " + storeFilter,
+            "SELECT st.* FROM staff st JOIN store s ON s.store_id = st.store_id WHERE " + storeFilter + " ORDER BY st.staff_id",
+            "SELECT c.* FROM customer c JOIN store s ON s.store_id = c.store_id WHERE " + storeFilter + " ORDER BY c.customer_id",
+            "SELECT i.* FROM inventory i JOIN store s ON s.store_id = i.store_id WHERE " + storeFilter + " ORDER BY i.inventory_id");
+    }
+
+    public List<Store> findByIds(Connection conn, Collection<Integer> storeIds) throws SQLException {
+        if (storeIds == null || storeIds.isEmpty()) return new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_IDS_SQL)) {
+            Array ids = conn.createArrayOf("integer", storeIds.toArray());
+            for (int i = 1; i <= STATEMENT_COUNT; i++) {
+                ps.setArray(i, ids);
+            }
+            return readAggregates(ps, SELECT_BY_IDS_SQL);
+        }
+    }
+
+    public List<Store> findAll(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(SELECT_ALL_SQL)) {
+            return readAggregates(ps, SELECT_ALL_SQL);
+        }
+    }
+
+    // Each result set of the batch is mapped by the DAO that owns the table
+    private int[] columns(int statement, String sql, ResultSet rs) throws SQLException {
+        String key = sql + "#" + statement;
+        return switch (statement) {
+            case 0 -> storeDao.columns(key, rs);
+            case 1, 5 -> staffDao.columns(key, rs);
+            case 2 -> addressDao.columns(key, rs);
+            case 3 -> cityDao.columns(key, rs);
+            case 4 -> countryDao.columns(key, rs);
+            case 6 -> customerDao.columns(key, rs);
+            case 7 -> inventoryDao.columns(key, rs);
+            default -> throw new SQLException("Unexpected result set #" + statement + " in store aggregate query");
+        };
+    }
+
+    private List<Store> readAggregates(PreparedStatement ps, String sql) throws SQLException {
+        Map<Integer, Store> stores = new LinkedHashMap<>();
+        Map<Integer, Staff> managers = new HashMap<>();
+        Map<Integer, Address> addresses = new HashMap<>();
+        Map<Integer, City> cities = new HashMap<>();
+        Map<Integer, Country> countries = new HashMap<>();
+
+        boolean hasResult = ps.execute();
+        int statement = 0;
+        while (true) {
+            if (hasResult) {
+                try (ResultSet rs = ps.getResultSet()) {
+                    int[] c = columns(statement, sql, rs);
+                    while (rs.next()) {
+                        switch (statement) {
+                            case 0 -> {
+                                Store store = storeDao.extract(rs, c);
+                                store.setStaffList(new ArrayList<>());
+                                store.setCustomerList(new ArrayList<>());
+                                store.setInventoryList(new ArrayList<>());
+                                stores.put(store.getStoreId(), store);
+                            }
+                            case 1 -> {
+                                Staff manager = staffDao.extract(rs, c);
+                                managers.put(manager.getStaffId(), manager);
+                            }
+                            case 2 -> {
+                                Address address = addressDao.extract(rs, c);
+                                addresses.put(address.getAddressId(), address);
+                            }
+                            case 3 -> {
+                                City city = cityDao.extract(rs, c);
+                                cities.put(city.getCityId(), city);
+                            }
+                            case 4 -> {
+                                Country country = countryDao.extract(rs, c);
+                                countries.put(country.getCountryId(), country);
+                            }
+                            case 5 -> {
+                                Staff staff = staffDao.extract(rs, c);
+                                Store store = stores.get(staff.getStoreId());
+                                if (store != null) store.getStaffList().add(staff);
+                            }
+                            case 6 -> {
+                                Customer customer = customerDao.extract(rs, c);
+                                Store store = stores.get(customer.getStoreId());
+                                if (store != null) store.getCustomerList().add(customer);
+                            }
+                            case 7 -> {
+                                Inventory inventory = inventoryDao.extract(rs, c);
+                                Store store = stores.get(inventory.getStoreId());
+                                if (store != null) store.getInventoryList().add(inventory);
+                            }
+                            default -> throw new SQLException("Unexpected result set #" + statement + " in store aggregate query");
+                        }
+                    }
+                }
+                statement++;
+            } else if (ps.getUpdateCount() == -1) {
+                break;
+            }
+            hasResult = ps.getMoreResults();
+        }
+
+        // Stitch the to-one relationships together
+        for (City city : cities.values()) {
+            if (city.getCountry() != null) {
+                Country country = countries.get(city.getCountry().getCountryId());
+                if (country != null) city.setCountry(country);
+            }
+        }
+        for (Address address : addresses.values()) {
+            if (address.getCity() != null) {
+                City city = cities.get(address.getCity().getCityId());
+                if (city != null) address.setCity(city);
+            }
+        }
+        for (Store store : stores.values()) {
+            if (store.getManagerStaff() != null) {
+                Staff manager = managers.get(store.getManagerStaff().getStaffId());
+                if (manager != null) store.setManagerStaff(manager);
+            }
+            if (store.getAddress() != null) {
+                Address address = addresses.get(store.getAddress().getAddressId());
+                if (address != null) store.setAddress(address);
+            }
+        }
+
+        return new ArrayList<>(stores.values());
+    }
+}
@@ -13,6 +13,10 @@ public class StoreDao {
     
     private static final String SELECT_ALL_SQL = "SELECT * FROM store ORDER BY store_id";
 
+    private static final String SELECT_PAGE_SQL = "SELECT * FROM store WHERE store_id > ? ORDER BY store_id LIMIT ?";
+
+    private static final String SELECT_PAGE_DESC_SQL = "SELECT * FROM store WHERE store_id < ? ORDER BY store_id DESC LIMIT ?";
+
     private static final String SELECT_BY_ADDRESS_ID_SQL = "SELECT * FROM store WHERE address_id = ?";
 
     private static final String SELECT_BY_MANAGER_STAFF_ID_SQL = "SELECT * FROM store WHERE manager_staff_id = ?";
@@ -22,18 +26,9 @@ public class StoreDao {
     private static final String DELETE_SQL = "DELETE FROM store WHERE store_id = ?";
 
     public int insert(Connection conn, Store store) throws SQLException {
+        TableVersions.bump("store");
         try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
-            if (store.getManagerStaff() != null && store.getManagerStaff().getStaffId() > 0) {
-                ps.setInt(1, store.getManagerStaff().getStaffId());
-            } else {
-                ps.setNull(1, Types.INTEGER);
-            }
-            if (store.getAddress() != null && store.getAddress().getAddressId() > 0) {
-                ps.setInt(2, store.getAddress().getAddressId());
-            } else {
-                ps.setNull(2, Types.INTEGER);
-            }
-            ps.setTimestamp(3, Timestamp.valueOf(store.getLastUpdate() != null ? store.getLastUpdate() : java.time.LocalDateTime.now()));
+            bindInsert(ps, store);
             ps.executeUpdate();
             try (ResultSet rs = ps.getGeneratedKeys()) {
                 if (rs.next()) {
@@ -46,11 +41,47 @@ public class StoreDao {
         return -1;
     }
 
+    // With reWriteBatchedInserts the driver sends the whole batch as multi-row INSERTs
+    public int[] insertBatch(Connection conn, List<Store> storeList) throws SQLException {
+        TableVersions.bump("store");
+        int[] ids = new int[storeList.size()];
+        if (storeList.isEmpty()) return ids;
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            for (Store store : storeList) {
+                bindInsert(ps, store);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                for (int i = 0; i < ids.length && rs.next(); i++) {
+                    ids[i] = rs.getInt(1);
+                    storeList.get(i).setStoreId(ids[i]);
+                }
+            }
+        }
+        return ids;
+    }
+
+    private void bindInsert(PreparedStatement ps, Store store) throws SQLException {
+        if (store.getManagerStaff() != null && store.getManagerStaff().getStaffId() > 0) {
+            ps.setInt(1, store.getManagerStaff().getStaffId());
+        } else {
+            ps.setNull(1, Types.INTEGER);
+        }
+        if (store.getAddress() != null && store.getAddress().getAddressId() > 0) {
+            ps.setInt(2, store.getAddress().getAddressId());
+        } else {
+            ps.setNull(2, Types.INTEGER);
+        }
+        ps.setTimestamp(3, Timestamp.valueOf(store.getLastUpdate() != null ? store.getLastUpdate() : java.time.LocalDateTime.now()));
+    }
+
     public Store findById(Connection conn, int id) throws SQLException {
         try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_ID_SQL)) {
             ps.setInt(1, id);
             try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? extract(rs) : null;
+                int[] c = PLAN.columns(SELECT_BY_ID_SQL, rs);
+                return rs.next() ? extract(rs, c) : null;
             }
         }
     }
@@ -59,14 +90,33 @@ public class StoreDao {
         List<Store> list = new ArrayList<>();
         try (PreparedStatement ps = conn.prepareStatement(SELECT_ALL_SQL);
             ResultSet rs = ps.executeQuery()) {
+            int[] c = PLAN.columns(SELECT_ALL_SQL, rs);
             while (rs.next()) {
-                list.add(extract(rs));
+                list.add(extract(rs, c));
+            }
+        }
+        return list;
+    }
+
+    public List<Store> findPage(Connection conn, int afterId, int limit) throws SQLException {
+        return findPage(conn, afterId, limit, false);
+    }
+
+    public List<Store> findPage(Connection conn, int afterId, int limit, boolean descending) throws SQLException {
+        List<Store> list = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(descending ? SELECT_PAGE_DESC_SQL : SELECT_PAGE_SQL)) {
+            ps.setInt(1, descending && afterId <= 0 ? Integer.MAX_VALUE : afterId);
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                int[] c = PLAN.columns(descending ? SELECT_PAGE_DESC_SQL : SELECT_PAGE_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
             }
         }
         return list;
     }
 
     public boolean update(Connection conn, Store store) throws SQLException {
+        TableVersions.bump("store");
         try (PreparedStatement ps = conn.prepareStatement(UPDATE_SQL)) {
             if (store.getManagerStaff() != null && store.getManagerStaff().getStaffId() > 0) {
                 ps.setInt(1, store.getManagerStaff().getStaffId());
@@ -85,6 +135,7 @@ public class StoreDao {
     }
 
     public boolean deleteById(Connection conn, int id) throws SQLException {
+        TableVersions.bump("store");
         try (PreparedStatement ps = conn.prepareStatement(DELETE_SQL)) {
             ps.setInt(1, id);
             return ps.executeUpdate() > 0;
@@ -96,7 +147,8 @@ public class StoreDao {
         try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_ADDRESS_ID_SQL)) {
             ps.setInt(1, addressID);
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) list.add(extract(rs));
+                int[] c = PLAN.columns(SELECT_BY_ADDRESS_ID_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
             }
         }
         return list;
@@ -107,33 +159,37 @@ public class StoreDao {
         try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_MANAGER_STAFF_ID_SQL)) {
             ps.setInt(1, managerStaffID);
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) list.add(extract(rs));
+                int[] c = PLAN.columns(SELECT_BY_MANAGER_STAFF_ID_SQL, rs);
+                while (rs.next()) list.add(extract(rs, c));
             }
         }
         return list;
     }
 
-    private Store extract(ResultSet rs) throws SQLException {
+    private static final RowPlan PLAN = new RowPlan("store_id", "manager_staff_id", "address_id", "last_update");
+
+    int[] columns(String sql, ResultSet rs) throws SQLException {
+        return PLAN.columns(sql, rs);
+    }
+
+    Store extract(ResultSet rs, int[] c) throws SQLException {
         Store store = new Store();
-        Integer store_id = rs.getObject("store_id", Integer.class);
-        store.setStoreId(store_id);
-        Integer manager_staff_id = rs.getObject("manager_staff_id", Integer.class);
+        store.setStoreId(rs.getInt(c[0]));
+        Integer manager_staff_id = RowPlan.getInteger(rs, c[1]);
         store.setManagerStaffId(manager_staff_id);
         if (manager_staff_id != null && manager_staff_id > 0) {
             Staff managerStaff = new Staff();
             managerStaff.setStaffId(manager_staff_id);
             store.setManagerStaff(managerStaff);
         }
-        Integer address_id = rs.getObject("address_id", Integer.class);
+        Integer address_id = RowPlan.getInteger(rs, c[2]);
         store.setAddressId(address_id);
         if (address_id != null && address_id > 0) {
             Address address = new Address();
             address.setAddressId(address_id);
             store.setAddress(address);
         }
-        Timestamp last_update = rs.getTimestamp("last_update");
-        if (last_update != null)
-            store.setLastUpdate(last_update.toLocalDateTime());
+        store.setLastUpdate(RowPlan.getDateTime(rs, c[3]));
         return store;
     }
 }
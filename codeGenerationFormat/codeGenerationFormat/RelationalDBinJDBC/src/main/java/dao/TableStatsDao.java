@@ -0,0 +1,135 @@
+package dao;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Cheap row count estimates from the planner statistics in pg_class, for list
+ * endpoints that want a total without paying for COUNT(*) on large tables.
+ * Filtered lists take the planner's row estimate for the filter from EXPLAIN.
+ */
+public class TableStatsDao {
+
+    private static final String SELECT_ESTIMATE_SQL = "SELECT reltuples::bigint FROM pg_class WHERE oid = to_regclass(?)";
+
+    private static final String CUSTOMERS_BY_STORE_SQL = "SELECT 1 FROM customer WHERE store_id = ?";
+
+    private static final String CUSTOMERS_BY_ACTIVE_SQL = "SELECT 1 FROM customer WHERE active = ?";
+
+    private static final String RENTALS_BY_CUSTOMER_SQL = "SELECT 1 FROM rental WHERE customer_id = ?";
+
+    private static final String ACTIVE_RENTALS_SQL = "SELECT 1 FROM rental WHERE return_date IS NULL";
+
+    private static final String OVERDUE_RENTALS_SQL = "SELECT 1 FROM rental r "
+            + "JOIN inventory i ON i.inventory_id = r.inventory_id "
+            + "JOIN film f ON f.film_id = i.film_id "
+            + "WHERE r.return_date IS NULL AND r.rental_date + f.rental_duration * INTERVAL '1 day' < now()";
+
+    private static final String RENTALS_BY_STORE_SQL = "SELECT 1 FROM rental r "
+            + "JOIN inventory i ON i.inventory_id = r.inventory_id "
+            + "WHERE i.store_id = ? "
+            + "AND r.rental_date >= COALESCE(?::timestamp, '-infinity'::timestamp) "
+            + "AND r.rental_date < COALESCE(?::timestamp, 'infinity'::timestamp)";
+
+    private static final String FILMS_BY_LANGUAGE_SQL = "SELECT 1 FROM film WHERE language_id = ?";
+
+    private static final String FILMS_BY_ACTOR_SQL = "SELECT 1 FROM film_actor WHERE actor_id = ?";
+
+    private static final String FILMS_BY_CATEGORY_SQL = "SELECT 1 FROM film_category WHERE category_id = ?";
+
+    private static final String INVENTORY_BY_FILM_AND_STORE_SQL = "SELECT 1 FROM inventory WHERE film_id = ? AND store_id = ?";
+
+    private static final String INVENTORY_BY_STORE_SQL = "SELECT 1 FROM inventory WHERE store_id = ?";
+
+    private static final String FILMS_BY_STORE_SQL = "SELECT DISTINCT film_id FROM inventory WHERE store_id = ?";
+
+    private static final String STORES_BY_FILM_SQL = "SELECT DISTINCT store_id FROM inventory WHERE film_id = ?";
+
+    // First line of a text plan: "... (cost=0.28..8.30 rows=4 width=4)"
+    private static final Pattern PLAN_ROWS = Pattern.compile("rows=(\\d+)");
+
+    // Returns -1 when the table is unknown or has never been analyzed
+    public long estimateRowCount(Connection conn, String table) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(SELECT_ESTIMATE_SQL)) {
+            ps.setString(1, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? Math.max(rs.getLong(1), -1) : -1;
+            }
+        }
+    }
+
+    public long estimateCustomersByStore(Connection conn, int storeID) throws SQLException {
+        return estimateMatchingRows(conn, CUSTOMERS_BY_STORE_SQL, storeID);
+    }
+
+    public long estimateCustomersByActive(Connection conn, boolean active) throws SQLException {
+        return estimateMatchingRows(conn, CUSTOMERS_BY_ACTIVE_SQL, active);
+    }
+
+    public long estimateRentalsByCustomer(Connection conn, int customerID) throws SQLException {
+        return estimateMatchingRows(conn, RENTALS_BY_CUSTOMER_SQL, customerID);
+    }
+
+    public long estimateActiveRentals(Connection conn) throws SQLException {
+        return estimateMatchingRows(conn, ACTIVE_RENTALS_SQL);
+    }
+
+    public long estimateOverdueRentals(Connection conn) throws SQLException {
+        return estimateMatchingRows(conn, OVERDUE_RENTALS_SQL);
+    }
+
+    // from and to may be null, as in RentalDao.findByStoreId
+    public long estimateRentalsByStore(Connection conn, int storeID, LocalDateTime from, LocalDateTime to) throws SQLException {
+        return estimateMatchingRows(conn, RENTALS_BY_STORE_SQL, storeID,
+                from != null ? Timestamp.valueOf(from) : null, to != null ? Timestamp.valueOf(to) : null);
+    }
+
+    public long estimateFilmsByLanguage(Connection conn, int languageID) throws SQLException {
+        return estimateMatchingRows(conn, FILMS_BY_LANGUAGE_SQL, languageID);
+    }
+
+    public long estimateFilmsByActor(Connection conn, int actorID) throws SQLException {
+        return estimateMatchingRows(conn, FILMS_BY_ACTOR_SQL, actorID);
+    }
+
+    public long estimateFilmsByCategory(Connection conn, int categoryID) throws SQLException {
+        return estimateMatchingRows(conn, FILMS_BY_CATEGORY_SQL, categoryID);
+    }
+
+    public long estimateInventoryByFilmAndStore(Connection conn, int filmID, int storeID) throws SQLException {
+        return estimateMatchingRows(conn, INVENTORY_BY_FILM_AND_STORE_SQL, filmID, storeID);
+    }
+
+    public long estimateInventoryByStore(Connection conn, int storeID) throws SQLException {
+        return estimateMatchingRows(conn, INVENTORY_BY_STORE_SQL, storeID);
+    }
+
+    public long estimateFilmsByStore(Connection conn, int storeID) throws SQLException {
+        return estimateMatchingRows(conn, FILMS_BY_STORE_SQL, storeID);
+    }
+
+    public long estimateStoresByFilm(Connection conn, int filmID) throws SQLException {
+        return estimateMatchingRows(conn, STORES_BY_FILM_SQL, filmID);
+    }
+
+    // Planner estimate for the rows a filter matches; -1 when the plan has none
+    private long estimateMatchingRows(Connection conn, String query, Object... params) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("EXPLAIN " + query)) {
+            for (int i = 0; i < params.length; i++) {
+                // Only the open date bounds are ever null
+                if (params[i] != null) {
+                    ps.setObject(i + 1, params[i]);
+                } else {
+                    ps.setNull(i + 1, Types.TIMESTAMP);
+                }
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return -1;
+                Matcher rows = PLAN_ROWS.matcher(rs.getString(1));
+                return rows.find() ? Long.parseLong(rows.group(1)) : -1;
+            }
+        }
+    }
+}
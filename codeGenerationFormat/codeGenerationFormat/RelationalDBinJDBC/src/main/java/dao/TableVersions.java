@@ -0,0 +1,42 @@
+package dao;
+
+import DataBaseConnection.TransactionManager;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One change counter per table, bumped by the DAOs before every insert, update or delete
+ * and again once the writing transaction commits. Caches record the versions they read at
+ * and compare them on lookup (QueryCache, the response cache in VirtualThreadServlet).
+ * Counters are per node and start at zero.
+ */
+public final class TableVersions {
+
+    private static final Map<String, AtomicLong> VERSIONS = new ConcurrentHashMap<>();
+
+    private TableVersions() {
+    }
+
+    public static void bump(String table) {
+        AtomicLong version = counter(table);
+        version.incrementAndGet();
+        TransactionManager.afterCommit(version::incrementAndGet);
+    }
+
+    public static long get(String table) {
+        return counter(table).get();
+    }
+
+    public static long[] get(String... tables) {
+        long[] versions = new long[tables.length];
+        for (int i = 0; i < tables.length; i++) {
+            versions[i] = get(tables[i]);
+        }
+        return versions;
+    }
+
+    static AtomicLong counter(String table) {
+        return VERSIONS.computeIfAbsent(table, t -> new AtomicLong());
+    }
+}
@@ -1,8 +1,11 @@
 package model;
 
+import codegen.GenerateDao;
 import java.util.List;
 import java.time.LocalDateTime;
 
+@GenerateDao(table = "actor", key = "actor_id",
+        columns = {"actor_id", "first_name", "last_name", "last_update"})
 public class Actor {
 	
 	
@@ -1,8 +1,12 @@
 package model;
 
+import codegen.GenerateDao;
 import java.util.List;
 import java.time.LocalDateTime;
 
+@GenerateDao(table = "address", key = "address_id",
+        columns = {"address_id", "address", "address2", "district", "city_id", "postal_code", "phone", "last_update"},
+        finders = "city_id")
 public class Address {
     
 	private int addressId;
@@ -1,8 +1,12 @@
 package model;
 
+import codegen.GenerateDao;
 import java.util.List;
 import java.time.LocalDateTime;
 
+@GenerateDao(table = "category", key = "category_id",
+        columns = {"category_id", "name", "last_update"},
+        writes = false)
 public class Category {
     
 	private int categoryId;
@@ -1,8 +1,13 @@
 package model;
 
+import codegen.GenerateDao;
 import java.util.List;
 import java.time.LocalDateTime;
 
+@GenerateDao(table = "city", key = "city_id",
+        columns = {"city_id", "city", "country_id", "last_update"},
+        finders = "country_id",
+        writes = false)
 public class City {
 
 	private int cityId;
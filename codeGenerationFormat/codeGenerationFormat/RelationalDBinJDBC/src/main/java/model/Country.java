@@ -1,8 +1,12 @@
 package model;
 
+import codegen.GenerateDao;
 import java.util.List;
 import java.time.LocalDateTime;
 
+@GenerateDao(table = "country", key = "country_id",
+        columns = {"country_id", "country", "last_update"},
+        writes = false)
 public class Country {
 
 	private int countryId;
@@ -1,9 +1,13 @@
 package model;
 
+import codegen.GenerateDao;
 import java.util.List;
 import java.time.LocalDateTime;
 
 //checked
+@GenerateDao(table = "customer", key = "customer_id",
+        columns = {"customer_id", "store_id", "first_name", "last_name", "email", "address_id", "active", "create_date", "last_update"},
+        finders = {"store_id", "address_id"}, dates = "create_date")
 public class Customer {
     private int customerId;
     private Address address;
@@ -1,10 +1,15 @@
 package model;
 
+import codegen.GenerateDao;
 import java.util.List;
 import java.time.LocalDateTime;
 import java.math.BigDecimal;
 
 //Checked
+@GenerateDao(table = "film", key = "film_id",
+        columns = {"film_id", "title", "description", "release_year", "language_id", "original_language_id", "rental_duration", "rental_rate", "length", "replacement_cost", "rating", "special_features", "last_update"},
+        finders = {"language_id", "original_language_id"},
+        writes = false)
 public class Film {
     private int filmId;
     private Language language;
@@ -1,7 +1,11 @@
 package model;
 
+import codegen.GenerateDao;
 import java.time.LocalDateTime;
 
+@GenerateDao(table = "film_actor", key = {"actor_id", "film_id"},
+        columns = {"actor_id", "film_id", "last_update"},
+        finders = {"actor_id", "film_id"})
 public class FilmActor {
 
 	private int filmActorId;
@@ -1,7 +1,11 @@
 package model;
 
+import codegen.GenerateDao;
 import java.time.LocalDateTime;
 
+@GenerateDao(table = "film_category", key = {"film_id", "category_id"},
+        columns = {"film_id", "category_id", "last_update"},
+        finders = {"film_id", "category_id"})
 public class FilmCategory {
 
 	private int categoryId;
@@ -0,0 +1,41 @@
+package model;
+
+// One row of the film_store_availability read model (V4__film_store_availability.sql)
+public class FilmStoreAvailability {
+
+    private int filmId;
+
+    private int storeId;
+
+    private int total;
+
+    private int available;
+
+    public int getFilmId() {
+        return filmId;
+    }
+    public void setFilmId(int filmId) {
+        this.filmId = filmId;
+    }
+    public int getStoreId() {
+        return storeId;
+    }
+    public void setStoreId(int storeId) {
+        this.storeId = storeId;
+    }
+    public int getTotal() {
+        return total;
+    }
+    public void setTotal(int total) {
+        this.total = total;
+    }
+    public int getAvailable() {
+        return available;
+    }
+    public void setAvailable(int available) {
+        this.available = available;
+    }
+    public int getRented() {
+        return total - available;
+    }
+}
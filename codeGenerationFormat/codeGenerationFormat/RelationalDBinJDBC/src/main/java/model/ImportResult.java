@@ -0,0 +1,64 @@
+package model;
+
+import java.util.List;
+import java.util.Map;
+
+public class ImportResult {
+
+    private String target;
+
+    private long received;
+
+    private long inserted;
+
+    private long updated;
+
+    private long skipped;
+
+    private long rejected;
+
+    private List<Map<String, Object>> rejectedRows;
+
+    public String getTarget() {
+        return target;
+    }
+    public void setTarget(String target) {
+        this.target = target;
+    }
+    public long getReceived() {
+        return received;
+    }
+    public void setReceived(long received) {
+        this.received = received;
+    }
+    public long getInserted() {
+        return inserted;
+    }
+    public void setInserted(long inserted) {
+        this.inserted = inserted;
+    }
+    public long getUpdated() {
+        return updated;
+    }
+    public void setUpdated(long updated) {
+        this.updated = updated;
+    }
+    public long getSkipped() {
+        return skipped;
+    }
+    public void setSkipped(long skipped) {
+        this.skipped = skipped;
+    }
+    public long getRejected() {
+        return rejected;
+    }
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+    public List<Map<String, Object>> getRejectedRows() {
+        return rejectedRows;
+    }
+    public void setRejectedRows(List<Map<String, Object>> rejectedRows) {
+        this.rejectedRows = rejectedRows;
+    }
+}
@@ -1,8 +1,13 @@
 package model;
 
+import codegen.GenerateDao;
 import java.util.List;
 import java.time.LocalDateTime;
 
+@GenerateDao(table = "inventory", key = "inventory_id",
+        columns = {"inventory_id", "film_id", "store_id", "last_update"},
+        finders = {"film_id", "store_id"},
+        writes = false)
 public class Inventory {
 
 	private int inventoryId;
@@ -1,8 +1,12 @@
 package model;
 
+import codegen.GenerateDao;
 import java.util.List;
 import java.time.LocalDateTime;
 
+@GenerateDao(table = "language", key = "language_id",
+        columns = {"language_id", "name", "last_update"},
+        writes = false)
 public class Language {
 
     private int languageId;
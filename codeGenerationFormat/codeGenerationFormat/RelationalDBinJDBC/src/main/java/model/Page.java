@@ -0,0 +1,51 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+public class Page<T> {
+
+    private List<T> items;
+
+    private Integer nextCursor;
+
+    private Long estimatedTotal;
+
+    public Page(List<T> items, Integer nextCursor, Long estimatedTotal) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.estimatedTotal = estimatedTotal;
+    }
+
+    // Expects up to limit + 1 rows; the extra row only tells us another page exists
+    public static <T> Page<T> of(List<T> rows, int limit, ToIntFunction<T> keyOf) {
+        if (rows.size() <= limit) {
+            return new Page<>(rows, null, null);
+        }
+        List<T> items = new ArrayList<>(rows.subList(0, limit));
+        return new Page<>(items, keyOf.applyAsInt(items.get(limit - 1)), null);
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+    public Integer getNextCursor() {
+        return nextCursor;
+    }
+    public void setNextCursor(Integer nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+    public Long getEstimatedTotal() {
+        return estimatedTotal;
+    }
+    public void setEstimatedTotal(Long estimatedTotal) {
+        this.estimatedTotal = estimatedTotal;
+    }
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
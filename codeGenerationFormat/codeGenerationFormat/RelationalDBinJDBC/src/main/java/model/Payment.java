@@ -1,8 +1,12 @@
 package model;
 
+import codegen.GenerateDao;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
+@GenerateDao(table = "payment", key = "payment_id",
+        columns = {"payment_id", "customer_id", "staff_id", "rental_id", "amount", "payment_date", "last_update"},
+        finders = {"customer_id", "staff_id", "rental_id"})
 public class Payment {
 
 	private int paymentId;
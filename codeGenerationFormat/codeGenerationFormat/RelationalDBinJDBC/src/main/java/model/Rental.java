@@ -1,8 +1,13 @@
 package model;
 
+import codegen.GenerateDao;
 import java.util.List;
 import java.time.LocalDateTime;
 
+@GenerateDao(table = "rental", key = "rental_id",
+        columns = {"rental_id", "rental_date", "inventory_id", "customer_id", "return_date", "staff_id", "last_update"},
+        finders = {"inventory_id", "customer_id", "staff_id"},
+        writes = false)
 public class Rental {
 
 	private int rentalId;
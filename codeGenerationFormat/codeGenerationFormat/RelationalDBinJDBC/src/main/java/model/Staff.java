@@ -1,8 +1,13 @@
 package model;
 
+import codegen.GenerateDao;
 import java.util.List;
 import java.time.LocalDateTime;
 
+@GenerateDao(table = "staff", key = "staff_id",
+        columns = {"staff_id", "first_name", "last_name", "address_id", "email", "store_id", "active", "username", "password", "last_update", "picture"},
+        finders = {"address_id", "store_id"},
+        writes = false)
 public class Staff {
 
 	private int staffId;
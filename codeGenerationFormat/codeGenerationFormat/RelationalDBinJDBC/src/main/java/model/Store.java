@@ -1,8 +1,11 @@
 package model;
 
+import codegen.GenerateDao;
 import java.util.List;
 import java.time.LocalDateTime;
 
+@GenerateDao(table = "store", key = "store_id",
+        columns = {"store_id", "manager_staff_id", "address_id", "last_update"})
 public class Store {
 
     private int storeId;
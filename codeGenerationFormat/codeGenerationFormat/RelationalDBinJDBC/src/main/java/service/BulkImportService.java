@@ -0,0 +1,66 @@
+package service;
+
+import dao.BulkImportDao;
+import model.ImportResult;
+import DataBaseConnection.TransactionManager;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+public class BulkImportService {
+    
+    private final BulkImportDao bulkImportDao;
+    
+    public BulkImportService() {
+        this.bulkImportDao = new BulkImportDao();
+    }
+    
+    // Business Logic: Bulk import - COPY the feed into staging and merge it, all in one transaction
+    public Map<String, Object> handleImport(String targetName, String format, Reader body) throws SQLException {
+        BulkImportDao.Target target = parseTarget(targetName);
+        boolean ndjson = parseFormat(format);
+        
+        ImportResult result = TransactionManager.executeInTransaction(connection -> {
+            try {
+                return ndjson
+                        ? bulkImportDao.importNdjson(connection, target, body)
+                        : bulkImportDao.importCsv(connection, target, body);
+            } catch (IOException e) {
+                throw new SQLException("Failed to read import body: " + e.getMessage(), e);
+            }
+        });
+        
+        Map<String, Object> responseData = new HashMap<>();
+        responseData.put("success", true);
+        responseData.put("target", result.getTarget());
+        responseData.put("received", result.getReceived());
+        responseData.put("inserted", result.getInserted());
+        responseData.put("updated", result.getUpdated());
+        responseData.put("skipped", result.getSkipped());
+        responseData.put("rejected", result.getRejected());
+        responseData.put("rejectedRows", result.getRejectedRows());
+        responseData.put("message", result.getReceived() + " rows received, " + result.getRejected() + " rejected");
+        return responseData;
+    }
+    
+    private BulkImportDao.Target parseTarget(String targetName) {
+        if (targetName == null) {
+            throw new IllegalArgumentException("Import target required: /imports/films, /imports/inventory or /imports/payments");
+        }
+        switch (targetName) {
+            case "films": return BulkImportDao.Target.FILM;
+            case "inventory": return BulkImportDao.Target.INVENTORY;
+            case "payments": return BulkImportDao.Target.PAYMENT;
+            default: throw new IllegalArgumentException("Unknown import target: " + targetName);
+        }
+    }
+    
+    private boolean parseFormat(String format) {
+        if ("ndjson".equals(format)) return true;
+        if ("csv".equals(format)) return false;
+        throw new IllegalArgumentException("Unsupported import format: " + format + " (use csv or ndjson)");
+    }
+}
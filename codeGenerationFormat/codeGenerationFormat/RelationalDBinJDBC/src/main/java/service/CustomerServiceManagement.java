@@ -1,9 +1,12 @@
 package service;
 
 import dao.*;
+import dao.generated.PaymentGeneratedDao;
 import model.*;
 import DataBaseConnection.TransactionManager;
+import config.DatabaseConfig;
 
+import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
@@ -18,7 +21,9 @@ public class CustomerServiceManagement {
     private final CountryDao countryDao;
     private final StoreDao storeDao;
     private final RentalDao rentalDao;
-    private final PaymentDao paymentDao;
+    private final PaymentGeneratedDao paymentDao;
+    private final CustomerGraphDao customerGraphDao;
+    private final TableStatsDao tableStatsDao;
     
     public CustomerServiceManagement() {
         this.customerDao = new CustomerDao();
@@ -27,7 +32,9 @@ public class CustomerServiceManagement {
         this.countryDao = new CountryDao();
         this.storeDao = new StoreDao();
         this.rentalDao = new RentalDao();
-        this.paymentDao = new PaymentDao();
+        this.paymentDao = new PaymentGeneratedDao();
+        this.customerGraphDao = new CustomerGraphDao();
+        this.tableStatsDao = new TableStatsDao();
     }
     
     // Business Logic: Create Customer - Returns Customer object
@@ -110,7 +117,7 @@ public class CustomerServiceManagement {
     
     // Business Logic: Get Customer by ID - Returns Customer object
     public Customer getCustomerById(int customerId) throws SQLException {
-        return TransactionManager.executeInTransaction(connection -> {
+        return TransactionManager.executeReadOnly(connection -> {
             Customer customer = buildCustomerWithRelationships(connection, customerId);
             
             if (customer == null) {
@@ -123,72 +130,61 @@ public class CustomerServiceManagement {
     
     // Business Logic: Get All Customers - Returns List<Customer>
     public List<Customer> getAllCustomers() throws SQLException {
-        return TransactionManager.executeInTransaction(connection -> {
-            List<Customer> customers = customerDao.findAll(connection);
-            List<Customer> customersWithDetails = new ArrayList<>();
-            
-            for (Customer customer : customers) {
-                try {
-                    Customer customerWithDetails = buildCustomerWithRelationships(connection, customer.getCustomerId());
-                    if (customerWithDetails != null) {
-                        customersWithDetails.add(customerWithDetails);
-                    }
-                } catch (Exception e) {
-                    customer.setRentalList(new ArrayList<>());
-                    customer.setPaymentList(new ArrayList<>());
-                    customersWithDetails.add(customer);
-                }
-            }
-            
-            return customersWithDetails;
+        return TransactionManager.executeReadOnly(connection -> {
+            // Whole customer graph in a single statement
+            return customerGraphDao.findAll(connection);
+        });
+    }
+    
+    // Business Logic: Stream all customers (full graph per row) through a server-side cursor
+    public void streamAllCustomers(RowHandler<Customer> handler) throws SQLException {
+        TransactionManager.executeReadOnly(Connection.TRANSACTION_REPEATABLE_READ, connection -> {
+            customerGraphDao.streamAll(connection, DatabaseConfig.getStreamFetchSize(), handler);
+            return null;
+        });
+    }
+    
+    // Business Logic: Get one keyset page of customers - Returns Page<Customer>
+    public Page<Customer> getCustomerPage(int afterId, int limit, boolean descending, boolean withEstimate) throws SQLException {
+        return TransactionManager.executeReadOnly(connection -> {
+            List<Customer> rows = customerGraphDao.findPage(connection, afterId, limit + 1, descending);
+            Page<Customer> page = Page.of(rows, limit, Customer::getCustomerId);
+            if (withEstimate) page.setEstimatedTotal(tableStatsDao.estimateRowCount(connection, "customer"));
+            return page;
         });
     }
     
     // Business Logic: Get Customers by Store - Returns List<Customer>
     public List<Customer> getCustomersByStore(int storeId) throws SQLException {
-        return TransactionManager.executeInTransaction(connection -> {
-            List<Customer> customers = customerDao.findByStoreId(connection, storeId);
-            List<Customer> customersWithDetails = new ArrayList<>();
-            
-            for (Customer customer : customers) {
-                try {
-                    Customer customerWithDetails = buildCustomerWithRelationships(connection, customer.getCustomerId());
-                    if (customerWithDetails != null) {
-                        customersWithDetails.add(customerWithDetails);
-                    }
-                } catch (Exception e) {
-                    customer.setRentalList(new ArrayList<>());
-                    customer.setPaymentList(new ArrayList<>());
-                    customersWithDetails.add(customer);
-                }
-            }
-            
-            return customersWithDetails;
+        return TransactionManager.executeReadOnly(connection -> {
+            return customerGraphDao.findByStoreId(connection, storeId);
+        });
+    }
+    
+    // Business Logic: Get one keyset page of a store's customers - Returns Page<Customer>
+    public Page<Customer> getCustomersByStorePage(int storeId, int afterId, int limit, boolean descending, boolean withEstimate) throws SQLException {
+        return TransactionManager.executeReadOnly(connection -> {
+            List<Customer> rows = customerGraphDao.findByStoreId(connection, storeId, afterId, limit + 1, descending);
+            Page<Customer> page = Page.of(rows, limit, Customer::getCustomerId);
+            if (withEstimate) page.setEstimatedTotal(tableStatsDao.estimateCustomersByStore(connection, storeId));
+            return page;
         });
     }
     
     // Business Logic: Get Customers by Active Status - Returns List<Customer>
     public List<Customer> getCustomersByActiveStatus(boolean isActive) throws SQLException {
-        return TransactionManager.executeInTransaction(connection -> {
-            List<Customer> allCustomers = customerDao.findAll(connection);
-            List<Customer> filteredCustomers = new ArrayList<>();
-            
-            for (Customer customer : allCustomers) {
-                if (customer.isActive() == isActive) {
-                    try {
-                        Customer customerWithDetails = buildCustomerWithRelationships(connection, customer.getCustomerId());
-                        if (customerWithDetails != null) {
-                            filteredCustomers.add(customerWithDetails);
-                        }
-                    } catch (Exception e) {
-                        customer.setRentalList(new ArrayList<>());
-                        customer.setPaymentList(new ArrayList<>());
-                        filteredCustomers.add(customer);
-                    }
-                }
-            }
-            
-            return filteredCustomers;
+        return TransactionManager.executeReadOnly(connection -> {
+            return customerGraphDao.findByActive(connection, isActive);
+        });
+    }
+    
+    // Business Logic: Get one keyset page of customers by active status - Returns Page<Customer>
+    public Page<Customer> getCustomersByActiveStatusPage(boolean isActive, int afterId, int limit, boolean descending, boolean withEstimate) throws SQLException {
+        return TransactionManager.executeReadOnly(connection -> {
+            List<Customer> rows = customerGraphDao.findByActive(connection, isActive, afterId, limit + 1, descending);
+            Page<Customer> page = Page.of(rows, limit, Customer::getCustomerId);
+            if (withEstimate) page.setEstimatedTotal(tableStatsDao.estimateCustomersByActive(connection, isActive));
+            return page;
         });
     }
     
@@ -265,57 +261,9 @@ public class CustomerServiceManagement {
     }
 
     
+    // Business Logic: Build Customer with Relationships (address, city, country, store, rentals, payments)
     private Customer buildCustomerWithRelationships(java.sql.Connection connection, int customerId) throws SQLException {
-        Customer customer = customerDao.findById(connection, customerId);
-        if (customer == null) return null;
-        
-        // Load relationships
-        try {
-            // Load address with city and country
-            if (customer.getAddress() != null && customer.getAddress().getAddressId() > 0) {
-                Address address = addressDao.findById(connection, customer.getAddress().getAddressId());
-                if (address != null) {
-                    // Load city
-                    if (address.getCity().getCityId() > 0) {
-                        City city = cityDao.findById(connection, address.getCity().getCityId());
-                        if (city != null) {
-                            address.setCity(city);
-                            
-                            // Load country
-                            if (city.getCountry().getCountryId() > 0) {
-                                Country country = countryDao.findById(connection, city.getCountry().getCountryId());
-                                if (country != null) {
-                                    city.setCountry(country);
-                                }
-                            }
-                        }
-                    }
-                    customer.setAddress(address);
-                }
-            }
-            
-            // Load store
-            if (customer.getStore() != null && customer.getStore().getStoreId() > 0) {
-                Store store = storeDao.findById(connection, customer.getStore().getStoreId());
-                if (store != null) {
-                    customer.setStore(store);
-                }
-            }
-            
-            // Load rentals and payments
-            List<Rental> rentals = rentalDao.findByCustomerId(connection, customerId);
-            customer.setRentalList(rentals != null ? rentals : new ArrayList<>());
-            
-            List<Payment> payments = paymentDao.findByCustomerId(connection, customerId);
-            customer.setPaymentList(payments != null ? payments : new ArrayList<>());
-            
-        } catch (Exception e) {
-            System.err.println("⚠️ Error loading relationships for customer " + customerId + ": " + e.getMessage());
-            customer.setRentalList(new ArrayList<>());
-            customer.setPaymentList(new ArrayList<>());
-        }
-        
-        return customer;
+        return customerGraphDao.findById(connection, customerId);
     }
     
     // Helper mapping methods
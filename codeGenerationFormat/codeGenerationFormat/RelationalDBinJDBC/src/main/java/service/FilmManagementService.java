@@ -2,7 +2,10 @@ package service;
 
 import dao.*;
 import model.*;
+import DataBaseConnection.ParallelReadScope;
+import DataBaseConnection.SchemaMigrations;
 import DataBaseConnection.TransactionManager;
+import config.DatabaseConfig;
 
 import java.sql.Connection;
 import java.sql.SQLException;
@@ -22,6 +25,13 @@ public class FilmManagementService {
     private final InventoryDao inventoryDao;
     private final RentalDao rentalDao;
     private final StoreDao storeDao;
+    private final TableStatsDao tableStatsDao;
+    private final FilmStoreAvailabilityDao availabilityDao;
+    
+    // Shared by every instance, so concurrent requests for the same film collapse into one load
+    private static final SingleFlight<Integer, Film> FILM_FLIGHTS = new SingleFlight<>("film");
+    private static final SingleFlight<Integer, List<Map<String, Object>>> INVENTORY_FLIGHTS = new SingleFlight<>("filmInventory");
+    private static final SingleFlight<List<Integer>, List<Map<String, Object>>> STORE_INVENTORY_FLIGHTS = new SingleFlight<>("filmStoreInventory");
     
     public FilmManagementService() {
         this.filmDao = new FilmDao();
@@ -33,13 +43,19 @@ public class FilmManagementService {
         this.inventoryDao = new InventoryDao();
         this.rentalDao = new RentalDao();
         this.storeDao = new StoreDao();
+        this.tableStatsDao = new TableStatsDao();
+        this.availabilityDao = new FilmStoreAvailabilityDao();
     }
     
   
     
     //  Handle film inventory query - GET /films/1/inventory
     public List<Map<String, Object>> handleFilmInventoryQuery(int filmId) throws SQLException {
-        return TransactionManager.executeInTransaction(connection -> {
+        return INVENTORY_FLIGHTS.execute(filmId, () -> loadFilmInventory(filmId));
+    }
+
+    private List<Map<String, Object>> loadFilmInventory(int filmId) throws SQLException {
+        return TransactionManager.executeReadOnly(connection -> {
             try {
                 // Validate film exists
                 Film film = filmDao.findById(connection, filmId);
@@ -47,6 +63,27 @@ public class FilmManagementService {
                     throw new IllegalArgumentException("Film not found with ID: " + filmId);
                 }
                 
+                // Counts from the database read model: one indexed lookup
+                if (DatabaseConfig.isAvailabilityReadModelEnabled() && SchemaMigrations.isAvailabilityReadModelInstalled()) {
+                    List<Map<String, Object>> storeInventory = new ArrayList<>();
+                    for (FilmStoreAvailability availability : availabilityDao.findByFilmId(connection, filmId)) {
+                        storeInventory.add(storeAvailability(film, availability.getStoreId(),
+                                availability.getTotal(), availability.getAvailable()));
+                    }
+                    return storeInventory;
+                }
+                
+                // Counts straight from the availability index once it is built
+                Map<Integer, InventoryAvailabilityIndex.Availability> byStore = InventoryAvailabilityIndex.byStore(filmId);
+                if (byStore != null) {
+                    List<Map<String, Object>> storeInventory = new ArrayList<>();
+                    for (Map.Entry<Integer, InventoryAvailabilityIndex.Availability> entry : byStore.entrySet()) {
+                        storeInventory.add(storeAvailability(film, entry.getKey(),
+                                entry.getValue().total(), entry.getValue().available()));
+                    }
+                    return storeInventory;
+                }
+                
                 // Get all inventory for this film
                 List<Inventory> inventoryList = inventoryDao.findByFilmId(connection, filmId);
                 
@@ -69,10 +106,7 @@ public class FilmManagementService {
                     storeData.put("total", (Integer) storeData.get("total") + 1);
                     
                     // Check if this inventory is currently rented
-                    List<Rental> activeRentals = rentalDao.findByInventoryId(connection, inventory.getInventoryId())
-                        .stream()
-                        .filter(r -> r.getReturnDate() == null)
-                        .collect(Collectors.toList());
+                    List<Rental> activeRentals = rentalDao.findActiveByInventoryId(connection, inventory.getInventoryId());
                     
                     if (activeRentals.isEmpty()) {
                         storeData.put("available", (Integer) storeData.get("available") + 1);
@@ -90,9 +124,24 @@ public class FilmManagementService {
         });
     }
 
+    private Map<String, Object> storeAvailability(Film film, int storeId, int total, int available) {
+        Map<String, Object> storeData = new HashMap<>();
+        storeData.put("storeId", storeId);
+        storeData.put("filmId", film.getFilmId());
+        storeData.put("filmTitle", film.getTitle());
+        storeData.put("total", total);
+        storeData.put("available", available);
+        storeData.put("rented", total - available);
+        return storeData;
+    }
+
     //  NEW: Handle film store inventory query - GET /films/1/inventory/3
     public List<Map<String, Object>> handleFilmStoreInventoryQuery(int filmId, int storeId) throws SQLException {
-        return TransactionManager.executeInTransaction(connection -> {
+        return STORE_INVENTORY_FLIGHTS.execute(List.of(filmId, storeId), () -> loadFilmStoreInventory(filmId, storeId));
+    }
+
+    private List<Map<String, Object>> loadFilmStoreInventory(int filmId, int storeId) throws SQLException {
+        return TransactionManager.executeReadOnly(connection -> {
             try {
                 // Validate film exists
                 Film film = filmDao.findById(connection, filmId);
@@ -112,37 +161,8 @@ public class FilmManagementService {
                     .filter(inv -> inv.getStore().getStoreId() == storeId)
                     .collect(Collectors.toList());
                 
-                List<Map<String, Object>> inventoryDetails = new ArrayList<>();
-                
-                for (Inventory inventory : inventoryList) {
-                    Map<String, Object> inventoryData = new HashMap<>();
-                    inventoryData.put("inventoryId", inventory.getInventoryId());
-                    inventoryData.put("filmId", filmId);
-                    inventoryData.put("filmTitle", film.getTitle());
-                    inventoryData.put("storeId", storeId);
-                    inventoryData.put("lastUpdate", inventory.getLastUpdate().toString());
-                    
-                    // Check rental status
-                    List<Rental> activeRentals = rentalDao.findByInventoryId(connection, inventory.getInventoryId())
-                        .stream()
-                        .filter(r -> r.getReturnDate() == null)
-                        .collect(Collectors.toList());
-                    
-                    if (activeRentals.isEmpty()) {
-                        inventoryData.put("status", "AVAILABLE");
-                    } else {
-                        Rental rental = activeRentals.get(0);
-                        inventoryData.put("status", "RENTED");
-                        inventoryData.put("rentalId", rental.getRentalId());
-                        inventoryData.put("customerId", rental.getCustomer().getCustomerId());
-                        inventoryData.put("rentalDate", rental.getRentalDate().toString());
-                    }
-                    
-                    inventoryDetails.add(inventoryData);
-                }
-                
                 // Return the list directly
-                return inventoryDetails;
+                return inventoryDetails(connection, film, storeId, inventoryList);
                 
             } catch (Exception e) {
                 throw new RuntimeException("Failed to retrieve store inventory: " + e.getMessage(), e);
@@ -150,6 +170,110 @@ public class FilmManagementService {
         });
     }
 
+    // Business Logic: One keyset page of a film's copies at a store - cursor is the inventory_id
+    public Page<Map<String, Object>> getFilmStoreInventoryPage(int filmId, int storeId, int afterId, int limit,
+            boolean descending, boolean withEstimate) throws SQLException {
+        return TransactionManager.executeReadOnly(connection -> {
+            Film film = filmDao.findById(connection, filmId);
+            if (film == null) {
+                throw new IllegalArgumentException("Film not found with ID: " + filmId);
+            }
+            if (storeDao.findById(connection, storeId) == null) {
+                throw new IllegalArgumentException("Store not found with ID: " + storeId);
+            }
+            
+            List<Inventory> rows = inventoryDao.findByFilmAndStoreId(connection, filmId, storeId, afterId, limit + 1, descending);
+            Page<Inventory> copies = Page.of(rows, limit, Inventory::getInventoryId);
+            Page<Map<String, Object>> page = new Page<>(inventoryDetails(connection, film, storeId, copies.getItems()),
+                    copies.getNextCursor(), null);
+            if (withEstimate) page.setEstimatedTotal(tableStatsDao.estimateInventoryByFilmAndStore(connection, filmId, storeId));
+            return page;
+        });
+    }
+
+    // Business Logic: One keyset page of a film's per-store counts - one row per store, so the cursor is the store_id
+    public Page<Map<String, Object>> getFilmInventoryPage(int filmId, int afterStoreId, int limit, boolean descending,
+            boolean withEstimate) throws SQLException {
+        return TransactionManager.executeReadOnly(connection -> {
+            Film film = filmDao.findById(connection, filmId);
+            if (film == null) {
+                throw new IllegalArgumentException("Film not found with ID: " + filmId);
+            }
+            
+            List<FilmStoreAvailability> rows;
+            Map<Integer, InventoryAvailabilityIndex.Availability> byStore;
+            if (DatabaseConfig.isAvailabilityReadModelEnabled() && SchemaMigrations.isAvailabilityReadModelInstalled()) {
+                rows = availabilityDao.findPageByFilmId(connection, filmId, afterStoreId, limit + 1, descending);
+            } else if ((byStore = InventoryAvailabilityIndex.byStore(filmId)) != null) {
+                rows = indexPage(filmId, byStore, afterStoreId, limit + 1, descending);
+            } else {
+                rows = inventoryDao.countAvailabilityByFilmId(connection, filmId, afterStoreId, limit + 1, descending);
+            }
+            
+            Page<FilmStoreAvailability> stores = Page.of(rows, limit, FilmStoreAvailability::getStoreId);
+            List<Map<String, Object>> items = new ArrayList<>();
+            for (FilmStoreAvailability availability : stores.getItems()) {
+                items.add(storeAvailability(film, availability.getStoreId(), availability.getTotal(), availability.getAvailable()));
+            }
+            Page<Map<String, Object>> page = new Page<>(items, stores.getNextCursor(), null);
+            if (withEstimate) page.setEstimatedTotal(tableStatsDao.estimateStoresByFilm(connection, filmId));
+            return page;
+        });
+    }
+
+    // The index holds a handful of stores per film; walk them in store order from the cursor
+    private List<FilmStoreAvailability> indexPage(int filmId, Map<Integer, InventoryAvailabilityIndex.Availability> byStore,
+            int afterStoreId, int limit, boolean descending) {
+        TreeMap<Integer, InventoryAvailabilityIndex.Availability> ordered = new TreeMap<>(byStore);
+        NavigableMap<Integer, InventoryAvailabilityIndex.Availability> range = descending
+                ? (afterStoreId > 0 ? ordered.headMap(afterStoreId, false) : ordered).descendingMap()
+                : ordered.tailMap(afterStoreId, false);
+        List<FilmStoreAvailability> rows = new ArrayList<>();
+        for (Map.Entry<Integer, InventoryAvailabilityIndex.Availability> entry : range.entrySet()) {
+            if (rows.size() == limit) break;
+            FilmStoreAvailability availability = new FilmStoreAvailability();
+            availability.setFilmId(filmId);
+            availability.setStoreId(entry.getKey());
+            availability.setTotal(entry.getValue().total());
+            availability.setAvailable(entry.getValue().available());
+            rows.add(availability);
+        }
+        return rows;
+    }
+
+    private List<Map<String, Object>> inventoryDetails(Connection connection, Film film, int storeId,
+            List<Inventory> inventoryList) throws SQLException {
+        int filmId = film.getFilmId();
+        List<Map<String, Object>> inventoryDetails = new ArrayList<>();
+        
+        for (Inventory inventory : inventoryList) {
+            Map<String, Object> inventoryData = new HashMap<>();
+            inventoryData.put("inventoryId", inventory.getInventoryId());
+            inventoryData.put("filmId", filmId);
+            inventoryData.put("filmTitle", film.getTitle());
+            inventoryData.put("storeId", storeId);
+            inventoryData.put("lastUpdate", inventory.getLastUpdate().toString());
+            
+            // Check rental status; copies the index knows to be on the shelf need no query
+            List<Rental> activeRentals = InventoryAvailabilityIndex.isReady() && !InventoryAvailabilityIndex.isRented(inventory.getInventoryId())
+                    ? List.of()
+                    : rentalDao.findActiveByInventoryId(connection, inventory.getInventoryId());
+            
+            if (activeRentals.isEmpty()) {
+                inventoryData.put("status", "AVAILABLE");
+            } else {
+                Rental rental = activeRentals.get(0);
+                inventoryData.put("status", "RENTED");
+                inventoryData.put("rentalId", rental.getRentalId());
+                inventoryData.put("customerId", rental.getCustomer().getCustomerId());
+                inventoryData.put("rentalDate", rental.getRentalDate().toString());
+            }
+            
+            inventoryDetails.add(inventoryData);
+        }
+        
+        return inventoryDetails;
+    }
 
     // Handle inventory creation
     public Map<String, Object> handleInventoryCreation(int filmId, int storeId, int quantity) throws SQLException {
@@ -167,16 +291,19 @@ public class FilmManagementService {
                     throw new IllegalArgumentException("Store not found with ID: " + storeId);
                 }
                 
-                List<Integer> inventoryIds = new ArrayList<>();
-                
-                // Create multiple inventory entries for the quantity
+                // Create all copies with a single multi-row insert
+                LocalDateTime now = LocalDateTime.now();
+                List<Inventory> copies = new ArrayList<>();
                 for (int i = 0; i < quantity; i++) {
                     Inventory inventory = new Inventory();
                     inventory.setFilm(film);
                     inventory.setStore(store);
-                    inventory.setLastUpdate(LocalDateTime.now());
-                    
-                    int inventoryId = inventoryDao.insert(connection, inventory);
+                    inventory.setLastUpdate(now);
+                    copies.add(inventory);
+                }
+                
+                List<Integer> inventoryIds = new ArrayList<>();
+                for (int inventoryId : inventoryDao.insertBatch(connection, copies)) {
                     inventoryIds.add(inventoryId);
                 }
                 
@@ -225,14 +352,11 @@ public class FilmManagementService {
                     
                     // Create language if provided
                     if (language != null) {
-                        //  CHECK IF LANGUAGE EXISTS FIRST
-                        List<Language> existingLanguages = languageDao.findAll(connection)
-                            .stream()
-                            .filter(l -> l.getName().equalsIgnoreCase(language.getName()))
-                            .collect(Collectors.toList());
+                        //  CHECK IF LANGUAGE EXISTS FIRST (reference snapshot, no round trip)
+                        Language existingLanguage = ReferenceDataCache.LANGUAGES.byName(connection, language.getName());
                         
-                        if (!existingLanguages.isEmpty()) {
-                            film.setLanguage(existingLanguages.get(0));
+                        if (existingLanguage != null) {
+                            film.setLanguage(existingLanguage);
                         } else {
                             language.setLastUpdate(LocalDateTime.now());
                             int languageId = languageDao.insert(connection, language);
@@ -284,12 +408,8 @@ public class FilmManagementService {
                     
                     //  CATEGORIES: Avoid duplicates
                     if (!categories.isEmpty()) {
-                        List<Category> allCategories = categoryDao.findAll(connection);
                         for (Category category : categories) {
-                            Category actualCategory = allCategories.stream()
-                                .filter(c -> c.getName().equalsIgnoreCase(category.getName()))
-                                .findFirst()
-                                .orElse(null);
+                            Category actualCategory = ReferenceDataCache.CATEGORIES.byName(connection, category.getName());
                             
                             if (actualCategory == null) {
                                 category.setLastUpdate(LocalDateTime.now());
@@ -322,8 +442,14 @@ public class FilmManagementService {
 
     // Business Logic: Get Film by ID - Returns Film with FULL relationships
     public Film getFilmById(int filmId) throws SQLException {
-        return TransactionManager.executeInTransaction(connection -> {
-            Film film = buildFilmWithRelationships(connection, filmId);
+        return FILM_FLIGHTS.execute(filmId, () -> loadFilmById(filmId));
+    }
+
+    private Film loadFilmById(int filmId) throws SQLException {
+        return TransactionManager.executeReadOnly(connection -> {
+            Film film = DatabaseConfig.isParallelHydrationEnabled()
+                    ? buildFilmWithRelationshipsParallel(connection, filmId)
+                    : buildFilmWithRelationships(connection, filmId);
             
             if (film == null) {
                 throw new IllegalArgumentException("Film not found with ID: " + filmId);
@@ -333,9 +459,13 @@ public class FilmManagementService {
         });
     }
     
+    public static List<SingleFlight<?, ?>> getFlights() {
+        return List.of(FILM_FLIGHTS, INVENTORY_FLIGHTS, STORE_INVENTORY_FLIGHTS);
+    }
+    
     // Business Logic: Get All Films - Returns List<Film> with FULL relationships
     public List<Film> getAllFilms() throws SQLException {
-        return TransactionManager.executeInTransaction(connection -> {
+        return TransactionManager.executeReadOnly(connection -> {
             List<Film> films = filmDao.findAll(connection);
             List<Film> filmsWithDetails = new ArrayList<>();
             
@@ -359,9 +489,38 @@ public class FilmManagementService {
     }
     
     
+    // Business Logic: Stream all films with FULL relationships through a server-side cursor
+    public void streamAllFilms(RowHandler<Film> handler) throws SQLException {
+        TransactionManager.executeReadOnly(Connection.TRANSACTION_REPEATABLE_READ, connection -> {
+            filmDao.streamAll(connection, DatabaseConfig.getStreamFetchSize(), film -> {
+                Film filmWithDetails = buildFilmWithRelationships(connection, film.getFilmId());
+                handler.handle(filmWithDetails != null ? filmWithDetails : film);
+            });
+            return null;
+        });
+    }
+    
+    // Business Logic: Get one keyset page of films - Returns Page<Film> with FULL relationships
+    public Page<Film> getFilmPage(int afterId, int limit, boolean descending, boolean withEstimate) throws SQLException {
+        return TransactionManager.executeReadOnly(connection -> {
+            List<Film> rows = filmDao.findPage(connection, afterId, limit + 1, descending);
+            Page<Film> page = Page.of(rows, limit, Film::getFilmId);
+            
+            List<Film> filmsWithDetails = new ArrayList<>();
+            for (Film film : page.getItems()) {
+                Film filmWithDetails = buildFilmWithRelationships(connection, film.getFilmId());
+                filmsWithDetails.add(filmWithDetails != null ? filmWithDetails : film);
+            }
+            page.setItems(filmsWithDetails);
+            
+            if (withEstimate) page.setEstimatedTotal(tableStatsDao.estimateRowCount(connection, "film"));
+            return page;
+        });
+    }
+    
     // Business Logic: Get Films by Language - Returns List<Film> with FULL relationships
     public List<Film> getFilmsByLanguage(int languageId) throws SQLException {
-        return TransactionManager.executeInTransaction(connection -> {
+        return TransactionManager.executeReadOnly(connection -> {
             List<Film> films = filmDao.findByLanguageId(connection, languageId);
             List<Film> filmsWithDetails = new ArrayList<>();
             
@@ -383,9 +542,19 @@ public class FilmManagementService {
         });
     }
     
+    // Business Logic: Get one keyset page of Films by Language - Returns Page<Film> with FULL relationships
+    public Page<Film> getFilmsByLanguagePage(int languageId, int afterId, int limit, boolean descending, boolean withEstimate) throws SQLException {
+        return TransactionManager.executeReadOnly(connection -> {
+            Page<Film> page = Page.of(filmDao.findByLanguageId(connection, languageId, afterId, limit + 1, descending), limit, Film::getFilmId);
+            page.setItems(withDetails(connection, page.getItems()));
+            if (withEstimate) page.setEstimatedTotal(tableStatsDao.estimateFilmsByLanguage(connection, languageId));
+            return page;
+        });
+    }
+    
     // Business Logic: Get Films by Actor - Returns List<Film> with FULL relationships
     public List<Film> getFilmsByActor(int actorId) throws SQLException {
-        return TransactionManager.executeInTransaction(connection -> {
+        return TransactionManager.executeReadOnly(connection -> {
             // Get film IDs that this actor appears in
             List<FilmActor> filmActors = filmActorDao.findByActorId(connection, actorId);
             List<Film> filmsWithDetails = new ArrayList<>();
@@ -412,9 +581,19 @@ public class FilmManagementService {
         });
     }
     
+    // Business Logic: Get one keyset page of Films by Actor - Returns Page<Film> with FULL relationships
+    public Page<Film> getFilmsByActorPage(int actorId, int afterId, int limit, boolean descending, boolean withEstimate) throws SQLException {
+        return TransactionManager.executeReadOnly(connection -> {
+            Page<Film> page = Page.of(filmDao.findByActorId(connection, actorId, afterId, limit + 1, descending), limit, Film::getFilmId);
+            page.setItems(withDetails(connection, page.getItems()));
+            if (withEstimate) page.setEstimatedTotal(tableStatsDao.estimateFilmsByActor(connection, actorId));
+            return page;
+        });
+    }
+    
     // Business Logic: Get Films by Category - Returns List<Film> with FULL relationships
     public List<Film> getFilmsByCategory(int categoryId) throws SQLException {
-        return TransactionManager.executeInTransaction(connection -> {
+        return TransactionManager.executeReadOnly(connection -> {
             // Get film IDs in this category
             List<FilmCategory> filmCategories = filmCategoryDao.findByCategoryId(connection, categoryId);
             List<Film> filmsWithDetails = new ArrayList<>();
@@ -441,6 +620,35 @@ public class FilmManagementService {
         });
     }
     
+    // Business Logic: Get one keyset page of Films by Category - Returns Page<Film> with FULL relationships
+    public Page<Film> getFilmsByCategoryPage(int categoryId, int afterId, int limit, boolean descending, boolean withEstimate) throws SQLException {
+        return TransactionManager.executeReadOnly(connection -> {
+            Page<Film> page = Page.of(filmDao.findByCategoryId(connection, categoryId, afterId, limit + 1, descending), limit, Film::getFilmId);
+            page.setItems(withDetails(connection, page.getItems()));
+            if (withEstimate) page.setEstimatedTotal(tableStatsDao.estimateFilmsByCategory(connection, categoryId));
+            return page;
+        });
+    }
+    
+    // Same fallback as the list methods: a film whose relationships fail to load goes out bare
+    private List<Film> withDetails(Connection connection, List<Film> films) {
+        List<Film> filmsWithDetails = new ArrayList<>();
+        for (Film film : films) {
+            try {
+                Film filmWithDetails = buildFilmWithRelationships(connection, film.getFilmId());
+                if (filmWithDetails != null) {
+                    filmsWithDetails.add(filmWithDetails);
+                }
+            } catch (Exception e) {
+                film.setFilmActorList(new ArrayList<>());
+                film.setFilmCategoryList(new ArrayList<>());
+                film.setInventoryList(new ArrayList<>());
+                filmsWithDetails.add(film);
+            }
+        }
+        return filmsWithDetails;
+    }
+    
     // Business Logic: Update Film - Returns Film object (no relationships)
     public Film updateFilm(int filmId, Map<String, Object> requestData) throws SQLException {
         return TransactionManager.executeInTransaction(connection -> {
@@ -478,10 +686,7 @@ public class FilmManagementService {
             // Business rule: Check for active rentals
             List<Inventory> inventories = inventoryDao.findByFilmId(connection, filmId);
             for (Inventory inventory : inventories) {
-                List<Rental> activeRentals = rentalDao.findByInventoryId(connection, inventory.getInventoryId())
-                    .stream()
-                    .filter(r -> r.getReturnDate() == null)
-                    .collect(Collectors.toList());
+                List<Rental> activeRentals = rentalDao.findActiveByInventoryId(connection, inventory.getInventoryId());
                 
                 if (!activeRentals.isEmpty()) {
                     throw new IllegalStateException("Cannot delete film with active rentals");
@@ -564,14 +769,14 @@ public class FilmManagementService {
         try {
             /* -------- language & original language -------- */
             if (film.getLanguage() != null) {
-                Language lang = languageDao.findById(connection,
-                                                     film.getLanguage().getLanguageId());
+                Language lang = ReferenceDataCache.LANGUAGES.get(connection,
+                                                                 film.getLanguage().getLanguageId());
                 if (lang != null) film.setLanguage(lang);
             }
 
             if (film.getOriginalLanguage() != null) {
-                Language oLang = languageDao.findById(connection,
-                                                      film.getOriginalLanguage().getLanguageId());
+                Language oLang = ReferenceDataCache.LANGUAGES.get(connection,
+                                                                  film.getOriginalLanguage().getLanguageId());
                 if (oLang != null) film.setOriginalLanguage(oLang);
             }
 
@@ -592,7 +797,7 @@ public class FilmManagementService {
             for (FilmCategory fc : filmCategories) {
                 int catId = fc.getCategory() != null ? fc.getCategory().getCategoryId() : 0;
                 if (catId > 0) {
-                    Category cat = categoryDao.findById(connection, catId);
+                    Category cat = ReferenceDataCache.CATEGORIES.get(connection, catId);
                     if (cat != null) fc.setCategory(cat);        // hydrate category
                 }
                 fc.setFilm(film);                                // set back-reference
@@ -615,6 +820,78 @@ public class FilmManagementService {
         return film;
     }
     
+    /**
+     * Same aggregate as buildFilmWithRelationships, but the independent branches
+     * (actors, categories, inventory) are loaded concurrently through a
+     * ParallelReadScope and applied to the film once all of them have finished.
+     */
+    private Film buildFilmWithRelationshipsParallel(Connection connection, int filmId) throws SQLException {
+
+        Film film = filmDao.findById(connection, filmId);
+        if (film == null) {
+            return null;
+        }
+
+        try (ParallelReadScope scope = new ParallelReadScope(connection)) {
+            ParallelReadScope.Subtask<List<FilmActor>> actors = scope.fork(conn -> {
+                List<FilmActor> filmActors = filmActorDao.findByFilmId(conn, filmId);
+                Set<Integer> actorIds = new HashSet<>();
+                for (FilmActor fa : filmActors) {
+                    if (fa.getActor() != null && fa.getActor().getActorId() > 0) actorIds.add(fa.getActor().getActorId());
+                }
+                Map<Integer, Actor> actorMap = new HashMap<>();
+                for (Actor actor : actorDao.findByIds(conn, actorIds)) actorMap.put(actor.getActorId(), actor);
+                for (FilmActor fa : filmActors) {
+                    if (fa.getActor() != null) {
+                        Actor actor = actorMap.get(fa.getActor().getActorId());
+                        if (actor != null) fa.setActor(actor);
+                    }
+                }
+                return filmActors;
+            });
+            ParallelReadScope.Subtask<List<FilmCategory>> categories = scope.fork(conn -> {
+                List<FilmCategory> filmCategories = filmCategoryDao.findByFilmId(conn, filmId);
+                for (FilmCategory fc : filmCategories) {
+                    if (fc.getCategory() != null && fc.getCategory().getCategoryId() > 0) {
+                        Category category = ReferenceDataCache.CATEGORIES.get(conn, fc.getCategory().getCategoryId());
+                        if (category != null) fc.setCategory(category);
+                    }
+                }
+                return filmCategories;
+            });
+            ParallelReadScope.Subtask<List<Inventory>> inventory = scope.fork(conn -> inventoryDao.findByFilmId(conn, filmId));
+
+            scope.join();
+
+            /* -------- apply results on the caller thread -------- */
+            // Languages come from the reference snapshot, no subtask needed
+            if (film.getLanguage() != null) {
+                Language lang = ReferenceDataCache.LANGUAGES.get(connection, film.getLanguage().getLanguageId());
+                if (lang != null) film.setLanguage(lang);
+            }
+            if (film.getOriginalLanguage() != null) {
+                Language oLang = ReferenceDataCache.LANGUAGES.get(connection, film.getOriginalLanguage().getLanguageId());
+                if (oLang != null) film.setOriginalLanguage(oLang);
+            }
+            List<FilmActor> filmActors = actors.get();
+            for (FilmActor fa : filmActors) fa.setFilm(film);
+            film.setFilmActorList(filmActors);
+            List<FilmCategory> filmCategories = categories.get();
+            for (FilmCategory fc : filmCategories) fc.setFilm(film);
+            film.setFilmCategoryList(filmCategories);
+            film.setInventoryList(inventory.get());
+
+        } catch (Exception ex) {
+            System.err.println("⚠️  Error loading relationships for film "
+                               + filmId + ": " + ex.getMessage());
+            film.setFilmActorList(new ArrayList<>());
+            film.setFilmCategoryList(new ArrayList<>());
+            film.setInventoryList(new ArrayList<>());
+        }
+
+        return film;
+    }
+    
     // Helper mapping methods
     private Film mapToFilm(Map<String, Object> data) {
         Film film = new Film();
@@ -0,0 +1,99 @@
+package service;
+
+import DataBaseConnection.ReadYourWrites;
+import DataBaseConnection.TransactionManager;
+import config.DatabaseConfig;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collapses identical concurrent reads into one. The first caller for a key runs the load;
+ * callers arriving while it is in flight wait for its result (or its exception) instead of
+ * taking a connection of their own. The key is released as soon as the load finishes, so
+ * nothing is cached here: a caller arriving afterwards starts a new load.
+ *
+ * A waiting caller gives up after singleFlight.timeoutMillis and runs the load itself.
+ * Callers inside a transaction or inside a read-your-writes window never join a flight,
+ * since the shared load may run on another connection or a replica.
+ *
+ * All callers receive the same object, so results must be treated as read-only.
+ */
+public final class SingleFlight<K, V> {
+
+    @FunctionalInterface
+    public interface Loader<V> {
+        V load() throws SQLException;
+    }
+
+    private final String name;
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong leaders = new AtomicLong();
+    private final AtomicLong collapsed = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+
+    public SingleFlight(String name) {
+        this.name = name;
+    }
+
+    public V execute(K key, Loader<V> loader) throws SQLException {
+        if (!DatabaseConfig.isSingleFlightEnabled() || TransactionManager.isTransactionActive()
+                || ReadYourWrites.mustReadPrimary()) {
+            return loader.load();
+        }
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, flight);
+        if (running != null) {
+            return await(running, loader);
+        }
+
+        leaders.incrementAndGet();
+        try {
+            V value = loader.load();
+            flight.complete(value);
+            return value;
+        } catch (SQLException | RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private V await(CompletableFuture<V> running, Loader<V> loader) throws SQLException {
+        try {
+            V value = running.get(DatabaseConfig.getSingleFlightTimeoutMillis(), TimeUnit.MILLISECONDS);
+            collapsed.incrementAndGet();
+            return value;
+        } catch (TimeoutException e) {
+            timeouts.incrementAndGet();
+            return loader.load();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for " + name, e);
+        } catch (ExecutionException e) {
+            // The leader's failure is every waiter's failure (a missing film is still a 404)
+            collapsed.incrementAndGet();
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException sqlException) throw sqlException;
+            if (cause instanceof RuntimeException runtimeException) throw runtimeException;
+            if (cause instanceof Error error) throw error;
+            throw new SQLException(cause);
+        }
+    }
+
+    public String getName() { return name; }
+    public long getLeaders() { return leaders.get(); }
+    public long getCollapsed() { return collapsed.get(); }
+    public long getTimeouts() { return timeouts.get(); }
+
+    public int getInFlight() {
+        return inFlight.size();
+    }
+}
@@ -2,7 +2,9 @@ package service;
 
 import dao.*;
 import model.*;
+import DataBaseConnection.SchemaMigrations;
 import DataBaseConnection.TransactionManager;
+import config.DatabaseConfig;
 
 import java.sql.SQLException;
 import java.time.LocalDateTime;
@@ -20,6 +22,9 @@ public class StoreManagementService {
     private final InventoryDao inventoryDao;
     private final FilmDao filmDao;
     private final RentalDao rentalDao;
+    private final StoreAggregateDao storeAggregateDao;
+    private final TableStatsDao tableStatsDao;
+    private final FilmStoreAvailabilityDao availabilityDao;
     
     public StoreManagementService() {
         this.storeDao = new StoreDao();
@@ -31,6 +36,9 @@ public class StoreManagementService {
         this.inventoryDao = new InventoryDao();
         this.filmDao = new FilmDao();
         this.rentalDao = new RentalDao();
+        this.storeAggregateDao = new StoreAggregateDao();
+        this.tableStatsDao = new TableStatsDao();
+        this.availabilityDao = new FilmStoreAvailabilityDao();
     }
     
     // Business Logic: Create Store - Returns Store object
@@ -115,7 +123,7 @@ public class StoreManagementService {
     
     // Business Logic: Get Store by ID - Returns Store object
     public Store getStoreById(int storeId) throws SQLException {
-        return TransactionManager.executeInTransaction(connection -> {
+        return TransactionManager.executeReadOnly(connection -> {
             Store store = buildStoreWithRelationships(connection, storeId);
             
             if (store == null) {
@@ -128,32 +136,38 @@ public class StoreManagementService {
     
     // Business Logic: Get All Stores - Returns List<Store>
     public List<Store> getAllStores() throws SQLException {
-        return TransactionManager.executeInTransaction(connection -> {
-            List<Store> stores = storeDao.findAll(connection);
-            List<Store> storesWithDetails = new ArrayList<>();
+        return TransactionManager.executeReadOnly(connection -> {
+            // All store aggregates in a single round trip
+            return storeAggregateDao.findAll(connection);
+        });
+    }
+    
+    // Business Logic: Get one keyset page of stores - Returns Page<Store>
+    public Page<Store> getStorePage(int afterId, int limit, boolean descending, boolean withEstimate) throws SQLException {
+        return TransactionManager.executeReadOnly(connection -> {
+            List<Store> rows = storeDao.findPage(connection, afterId, limit + 1, descending);
+            Page<Store> page = Page.of(rows, limit, Store::getStoreId);
             
-            for (Store store : stores) {
-                try {
-                    Store storeWithDetails = buildStoreWithRelationships(connection, store.getStoreId());
-                    if (storeWithDetails != null) {
-                        storesWithDetails.add(storeWithDetails);
-                    }
-                } catch (Exception e) {
-                    // Add basic store if relationship loading fails
-                    store.setStaffList(new ArrayList<>());
-                    store.setCustomerList(new ArrayList<>());
-                    store.setInventoryList(new ArrayList<>());
-                    storesWithDetails.add(store);
-                }
+            // Aggregates come back in store_id order, keep the order of the page
+            List<Integer> storeIds = page.getItems().stream().map(Store::getStoreId).collect(Collectors.toList());
+            Map<Integer, Store> aggregates = new HashMap<>();
+            for (Store store : storeAggregateDao.findByIds(connection, storeIds)) {
+                aggregates.put(store.getStoreId(), store);
             }
+            List<Store> stores = new ArrayList<>();
+            for (Store store : page.getItems()) {
+                stores.add(aggregates.getOrDefault(store.getStoreId(), store));
+            }
+            page.setItems(stores);
             
-            return storesWithDetails;
+            if (withEstimate) page.setEstimatedTotal(tableStatsDao.estimateRowCount(connection, "store"));
+            return page;
         });
     }
     
     // Business Logic: Get Stores by City - Returns List<Store>
     public List<Store> getStoresByCity(String cityName) throws SQLException {
-        return TransactionManager.executeInTransaction(connection -> {
+        return TransactionManager.executeReadOnly(connection -> {
             List<Store> allStores = getAllStores();
             List<Store> cityStores = allStores.stream()
                 .filter(store -> {
@@ -172,7 +186,7 @@ public class StoreManagementService {
     
     // Business Logic: Get Store Customers - Returns List<Customer>
     public List<Customer> getStoreCustomers(int storeId) throws SQLException {
-        return TransactionManager.executeInTransaction(connection -> {
+        return TransactionManager.executeReadOnly(connection -> {
             Store store = storeDao.findById(connection, storeId);
             if (store == null) {
                 throw new IllegalArgumentException("Store not found with ID: " + storeId);
@@ -183,9 +197,24 @@ public class StoreManagementService {
         });
     }
     
+    // Business Logic: Get one keyset page of Store Customers - Returns Page<Customer>
+    public Page<Customer> getStoreCustomersPage(int storeId, int afterId, int limit, boolean descending, boolean withEstimate) throws SQLException {
+        return TransactionManager.executeReadOnly(connection -> {
+            Store store = storeDao.findById(connection, storeId);
+            if (store == null) {
+                throw new IllegalArgumentException("Store not found with ID: " + storeId);
+            }
+            
+            List<Customer> rows = customerDao.findByStoreId(connection, storeId, afterId, limit + 1, descending);
+            Page<Customer> page = Page.of(rows, limit, Customer::getCustomerId);
+            if (withEstimate) page.setEstimatedTotal(tableStatsDao.estimateCustomersByStore(connection, storeId));
+            return page;
+        });
+    }
+    
     // Business Logic: Get Store Staff - Returns List<Staff>
     public List<Staff> getStoreStaff(int storeId) throws SQLException {
-        return TransactionManager.executeInTransaction(connection -> {
+        return TransactionManager.executeReadOnly(connection -> {
             Store store = storeDao.findById(connection, storeId);
             if (store == null) {
                 throw new IllegalArgumentException("Store not found with ID: " + storeId);
@@ -198,56 +227,147 @@ public class StoreManagementService {
     
     // Business Logic: Get Store Rentals - Returns List<Rental>
     public List<Rental> getStoreRentals(int storeId) throws SQLException {
-        return TransactionManager.executeInTransaction(connection -> {
+        return TransactionManager.executeReadOnly(connection -> {
             Store store = storeDao.findById(connection, storeId);
             if (store == null) {
                 throw new IllegalArgumentException("Store not found with ID: " + storeId);
             }
             
-            // Get all rentals where inventory belongs to this store
-            List<Rental> allRentals = rentalDao.findAll(connection);
-            List<Rental> storeRentals = allRentals.stream()
-                .filter(rental -> {
-                    try {
-                        Inventory inventory = inventoryDao.findById(connection, rental.getInventory().getInventoryId());
-                        return inventory != null && inventory.getStore().getStoreId() == storeId;
-                    } catch (Exception e) {
-                        return false;
-                    }
-                })
-                .collect(Collectors.toList());
+            // Rentals joined to inventory on store_id in one query
+            return rentalDao.findByStoreId(connection, storeId);
+        });
+    }
+    
+    // Business Logic: Get one page of Store Rentals in a date range - Returns Page<Rental>
+    public Page<Rental> getStoreRentalPage(int storeId, LocalDateTime from, LocalDateTime to,
+            int afterId, int limit, boolean descending, boolean withEstimate) throws SQLException {
+        return TransactionManager.executeReadOnly(connection -> {
+            Store store = storeDao.findById(connection, storeId);
+            if (store == null) {
+                throw new IllegalArgumentException("Store not found with ID: " + storeId);
+            }
             
-            return storeRentals;
+            List<Rental> rows = rentalDao.findByStoreId(connection, storeId, from, to, afterId, limit + 1, descending);
+            Page<Rental> page = Page.of(rows, limit, Rental::getRentalId);
+            if (withEstimate) page.setEstimatedTotal(tableStatsDao.estimateRentalsByStore(connection, storeId, from, to));
+            return page;
         });
     }
     
     // Business Logic: Get Store Inventory - Returns List<Map<String, Object>>
     public List<Map<String, Object>> getStoreInventory(int storeId) throws SQLException {
-        return TransactionManager.executeInTransaction(connection -> {
+        return TransactionManager.executeReadOnly(connection -> {
             Store store = storeDao.findById(connection, storeId);
             if (store == null) {
                 throw new IllegalArgumentException("Store not found with ID: " + storeId);
             }
             
             List<Inventory> inventoryList = inventoryDao.findByStoreId(connection, storeId);
+            return inventoryWithFilms(connection, storeId, inventoryList);
+        });
+    }
+    
+    // Business Logic: Get one keyset page of Store Inventory - cursor is the inventory_id
+    public Page<Map<String, Object>> getStoreInventoryPage(int storeId, int afterId, int limit, boolean descending, boolean withEstimate) throws SQLException {
+        return TransactionManager.executeReadOnly(connection -> {
+            Store store = storeDao.findById(connection, storeId);
+            if (store == null) {
+                throw new IllegalArgumentException("Store not found with ID: " + storeId);
+            }
             
-            // Load film details for each inventory item
-            List<Map<String, Object>> inventoryWithFilms = new ArrayList<>();
-            for (Inventory inventory : inventoryList) {
-                Map<String, Object> inventoryData = new HashMap<>();
-                inventoryData.put("inventoryId", inventory.getInventoryId());
-                inventoryData.put("storeId", storeId);
-                
-                if (inventory.getFilm() != null) {
-                    Film film = filmDao.findById(connection, inventory.getFilm().getFilmId());
-                    inventoryData.put("film", film);
+            List<Inventory> rows = inventoryDao.findByStoreId(connection, storeId, afterId, limit + 1, descending);
+            Page<Inventory> copies = Page.of(rows, limit, Inventory::getInventoryId);
+            Page<Map<String, Object>> page = new Page<>(inventoryWithFilms(connection, storeId, copies.getItems()),
+                    copies.getNextCursor(), null);
+            if (withEstimate) page.setEstimatedTotal(tableStatsDao.estimateInventoryByStore(connection, storeId));
+            return page;
+        });
+    }
+    
+    // Load film details for each inventory item
+    private List<Map<String, Object>> inventoryWithFilms(java.sql.Connection connection, int storeId,
+            List<Inventory> inventoryList) throws SQLException {
+        List<Map<String, Object>> inventoryWithFilms = new ArrayList<>();
+        for (Inventory inventory : inventoryList) {
+            Map<String, Object> inventoryData = new HashMap<>();
+            inventoryData.put("inventoryId", inventory.getInventoryId());
+            inventoryData.put("storeId", storeId);
+            
+            if (inventory.getFilm() != null) {
+                Film film = filmDao.findById(connection, inventory.getFilm().getFilmId());
+                inventoryData.put("film", film);
+            }
+            
+            inventoryData.put("lastUpdate", inventory.getLastUpdate().toString());
+            inventoryWithFilms.add(inventoryData);
+        }
+        return inventoryWithFilms;
+    }
+    
+    // Business Logic: Get Store Availability - per-film copy counts from the film_store_availability read model
+    public List<FilmStoreAvailability> getStoreAvailability(int storeId) throws SQLException {
+        return TransactionManager.executeReadOnly(connection -> {
+            Store store = storeDao.findById(connection, storeId);
+            if (store == null) {
+                throw new IllegalArgumentException("Store not found with ID: " + storeId);
+            }
+            
+            // Same fallbacks as film availability: read model, then index, then the tables
+            if (DatabaseConfig.isAvailabilityReadModelEnabled() && SchemaMigrations.isAvailabilityReadModelInstalled()) {
+                return availabilityDao.findByStoreId(connection, storeId);
+            }
+            Map<Integer, InventoryAvailabilityIndex.Availability> byFilm = InventoryAvailabilityIndex.byFilm(storeId);
+            if (byFilm != null) {
+                List<FilmStoreAvailability> availabilityList = new ArrayList<>();
+                for (Map.Entry<Integer, InventoryAvailabilityIndex.Availability> entry : byFilm.entrySet()) {
+                    FilmStoreAvailability availability = new FilmStoreAvailability();
+                    availability.setFilmId(entry.getKey());
+                    availability.setStoreId(storeId);
+                    availability.setTotal(entry.getValue().total());
+                    availability.setAvailable(entry.getValue().available());
+                    availabilityList.add(availability);
                 }
-                
-                inventoryData.put("lastUpdate", inventory.getLastUpdate().toString());
-                inventoryWithFilms.add(inventoryData);
+                return availabilityList;
+            }
+            return inventoryDao.countAvailabilityByStoreId(connection, storeId);
+        });
+    }
+    
+    // Business Logic: One keyset page of the store dashboard - one row per film, so the cursor is the film_id
+    public Page<FilmStoreAvailability> getStoreAvailabilityPage(int storeId, int afterFilmId, int limit, boolean descending,
+            boolean withEstimate) throws SQLException {
+        return TransactionManager.executeReadOnly(connection -> {
+            Store store = storeDao.findById(connection, storeId);
+            if (store == null) {
+                throw new IllegalArgumentException("Store not found with ID: " + storeId);
             }
             
-            return inventoryWithFilms;
+            List<FilmStoreAvailability> rows;
+            NavigableMap<Integer, InventoryAvailabilityIndex.Availability> ordered;
+            if (DatabaseConfig.isAvailabilityReadModelEnabled() && SchemaMigrations.isAvailabilityReadModelInstalled()) {
+                rows = availabilityDao.findPageByStoreId(connection, storeId, afterFilmId, limit + 1, descending);
+            } else if ((ordered = InventoryAvailabilityIndex.byFilm(storeId)) != null) {
+                // Sorted by film id, so the page is a range walk from the cursor
+                NavigableMap<Integer, InventoryAvailabilityIndex.Availability> range = descending
+                        ? (afterFilmId > 0 ? ordered.headMap(afterFilmId, false) : ordered).descendingMap()
+                        : ordered.tailMap(afterFilmId, false);
+                rows = new ArrayList<>();
+                for (Map.Entry<Integer, InventoryAvailabilityIndex.Availability> entry : range.entrySet()) {
+                    if (rows.size() == limit + 1) break;
+                    FilmStoreAvailability availability = new FilmStoreAvailability();
+                    availability.setFilmId(entry.getKey());
+                    availability.setStoreId(storeId);
+                    availability.setTotal(entry.getValue().total());
+                    availability.setAvailable(entry.getValue().available());
+                    rows.add(availability);
+                }
+            } else {
+                rows = inventoryDao.countAvailabilityByStoreId(connection, storeId, afterFilmId, limit + 1, descending);
+            }
+            
+            Page<FilmStoreAvailability> page = Page.of(rows, limit, FilmStoreAvailability::getFilmId);
+            if (withEstimate) page.setEstimatedTotal(tableStatsDao.estimateFilmsByStore(connection, storeId));
+            return page;
         });
     }
     
@@ -296,62 +416,10 @@ public class StoreManagementService {
         });
     }
     
-    // Business Logic: Build Store with Relationships
+    // Business Logic: Build Store with Relationships (manager, address, city, country, staff, customers, inventory)
     private Store buildStoreWithRelationships(java.sql.Connection connection, int storeId) throws SQLException {
-        Store store = storeDao.findById(connection, storeId);
-        if (store == null) return null;
-        
-        try {
-            // Load manager (DAO already creates placeholder Staff with ID)
-            if (store.getManagerStaff() != null && store.getManagerStaff().getStaffId() > 0) {
-                Staff manager = staffDao.findById(connection, store.getManagerStaff().getStaffId());
-                if (manager != null) {
-                    store.setManagerStaff(manager);
-                }
-            }
-            
-            // Load address (DAO already creates placeholder Address with ID)
-            if (store.getAddress() != null && store.getAddress().getAddressId() > 0) {
-                Address address = addressDao.findById(connection, store.getAddress().getAddressId());
-                if (address != null) {
-                    // Load city and country
-                    if (address.getCity() != null && address.getCity().getCityId() > 0) {
-                        City city = cityDao.findById(connection, address.getCity().getCityId());
-                        if (city != null) {
-                            address.setCity(city);
-                            
-                            if (city.getCountry() != null && city.getCountry().getCountryId() > 0) {
-                                Country country = countryDao.findById(connection, city.getCountry().getCountryId());
-                                if (country != null) {
-                                    city.setCountry(country);
-                                }
-                            }
-                        }
-                    }
-                    store.setAddress(address);
-                }
-            }
-            
-            // Load staff
-            List<Staff> staff = staffDao.findByStoreId(connection, storeId);
-            store.setStaffList(staff != null ? staff : new ArrayList<>());
-            
-            // Load customers
-            List<Customer> customers = customerDao.findByStoreId(connection, storeId);
-            store.setCustomerList(customers != null ? customers : new ArrayList<>());
-            
-            // Load inventory
-            List<Inventory> inventory = inventoryDao.findByStoreId(connection, storeId);
-            store.setInventoryList(inventory != null ? inventory : new ArrayList<>());
-            
-        } catch (Exception e) {
-            System.err.println("⚠️ Error loading relationships for store " + storeId + ": " + e.getMessage());
-            store.setStaffList(new ArrayList<>());
-            store.setCustomerList(new ArrayList<>());
-            store.setInventoryList(new ArrayList<>());
-        }
-        
-        return store;
+        List<Store> stores = storeAggregateDao.findByIds(connection, List.of(storeId));
+        return stores.isEmpty() ? null : stores.get(0);
     }
     
     // Helper mapping methods
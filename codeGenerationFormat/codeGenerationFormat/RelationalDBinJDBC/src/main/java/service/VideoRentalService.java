@@ -1,10 +1,13 @@
 package service;
 
 import dao.*;
+import dao.generated.PaymentGeneratedDao;
 import model.*;
 import DataBaseConnection.TransactionManager;
+import config.DatabaseConfig;
 
 import java.math.BigDecimal;
+import java.sql.Connection;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -19,7 +22,8 @@ public class VideoRentalService {
     private final InventoryDao inventoryDao;
     private final FilmDao filmDao;
     private final StaffDao staffDao;
-    private final PaymentDao paymentDao;
+    private final PaymentGeneratedDao paymentDao;
+    private final TableStatsDao tableStatsDao;
     
     public VideoRentalService() {
         this.rentalDao = new RentalDao();
@@ -27,12 +31,18 @@ public class VideoRentalService {
         this.inventoryDao = new InventoryDao();
         this.filmDao = new FilmDao();
         this.staffDao = new StaffDao();
-        this.paymentDao = new PaymentDao();
+        this.paymentDao = new PaymentGeneratedDao();
+        this.tableStatsDao = new TableStatsDao();
     }
     
     
     // Business Logic: Create Rental - Returns Rental object
     public Rental createRental(Map<String, Object> requestData) throws SQLException {
+        // Absent means the film is still out; a malformed date is the client's error, not "now"
+        Object rentalPart = requestData.containsKey("rental") && requestData.containsKey("payment")
+                ? requestData.get("rental") : requestData;
+        LocalDateTime returnDate = rentalPart instanceof Map<?, ?> part
+                ? parseOptionalDateTime(part.get("returnDate"), "returnDate") : null;
         try {
             return TransactionManager.executeInTransaction(connection -> {
                 System.out.println("🎬 Starting rental creation transaction...");
@@ -53,7 +63,6 @@ public class VideoRentalService {
                     
                     // Create objects
                     Rental rental = mapToRental(rentalData);
-                    LocalDateTime returnDate = parseLocalDateTime((String) rentalData.get("returnDate"));
                     
                     // Validate entities exist
                     Customer customer = customerDao.findById(connection, rental.getCustomer().getCustomerId());
@@ -106,10 +115,9 @@ public class VideoRentalService {
                     payment.setStaff(staff);
                     payment.setRental(rental);
                     payment.setLastUpdate(LocalDateTime.now());
-                    int paymentId = paymentDao.insert(connection, payment);
-                    payment.setPaymentId(paymentId);
+                    insertPayment(connection, payment);
                     
-                    // Calculate and create late fee if applicable
+                    // Late fee only for a rental recorded as already returned
                     if (returnDate != null) {
                         BigDecimal lateFee = calculateLateFee(rental.getRentalDate(), returnDate, film.getRentalDuration());
                         if (lateFee.compareTo(BigDecimal.ZERO) > 0) {
@@ -120,7 +128,7 @@ public class VideoRentalService {
                             lateFeePayment.setAmount(lateFee);
                             lateFeePayment.setPaymentDate(returnDate);
                             lateFeePayment.setLastUpdate(LocalDateTime.now());
-                            paymentDao.insert(connection, lateFeePayment);
+                            insertPayment(connection, lateFeePayment);
                         }
                     }
                     
@@ -165,7 +173,7 @@ public class VideoRentalService {
                 lateFeePayment.setAmount(lateFee);
                 lateFeePayment.setPaymentDate(rental.getReturnDate());
                 lateFeePayment.setLastUpdate(LocalDateTime.now());
-                paymentDao.insert(connection, lateFeePayment);
+                insertPayment(connection, lateFeePayment);
             }
             
             return buildRentalWithRelationships(connection, rentalId);
@@ -187,9 +195,7 @@ public class VideoRentalService {
             
             // Delete related payments first (if any)
             List<Payment> payments = paymentDao.findByRentalId(connection, rentalId);
-            for (Payment payment : payments) {
-                paymentDao.deleteById(connection, payment.getPaymentId());
-            }
+            paymentDao.deleteByIds(connection, payments.stream().map(Payment::getPaymentId).toList());
             
             // Delete the rental
             rentalDao.deleteById(connection, rentalId);
@@ -200,7 +206,7 @@ public class VideoRentalService {
     
     // Business Logic: Get Rental by ID - Returns Rental object
     public Rental getRentalById(int rentalId) throws SQLException {
-        return TransactionManager.executeInTransaction(connection -> {
+        return TransactionManager.executeReadOnly(connection -> {
             Rental rental = buildRentalWithRelationships(connection, rentalId);
             
             if (rental == null) {
@@ -213,54 +219,70 @@ public class VideoRentalService {
     
     // Business Logic: Get All Rentals - Returns List<Rental>
     public List<Rental> getAllRentals() throws SQLException {
-        return TransactionManager.executeInTransaction(connection -> {
+        return TransactionManager.executeReadOnly(connection -> {
             List<Rental> allRentals = rentalDao.findAll(connection);
-            List<Rental> allRentalsWithDetails = new ArrayList<>();
-            
-            for (Rental rental : allRentals) {
-                try {
-                    Rental rentalWithDetails = buildRentalWithRelationships(connection, rental.getRentalId());
-                    if (rentalWithDetails != null) {
-                        allRentalsWithDetails.add(rentalWithDetails);
-                    }
-                } catch (Exception e) {
-                    rental.setPaymentList(new ArrayList<>());
-                    allRentalsWithDetails.add(rental);
+            return hydrateRentals(connection, allRentals);
+        });
+    }
+    
+    // Business Logic: Get one keyset page of rentals - Returns Page<Rental>
+    public Page<Rental> getRentalPage(int afterId, int limit, boolean descending, boolean withEstimate) throws SQLException {
+        return TransactionManager.executeReadOnly(connection -> {
+            List<Rental> rows = rentalDao.findPage(connection, afterId, limit + 1, descending);
+            Page<Rental> page = Page.of(rows, limit, Rental::getRentalId);
+            hydrateRentals(connection, page.getItems());
+            if (withEstimate) page.setEstimatedTotal(tableStatsDao.estimateRowCount(connection, "rental"));
+            return page;
+        });
+    }
+    
+    // Business Logic: Stream all rentals through a server-side cursor, hydrated one fetch-sized chunk at a time
+    public void streamAllRentals(RowHandler<Rental> handler) throws SQLException {
+        int chunkSize = DatabaseConfig.getStreamFetchSize();
+        TransactionManager.executeReadOnly(Connection.TRANSACTION_REPEATABLE_READ, connection -> {
+            List<Rental> chunk = new ArrayList<>(chunkSize);
+            rentalDao.streamAll(connection, chunkSize, rental -> {
+                chunk.add(rental);
+                if (chunk.size() == chunkSize) {
+                    emitHydratedChunk(connection, chunk, handler);
                 }
-            }
-            
-            return allRentalsWithDetails;
+            });
+            emitHydratedChunk(connection, chunk, handler);
+            return null;
         });
     }
     
+    private void emitHydratedChunk(java.sql.Connection connection, List<Rental> chunk, RowHandler<Rental> handler) throws SQLException {
+        if (chunk.isEmpty()) return;
+        for (Rental rental : hydrateRentals(connection, chunk)) {
+            handler.handle(rental);
+        }
+        chunk.clear();
+    }
+    
     // Business Logic: Get All Active Rentals - Returns List<Rental>
     public List<Rental> getAllActiveRentals() throws SQLException {
-        return TransactionManager.executeInTransaction(connection -> {
-            List<Rental> allRentals = rentalDao.findAll(connection);
-            List<Rental> activeRentals = allRentals.stream()
-                .filter(r -> r.getReturnDate() == null)
-                .collect(Collectors.toList());
-            
-            List<Rental> activeRentalsWithDetails = new ArrayList<>();
-            for (Rental rental : activeRentals) {
-                try {
-                    Rental rentalWithDetails = buildRentalWithRelationships(connection, rental.getRentalId());
-                    if (rentalWithDetails != null) {
-                        activeRentalsWithDetails.add(rentalWithDetails);
-                    }
-                } catch (Exception e) {
-                    rental.setPaymentList(new ArrayList<>());
-                    activeRentalsWithDetails.add(rental);
-                }
-            }
-            
-            return activeRentalsWithDetails;
+        return TransactionManager.executeReadOnly(connection -> {
+            // Served by the partial index on open rentals
+            List<Rental> activeRentals = rentalDao.findActive(connection);
+            return hydrateRentals(connection, activeRentals);
+        });
+    }
+    
+    // Business Logic: Get one keyset page of active rentals - Returns Page<Rental>
+    public Page<Rental> getActiveRentalsPage(int afterId, int limit, boolean descending, boolean withEstimate) throws SQLException {
+        return TransactionManager.executeReadOnly(connection -> {
+            List<Rental> rows = rentalDao.findActive(connection, afterId, limit + 1, descending);
+            Page<Rental> page = Page.of(rows, limit, Rental::getRentalId);
+            hydrateRentals(connection, page.getItems());
+            if (withEstimate) page.setEstimatedTotal(tableStatsDao.estimateActiveRentals(connection));
+            return page;
         });
     }
     
     // Business Logic: Get Customer Rentals - Returns List<Rental>
     public List<Rental> getCustomerRentals(int customerId) throws SQLException {
-        return TransactionManager.executeInTransaction(connection -> {
+        return TransactionManager.executeReadOnly(connection -> {
             
             Customer customer = customerDao.findById(connection, customerId);
             if (customer == null) {
@@ -268,99 +290,65 @@ public class VideoRentalService {
             }
             
             List<Rental> rentals = rentalDao.findByCustomerId(connection, customerId);
-            List<Rental> rentalsWithDetails = new ArrayList<>();
+            return hydrateRentals(connection, rentals);
+        });
+    }
+    
+    // Business Logic: Get one keyset page of a customer's rentals - Returns Page<Rental>
+    public Page<Rental> getCustomerRentalsPage(int customerId, int afterId, int limit, boolean descending, boolean withEstimate) throws SQLException {
+        return TransactionManager.executeReadOnly(connection -> {
             
-            for (Rental rental : rentals) {
-                try {
-                    Rental rentalWithDetails = buildRentalWithRelationships(connection, rental.getRentalId());
-                    if (rentalWithDetails != null) {
-                        rentalsWithDetails.add(rentalWithDetails);
-                    }
-                } catch (Exception e) {
-                    rental.setPaymentList(new ArrayList<>());
-                    rentalsWithDetails.add(rental);
-                }
+            Customer customer = customerDao.findById(connection, customerId);
+            if (customer == null) {
+                throw new IllegalArgumentException("Customer not found with ID: " + customerId);
             }
             
-            return rentalsWithDetails;
+            List<Rental> rows = rentalDao.findByCustomerId(connection, customerId, afterId, limit + 1, descending);
+            Page<Rental> page = Page.of(rows, limit, Rental::getRentalId);
+            hydrateRentals(connection, page.getItems());
+            if (withEstimate) page.setEstimatedTotal(tableStatsDao.estimateRentalsByCustomer(connection, customerId));
+            return page;
         });
     }
     
     // Business Logic: Get Rentals by Store - Returns List<Rental>
     public List<Rental> getRentalsByStore(int storeId) throws SQLException {
-        return TransactionManager.executeInTransaction(connection -> {
-            // Get all rentals where inventory belongs to the specified store
-            List<Rental> allRentals = rentalDao.findAll(connection);
-            List<Rental> storeRentals = allRentals.stream()
-                .filter(rental -> {
-                    try {
-                        Inventory inventory = inventoryDao.findById(connection, rental.getInventory().getInventoryId());
-                        return inventory != null && inventory.getStore().getStoreId() == storeId;
-                    } catch (Exception e) {
-                        return false;
-                    }
-                })
-                .collect(Collectors.toList());
-            
-            List<Rental> storeRentalsWithDetails = new ArrayList<>();
-            for (Rental rental : storeRentals) {
-                try {
-                    Rental rentalWithDetails = buildRentalWithRelationships(connection, rental.getRentalId());
-                    if (rentalWithDetails != null) {
-                        storeRentalsWithDetails.add(rentalWithDetails);
-                    }
-                } catch (Exception e) {
-                    rental.setPaymentList(new ArrayList<>());
-                    storeRentalsWithDetails.add(rental);
-                }
-            }
-            
-            return storeRentalsWithDetails;
+        return TransactionManager.executeReadOnly(connection -> {
+            // Rentals joined to inventory on store_id in one query
+            List<Rental> storeRentals = rentalDao.findByStoreId(connection, storeId);
+            return hydrateRentals(connection, storeRentals);
+        });
+    }
+    
+    // Business Logic: Get one page of Rentals by Store in a date range - Returns Page<Rental>
+    public Page<Rental> getRentalsByStorePage(int storeId, LocalDateTime from, LocalDateTime to,
+            int afterId, int limit, boolean descending, boolean withEstimate) throws SQLException {
+        return TransactionManager.executeReadOnly(connection -> {
+            List<Rental> rows = rentalDao.findByStoreId(connection, storeId, from, to, afterId, limit + 1, descending);
+            Page<Rental> page = Page.of(rows, limit, Rental::getRentalId);
+            hydrateRentals(connection, page.getItems());
+            if (withEstimate) page.setEstimatedTotal(tableStatsDao.estimateRentalsByStore(connection, storeId, from, to));
+            return page;
         });
     }
     
     // Business Logic: Get Overdue Rentals - Returns List<Rental>
     public List<Rental> getOverdueRentals() throws SQLException {
-        return TransactionManager.executeInTransaction(connection -> {
-            List<Rental> allRentals = rentalDao.findAll(connection);
-            List<Rental> overdueRentals = new ArrayList<>();
-            
-            for (Rental rental : allRentals) {
-                // Only check active rentals (not returned)
-                if (rental.getReturnDate() == null) {
-                    try {
-                        // Get film info to check rental duration
-                        Inventory inventory = inventoryDao.findById(connection, rental.getInventory().getInventoryId());
-                        if (inventory != null) {
-                            Film film = filmDao.findById(connection, inventory.getFilm().getFilmId());
-                            if (film != null) {
-                                LocalDateTime dueDate = rental.getRentalDate().plusDays(film.getRentalDuration());
-                                if (LocalDateTime.now().isAfter(dueDate)) {
-                                    overdueRentals.add(rental);
-                                }
-                            }
-                        }
-                    } catch (Exception e) {
-                        // Skip this rental if we can't determine if it's overdue
-                        continue;
-                    }
-                }
-            }
-
-            List<Rental> overdueRentalsWithDetails = new ArrayList<>();
-            for (Rental rental : overdueRentals) {
-                try {
-                    Rental rentalWithDetails = buildRentalWithRelationships(connection, rental.getRentalId());
-                    if (rentalWithDetails != null) {
-                        overdueRentalsWithDetails.add(rentalWithDetails);
-                    }
-                } catch (Exception e) {
-                    rental.setPaymentList(new ArrayList<>());
-                    overdueRentalsWithDetails.add(rental);
-                }
-            }
-            
-            return overdueRentalsWithDetails;
+        return TransactionManager.executeReadOnly(connection -> {
+            // Due date (rental_date + film.rental_duration days) is computed in SQL
+            List<Rental> overdueRentals = rentalDao.findOverdue(connection);
+            return hydrateRentals(connection, overdueRentals);
+        });
+    }
+    
+    // Business Logic: Get one keyset page of overdue rentals - Returns Page<Rental>
+    public Page<Rental> getOverdueRentalsPage(int afterId, int limit, boolean descending, boolean withEstimate) throws SQLException {
+        return TransactionManager.executeReadOnly(connection -> {
+            List<Rental> rows = rentalDao.findOverdue(connection, afterId, limit + 1, descending);
+            Page<Rental> page = Page.of(rows, limit, Rental::getRentalId);
+            hydrateRentals(connection, page.getItems());
+            if (withEstimate) page.setEstimatedTotal(tableStatsDao.estimateOverdueRentals(connection));
+            return page;
         });
     }
     
@@ -436,6 +424,98 @@ public class VideoRentalService {
         return rental;
     }
     
+    // Business Logic: Hydrate a list of rentals with a fixed number of queries
+    // (customers, inventory, films, staff and payments are each fetched once with = ANY(?))
+    private List<Rental> hydrateRentals(java.sql.Connection connection, List<Rental> rentals) throws SQLException {
+        if (rentals.isEmpty()) return rentals;
+        
+        try {
+            Set<Integer> customerIds = new HashSet<>();
+            Set<Integer> inventoryIds = new HashSet<>();
+            Set<Integer> staffIds = new HashSet<>();
+            List<Integer> rentalIds = new ArrayList<>(rentals.size());
+            
+            for (Rental rental : rentals) {
+                rentalIds.add(rental.getRentalId());
+                if (rental.getCustomer() != null && rental.getCustomer().getCustomerId() > 0) {
+                    customerIds.add(rental.getCustomer().getCustomerId());
+                }
+                if (rental.getInventory() != null && rental.getInventory().getInventoryId() > 0) {
+                    inventoryIds.add(rental.getInventory().getInventoryId());
+                }
+                if (rental.getStaff() != null && rental.getStaff().getStaffId() > 0) {
+                    staffIds.add(rental.getStaff().getStaffId());
+                }
+            }
+            
+            // Load customers, inventory and staff
+            Map<Integer, Customer> customers = new HashMap<>();
+            for (Customer customer : customerDao.findByIds(connection, customerIds)) {
+                customers.put(customer.getCustomerId(), customer);
+            }
+            
+            Map<Integer, Inventory> inventories = new HashMap<>();
+            Set<Integer> filmIds = new HashSet<>();
+            for (Inventory inventory : inventoryDao.findByIds(connection, inventoryIds)) {
+                inventories.put(inventory.getInventoryId(), inventory);
+                if (inventory.getFilm() != null && inventory.getFilm().getFilmId() > 0) {
+                    filmIds.add(inventory.getFilm().getFilmId());
+                }
+            }
+            
+            Map<Integer, Staff> staffMembers = new HashMap<>();
+            for (Staff staff : staffDao.findByIds(connection, staffIds)) {
+                staffMembers.put(staff.getStaffId(), staff);
+            }
+            
+            // Load films for the inventory
+            Map<Integer, Film> films = new HashMap<>();
+            for (Film film : filmDao.findByIds(connection, filmIds)) {
+                films.put(film.getFilmId(), film);
+            }
+            for (Inventory inventory : inventories.values()) {
+                if (inventory.getFilm() != null) {
+                    Film film = films.get(inventory.getFilm().getFilmId());
+                    if (film != null) {
+                        inventory.setFilm(film);
+                    }
+                }
+            }
+            
+            // Load payments grouped by rental
+            Map<Integer, List<Payment>> paymentsByRental = new HashMap<>();
+            for (Payment payment : paymentDao.findByRentalIds(connection, rentalIds)) {
+                paymentsByRental.computeIfAbsent(payment.getRentalId(), id -> new ArrayList<>()).add(payment);
+            }
+            
+            for (Rental rental : rentals) {
+                if (rental.getCustomer() != null) {
+                    Customer customer = customers.get(rental.getCustomer().getCustomerId());
+                    if (customer != null) rental.setCustomer(customer);
+                }
+                if (rental.getInventory() != null) {
+                    Inventory inventory = inventories.get(rental.getInventory().getInventoryId());
+                    if (inventory != null) rental.setInventory(inventory);
+                }
+                if (rental.getStaff() != null) {
+                    Staff staff = staffMembers.get(rental.getStaff().getStaffId());
+                    if (staff != null) rental.setStaff(staff);
+                }
+                rental.setPaymentList(paymentsByRental.getOrDefault(rental.getRentalId(), new ArrayList<>()));
+            }
+            
+        } catch (Exception e) {
+            System.err.println("⚠️ Error loading relationships for " + rentals.size() + " rentals: " + e.getMessage());
+            for (Rental rental : rentals) {
+                if (rental.getPaymentList() == null) {
+                    rental.setPaymentList(new ArrayList<>());
+                }
+            }
+        }
+        
+        return rentals;
+    }
+    
     // Helper mapping methods
     private Rental mapToRental(Map<String, Object> data) {
         Rental rental = new Rental();
@@ -457,6 +537,14 @@ public class VideoRentalService {
         return rental;
     }
     
+    // The generated DAO binds the id columns, not the related objects
+    private void insertPayment(Connection connection, Payment payment) throws SQLException {
+        payment.setCustomerId(payment.getCustomer() != null ? payment.getCustomer().getCustomerId() : null);
+        payment.setStaffId(payment.getStaff() != null ? payment.getStaff().getStaffId() : null);
+        payment.setRentalId(payment.getRental() != null ? payment.getRental().getRentalId() : null);
+        paymentDao.insertBatch(connection, List.of(payment));
+    }
+    
     private Payment mapToPayment(Map<String, Object> data) {
         Payment payment = new Payment();
         payment.setAmount(BigDecimal.valueOf((Double) data.get("amount")));
@@ -478,6 +566,19 @@ public class VideoRentalService {
         }
     }
     
+    // Null when absent or blank; IllegalArgumentException (400) when it does not parse
+    private LocalDateTime parseOptionalDateTime(Object value, String field) {
+        if (value == null || value.toString().trim().isEmpty()) {
+            return null;
+        }
+        try {
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+            return LocalDateTime.parse(value.toString().trim(), formatter);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid " + field + ", expected yyyy-MM-dd'T'HH:mm:ss: " + value);
+        }
+    }
+    
     private LocalDateTime calculateDueDate(LocalDateTime rentalDate, int rentalDuration) {
         return rentalDate.plusDays(rentalDuration);
     }
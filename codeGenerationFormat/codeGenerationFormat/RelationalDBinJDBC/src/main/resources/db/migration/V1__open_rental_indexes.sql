@@ -0,0 +1,18 @@
+-- Indexes for the active/overdue rental queries in RentalDao.
+-- Only open rentals (return_date IS NULL) are indexed, so the indexes stay small
+-- no matter how much rental history accumulates.
+-- CONCURRENTLY cannot run inside a transaction block: run this file with autocommit on.
+
+-- findActiveByInventoryId: "is this copy rented out right now?"
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_rental_open_inventory
+    ON rental (inventory_id)
+    WHERE return_date IS NULL;
+
+-- findActive / findOverdue: walk only the open rentals, oldest first.
+-- The due date is rental_date + film.rental_duration days; rental_duration lives on
+-- film, and an index expression cannot reference another table, so the index is on
+-- rental_date and the join to inventory/film filters the (small) open set.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_rental_open_rental_date
+    ON rental (rental_date)
+    INCLUDE (inventory_id)
+    WHERE return_date IS NULL;
@@ -0,0 +1,10 @@
+-- Indexes for RentalDao.findByStoreId (rental JOIN inventory on store_id, optional date range).
+-- CONCURRENTLY cannot run inside a transaction block: run this file with autocommit on.
+
+-- Inventory copies of one store
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_inventory_store_inventory
+    ON inventory (store_id, inventory_id);
+
+-- Rentals of those copies, range-filtered on rental_date
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_rental_inventory_rental_date
+    ON rental (inventory_id, rental_date);
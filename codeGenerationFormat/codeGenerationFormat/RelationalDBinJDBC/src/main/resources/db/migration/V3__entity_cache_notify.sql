@@ -0,0 +1,35 @@
+-- Cache invalidation events for EntityCache (FilmDao/StaffDao.findById).
+-- Every UPDATE or DELETE of a cached row sends "<table>:<id>" on channel entity_cache; a
+-- TRUNCATE sends "<table>:*". NOTIFY is delivered at commit, so rolled-back writes send nothing.
+
+CREATE OR REPLACE FUNCTION notify_entity_cache() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'TRUNCATE' THEN
+        PERFORM pg_notify('entity_cache', TG_TABLE_NAME || ':*');
+    ELSE
+        -- TG_ARGV[0] names the primary key column
+        PERFORM pg_notify('entity_cache', TG_TABLE_NAME || ':' || (to_jsonb(OLD) ->> TG_ARGV[0]));
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS film_entity_cache_notify ON film;
+CREATE TRIGGER film_entity_cache_notify
+    AFTER UPDATE OR DELETE ON film
+    FOR EACH ROW EXECUTE FUNCTION notify_entity_cache('film_id');
+
+DROP TRIGGER IF EXISTS film_entity_cache_truncate ON film;
+CREATE TRIGGER film_entity_cache_truncate
+    AFTER TRUNCATE ON film
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_entity_cache();
+
+DROP TRIGGER IF EXISTS staff_entity_cache_notify ON staff;
+CREATE TRIGGER staff_entity_cache_notify
+    AFTER UPDATE OR DELETE ON staff
+    FOR EACH ROW EXECUTE FUNCTION notify_entity_cache('staff_id');
+
+DROP TRIGGER IF EXISTS staff_entity_cache_truncate ON staff;
+CREATE TRIGGER staff_entity_cache_truncate
+    AFTER TRUNCATE ON staff
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_entity_cache();
@@ -0,0 +1,119 @@
+-- Read model for film availability (FilmStoreAvailabilityDao): copies and copies on the
+-- shelf per (film, store), kept current by the triggers below in the writing transaction.
+-- A copy is out while it has a rental with no return_date.
+
+CREATE TABLE IF NOT EXISTS film_store_availability (
+    film_id   integer NOT NULL,
+    store_id  integer NOT NULL,
+    total     integer NOT NULL DEFAULT 0,
+    available integer NOT NULL DEFAULT 0,
+    PRIMARY KEY (film_id, store_id)
+);
+
+-- Store dashboards read by store
+CREATE INDEX IF NOT EXISTS idx_film_store_availability_store
+    ON film_store_availability (store_id, film_id);
+
+-- Adds the deltas to one (film, store) row, creating it on first use
+CREATE OR REPLACE FUNCTION adjust_film_store_availability(p_film_id integer, p_store_id integer,
+        p_total integer, p_available integer) RETURNS void AS $$
+BEGIN
+    IF p_film_id IS NULL OR p_store_id IS NULL OR (p_total = 0 AND p_available = 0) THEN
+        RETURN;
+    END IF;
+    INSERT INTO film_store_availability AS a (film_id, store_id, total, available)
+    VALUES (p_film_id, p_store_id, p_total, p_available)
+    ON CONFLICT (film_id, store_id) DO UPDATE
+        SET total = a.total + EXCLUDED.total,
+            available = a.available + EXCLUDED.available;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION rebuild_film_store_availability() RETURNS void AS $$
+BEGIN
+    DELETE FROM film_store_availability;
+    INSERT INTO film_store_availability (film_id, store_id, total, available)
+    SELECT i.film_id, i.store_id, count(*),
+           count(*) FILTER (WHERE NOT EXISTS (
+               SELECT 1 FROM rental r WHERE r.inventory_id = i.inventory_id AND r.return_date IS NULL))
+    FROM inventory i
+    WHERE i.film_id IS NOT NULL AND i.store_id IS NOT NULL
+    GROUP BY i.film_id, i.store_id;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION inventory_film_store_availability() RETURNS trigger AS $$
+DECLARE
+    shelved integer;
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        shelved := CASE WHEN EXISTS (SELECT 1 FROM rental r
+                WHERE r.inventory_id = OLD.inventory_id AND r.return_date IS NULL) THEN 0 ELSE 1 END;
+        PERFORM adjust_film_store_availability(OLD.film_id, OLD.store_id, -1, -shelved);
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        shelved := CASE WHEN EXISTS (SELECT 1 FROM rental r
+                WHERE r.inventory_id = NEW.inventory_id AND r.return_date IS NULL) THEN 0 ELSE 1 END;
+        PERFORM adjust_film_store_availability(NEW.film_id, NEW.store_id, 1, shelved);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- A copy is counted once however many open rentals it has (as in the rebuild), so
+-- "available" only moves when a copy goes from no open rental to some, or back. The
+-- inventory row is locked first, so concurrent rentals of one copy see each other.
+CREATE OR REPLACE FUNCTION rental_film_store_availability() RETURNS trigger AS $$
+DECLARE
+    copy inventory%ROWTYPE;
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') AND OLD.return_date IS NULL THEN
+        SELECT * INTO copy FROM inventory WHERE inventory_id = OLD.inventory_id FOR NO KEY UPDATE;
+        -- This trigger runs after the change, so the query sees the copy's remaining rentals
+        IF FOUND AND NOT EXISTS (SELECT 1 FROM rental r
+                WHERE r.inventory_id = OLD.inventory_id AND r.return_date IS NULL) THEN
+            PERFORM adjust_film_store_availability(copy.film_id, copy.store_id, 0, 1);
+        END IF;
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') AND NEW.return_date IS NULL
+            AND NOT (TG_OP = 'UPDATE' AND OLD.return_date IS NULL AND OLD.inventory_id = NEW.inventory_id) THEN
+        SELECT * INTO copy FROM inventory WHERE inventory_id = NEW.inventory_id FOR NO KEY UPDATE;
+        IF FOUND AND NOT EXISTS (SELECT 1 FROM rental r
+                WHERE r.inventory_id = NEW.inventory_id AND r.return_date IS NULL
+                  AND r.rental_id <> NEW.rental_id) THEN
+            PERFORM adjust_film_store_availability(copy.film_id, copy.store_id, 0, -1);
+        END IF;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION truncate_film_store_availability() RETURNS trigger AS $$
+BEGIN
+    PERFORM rebuild_film_store_availability();
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS inventory_film_store_availability ON inventory;
+CREATE TRIGGER inventory_film_store_availability
+    AFTER INSERT OR DELETE OR UPDATE OF film_id, store_id ON inventory
+    FOR EACH ROW EXECUTE FUNCTION inventory_film_store_availability();
+
+DROP TRIGGER IF EXISTS rental_film_store_availability ON rental;
+CREATE TRIGGER rental_film_store_availability
+    AFTER INSERT OR DELETE OR UPDATE OF inventory_id, return_date ON rental
+    FOR EACH ROW EXECUTE FUNCTION rental_film_store_availability();
+
+DROP TRIGGER IF EXISTS inventory_film_store_availability_truncate ON inventory;
+CREATE TRIGGER inventory_film_store_availability_truncate
+    AFTER TRUNCATE ON inventory
+    FOR EACH STATEMENT EXECUTE FUNCTION truncate_film_store_availability();
+
+DROP TRIGGER IF EXISTS rental_film_store_availability_truncate ON rental;
+CREATE TRIGGER rental_film_store_availability_truncate
+    AFTER TRUNCATE ON rental
+    FOR EACH STATEMENT EXECUTE FUNCTION truncate_film_store_availability();
+
+-- Backfill from the current tables; re-running this script also repairs any drift
+SELECT rebuild_film_store_availability();